@@ -0,0 +1,170 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Event sink that hands events to a bounded ring buffer and returns immediately
+ * A background writer thread drains the buffer in batches into another sink,
+ * so slow output (such as the console) stays off the caller's thread
+ */
+public class AsyncEventSink implements EventSink {
+    private static final int MAX_BATCH = 1024;
+    private static final long POLL_MILLIS = 10;
+    
+    private final EventSink target;
+    private final BlockingQueue<LibraryEvent> buffer;
+    private final Thread writer;
+    private final AtomicLong published;
+    private final AtomicLong lost;
+    private final AtomicReference<Throwable> failure; // first failure not yet reported
+    private final ReadWriteLock lifecycle; // publishers share it, close takes it alone
+    private final Object progress;
+    private long written; // guarded by progress
+    private volatile boolean closed;
+    
+    /**
+     * @param capacity ring buffer size; publishers wait when it is full, so no event is dropped
+     */
+    public AsyncEventSink(EventSink target, int capacity) {
+        this.target = target;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.published = new AtomicLong();
+        this.lost = new AtomicLong();
+        this.failure = new AtomicReference<>();
+        this.lifecycle = new ReentrantReadWriteLock();
+        this.progress = new Object();
+        this.writer = new Thread(this::drain, "library-event-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+    
+    public AsyncEventSink(EventSink target) {
+        this(target, 64 * 1024);
+    }
+    
+    // Events whose batch the target sink failed to write
+    public long getLostEvents() { return lost.get(); }
+    
+    /**
+     * Waits for room in the buffer even when interrupted, then restores the interrupt flag,
+     * so an accepted event is never dropped. Close waits for publishers already inside
+     */
+    @Override
+    public void publish(LibraryEvent event) {
+        lifecycle.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Event sink is closed");
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    buffer.put(event);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            published.incrementAndGet();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Waits until everything published so far has been handed to the target sink
+     * @throws IllegalStateException if the target failed on a batch since the last report
+     */
+    @Override
+    public void flush() {
+        long target = published.get();
+        synchronized (progress) {
+            while (written < target && writer.isAlive()) {
+                try {
+                    progress.wait(POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        reportFailure();
+    }
+    
+    // Stops new publishes, lets the writer drain every accepted event, then closes the target
+    @Override
+    public void close() {
+        lifecycle.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        target.close();
+        reportFailure();
+    }
+    
+    private void reportFailure() {
+        Throwable e = failure.getAndSet(null);
+        if (e != null) {
+            throw new IllegalStateException("Event sink lost " + lost.get() + " event(s)", e);
+        }
+    }
+    
+    // Every publish completes before closed is set, so an empty buffer after close means all is written
+    private void drain() {
+        List<LibraryEvent> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            LibraryEvent first;
+            try {
+                first = buffer.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                if (closed && buffer.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            buffer.drainTo(batch, MAX_BATCH - batch.size());
+            try {
+                target.publishBatch(batch);
+            } catch (Throwable e) {
+                // Errors and sneakily thrown checked exceptions too: the writer must keep draining,
+                // so publishers never block on a dead thread
+                lost.addAndGet(batch.size());
+                failure.compareAndSet(null, e);
+            }
+            synchronized (progress) {
+                written += batch.size();
+                progress.notifyAll();
+            }
+            batch.clear();
+        }
+    }
+}
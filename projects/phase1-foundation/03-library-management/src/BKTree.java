@@ -0,0 +1,131 @@
+import java.util.Arrays;
+
+/**
+ * Burkhard-Keller tree over words under Levenshtein distance
+ * Each child edge is labelled with its distance to the parent, so by the triangle
+ * inequality a search within distance k only descends into edges labelled d-k..d+k
+ */
+public class BKTree {
+    /**
+     * Receives each word found within the search distance
+     */
+    public interface Visitor {
+        void visit(String word, int distance);
+    }
+    
+    private Node root;
+    private int size;
+    
+    private static final class Node {
+        final String word;
+        int[] edgeDistances = new int[0];
+        Node[] children = new Node[0];
+        int maxEdge;
+        
+        Node(String word) {
+            this.word = word;
+        }
+        
+        Node child(int distance) {
+            for (int i = 0; i < edgeDistances.length; i++) {
+                if (edgeDistances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+        
+        void addChild(int distance, Node child) {
+            edgeDistances = Arrays.copyOf(edgeDistances, edgeDistances.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            edgeDistances[edgeDistances.length - 1] = distance;
+            children[children.length - 1] = child;
+            maxEdge = Math.max(maxEdge, distance);
+        }
+    }
+    
+    // Returns false if the word is already in the tree
+    public boolean add(String word) {
+        if (root == null) {
+            root = new Node(word);
+            size++;
+            return true;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(word, node.word, Integer.MAX_VALUE);
+            if (distance == 0) {
+                return false;
+            }
+            Node child = node.child(distance);
+            if (child == null) {
+                node.addChild(distance, new Node(word));
+                size++;
+                return true;
+            }
+            node = child;
+        }
+    }
+    
+    // Visits every word within maxDistance of the query
+    public void search(String query, int maxDistance, Visitor visitor) {
+        if (root == null) {
+            return;
+        }
+        Node[] stack = new Node[64];
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            Node node = stack[--top];
+            // Past maxDistance + maxEdge neither this word nor any child can match, so stop early
+            int distance = distance(query, node.word, maxDistance + node.maxEdge);
+            if (distance <= maxDistance) {
+                visitor.visit(node.word, distance);
+            }
+            for (int i = 0; i < node.edgeDistances.length; i++) {
+                if (Math.abs(node.edgeDistances[i] - distance) <= maxDistance) {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = node.children[i];
+                }
+            }
+        }
+    }
+    
+    public int size() { return size; }
+    
+    /**
+     * Levenshtein distance between two words
+     * Stops early and returns a value above limit once every alignment exceeds it
+     */
+    public static int distance(String a, String b, int limit) {
+        if (a.length() > b.length()) {
+            String swap = a;
+            a = b;
+            b = swap;
+        }
+        int[] previous = new int[a.length() + 1];
+        int[] current = new int[a.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            previous[i] = i;
+        }
+        for (int j = 1; j <= b.length(); j++) {
+            current[0] = j;
+            int rowMin = j;
+            char bj = b.charAt(j - 1);
+            for (int i = 1; i <= a.length(); i++) {
+                int substitute = previous[i - 1] + (a.charAt(i - 1) == bj ? 0 : 1);
+                current[i] = Math.min(substitute, Math.min(previous[i], current[i - 1]) + 1);
+                rowMin = Math.min(rowMin, current[i]);
+            }
+            if (rowMin > limit) {
+                return rowMin;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[a.length()];
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmark for batch borrow and return
+ * Checks all-or-nothing behaviour, then compares the per-item cost of single-item calls
+ * with borrowItems/returnItems for batches of 1, 3 and 5 (the borrowing limit)
+ */
+public class BatchBenchmark {
+    private static final int ITEMS = 100_000;
+    private static final int MEMBERS = 10_000; // bags rotate across members, each within the limit
+    private static final int DEFAULT_ITEMS_PER_RUN = 2_000_000;
+    private static final int[] BATCH_SIZES = {1, 3, Member.MAX_BORROWED_ITEMS};
+    
+    public static void main(String[] args) {
+        int itemsPerRun = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITEMS_PER_RUN;
+        System.out.println("=== Batch Circulation Benchmark ===\n");
+        
+        System.out.println("1. All-or-nothing check:");
+        checkAllOrNothing();
+        
+        Library library = new Library("Bench");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        // Reference items cannot be lent, so bags hold only lendable books
+        Item[] items = Arrays.stream(BenchmarkSupport.syntheticItems(ITEMS, 31))
+                .filter(item -> !(item instanceof Reference)).toArray(Item[]::new);
+        library.addItems(Arrays.asList(items));
+        for (int m = 0; m < MEMBERS; m++) {
+            library.registerMember(new Member("M" + m, "Member " + m, "m" + m + "@example.com"));
+        }
+        
+        System.out.printf("%n2. Borrow + return, %,d items per run:%n", itemsPerRun);
+        System.out.println("Batch size   Single-item calls   borrowItems/returnItems");
+        for (int round = 0; round < 2; round++) { // the first round warms up
+            for (int size : BATCH_SIZES) {
+                double single = perItemNanos(library, items, size, itemsPerRun, false);
+                double batched = perItemNanos(library, items, size, itemsPerRun, true);
+                if (round == 1) {
+                    System.out.printf("%-12d %,14.0f ns   %,19.0f ns   (per item)%n", size, single, batched);
+                }
+            }
+        }
+        
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    private static double perItemNanos(Library library, Item[] items, int size, int itemsPerRun, boolean batched) {
+        List<List<String>> bags = new ArrayList<>();
+        for (int start = 0; start + size <= items.length; start += size) {
+            List<String> bag = new ArrayList<>(size);
+            for (int i = start; i < start + size; i++) {
+                bag.add(items[i].getId());
+            }
+            bags.add(bag);
+        }
+        int runs = itemsPerRun / size;
+        long begin = System.nanoTime();
+        for (int run = 0; run < runs; run++) {
+            List<String> bag = bags.get(run % bags.size());
+            String memberId = "M" + (run % MEMBERS);
+            if (batched) {
+                BenchmarkSupport.consume(library.borrowItems(memberId, bag));
+                BenchmarkSupport.consume(library.returnItems(memberId, bag));
+            } else {
+                for (String itemId : bag) {
+                    library.borrowItem(itemId, memberId);
+                }
+                for (String itemId : bag) {
+                    library.returnItem(itemId, memberId);
+                }
+            }
+        }
+        return (double) (System.nanoTime() - begin) / ((long) runs * size);
+    }
+    
+    private static void checkAllOrNothing() {
+        Library library = new Library("Check");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        library.addItem(new Fiction("F1", "One", "Author", "978-1"));
+        library.addItem(new Fiction("F2", "Two", "Author", "978-2"));
+        library.addItem(new Fiction("F3", "Three", "Author", "978-3"));
+        library.addItem(new Reference("R1", "Atlas", "Author", "978-4"));
+        library.registerMember(new Member("M1", "Reader", "r@example.com"));
+        library.registerMember(new Member("M2", "Other", "o@example.com"));
+        
+        library.borrowItem("F3", "M2");
+        BatchResult unavailable = library.borrowItems("M1", List.of("F1", "F2", "F3"));
+        BatchResult reference = library.borrowItems("M1", List.of("F1", "R1"));
+        BatchResult tooMany = library.borrowItems("M1", List.of("F1", "F2", "F1", "F2", "F1", "F2"));
+        BatchResult duplicate = library.borrowItems("M1", List.of("F1", "F1"));
+        boolean untouched = library.findItemById("F1").isAvailable() && library.findItemById("F2").isAvailable()
+                         && library.findMemberById("M1").getBorrowedCount() == 0;
+        BatchResult borrowed = library.borrowItems("M1", List.of("F1", "F2"));
+        BatchResult notHers = library.returnItems("M1", List.of("F1", "F3"));
+        boolean stillOut = !library.findItemById("F1").isAvailable();
+        BatchResult returned = library.returnItems("M1", List.of("F2", "F1"));
+        boolean ok = untouched
+                  && unavailable.getFailure() == LibraryEvent.Type.ITEM_UNAVAILABLE && "F3".equals(unavailable.getFailedItemId())
+                  && reference.getFailure() == LibraryEvent.Type.ITEM_UNAVAILABLE
+                  && tooMany.getFailure() == LibraryEvent.Type.MEMBER_CANNOT_BORROW
+                  && duplicate.getFailure() == LibraryEvent.Type.ITEM_UNAVAILABLE
+                  && borrowed.isSuccess() && borrowed.getItemCount() == 2
+                  && !notHers.isSuccess() && stillOut
+                  && returned.isSuccess() && library.findMemberById("M1").getBorrowedCount() == 0;
+        if (!ok) {
+            throw new IllegalStateException("Batch did not behave all-or-nothing");
+        }
+        System.out.println("Rejected batches lend and return nothing - OK");
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a batch borrow or return: either every item was processed or none was
+ * On failure it names the first item (or the member) that stopped the batch and why
+ */
+public class BatchResult {
+    private final String memberId;
+    private final List<String> itemIds;
+    private final LibraryEvent.Type failure; // null when the batch went through
+    private final String failedItemId;
+    private final double finesCharged;
+    
+    private BatchResult(String memberId, List<String> itemIds, LibraryEvent.Type failure,
+                        String failedItemId, double finesCharged) {
+        this.memberId = memberId;
+        this.itemIds = itemIds;
+        this.failure = failure;
+        this.failedItemId = failedItemId;
+        this.finesCharged = finesCharged;
+    }
+    
+    static BatchResult completed(String memberId, List<String> itemIds, double finesCharged) {
+        return new BatchResult(memberId, Collections.unmodifiableList(itemIds), null, null, finesCharged);
+    }
+    
+    static BatchResult rejected(String memberId, LibraryEvent.Type failure, String failedItemId) {
+        return new BatchResult(memberId, Collections.emptyList(), failure, failedItemId, 0.0);
+    }
+    
+    public boolean isSuccess() { return failure == null; }
+    public String getMemberId() { return memberId; }
+    public List<String> getItemIds() { return itemIds; }
+    public int getItemCount() { return itemIds.size(); }
+    public LibraryEvent.Type getFailure() { return failure; }
+    public String getFailedItemId() { return failedItemId; }
+    public double getFinesCharged() { return finesCharged; }
+    
+    @Override
+    public String toString() {
+        if (failure != null) {
+            return "Batch for " + memberId + " rejected: " + failure
+                   + (failedItemId != null ? " (" + failedItemId + ")" : "");
+        }
+        return "Batch for " + memberId + ": " + itemIds.size() + " items"
+               + (finesCharged > 0 ? String.format(", fines $%.2f", finesCharged) : "");
+    }
+}
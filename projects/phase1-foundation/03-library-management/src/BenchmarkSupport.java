@@ -0,0 +1,139 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Small helpers shared by the Library benchmarks
+ * Plain System.nanoTime() timing, percentiles and a sink that keeps results alive
+ */
+public final class BenchmarkSupport {
+    private static volatile long sink;
+    
+    private BenchmarkSupport() {}
+    
+    // Consumes a value so the JIT cannot drop the work that produced it
+    public static void consume(long value) {
+        sink += value;
+    }
+    
+    public static void consume(Object value) {
+        sink += value != null ? System.identityHashCode(value) : 0;
+    }
+    
+    // Runs an action with System.out discarded, for setup that goes through chatty Library methods
+    public static void silenced(Runnable action) {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            action.run();
+        } finally {
+            System.setOut(original);
+        }
+    }
+    
+    /**
+     * Builds a reproducible mix of Fiction, NonFiction and Reference items
+     * with multi-word titles and author names drawn from small vocabularies
+     */
+    public static Item[] syntheticItems(int count, long seed) {
+        Random random = new Random(seed);
+        Item[] items = new Item[count];
+        for (int i = 0; i < count; i++) {
+            String title = pick(random, TITLE_WORDS) + " " + coinedWord(random) + " "
+                         + pick(random, TITLE_WORDS) + " " + (i % 997);
+            String author = pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES)
+                          + (random.nextBoolean() ? coinedWord(random) : "");
+            String isbn = "978-" + (1_000_000_000L + i);
+            int type = random.nextInt(10);
+            if (type < 6) {
+                items[i] = new Fiction("F" + i, title, author, isbn);
+            } else if (type < 9) {
+                items[i] = new NonFiction("NF" + i, title, author, isbn);
+            } else {
+                items[i] = new Reference("R" + i, title, author, isbn);
+            }
+            ((Book) items[i]).setPages(80 + random.nextInt(900));
+        }
+        return items;
+    }
+    
+    // Two or three syllables, giving a vocabulary of tens of thousands of rare words
+    private static String coinedWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int syllables = 2 + random.nextInt(2);
+        for (int i = 0; i < syllables; i++) {
+            word.append(pick(random, SYLLABLES));
+        }
+        return word.toString();
+    }
+    
+    private static String pick(Random random, String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+    
+    private static final String[] TITLE_WORDS = {
+        "history", "river", "shadow", "garden", "empire", "silent", "winter", "ocean", "mountain",
+        "secret", "journey", "kingdom", "machine", "stars", "memory", "island", "fire", "glass",
+        "letters", "night", "summer", "forest", "city", "dream", "war", "peace", "science", "art",
+        "mind", "world", "light", "stone", "road", "house", "brief", "modern", "ancient", "lost",
+        "hidden", "golden", "broken", "wild", "quiet", "last", "first", "little", "great", "sapiens"
+    };
+    
+    private static final String[] SYLLABLES = {
+        "ka", "lo", "mi", "ren", "tha", "vor", "quel", "dra", "sin", "bel", "zu", "mar", "nox",
+        "pri", "gal", "tes", "wyn", "fen", "osk", "ul", "hir", "jad", "cre", "vis", "ta", "por",
+        "ym", "sel", "bru", "ix"
+    };
+    
+    private static final String[] FIRST_NAMES = {
+        "George", "Harper", "Yuval", "Tara", "Jane", "Leo", "Maya", "Omar", "Ines", "Kenji",
+        "Chloe", "Ravi", "Sofia", "Ada", "Pablo", "Nia", "Ivan", "Mei", "Tomas", "Amara"
+    };
+    
+    private static final String[] LAST_NAMES = {
+        "Orwell", "Lee", "Harari", "Westover", "Austen", "Tolstoy", "Angelou", "Pamuk", "Okafor",
+        "Tanaka", "Moreau", "Iyer", "Rossi", "Lovelace", "Neruda", "Adeyemi", "Petrov", "Chen",
+        "Novak", "Mensah", "Garcia", "Berg", "Kowalski", "Haddad", "Silva"
+    };
+    
+    public static double millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000.0;
+    }
+    
+    public static double perSecond(long operations, long elapsedNanos) {
+        return elapsedNanos > 0 ? operations * 1_000_000_000.0 / elapsedNanos : 0.0;
+    }
+    
+    // Returns the given percentile (0-100) of the samples, sorting them in place
+    public static long percentile(long[] samples, double percentile) {
+        if (samples.length == 0) {
+            return 0;
+        }
+        Arrays.sort(samples);
+        int index = (int) Math.ceil(percentile / 100.0 * samples.length) - 1;
+        return samples[Math.max(0, Math.min(samples.length - 1, index))];
+    }
+    
+    public static long usedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    // Bytes allocated so far by the calling thread, as counted by the JVM
+    public static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    
+    public static String formatRate(double perSecond) {
+        return String.format("%,.0f ops/s", perSecond);
+    }
+    
+    public static String formatBytes(long bytes) {
+        return String.format("%,.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -3,49 +3,82 @@
  * Extends Item and implements Borrowable interface
  */
 public abstract class Book extends Item implements Borrowable {
+    // Marker for "no date" in the epoch-day fields
+    public static final long NO_DAY = Long.MIN_VALUE;
+    // Marker for "not borrowed" in the borrower handle
+    public static final int NO_MEMBER = -1;
+    
     protected String isbn;
     protected String genre;
     protected int pages;
-    protected String borrowedBy;
-    protected String borrowDate;
+    protected int borrowerHandle; // IdRegistry.MEMBERS handle
+    protected long borrowEpochDay;
+    protected long finedThroughDay;
     
     public Book(String id, String title, String author, String isbn) {
         super(id, title, author);
         this.isbn = isbn;
-        this.borrowedBy = null;
-        this.borrowDate = null;
+        this.borrowerHandle = NO_MEMBER;
+        this.borrowEpochDay = NO_DAY;
+        this.finedThroughDay = NO_DAY;
     }
     
     // Getters
     public String getIsbn() { return isbn; }
     public String getGenre() { return genre; }
     public int getPages() { return pages; }
-    public String getBorrowedBy() { return borrowedBy; }
-    public String getBorrowDate() { return borrowDate; }
+    public int getBorrowerHandle() { return borrowerHandle; }
+    public boolean isBorrowed() { return borrowerHandle != NO_MEMBER; }
+    public long getBorrowEpochDay() { return borrowEpochDay; }
+    public long getFinedThroughDay() { return finedThroughDay; }
+    
+    public String getBorrowedBy() {
+        return borrowerHandle != NO_MEMBER ? IdRegistry.MEMBERS.idOf(borrowerHandle) : null;
+    }
     
-    // Setters
+    public String getBorrowDate() {
+        return borrowEpochDay != NO_DAY ? java.time.LocalDate.ofEpochDay(borrowEpochDay).toString() : null;
+    }
+    
+    // Last day of the loan; overdue from the day after
+    public long getDueEpochDay() {
+        return borrowEpochDay != NO_DAY ? borrowEpochDay + getBorrowingPeriodDays() : NO_DAY;
+    }
+    
+    // Setters; call them before adding the book to a Library, whose columnar mirror,
+    // facet bitmaps and cached views copy genre and pages only when the item is added
     public void setGenre(String genre) { this.genre = genre; }
     public void setPages(int pages) { this.pages = pages; }
     
+    // Records that overdue fines for the current loan have been charged up to this day
+    public void setFinedThroughDay(long day) { this.finedThroughDay = day; }
+    
     // Common borrowable implementation
     @Override
     public boolean canBorrow() {
-        return isAvailable && borrowedBy == null;
+        return isAvailable && borrowerHandle == NO_MEMBER;
     }
     
     @Override
     public void borrowItem(String memberId) {
+        borrowItem(memberId, java.time.LocalDate.now());
+    }
+    
+    // Borrow with an explicit date, used when replaying saved library state
+    public void borrowItem(String memberId, java.time.LocalDate date) {
         if (canBorrow()) {
-            this.borrowedBy = memberId;
-            this.borrowDate = java.time.LocalDate.now().toString();
+            this.borrowerHandle = IdRegistry.MEMBERS.handleOf(memberId);
+            this.borrowEpochDay = date.toEpochDay();
+            this.finedThroughDay = NO_DAY;
             setAvailable(false);
         }
     }
     
     @Override
     public void returnItem() {
-        this.borrowedBy = null;
-        this.borrowDate = null;
+        this.borrowerHandle = NO_MEMBER;
+        this.borrowEpochDay = NO_DAY;
+        this.finedThroughDay = NO_DAY;
         setAvailable(true);
     }
     
@@ -55,19 +88,20 @@ public abstract class Book extends Item implements Borrowable {
     }
     
     // Common display method for all books
-    public void displayInfo() {
-        System.out.println("=== Book Information ===");
-        System.out.println("ID: " + id);
-        System.out.println("Title: " + title);
-        System.out.println("Author: " + author);
-        System.out.println("ISBN: " + isbn);
-        System.out.println("Genre: " + genre);
-        System.out.println("Pages: " + pages);
-        System.out.println("Available: " + isAvailable);
-        if (!isAvailable && borrowedBy != null) {
-            System.out.println("Borrowed by: " + borrowedBy);
-            System.out.println("Borrow date: " + borrowDate);
+    @Override
+    protected void appendInfo(StringBuilder out) {
+        line(out, "=== Book Information ===");
+        line(out, "ID: " + id);
+        line(out, "Title: " + title);
+        line(out, "Author: " + author);
+        line(out, "ISBN: " + isbn);
+        line(out, "Genre: " + genre);
+        line(out, "Pages: " + pages);
+        line(out, "Available: " + isAvailable);
+        if (!isAvailable && borrowerHandle != NO_MEMBER) {
+            line(out, "Borrowed by: " + getBorrowedBy());
+            line(out, "Borrow date: " + getBorrowDate());
         }
-        System.out.println("========================");
+        line(out, "========================");
     }
 }
@@ -0,0 +1,125 @@
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Set of item IDs a member currently holds
+ * Stores interned item handles in an open-addressing table for O(1) membership, next to
+ * a dense array that keeps borrow order for display. Reads never allocate.
+ */
+public class BorrowedItemSet {
+    private static final int EMPTY = -1;
+    
+    private int[] table; // open addressing with linear probing, EMPTY marks a free bucket
+    private int[] order; // handles in the order they were added
+    private int size;
+    
+    public BorrowedItemSet() {
+        this.table = new int[8];
+        this.order = new int[4];
+        Arrays.fill(table, EMPTY);
+    }
+    
+    public boolean add(String itemId) {
+        if (contains(itemId)) {
+            return false;
+        }
+        int handle = IdRegistry.ITEMS.acquire(itemId); // released again by remove
+        int bucket = find(handle);
+        if ((size + 1) * 2 > table.length) {
+            resize(table.length * 2);
+            bucket = find(handle);
+        }
+        table[bucket] = handle;
+        if (size == order.length) {
+            order = Arrays.copyOf(order, order.length * 2);
+        }
+        order[size++] = handle;
+        return true;
+    }
+    
+    public boolean remove(String itemId) {
+        int handle = IdRegistry.ITEMS.find(itemId);
+        if (handle < 0) {
+            return false;
+        }
+        int bucket = find(handle);
+        if (table[bucket] != handle) {
+            return false;
+        }
+        deleteBucket(bucket);
+        for (int i = 0; i < size; i++) {
+            if (order[i] == handle) {
+                System.arraycopy(order, i + 1, order, i, size - i - 1);
+                break;
+            }
+        }
+        size--;
+        IdRegistry.ITEMS.release(handle);
+        return true;
+    }
+    
+    // Empties the set and releases every handle it held
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            IdRegistry.ITEMS.release(order[i]);
+        }
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+    
+    public boolean contains(String itemId) {
+        int handle = IdRegistry.ITEMS.find(itemId);
+        return handle >= 0 && table[find(handle)] == handle;
+    }
+    
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    
+    // Item ID at a position in borrow order
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Borrowed item index " + index + " out of range 0.." + (size - 1));
+        }
+        return IdRegistry.ITEMS.idOf(order[index]);
+    }
+    
+    public void forEach(Consumer<String> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(IdRegistry.ITEMS.idOf(order[i]));
+        }
+    }
+    
+    // Bucket holding the handle, or the empty bucket where it would go
+    private int find(int handle) {
+        int mask = table.length - 1;
+        int bucket = IntIntMap.mix(handle) & mask;
+        while (table[bucket] != EMPTY && table[bucket] != handle) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+    
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void deleteBucket(int bucket) {
+        int mask = table.length - 1;
+        int gap = bucket;
+        int next = (gap + 1) & mask;
+        while (table[next] != EMPTY) {
+            int home = IntIntMap.mix(table[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[gap] = table[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[gap] = EMPTY;
+    }
+    
+    private void resize(int capacity) {
+        table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        for (int i = 0; i < size; i++) {
+            table[find(order[i])] = order[i];
+        }
+    }
+}
@@ -0,0 +1,146 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Compact borrowing history of one member
+ * Each event is one packed long (item handle, event type, epoch day) in a growable array,
+ * instead of one concatenated String per event. With a retention limit the array becomes
+ * a ring that keeps only the most recent events.
+ */
+public class BorrowingHistory {
+    /**
+     * Kind of history event
+     */
+    public enum EventType { BORROWED, RETURNED }
+    
+    /**
+     * Receives history events without any per-event allocation
+     */
+    public interface Visitor {
+        void visit(String itemId, EventType type, LocalDate date);
+    }
+    
+    private static final EventType[] TYPES = EventType.values();
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+    
+    private long[] events;
+    private int start; // index of the oldest event when the ring has wrapped
+    private int size;
+    private int limit;
+    
+    public BorrowingHistory() {
+        this(UNLIMITED);
+    }
+    
+    /**
+     * @param limit most recent events to keep; older ones are dropped
+     */
+    public BorrowingHistory(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("History limit must be at least 1: " + limit);
+        }
+        this.limit = limit;
+        this.events = new long[Math.min(limit, 4)];
+    }
+    
+    void record(String itemId, EventType type, LocalDate date) {
+        record(pack(IdRegistry.ITEMS.acquire(itemId), type, date.toEpochDay()));
+    }
+    
+    // Each stored event holds its item handle until the event is dropped
+    private void record(long event) {
+        if (size == limit) {
+            IdRegistry.ITEMS.release(handleOf(events[start]));
+            events[start] = event; // overwrite the oldest
+            start = (start + 1) % events.length;
+            return;
+        }
+        if (size == events.length) {
+            events = Arrays.copyOf(events, (int) Math.min((long) limit, events.length * 2L));
+        }
+        events[(start + size) % events.length] = event;
+        size++;
+    }
+    
+    // Changes the retention limit, dropping the oldest events if needed
+    void setLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("History limit must be at least 1: " + limit);
+        }
+        int keep = Math.min(size, limit);
+        for (int i = 0; i < size - keep; i++) {
+            IdRegistry.ITEMS.release(handleOf(raw(i)));
+        }
+        long[] kept = new long[Math.max(keep, Math.min(limit, 4))];
+        for (int i = 0; i < keep; i++) {
+            kept[i] = raw(size - keep + i);
+        }
+        this.events = kept;
+        this.start = 0;
+        this.size = keep;
+        this.limit = limit;
+    }
+    
+    // Drops every event and releases its item handle
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            IdRegistry.ITEMS.release(handleOf(raw(i)));
+        }
+        this.start = 0;
+        this.size = 0;
+    }
+    
+    // Random access, oldest event first
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public int getLimit() { return limit; }
+    
+    public String itemIdAt(int index) {
+        return IdRegistry.ITEMS.idOf(handleOf(raw(index)));
+    }
+    
+    public EventType typeAt(int index) {
+        return TYPES[(int) (raw(index) >>> 24) & 0xFF];
+    }
+    
+    public long epochDayAt(int index) {
+        return (raw(index) << 40) >> 40; // sign-extend the low 24 bits
+    }
+    
+    public void forEach(Visitor visitor) {
+        page(0, size, visitor);
+    }
+    
+    /**
+     * Visits up to count events starting at offset (oldest first)
+     * @return the offset of the next page, or size() when done
+     */
+    public int page(int offset, int count, Visitor visitor) {
+        int end = (int) Math.min((long) offset + count, size);
+        for (int i = Math.max(0, offset); i < end; i++) {
+            visitor.visit(itemIdAt(i), typeAt(i), LocalDate.ofEpochDay(epochDayAt(i)));
+        }
+        return end;
+    }
+    
+    // The original "F001 - Borrowed on 2026-01-01" line for an event
+    public String describe(int index) {
+        String verb = typeAt(index) == EventType.BORROWED ? " - Borrowed on " : " - Returned on ";
+        return itemIdAt(index) + verb + LocalDate.ofEpochDay(epochDayAt(index));
+    }
+    
+    private long raw(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("History index " + index + " out of range 0.." + (size - 1));
+        }
+        return events[(start + index) % events.length];
+    }
+    
+    private static int handleOf(long event) {
+        return (int) (event >>> 32);
+    }
+    
+    private static long pack(int itemHandle, EventType type, long epochDay) {
+        return ((long) itemHandle << 32) | ((long) type.ordinal() << 24) | (epochDay & 0xFFFFFFL);
+    }
+}
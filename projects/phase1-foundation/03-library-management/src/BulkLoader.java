@@ -0,0 +1,322 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streaming bulk import of items and members from CSV or TSV files
+ * Reads one record at a time and inserts in batches without per-row console output,
+ * so files larger than the heap can be loaded
+ *
+ * Item rows:   type, id, title, author, isbn [, pages]   (type is Fiction, NonFiction or Reference)
+ * Member rows: id, name, email [, phone]
+ * A first row whose first column is "type" or "id" is treated as a header. CSV fields
+ * may be double-quoted, with "" for a literal quote, and a quoted field may span lines as in
+ * RFC 4180. A quote still open at the end of the file, or after MAX_RECORD_LENGTH characters,
+ * fails the import with an IOException naming the line the record started on; the batches
+ * loaded before it stay in the library.
+ */
+public class BulkLoader {
+    public static final int MAX_RECORD_LENGTH = 1 << 20;
+    private static final int DEFAULT_BATCH_SIZE = 10_000;
+    
+    private final Library library;
+    private final int batchSize;
+    
+    public BulkLoader(Library library, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        }
+        this.library = library;
+        this.batchSize = batchSize;
+    }
+    
+    public BulkLoader(Library library) {
+        this(library, DEFAULT_BATCH_SIZE);
+    }
+    
+    public ImportReport importItems(Path file) throws IOException {
+        ImportReport report = new ImportReport(file);
+        List<Item> batch = new ArrayList<>(batchSize);
+        char delimiter = delimiterFor(file);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            RecordReader records = new RecordReader(reader, delimiter);
+            String record;
+            boolean first = true;
+            while ((record = records.next()) != null) {
+                if (record.isBlank() || (first && isHeader(record, delimiter, "type"))) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                report.rowsRead++;
+                Item item = parseItem(split(record, delimiter));
+                if (item == null) {
+                    report.malformed++;
+                    continue;
+                }
+                batch.add(item);
+                if (batch.size() == batchSize) {
+                    flushItems(batch, report);
+                }
+            }
+        }
+        flushItems(batch, report);
+        return report.finish();
+    }
+    
+    public ImportReport importMembers(Path file) throws IOException {
+        ImportReport report = new ImportReport(file);
+        List<Member> batch = new ArrayList<>(batchSize);
+        Set<String> batchIds = new HashSet<>();
+        char delimiter = delimiterFor(file);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            RecordReader records = new RecordReader(reader, delimiter);
+            String record;
+            boolean first = true;
+            while ((record = records.next()) != null) {
+                if (record.isBlank() || (first && isHeader(record, delimiter, "id"))) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                report.rowsRead++;
+                List<String> fields = split(record, delimiter);
+                String id = memberId(fields);
+                if (id == null) {
+                    report.malformed++;
+                    continue;
+                }
+                // Checked before building the Member, since its constructor registers the ID for good
+                if (library.findMemberById(id) != null || !batchIds.add(id)) {
+                    report.duplicates++;
+                    continue;
+                }
+                batch.add(parseMember(fields));
+                if (batch.size() == batchSize) {
+                    flushMembers(batch, report);
+                    batchIds.clear();
+                }
+            }
+        }
+        flushMembers(batch, report);
+        return report.finish();
+    }
+    
+    private void flushItems(List<Item> batch, ImportReport report) {
+        int added = library.addItems(batch);
+        report.imported += added;
+        report.duplicates += batch.size() - added;
+        batch.clear();
+    }
+    
+    private void flushMembers(List<Member> batch, ImportReport report) {
+        int added = library.registerMembers(batch);
+        report.imported += added;
+        report.duplicates += batch.size() - added;
+        batch.clear();
+    }
+    
+    // Row parsing - returns null for rows that cannot be used
+    static Item parseItem(List<String> fields) {
+        if (fields.size() < 5) {
+            return null;
+        }
+        String type = fields.get(0).trim();
+        String id = fields.get(1).trim();
+        if (id.isEmpty()) {
+            return null;
+        }
+        String title = fields.get(2).trim();
+        String author = fields.get(3).trim();
+        String isbn = fields.get(4).trim();
+        Book book;
+        if (type.equalsIgnoreCase("Fiction")) {
+            book = new Fiction(id, title, author, isbn);
+        } else if (type.equalsIgnoreCase("NonFiction") || type.equalsIgnoreCase("Non-Fiction")) {
+            book = new NonFiction(id, title, author, isbn);
+        } else if (type.equalsIgnoreCase("Reference")) {
+            book = new Reference(id, title, author, isbn);
+        } else {
+            return null;
+        }
+        if (fields.size() > 5 && !fields.get(5).isBlank()) {
+            try {
+                book.setPages(Integer.parseInt(fields.get(5).trim()));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return book;
+    }
+    
+    static Member parseMember(List<String> fields) {
+        String id = memberId(fields);
+        if (id == null) {
+            return null;
+        }
+        Member member = new Member(id, fields.get(1).trim(), fields.get(2).trim());
+        if (fields.size() > 3 && !fields.get(3).isBlank()) {
+            member.setPhone(fields.get(3).trim());
+        }
+        return member;
+    }
+    
+    // ID of a usable member row, or null
+    private static String memberId(List<String> fields) {
+        return fields.size() < 3 || fields.get(0).isBlank() ? null : fields.get(0).trim();
+    }
+    
+    // Splits one record, honouring double-quoted fields
+    static List<String> split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>(8);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    /**
+     * Reads records rather than lines: while a quoted field is open, the next line joins the
+     * record after a \n. Quotes are tracked exactly as split reads them.
+     */
+    static final class RecordReader {
+        private static final int FIELD_START = 0;
+        private static final int IN_FIELD = 1;
+        private static final int QUOTED = 2;
+        
+        private final BufferedReader reader;
+        private final char delimiter;
+        private long lineNumber;
+        
+        RecordReader(BufferedReader reader, char delimiter) {
+            this.reader = reader;
+            this.delimiter = delimiter;
+        }
+        
+        // The next record, or null at the end of the file
+        String next() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+            int state = scan(line, FIELD_START);
+            if (state != QUOTED) {
+                return line;
+            }
+            long firstLine = lineNumber;
+            StringBuilder record = new StringBuilder(line);
+            while (state == QUOTED) {
+                line = reader.readLine();
+                if (line == null) {
+                    throw new IOException("Quoted field in the record starting on line " + firstLine
+                                          + " is not closed before the end of the file");
+                }
+                lineNumber++;
+                if (record.length() + 1 + line.length() > MAX_RECORD_LENGTH) {
+                    throw new IOException("Record starting on line " + firstLine + " is longer than "
+                                          + MAX_RECORD_LENGTH + " characters; is a quote left open?");
+                }
+                record.append('\n').append(line);
+                state = scan(line, QUOTED);
+            }
+            return record.toString();
+        }
+        
+        // Quote state at the end of a line, given the state at its start
+        private int scan(String line, int state) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (state == QUOTED) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        i++;
+                    } else if (c == '"') {
+                        state = IN_FIELD;
+                    }
+                } else if (c == '"' && state == FIELD_START) {
+                    state = QUOTED;
+                } else {
+                    state = c == delimiter ? FIELD_START : IN_FIELD;
+                }
+            }
+            return state;
+        }
+    }
+    
+    private static char delimiterFor(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".tsv") ? '\t' : ',';
+    }
+    
+    private static boolean isHeader(String line, char delimiter, String firstColumn) {
+        return split(line, delimiter).get(0).trim().equalsIgnoreCase(firstColumn);
+    }
+    
+    /**
+     * Outcome of one import: how many rows were read, loaded and rejected, and how fast
+     */
+    public static class ImportReport {
+        private final Path file;
+        private final long startNanos;
+        private long elapsedNanos;
+        private long rowsRead;
+        private long imported;
+        private long malformed;
+        private long duplicates;
+        
+        private ImportReport(Path file) {
+            this.file = file;
+            this.startNanos = System.nanoTime();
+        }
+        
+        private ImportReport finish() {
+            elapsedNanos = System.nanoTime() - startNanos;
+            return this;
+        }
+        
+        public Path getFile() { return file; }
+        public long getRowsRead() { return rowsRead; }
+        public long getImported() { return imported; }
+        public long getMalformed() { return malformed; }
+        public long getDuplicates() { return duplicates; }
+        public long getRejected() { return malformed + duplicates; }
+        public long getElapsedNanos() { return elapsedNanos; }
+        
+        public double getRowsPerSecond() {
+            return elapsedNanos > 0 ? rowsRead * 1_000_000_000.0 / elapsedNanos : 0.0;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s: %,d rows read, %,d imported, %,d rejected (%,d malformed, %,d duplicate) "
+                                 + "in %,.0f ms - %,.0f rows/s",
+                                 file.getFileName(), rowsRead, imported, getRejected(), malformed, duplicates,
+                                 elapsedNanos / 1e6, getRowsPerSecond());
+        }
+    }
+}
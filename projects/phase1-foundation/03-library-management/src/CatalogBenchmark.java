@@ -0,0 +1,94 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark for the Library item store
+ * Compares the old linear-scan list against ItemCatalog for bulk load and lookup
+ */
+public class CatalogBenchmark {
+    private static final int CATALOG_SIZE = 1_000_000;
+    private static final int LINEAR_SIZE = 20_000; // the linear load is O(n^2), so keep it small
+    private static final int LOOKUPS = 1_000_000;
+    
+    public static void main(String[] args) {
+        int catalogSize = args.length > 0 ? Integer.parseInt(args[0]) : CATALOG_SIZE;
+        System.out.println("=== Item Catalog Benchmark ===\n");
+        
+        Item[] items = createItems(catalogSize);
+        
+        // Warm up both code paths before measuring
+        loadLinear(items, LINEAR_SIZE / 10);
+        loadCatalog(items, catalogSize / 10);
+        
+        System.out.println("1. Bulk load (duplicate check on every add):");
+        long start = System.nanoTime();
+        List<Item> list = loadLinear(items, LINEAR_SIZE);
+        long linearNanos = System.nanoTime() - start;
+        System.out.printf("Linear list,  %,9d items: %,10.1f ms%n", LINEAR_SIZE, linearNanos / 1e6);
+        
+        start = System.nanoTime();
+        ItemCatalog catalog = loadCatalog(items, catalogSize);
+        long catalogNanos = System.nanoTime() - start;
+        System.out.printf("ItemCatalog,  %,9d items: %,10.1f ms%n", catalogSize, catalogNanos / 1e6);
+        double scale = (double) catalogSize / LINEAR_SIZE;
+        System.out.printf("Linear list extrapolated to %,d items: ~%,.0f s%n",
+                          catalogSize, linearNanos * scale * scale / 1e9);
+        
+        System.out.println("\n2. Random lookups by ID:");
+        int linearLookups = LOOKUPS / 1000;
+        start = System.nanoTime();
+        for (int i = 0; i < linearLookups; i++) {
+            BenchmarkSupport.consume(findLinear(list, items[(i * 7919) % LINEAR_SIZE].getId()));
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Linear list  (%,d items): %s%n", LINEAR_SIZE,
+                          BenchmarkSupport.formatRate(BenchmarkSupport.perSecond(linearLookups, elapsed)));
+        
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            BenchmarkSupport.consume(catalog.get(items[(int) ((i * 7919L) % catalogSize)].getId()));
+        }
+        elapsed = System.nanoTime() - start;
+        System.out.printf("ItemCatalog  (%,d items): %s%n", catalogSize,
+                          BenchmarkSupport.formatRate(BenchmarkSupport.perSecond(LOOKUPS, elapsed)));
+        
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    static Item[] createItems(int count) {
+        Item[] items = new Item[count];
+        for (int i = 0; i < count; i++) {
+            String id = "F" + i;
+            items[i] = new Fiction(id, "Title " + i, "Author " + (i % 5000), "ISBN-" + i);
+        }
+        return items;
+    }
+    
+    // Mirrors the original Library.addItem: a full scan before every insert
+    private static List<Item> loadLinear(Item[] items, int count) {
+        List<Item> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (findLinear(list, items[i].getId()) == null) {
+                list.add(items[i]);
+            }
+        }
+        return list;
+    }
+    
+    private static Item findLinear(List<Item> list, String itemId) {
+        for (Item item : list) {
+            if (item.getId().equals(itemId)) {
+                return item;
+            }
+        }
+        return null;
+    }
+    
+    private static ItemCatalog loadCatalog(Item[] items, int count) {
+        ItemCatalog catalog = new ItemCatalog();
+        for (int i = 0; i < count; i++) {
+            catalog.add(items[i]);
+        }
+        return catalog;
+    }
+}
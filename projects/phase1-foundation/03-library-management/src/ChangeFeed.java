@@ -0,0 +1,114 @@
+import java.time.LocalDate;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Bounded, ordered stream of LibraryChanges on top of SubmissionPublisher
+ * Every subscriber has its own buffer; while one is full the mutating Library call waits,
+ * so a slow consumer slows writers down instead of losing changes or piling them up in memory.
+ * Sequence numbers count every change, so a subscriber that joins late sees where it started.
+ * Unless given an executor, the feed delivers on its own daemon threads rather than the common
+ * fork-join pool, so a slow subscriber cannot starve parallel scans and streams.
+ */
+public class ChangeFeed implements Flow.Publisher<LibraryChange>, AutoCloseable {
+    private final SubmissionPublisher<LibraryChange> publisher;
+    private long sequence; // numbered on the Library's thread, which is the only caller
+    
+    public ChangeFeed() {
+        this(Flow.defaultBufferSize());
+    }
+    
+    /**
+     * A feed with its own delivery threads, one per busy subscriber; idle threads exit after a
+     * minute, so a closed feed leaves none behind
+     * @param bufferCapacity changes buffered per subscriber before writers wait
+     */
+    public ChangeFeed(int bufferCapacity) {
+        this(Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "change-feed-delivery");
+            thread.setDaemon(true);
+            return thread;
+        }), bufferCapacity);
+    }
+    
+    /**
+     * @param executor runs subscriber callbacks
+     * @param bufferCapacity changes buffered per subscriber before writers wait
+     */
+    public ChangeFeed(Executor executor, int bufferCapacity) {
+        this.publisher = new SubmissionPublisher<>(executor, bufferCapacity);
+    }
+    
+    @Override
+    public void subscribe(Flow.Subscriber<? super LibraryChange> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+    
+    // Sequence number of the latest change, 0 before the first
+    public long getSequence() { return sequence; }
+    public int getSubscriberCount() { return publisher.getNumberOfSubscribers(); }
+    public int getBufferCapacity() { return publisher.getMaxBufferCapacity(); }
+    
+    // Changes published but not yet consumed by the slowest subscriber
+    public int estimateMaximumLag() {
+        return publisher.estimateMaximumLag();
+    }
+    
+    // Completes every subscription once the buffered changes are delivered
+    @Override
+    public void close() {
+        publisher.close();
+    }
+    
+    // Publishing - called by the Library after each change is applied
+    void itemAdded(Item item) {
+        long number = ++sequence;
+        if (publisher.hasSubscribers()) {
+            publisher.submit(LibraryChange.item(number, LibraryChange.Kind.ITEM_ADDED, item));
+        }
+    }
+    
+    void itemRemoved(Item item) {
+        long number = ++sequence;
+        if (publisher.hasSubscribers()) {
+            publisher.submit(LibraryChange.item(number, LibraryChange.Kind.ITEM_REMOVED, item));
+        }
+    }
+    
+    void borrowed(Item item, Member member, LocalDate date) {
+        long number = ++sequence;
+        if (publisher.hasSubscribers()) {
+            publisher.submit(LibraryChange.loan(number, LibraryChange.Kind.BORROWED, item, member, date));
+        }
+    }
+    
+    void returned(Item item, Member member, LocalDate date) {
+        long number = ++sequence;
+        if (publisher.hasSubscribers()) {
+            publisher.submit(LibraryChange.loan(number, LibraryChange.Kind.RETURNED, item, member, date));
+        }
+    }
+    
+    void memberRegistered(Member member) {
+        long number = ++sequence;
+        if (publisher.hasSubscribers()) {
+            publisher.submit(LibraryChange.member(number, LibraryChange.Kind.MEMBER_REGISTERED, member));
+        }
+    }
+    
+    void memberRemoved(Member member) {
+        long number = ++sequence;
+        if (publisher.hasSubscribers()) {
+            publisher.submit(LibraryChange.member(number, LibraryChange.Kind.MEMBER_REMOVED, member));
+        }
+    }
+    
+    void fineChanged(Member member, double change) {
+        long number = ++sequence;
+        if (publisher.hasSubscribers()) {
+            publisher.submit(LibraryChange.fine(number, member, change));
+        }
+    }
+}
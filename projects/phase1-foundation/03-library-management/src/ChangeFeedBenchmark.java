@@ -0,0 +1,248 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmark for the change-data-capture feed
+ * Checks that a replica built only from the feed matches the library after random changes and
+ * that a slow subscriber holds writers back instead of losing changes, then measures the cost
+ * per mutation with no feed, an idle feed and one or more subscribers
+ */
+public class ChangeFeedBenchmark {
+    private static final int ITEMS = 10_000;
+    private static final int MEMBERS = 1_000;
+    private static final int PAIRS = 500_000;
+    private static final int ROUNDS = 5;
+    
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("=== Change Feed Benchmark ===\n");
+        
+        System.out.println("1. Correctness checks:");
+        checkReplica();
+        checkBackpressure();
+        
+        System.out.printf("%n2. Cost per mutation (%,d borrow/return pairs, best of %d):%n", PAIRS, ROUNDS);
+        String[] labels = {"No feed", "Feed, no subscribers", "Feed, 1 subscriber",
+                           "Feed, 1 subscriber, buffer 8192", "Feed, 4 subscribers"};
+        int[] subscribers = {-1, 0, 1, 1, 4};
+        int[] buffers = {0, Flow.defaultBufferSize(), Flow.defaultBufferSize(), 8_192, Flow.defaultBufferSize()};
+        double[] best = new double[labels.length];
+        Arrays.fill(best, Double.MAX_VALUE);
+        // Rounds interleave the setups so JIT warm-up and GC noise hit all of them alike
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < labels.length; i++) {
+                best[i] = Math.min(best[i], measure(buffers[i], subscribers[i]));
+            }
+        }
+        for (int i = 0; i < labels.length; i++) {
+            System.out.printf("%-34s %8.0f ns%s%n", labels[i], best[i],
+                              i == 0 ? "" : String.format("  (%+.0f ns)", best[i] - best[0]));
+        }
+        
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    // Nanoseconds per mutation; subscribers -1 runs without a feed
+    private static double measure(int buffer, int subscribers) throws InterruptedException {
+        Library library = newLibrary();
+        ChangeFeed feed = subscribers < 0 ? null : new ChangeFeed(buffer);
+        Counter[] counters = new Counter[Math.max(0, subscribers)];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new Counter();
+            feed.subscribe(counters[i]);
+        }
+        library.setChangeFeed(feed);
+        long start = System.nanoTime();
+        for (int i = 0; i < PAIRS; i++) {
+            String itemId = "F" + (i % ITEMS);
+            String memberId = "M" + (i % MEMBERS);
+            library.borrowItem(itemId, memberId);
+            library.returnItem(itemId, memberId);
+        }
+        if (feed != null) {
+            feed.close();
+            for (Counter counter : counters) {
+                check(counter.done.await(60, TimeUnit.SECONDS), "subscriber completion");
+                check(counter.received == 2L * PAIRS, "subscriber saw " + counter.received + " changes");
+            }
+        }
+        return (System.nanoTime() - start) / (2.0 * PAIRS);
+    }
+    
+    private static Library newLibrary() {
+        Library library = new Library("Feed");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        for (int i = 0; i < ITEMS; i++) {
+            library.addItem(new Fiction("F" + i, "Title " + i, "Author " + (i % 100), "978-" + i));
+        }
+        for (int i = 0; i < MEMBERS; i++) {
+            library.registerMember(new Member("M" + i, "Member " + i, "m" + i + "@example.com"));
+        }
+        return library;
+    }
+    
+    // Counts changes and checks that sequence numbers arrive in order without gaps
+    private static class Counter implements Flow.Subscriber<LibraryChange> {
+        final CountDownLatch done = new CountDownLatch(1);
+        long received;
+        long lastSequence = -1;
+        volatile String failure;
+        
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+        
+        @Override
+        public void onNext(LibraryChange change) {
+            if (lastSequence >= 0 && change.getSequence() != lastSequence + 1 && failure == null) {
+                failure = "sequence " + change.getSequence() + " after " + lastSequence;
+            }
+            lastSequence = change.getSequence();
+            received++;
+            apply(change);
+        }
+        
+        void apply(LibraryChange change) {}
+        
+        @Override
+        public void onError(Throwable error) {
+            failure = error.toString();
+            done.countDown();
+        }
+        
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+    
+    // An incremental view of catalog, loans, members and fines, fed only by the change stream
+    private static class Replica extends Counter {
+        final Map<String, String> titles = new HashMap<>();
+        final Set<String> onLoan = new HashSet<>();
+        final Map<String, Double> fines = new HashMap<>();
+        
+        @Override
+        void apply(LibraryChange change) {
+            switch (change.getKind()) {
+                case ITEM_ADDED: titles.put(change.getItemId(), change.getName()); break;
+                case ITEM_REMOVED: titles.remove(change.getItemId()); break;
+                case BORROWED: onLoan.add(change.getItemId()); break;
+                case RETURNED: onLoan.remove(change.getItemId()); break;
+                case MEMBER_REGISTERED: fines.put(change.getMemberId(), change.getFineBalance()); break;
+                case MEMBER_REMOVED: fines.remove(change.getMemberId()); break;
+                case FINE_CHANGED: fines.merge(change.getMemberId(), change.getFineChange(), Double::sum); break;
+                default: throw new IllegalStateException("Unknown change " + change);
+            }
+        }
+    }
+    
+    private static void checkReplica() throws InterruptedException {
+        Library library = new Library("Replica");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        ChangeFeed feed = new ChangeFeed();
+        Replica replica = new Replica();
+        feed.subscribe(replica);
+        library.setChangeFeed(feed);
+        Random random = new Random(109);
+        List<Item> items = List.of(BenchmarkSupport.syntheticItems(2_000, 113));
+        library.addItems(items.subList(0, 1_000));
+        for (int i = 0; i < 100; i++) {
+            library.registerMember(new Member("CM" + i, "Member " + i, "m" + i + "@example.com"));
+        }
+        int next = 1_000;
+        for (int step = 0; step < 50_000; step++) {
+            String itemId = items.get(random.nextInt(next)).getId();
+            String memberId = "CM" + random.nextInt(100);
+            switch (random.nextInt(8)) {
+                case 0: if (next < items.size()) library.addItem(items.get(next++)); break;
+                case 1: library.removeItem(itemId); break;
+                case 2: library.addFine(memberId, random.nextInt(400) / 100.0); break;
+                case 3: library.payFine(memberId, random.nextInt(600) / 100.0); break;
+                case 4: library.removeMember(memberId); break;
+                case 5: library.registerMember(new Member(memberId, "Member", "m@example.com")); break;
+                default:
+                    if (!library.borrowItem(itemId, memberId)) {
+                        library.returnItem(itemId, memberId);
+                    }
+            }
+            if (step % 10_000 == 9_999) {
+                library.sweepOverdue(LocalDate.now().plusDays(step / 1_000)); // charges open loans
+            }
+        }
+        long published = feed.getSequence();
+        feed.close();
+        check(replica.done.await(60, TimeUnit.SECONDS), "replica completion");
+        check(replica.failure == null, String.valueOf(replica.failure));
+        check(replica.received == published && replica.lastSequence == published, "replica saw every change");
+        
+        Set<String> ids = library.streamItems().map(Item::getId).collect(Collectors.toSet());
+        check(replica.titles.keySet().equals(ids), "replica catalog");
+        Set<String> loans = library.streamItems().filter(item -> !item.isAvailable())
+                .map(Item::getId).collect(Collectors.toSet());
+        check(replica.onLoan.equals(loans), "replica loans");
+        List<Member> members = library.streamMembers().collect(Collectors.toList());
+        check(replica.fines.size() == members.size(), "replica members");
+        for (Member member : members) {
+            check(Math.abs(replica.fines.get(member.getMemberId()) - member.getTotalFines()) < 1e-6,
+                  "replica fines for " + member.getMemberId());
+        }
+        System.out.printf("Replica built from %,d changes matches the library - OK%n", published);
+    }
+    
+    /**
+     * A subscriber that takes its time must receive every change while the lag stays within its buffer,
+     * and on the feed's own threads, so it does not tie up the common pool
+     */
+    private static void checkBackpressure() throws InterruptedException {
+        int buffer = 16;
+        Library library = newLibrary();
+        ChangeFeed feed = new ChangeFeed(buffer);
+        Counter slow = new Counter() {
+            @Override
+            void apply(LibraryChange change) {
+                if (Thread.currentThread() instanceof ForkJoinWorkerThread && failure == null) {
+                    failure = "change delivered on a fork-join pool thread";
+                }
+                long until = System.nanoTime() + 20_000;
+                while (System.nanoTime() < until) {
+                    Thread.onSpinWait();
+                }
+            }
+        };
+        feed.subscribe(slow);
+        library.setChangeFeed(feed);
+        int maxLag = 0;
+        for (int i = 0; i < 5_000; i++) {
+            library.borrowItem("F" + i, "M" + (i % MEMBERS));
+            library.returnItem("F" + i, "M" + (i % MEMBERS));
+            maxLag = Math.max(maxLag, feed.estimateMaximumLag());
+        }
+        feed.close();
+        check(slow.done.await(60, TimeUnit.SECONDS), "slow subscriber completion");
+        check(slow.failure == null && slow.received == 10_000, "slow subscriber saw " + slow.received);
+        // The estimate also counts the few changes the subscriber has taken but not finished,
+        // which on the feed's own threads (unlike the common pool) are not drained by the writer
+        check(maxLag <= 2 * buffer, "lag " + maxLag + " exceeded twice the buffer of " + buffer);
+        System.out.printf("Slow subscriber got all 10,000 changes off the common pool;"
+                          + " lag peaked at %d (buffer %d) - OK%n",
+                          maxLag, buffer);
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + message);
+        }
+    }
+}
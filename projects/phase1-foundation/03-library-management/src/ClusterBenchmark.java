@@ -0,0 +1,200 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmark for the sharded LibraryCluster
+ * Checks that a cluster answers like a single Library, that keys spread evenly and that adding
+ * a shard moves only about 1/N of them, then times scatter-gather searches and routed loans
+ * for 1 to 16 shards. Search speedup is bounded by the number of cores.
+ */
+public class ClusterBenchmark {
+    private static final int[] SHARD_COUNTS = {1, 2, 4, 8, 16};
+    private static final int DEFAULT_ITEMS = 1_000_000;
+    private static final int MEMBERS = 10_000;
+    private static final int LOAN_PAIRS = 200_000;
+    
+    public static void main(String[] args) {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITEMS;
+        System.out.println("=== Library Cluster Benchmark ===\n");
+        
+        System.out.println("1. Correctness checks:");
+        checkAgainstSingleLibrary();
+        checkDistribution();
+        
+        System.out.printf("%n2. %,d items on %d core(s):%n", itemCount, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-8s %18s %18s %18s%n", "Shards", "Substring search", "Word search", "Borrow+return");
+        for (int shards : SHARD_COUNTS) {
+            try (LibraryCluster cluster = new LibraryCluster("Bench", shards)) {
+                Item[] items = inShardOrder(cluster, BenchmarkSupport.syntheticItems(itemCount, 127));
+                populate(cluster, items);
+                double substring = timeSearch(cluster, false);
+                double words = timeSearch(cluster, true);
+                double loans = timeLoans(cluster, items);
+                System.out.printf("%-8d %15.1f ms %15.2f ms %18s%n", shards, substring, words,
+                                  BenchmarkSupport.formatRate(loans));
+            }
+        }
+        
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    private static void populate(LibraryCluster cluster, Item[] items) {
+        cluster.setEventSink(NoOpEventSink.INSTANCE);
+        cluster.addItems(Arrays.asList(items));
+        for (int i = 0; i < MEMBERS; i++) {
+            cluster.registerMember(new Member("CB" + i, "Member " + i, "m" + i + "@example.com"));
+        }
+    }
+    
+    /**
+     * Fresh copies of the items allocated shard by shard, as if each shard had loaded its own
+     * partition. Scanning objects allocated in global order from a shard touches every Nth one,
+     * which on its own made a 16-shard linear search several times slower.
+     */
+    private static Item[] inShardOrder(LibraryCluster cluster, Item[] items) {
+        Item[] sorted = items.clone();
+        Arrays.sort(sorted, Comparator.comparingInt(item -> cluster.shardOf(item.getId())));
+        Item[] copies = new Item[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            Book book = (Book) sorted[i];
+            // Copy the strings too; new String(String) would share the original character array
+            String id = new String(book.getId().toCharArray());
+            String title = new String(book.getTitle().toCharArray());
+            String author = new String(book.getAuthor().toCharArray());
+            Book copy = book instanceof Fiction ? new Fiction(id, title, author, book.getIsbn())
+                      : book instanceof NonFiction ? new NonFiction(id, title, author, book.getIsbn())
+                      : new Reference(id, title, author, book.getIsbn());
+            copy.setPages(book.getPages());
+            copies[i] = copy;
+        }
+        return copies;
+    }
+    
+    private static final String[] QUERIES = {"river", "shadow gar", "kamar", "golden", "last stars"};
+    
+    // Mean milliseconds per query
+    private static double timeSearch(LibraryCluster cluster, boolean words) {
+        int rounds = words ? 50 : 5;
+        for (String query : QUERIES) {
+            BenchmarkSupport.consume(words ? cluster.searchByTitleWords(query) : cluster.searchByTitle(query));
+        }
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (String query : QUERIES) {
+                BenchmarkSupport.consume(words ? cluster.searchByTitleWords(query) : cluster.searchByTitle(query));
+            }
+        }
+        return BenchmarkSupport.millisSince(start) / (rounds * QUERIES.length);
+    }
+    
+    private static double timeLoans(LibraryCluster cluster, Item[] items) {
+        long start = System.nanoTime();
+        for (int i = 0; i < LOAN_PAIRS; i++) {
+            String itemId = items[i % items.length].getId();
+            String memberId = "CB" + (i % MEMBERS);
+            cluster.borrowItem(itemId, memberId);
+            cluster.returnItem(itemId, memberId);
+        }
+        return BenchmarkSupport.perSecond(2L * LOAN_PAIRS, System.nanoTime() - start);
+    }
+    
+    // The same operations on a 5-shard cluster and on one Library must give the same answers
+    private static void checkAgainstSingleLibrary() {
+        Item[] clusterItems = BenchmarkSupport.syntheticItems(20_000, 131);
+        Item[] singleItems = BenchmarkSupport.syntheticItems(20_000, 131);
+        Library single = new Library("Single");
+        single.setEventSink(NoOpEventSink.INSTANCE);
+        single.addItems(Arrays.asList(singleItems));
+        try (LibraryCluster cluster = new LibraryCluster("Check", 5)) {
+            cluster.setEventSink(NoOpEventSink.INSTANCE);
+            cluster.addItems(Arrays.asList(clusterItems));
+            for (int i = 0; i < 200; i++) {
+                single.registerMember(new Member("CC" + i, "Member " + i, "m@example.com"));
+                cluster.registerMember(new Member("CC" + i, "Member " + i, "m@example.com"));
+            }
+            int crossShard = 0;
+            for (int i = 0; i < 20_000; i += 7) {
+                String itemId = singleItems[i].getId();
+                String memberId = "CC" + (i % 200);
+                check(single.borrowItem(itemId, memberId) == cluster.borrowItem(itemId, memberId), "borrow " + itemId);
+                if (cluster.shardOf(itemId) != cluster.shardOf(memberId)) {
+                    crossShard++;
+                }
+                if (i % 3 == 0) {
+                    check(single.returnItem(itemId, memberId) == cluster.returnItem(itemId, memberId), "return " + itemId);
+                }
+                if (i % 11 == 0) {
+                    single.removeItem(singleItems[i + 1].getId());
+                    cluster.removeItem(singleItems[i + 1].getId());
+                }
+            }
+            LocalDate later = LocalDate.now().plusDays(30);
+            OverdueSweepResult expected = single.sweepOverdue(later);
+            OverdueSweepResult actual = cluster.sweepOverdue(later);
+            check(expected.getLoansMarkedOverdue() == actual.getLoansMarkedOverdue()
+                  && Math.abs(expected.getTotalFines() - actual.getTotalFines()) < 1e-6, "overdue sweep");
+            for (int i = 0; i < 200; i++) {
+                Member one = single.findMemberById("CC" + i);
+                Member sharded = cluster.findMemberById("CC" + i);
+                check(one.getBorrowedItems().equals(sharded.getBorrowedItems()), "loans of CC" + i);
+                check(Math.abs(one.getTotalFines() - sharded.getTotalFines()) < 1e-6, "fines of CC" + i);
+            }
+            LibraryStatistics.Snapshot a = single.getStatistics();
+            LibraryStatistics.Snapshot b = cluster.getStatistics();
+            check(a.getTotalItems() == b.getTotalItems() && a.getBorrowedItems() == b.getBorrowedItems()
+                  && a.getRegisteredMembers() == b.getRegisteredMembers()
+                  && a.getItemsByType().equals(b.getItemsByType()), "statistics");
+            for (String query : QUERIES) {
+                check(ids(single.searchByTitle(query)).equals(ids(cluster.searchByTitle(query))), "title " + query);
+                check(ids(single.searchByAuthor(query)).equals(ids(cluster.searchByAuthor(query))), "author " + query);
+                check(ids(single.searchByTitleWords(query)).equals(ids(cluster.searchByTitleWords(query))),
+                      "title words " + query);
+            }
+            System.out.printf("5-shard cluster matches one Library, including %d cross-shard loans - OK%n", crossShard);
+        }
+    }
+    
+    private static Set<String> ids(List<Item> items) {
+        Set<String> ids = items.stream().map(Item::getId).collect(Collectors.toSet());
+        check(ids.size() == items.size(), "duplicate search hits");
+        return ids;
+    }
+    
+    private static void checkDistribution() {
+        int keys = 200_000;
+        for (int shards : new int[] {4, 16, 40}) {
+            try (LibraryCluster cluster = new LibraryCluster("Spread", shards);
+                 LibraryCluster grown = new LibraryCluster("Spread", shards + 1)) {
+                int[] counts = new int[shards];
+                int moved = 0;
+                for (int i = 0; i < keys; i++) {
+                    String id = "K" + i;
+                    int shard = cluster.shardOf(id);
+                    counts[shard]++;
+                    int after = grown.shardOf(id);
+                    if (after != shard) {
+                        check(after == shards, "a key moved between old shards");
+                        moved++;
+                    }
+                }
+                int min = Arrays.stream(counts).min().getAsInt();
+                int max = Arrays.stream(counts).max().getAsInt();
+                double fair = (double) keys / shards;
+                check(max < fair * 1.35 && min > fair * 0.65, "uneven spread on " + shards + " shards");
+                System.out.printf("%2d shards: keys per shard %.2f-%.2f x fair; adding one moves %.1f%% (ideal %.1f%%) - OK%n",
+                                  shards, min / fair, max / fair, 100.0 * moved / keys, 100.0 / (shards + 1));
+            }
+        }
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + message);
+        }
+    }
+}
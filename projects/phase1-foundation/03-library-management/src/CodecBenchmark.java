@@ -0,0 +1,477 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Benchmark for LibraryCodec
+ * Checks round trips of items and members with loans, fines and history, writing through a small
+ * buffer that keeps overflowing, and reading records that carry fields from a later schema; then
+ * compares size and speed with the snapshot's DataOutput records and java.io serialization
+ */
+public class CodecBenchmark {
+    private static final int ITEMS = 100_000;
+    private static final int MEMBERS = 20_000;
+    private static final int ROUNDS = 5;
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 1);
+    
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        System.out.println("=== Codec Benchmark ===\n");
+        Item[] items = syntheticItems();
+        Member[] members = syntheticMembers(items);
+        
+        System.out.println("1. Round trips:");
+        checkRoundTrip(items, members);
+        checkEdgeCases();
+        checkSmallBuffer(items, members);
+        checkLaterSchema(items);
+        
+        System.out.printf("%n2. %,d items and %,d members, best of %d:%n", ITEMS, MEMBERS, ROUNDS);
+        System.out.printf("%-22s %12s %12s %16s %16s%n", "Format", "Bytes", "Per record", "Encode", "Decode");
+        Format[] formats = {new CodecFormat(), new SnapshotFormat(), new SerializationFormat()};
+        long[] sizes = new long[formats.length];
+        long[] encode = new long[formats.length];
+        long[] decode = new long[formats.length];
+        Arrays.fill(encode, Long.MAX_VALUE);
+        Arrays.fill(decode, Long.MAX_VALUE);
+        // Rounds interleave the formats so JIT warm-up and GC noise hit all of them alike
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < formats.length; i++) {
+                long start = System.nanoTime();
+                byte[] bytes = formats[i].encode(items, members);
+                encode[i] = Math.min(encode[i], System.nanoTime() - start);
+                start = System.nanoTime();
+                check(formats[i].decode(bytes) == ITEMS + MEMBERS, formats[i].name() + " record count");
+                decode[i] = Math.min(decode[i], System.nanoTime() - start);
+                sizes[i] = bytes.length;
+            }
+        }
+        long records = ITEMS + MEMBERS;
+        for (int i = 0; i < formats.length; i++) {
+            System.out.printf("%-22s %12s %10.1f B %16s %16s%n", formats[i].name(),
+                              BenchmarkSupport.formatBytes(sizes[i]), (double) sizes[i] / records,
+                              BenchmarkSupport.formatRate(BenchmarkSupport.perSecond(records, encode[i])),
+                              BenchmarkSupport.formatRate(BenchmarkSupport.perSecond(records, decode[i])));
+        }
+        check(sizes[0] < sizes[1] && sizes[0] < sizes[2], "codec output is the smallest");
+        System.out.println("(The snapshot records leave out item loan state, which the codec and java.io carry)");
+        
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    // Synthetic data
+    private static Item[] syntheticItems() {
+        Item[] items = BenchmarkSupport.syntheticItems(ITEMS, 127);
+        String[] genres = {"Mystery", "Science", "History", "Poetry", "Travel"};
+        Random random = new Random(131);
+        for (Item item : items) {
+            Book book = (Book) item;
+            if (random.nextInt(3) == 0) {
+                book.setGenre(genres[random.nextInt(genres.length)]);
+            }
+            int state = random.nextInt(10);
+            if (state < 3 && !(book instanceof Reference)) {
+                long day = TODAY.toEpochDay() - random.nextInt(60);
+                book.borrowItem("CM" + random.nextInt(MEMBERS), LocalDate.ofEpochDay(day));
+                if (state == 0) {
+                    book.setFinedThroughDay(day + 14 + random.nextInt(30));
+                }
+            } else if (state == 3) {
+                book.setAvailable(false); // withdrawn for repair
+            }
+        }
+        return items;
+    }
+    
+    private static Member[] syntheticMembers(Item[] items) {
+        Random random = new Random(137);
+        Member[] members = new Member[MEMBERS];
+        for (int i = 0; i < MEMBERS; i++) {
+            Member member = new Member("CM" + i, "Member " + i, "member" + i + "@example.com");
+            if (random.nextBoolean()) {
+                member.setPhone("555-" + (1_000 + random.nextInt(9_000)));
+            }
+            List<String> borrowed = new ArrayList<>();
+            for (int j = random.nextInt(4); j > 0; j--) {
+                borrowed.add(items[random.nextInt(items.length)].getId());
+            }
+            BorrowingHistory history = random.nextInt(4) == 0 ? new BorrowingHistory(8) : new BorrowingHistory();
+            long day = TODAY.toEpochDay() - 400;
+            for (int j = random.nextInt(20); j > 0; j--) {
+                String itemId = items[random.nextInt(items.length)].getId();
+                day += random.nextInt(15);
+                history.record(itemId, BorrowingHistory.EventType.BORROWED, LocalDate.ofEpochDay(day));
+                day += random.nextInt(21);
+                history.record(itemId, BorrowingHistory.EventType.RETURNED, LocalDate.ofEpochDay(day));
+            }
+            double fines = random.nextInt(5) == 0 ? random.nextInt(2_000) / 100.0 : 0.0;
+            member.restoreState(borrowed, history, fines);
+            members[i] = member;
+        }
+        return members;
+    }
+    
+    // Correctness checks
+    private static void checkRoundTrip(Item[] items, Member[] members) throws IOException {
+        byte[] bytes = new CodecFormat().encode(items, members);
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        LibraryCodec.Reader reader = new LibraryCodec.Reader();
+        check(reader.readHeader(in) == LibraryCodec.SCHEMA_VERSION, "schema version");
+        for (Item item : items) {
+            checkSame(item, reader.readItem(in));
+        }
+        for (Member member : members) {
+            checkSame(member, reader.readMember(in));
+        }
+        check(!in.hasRemaining(), "trailing bytes");
+        System.out.printf("%,d items and %,d members decode field for field - OK%n", items.length, members.length);
+    }
+    
+    private static void checkEdgeCases() throws IOException {
+        Fiction unicode = new Fiction("F-\u00e9\u00e8", "\u4e09\u4f53 \ud83d\ude80 Caf\u00e9", "\u5218\u6148\u6b23", "");
+        unicode.setGenre("");
+        unicode.setPages(0);
+        Reference reference = new Reference("R-big", "x".repeat(70_000), "Anon", "978-0");
+        reference.setPages(-1);
+        NonFiction fined = new NonFiction("NF-old", "Old Loan", "Anon", "978-1");
+        fined.borrowItem("CM-far", LocalDate.of(1901, 1, 1));
+        fined.setFinedThroughDay(LocalDate.of(2099, 12, 31).toEpochDay());
+        Member member = new Member("CM-\u00fc", "", "\u00fc@example.com");
+        BorrowingHistory history = new BorrowingHistory(1);
+        history.record("NF-old", BorrowingHistory.EventType.BORROWED, LocalDate.of(1901, 1, 1));
+        history.record("F-\u00e9\u00e8", BorrowingHistory.EventType.RETURNED, LocalDate.of(1970, 1, 1));
+        member.restoreState(List.of("NF-old", "F-\u00e9\u00e8"), history, 0.1 + 0.2); // not a whole number of cents
+        
+        // Unpaired surrogates are written as '?', like String.getBytes, and must not shift later fields
+        Fiction lone = new Fiction("F-lone", "half \ud83d pair", "\ude80\ud83d\ud83d\ude80", "978-2");
+        
+        Item[] items = {unicode, reference, fined, lone};
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20); // exercises the non-array read path
+        LibraryCodec.Writer writer = new LibraryCodec.Writer();
+        writer.writeHeader(buffer);
+        for (Item item : items) {
+            writer.writeItem(buffer, item);
+        }
+        writer.writeMember(buffer, member);
+        buffer.flip();
+        LibraryCodec.Reader reader = new LibraryCodec.Reader();
+        reader.readHeader(buffer);
+        for (Item item : items) {
+            check(!LibraryCodec.Reader.nextIsMember(buffer), "item record kind");
+            Item decoded = reader.readItem(buffer);
+            if (item == lone) {
+                check(decoded.getTitle().equals("half ? pair"), "lone high surrogate");
+                check(decoded.getAuthor().equals("??\ud83d\ude80"), "lone surrogates next to a pair");
+                check(((Book) decoded).getIsbn().equals("978-2"), "field after lone surrogates");
+            } else {
+                checkSame(item, decoded);
+            }
+        }
+        check(LibraryCodec.Reader.nextIsMember(buffer), "member record kind");
+        checkSame(member, reader.readMember(buffer));
+        
+        ByteBuffer truncated = ByteBuffer.wrap(new CodecFormat().encode(items, new Member[0]), 0, 100);
+        reader = new LibraryCodec.Reader();
+        reader.readHeader(truncated);
+        try {
+            reader.readItem(truncated);
+            reader.readItem(truncated);
+            check(false, "truncated record was accepted");
+        } catch (IOException expected) {
+            // reported as an error, not as a garbled item
+        }
+        System.out.println("Unicode, lone surrogates, empty and 70k-character strings, extreme dates and truncation - OK");
+    }
+    
+    // A writer that drains a 4 KB buffer whenever a record does not fit produces the same stream
+    private static void checkSmallBuffer(Item[] items, Member[] members) throws IOException {
+        byte[] expected = new CodecFormat().encode(items, members);
+        ByteArrayOutputStream drained = new ByteArrayOutputStream(expected.length);
+        ByteBuffer buffer = ByteBuffer.allocate(4_096);
+        LibraryCodec.Writer writer = new LibraryCodec.Writer();
+        writer.writeHeader(buffer);
+        int overflows = 0;
+        for (int i = 0; i < items.length + members.length; i++) {
+            while (true) {
+                try {
+                    if (i < items.length) {
+                        writer.writeItem(buffer, items[i]);
+                    } else {
+                        writer.writeMember(buffer, members[i - items.length]);
+                    }
+                    break;
+                } catch (BufferOverflowException e) {
+                    overflows++;
+                    drained.write(buffer.array(), 0, buffer.position());
+                    buffer.clear();
+                }
+            }
+        }
+        drained.write(buffer.array(), 0, buffer.position());
+        check(Arrays.equals(expected, drained.toByteArray()), "stream written through a small buffer");
+        System.out.printf("Writing through a 4 KB buffer overflowed %,d times and gave identical bytes - OK%n",
+                          overflows);
+    }
+    
+    // A record from a later schema with extra trailing fields still reads, and so does the next one
+    private static void checkLaterSchema(Item[] items) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4_096);
+        LibraryCodec.Writer writer = new LibraryCodec.Writer();
+        writer.writeHeader(buffer);
+        int start = buffer.position();
+        writer.writeItem(buffer, items[0]);
+        int bodyLength = buffer.position() - start - 1 - LibraryCodec.LENGTH_BYTES;
+        buffer.put(new byte[] {7, 42, -1, 3}); // the unknown future fields
+        LibraryCodec.putPaddedLength(buffer, start + 1, bodyLength + 4);
+        buffer.put(4, (byte) (LibraryCodec.SCHEMA_VERSION + 1));
+        writer.writeItem(buffer, items[1]);
+        buffer.flip();
+        
+        LibraryCodec.Reader reader = new LibraryCodec.Reader();
+        check(reader.readHeader(buffer) == LibraryCodec.SCHEMA_VERSION + 1, "later schema version");
+        checkSame(items[0], reader.readItem(buffer));
+        checkSame(items[1], reader.readItem(buffer));
+        System.out.println("Records with fields from a later schema version skip what they do not know - OK");
+    }
+    
+    private static void checkSame(Item expected, Item actual) {
+        Book a = (Book) expected;
+        Book b = (Book) actual;
+        check(a.getClass() == b.getClass() && a.getId().equals(b.getId()) && a.getTitle().equals(b.getTitle())
+              && a.getAuthor().equals(b.getAuthor()) && a.getIsbn().equals(b.getIsbn())
+              && Objects.equals(a.getGenre(), b.getGenre()) && a.getPages() == b.getPages()
+              && a.isAvailable() == b.isAvailable() && Objects.equals(a.getBorrowedBy(), b.getBorrowedBy())
+              && a.getBorrowEpochDay() == b.getBorrowEpochDay() && a.getFinedThroughDay() == b.getFinedThroughDay(),
+              "item " + a.getId());
+    }
+    
+    private static void checkSame(Member expected, Member actual) {
+        check(expected.getMemberId().equals(actual.getMemberId()) && expected.getName().equals(actual.getName())
+              && expected.getEmail().equals(actual.getEmail()) && Objects.equals(expected.getPhone(), actual.getPhone())
+              && expected.getTotalFines() == actual.getTotalFines(),
+              "member " + expected.getMemberId());
+        BorrowedItemSet a = expected.getBorrowed();
+        BorrowedItemSet b = actual.getBorrowed();
+        check(a.size() == b.size(), "loans of " + expected.getMemberId());
+        for (int i = 0; i < a.size(); i++) {
+            check(a.get(i).equals(b.get(i)), "loans of " + expected.getMemberId());
+        }
+        BorrowingHistory x = expected.getHistory();
+        BorrowingHistory y = actual.getHistory();
+        check(x.getLimit() == y.getLimit() && x.size() == y.size(), "history of " + expected.getMemberId());
+        for (int i = 0; i < x.size(); i++) {
+            check(x.itemIdAt(i).equals(y.itemIdAt(i)) && x.typeAt(i) == y.typeAt(i)
+                  && x.epochDayAt(i) == y.epochDayAt(i), "history of " + expected.getMemberId());
+        }
+    }
+    
+    // Formats under comparison
+    private interface Format {
+        String name();
+        byte[] encode(Item[] items, Member[] members) throws IOException;
+        int decode(byte[] bytes) throws IOException, ClassNotFoundException; // returns the record count
+    }
+    
+    private static final class CodecFormat implements Format {
+        public String name() { return "LibraryCodec"; }
+        
+        public byte[] encode(Item[] items, Member[] members) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            LibraryCodec.Writer writer = new LibraryCodec.Writer();
+            writer.writeHeader(buffer);
+            for (int i = 0; i < items.length + members.length; i++) {
+                while (true) {
+                    try {
+                        if (i < items.length) {
+                            writer.writeItem(buffer, items[i]);
+                        } else {
+                            writer.writeMember(buffer, members[i - items.length]);
+                        }
+                        break;
+                    } catch (BufferOverflowException e) {
+                        buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+                    }
+                }
+            }
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+        
+        public int decode(byte[] bytes) throws IOException {
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            LibraryCodec.Reader reader = new LibraryCodec.Reader();
+            reader.readHeader(in);
+            int count = 0;
+            while (in.hasRemaining()) {
+                Object record = LibraryCodec.Reader.nextIsMember(in) ? reader.readMember(in) : reader.readItem(in);
+                BenchmarkSupport.consume(record);
+                count++;
+            }
+            return count;
+        }
+    }
+    
+    // The fixed-width DataOutput records that snapshots and the journal use
+    private static final class SnapshotFormat implements Format {
+        public String name() { return "Snapshot DataOutput"; }
+        
+        public byte[] encode(Item[] items, Member[] members) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(items.length);
+            for (Item item : items) {
+                LibrarySnapshot.writeItem(out, item);
+            }
+            out.writeInt(members.length);
+            for (Member member : members) {
+                LibrarySnapshot.writeMember(out, member);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+        
+        public int decode(byte[] bytes) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            int count = 0;
+            for (int i = in.readInt(); i > 0; i--, count++) {
+                BenchmarkSupport.consume(LibrarySnapshot.readItem(in));
+            }
+            for (int i = in.readInt(); i > 0; i--, count++) {
+                BenchmarkSupport.consume(LibrarySnapshot.readMember(in));
+            }
+            return count;
+        }
+    }
+    
+    /**
+     * java.io serialization of plain mirrors of the domain objects. Items and members are not
+     * Serializable themselves: they hold handles that are only valid inside one process.
+     */
+    private static final class SerializationFormat implements Format {
+        public String name() { return "java.io serialization"; }
+        
+        public byte[] encode(Item[] items, Member[] members) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeInt(items.length + members.length);
+                for (Item item : items) {
+                    out.writeObject(new ItemRecord((Book) item));
+                }
+                for (Member member : members) {
+                    out.writeObject(new MemberRecord(member));
+                }
+            }
+            return bytes.toByteArray();
+        }
+        
+        public int decode(byte[] bytes) throws IOException, ClassNotFoundException {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    Object record = in.readObject();
+                    BenchmarkSupport.consume(record instanceof ItemRecord ? ((ItemRecord) record).toItem()
+                                                                          : ((MemberRecord) record).toMember());
+                }
+                return count;
+            }
+        }
+    }
+    
+    private static final class ItemRecord implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final byte kind;
+        final String id, title, author, isbn, genre, borrower;
+        final int pages;
+        final boolean available;
+        final long borrowDay, finedThroughDay;
+        
+        ItemRecord(Book book) {
+            kind = LibrarySnapshot.kindOf(book);
+            id = book.getId();
+            title = book.getTitle();
+            author = book.getAuthor();
+            isbn = book.getIsbn();
+            genre = book.getGenre();
+            borrower = book.getBorrowedBy();
+            pages = book.getPages();
+            available = book.isAvailable();
+            borrowDay = book.getBorrowEpochDay();
+            finedThroughDay = book.getFinedThroughDay();
+        }
+        
+        Item toItem() throws IOException {
+            Book book = LibrarySnapshot.newBook(kind, id, title, author, isbn);
+            book.setGenre(genre);
+            book.setPages(pages);
+            if (borrower != null) {
+                book.borrowItem(borrower, LocalDate.ofEpochDay(borrowDay));
+                book.setFinedThroughDay(finedThroughDay);
+            } else {
+                book.setAvailable(available);
+            }
+            return book;
+        }
+    }
+    
+    private static final class MemberRecord implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final String id, name, email, phone;
+        final double fines;
+        final int historyLimit;
+        final String[] borrowed, historyItems;
+        final byte[] historyTypes;
+        final long[] historyDays;
+        
+        MemberRecord(Member member) {
+            id = member.getMemberId();
+            name = member.getName();
+            email = member.getEmail();
+            phone = member.getPhone();
+            fines = member.getTotalFines();
+            BorrowedItemSet loans = member.getBorrowed();
+            borrowed = new String[loans.size()];
+            for (int i = 0; i < borrowed.length; i++) {
+                borrowed[i] = loans.get(i);
+            }
+            BorrowingHistory history = member.getHistory();
+            historyLimit = history.getLimit();
+            historyItems = new String[history.size()];
+            historyTypes = new byte[history.size()];
+            historyDays = new long[history.size()];
+            for (int i = 0; i < historyItems.length; i++) {
+                historyItems[i] = history.itemIdAt(i);
+                historyTypes[i] = (byte) history.typeAt(i).ordinal();
+                historyDays[i] = history.epochDayAt(i);
+            }
+        }
+        
+        Member toMember() {
+            Member member = new Member(id, name, email);
+            member.setPhone(phone);
+            BorrowingHistory history = new BorrowingHistory(historyLimit);
+            BorrowingHistory.EventType[] types = BorrowingHistory.EventType.values();
+            for (int i = 0; i < historyItems.length; i++) {
+                history.record(historyItems[i], types[historyTypes[i]], LocalDate.ofEpochDay(historyDays[i]));
+            }
+            member.restoreState(Arrays.asList(borrowed), history, fines);
+            return member;
+        }
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + message);
+        }
+    }
+}
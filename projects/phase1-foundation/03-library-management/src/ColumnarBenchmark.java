@@ -0,0 +1,139 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark for the columnar catalog mirror
+ * Runs two analytics queries over the object graph and over the mirror, sequentially
+ * and with fork-join, after checking that the mirror follows library changes
+ */
+public class ColumnarBenchmark {
+    private static final int DEFAULT_ITEMS = 2_000_000;
+    private static final int ROUNDS = 10;
+    private static final String[] GENRES = {
+        "History", "Science", "Poetry", "Travel", "Mystery", "Biography",
+        "Philosophy", "Art", "Cooking", "Law", "Medicine", "Music"
+    };
+    
+    public static void main(String[] args) {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITEMS;
+        System.out.printf("=== Columnar Mirror Benchmark (%,d items, %d cores) ===%n%n",
+                          itemCount, Runtime.getRuntime().availableProcessors());
+        
+        System.out.println("1. Sync check:");
+        checkSync();
+        
+        Library library = new Library("Bench");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        Item[] items = BenchmarkSupport.syntheticItems(itemCount, 21);
+        Random random = new Random(23);
+        LocalDate today = LocalDate.of(2026, 1, 1);
+        for (Item item : items) {
+            Book book = (Book) item;
+            book.setGenre(GENRES[random.nextInt(GENRES.length)]);
+            if (random.nextInt(10) < 3) {
+                book.borrowItem("M" + random.nextInt(10_000), today.minusDays(random.nextInt(30)));
+            }
+        }
+        library.addItems(Arrays.asList(items));
+        library.setColumnarMirror(true);
+        ColumnarCatalog columns = library.getColumnarMirror();
+        Iterable<Item> graph = library.allItems();
+        
+        System.out.println("\n2. Count available NonFiction by genre:");
+        ColumnarCatalog.Filter nonFiction = ColumnarCatalog.Filter.all()
+                .kind(ColumnarCatalog.NON_FICTION).available(true);
+        time("Object graph", () -> {
+            Map<String, Long> counts = new HashMap<>();
+            for (Item item : graph) {
+                if (item instanceof NonFiction && item.isAvailable()) {
+                    counts.merge(((Book) item).getGenre(), 1L, Long::sum);
+                }
+            }
+            return counts.size();
+        });
+        time("Columnar", () -> columns.aggregate(nonFiction, ColumnarCatalog.Measure.COUNT,
+                                                 ColumnarCatalog.GroupBy.GENRE, false).length);
+        time("Columnar, fork-join", () -> columns.aggregate(nonFiction, ColumnarCatalog.Measure.COUNT,
+                                                            ColumnarCatalog.GroupBy.GENRE, true).length);
+        
+        System.out.println("\n3. Sum pages of borrowed books:");
+        ColumnarCatalog.Filter borrowed = ColumnarCatalog.Filter.all().available(false);
+        time("Object graph", () -> {
+            long pages = 0;
+            for (Item item : graph) {
+                if (item instanceof Book && !item.isAvailable()) {
+                    pages += ((Book) item).getPages();
+                }
+            }
+            return pages;
+        });
+        time("Columnar", () -> columns.sumPages(borrowed));
+        time("Columnar, fork-join", () -> columns.aggregate(borrowed, ColumnarCatalog.Measure.PAGES,
+                                                            ColumnarCatalog.GroupBy.NONE, true)[0]);
+        
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    private interface Query {
+        long run();
+    }
+    
+    private static void time(String label, Query query) {
+        for (int i = 0; i < 3; i++) {
+            BenchmarkSupport.consume(query.run()); // warm up
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            BenchmarkSupport.consume(query.run());
+        }
+        System.out.printf("%-22s %,9.2f ms per query%n", label, BenchmarkSupport.millisSince(start) / ROUNDS);
+    }
+    
+    // Compares mirror answers with the object graph after adds, loans, returns and removals
+    private static void checkSync() {
+        Library library = new Library("Check");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        Item[] items = BenchmarkSupport.syntheticItems(2_000, 29);
+        library.addItems(Arrays.asList(items).subList(0, 1_000));
+        library.setColumnarMirror(true);
+        library.addItems(Arrays.asList(items).subList(1_000, 2_000));
+        for (int m = 0; m < 100; m++) {
+            library.registerMember(new Member("M" + m, "Member " + m, "m" + m + "@example.com"));
+        }
+        BenchmarkSupport.silenced(() -> {
+            for (int i = 0; i < 400; i++) {
+                library.borrowItem(items[i * 5].getId(), "M" + (i % 100));
+            }
+            for (int i = 0; i < 100; i++) {
+                library.returnItem(items[i * 5].getId(), "M" + (i % 100));
+                library.removeItem(items[i * 5 + 1].getId());
+            }
+        });
+        
+        ColumnarCatalog columns = library.getColumnarMirror();
+        long available = 0;
+        long borrowedPages = 0;
+        long fiction = 0;
+        for (Item item : library.allItems()) {
+            available += item.isAvailable() ? 1 : 0;
+            borrowedPages += item.isAvailable() ? 0 : ((Book) item).getPages();
+            fiction += item instanceof Fiction ? 1 : 0;
+        }
+        long[] byKind = columns.aggregate(ColumnarCatalog.Filter.all(), ColumnarCatalog.Measure.COUNT,
+                                          ColumnarCatalog.GroupBy.KIND, true);
+        boolean ok = columns.count(ColumnarCatalog.Filter.all().available(true)) == available
+                  && columns.sumPages(ColumnarCatalog.Filter.all().available(false)) == borrowedPages
+                  && byKind[ColumnarCatalog.FICTION] == fiction
+                  && columns.count(ColumnarCatalog.Filter.all()) == 1_900
+                  && columns.count(ColumnarCatalog.Filter.all().genre("Fiction")) == fiction;
+        if (!ok) {
+            throw new IllegalStateException("Columnar mirror disagrees with the catalog");
+        }
+        System.out.printf("%,d items, %,d on loan after borrows, returns and removals - OK%n",
+                          columns.count(ColumnarCatalog.Filter.all()),
+                          columns.count(ColumnarCatalog.Filter.all().available(false)));
+    }
+}
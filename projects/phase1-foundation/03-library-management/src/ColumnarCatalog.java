@@ -0,0 +1,283 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Columnar mirror of the item catalog for analytics scans
+ * Keeps one primitive array per attribute (kind, availability bits, pages, genre code,
+ * borrow day), indexed by the same slots as ItemCatalog, so aggregate queries stream
+ * through a few dense arrays instead of chasing a pointer to every item.
+ * Scans walk the presence and availability bitsets a word at a time and only touch
+ * the other columns for rows that survive those masks.
+ * Kind, pages and genre are copied when the item is added; later changes the library
+ * makes (availability and borrow day) are mirrored, direct Book setter calls are not.
+ */
+public class ColumnarCatalog {
+    // Kind codes; NONE marks a free or removed slot
+    public static final byte NONE = 0;
+    public static final byte FICTION = 1;
+    public static final byte NON_FICTION = 2;
+    public static final byte REFERENCE = 3;
+    public static final byte OTHER = 4;
+    private static final String[] KIND_NAMES = {"", "Fiction", "NonFiction", "Reference", "Other"};
+    
+    public static final int NO_GENRE = -1;
+    
+    // Rows per fork-join leaf; a multiple of 64 so leaves never share an availability word
+    private static final int LEAF_ROWS = 1 << 16;
+    
+    /**
+     * What to add up for each matching row
+     */
+    public enum Measure { COUNT, PAGES }
+    
+    /**
+     * How to group the totals; NONE gives a single total at index 0
+     */
+    public enum GroupBy { NONE, KIND, GENRE }
+    
+    private byte[] kinds;
+    private long[] presentWords;
+    private long[] availableWords;
+    private int[] pages;
+    private int[] genres;
+    private long[] borrowDays;
+    private int rows; // highest used slot + 1
+    private final Map<String, Integer> genreCodes;
+    private final List<String> genreNames;
+    
+    public ColumnarCatalog() {
+        this.kinds = new byte[64];
+        this.presentWords = new long[1];
+        this.availableWords = new long[1];
+        this.pages = new int[64];
+        this.genres = new int[64];
+        this.borrowDays = new long[64];
+        this.genreCodes = new HashMap<>();
+        this.genreNames = new ArrayList<>();
+    }
+    
+    // Mirror maintenance, driven by Library
+    void put(int slot, Item item) {
+        ensureCapacity(slot + 1);
+        rows = Math.max(rows, slot + 1);
+        kinds[slot] = kindOf(item);
+        presentWords[slot >>> 6] |= 1L << slot;
+        if (item instanceof Book) {
+            Book book = (Book) item;
+            pages[slot] = book.getPages();
+            genres[slot] = book.getGenre() != null ? internGenre(book.getGenre()) : NO_GENRE;
+        } else {
+            pages[slot] = 0;
+            genres[slot] = NO_GENRE;
+        }
+        refresh(slot, item);
+    }
+    
+    // Picks up a change in availability and borrow day
+    void refresh(int slot, Item item) {
+        if (item.isAvailable()) {
+            availableWords[slot >>> 6] |= 1L << slot;
+        } else {
+            availableWords[slot >>> 6] &= ~(1L << slot);
+        }
+        borrowDays[slot] = item instanceof Book ? ((Book) item).getBorrowEpochDay() : Book.NO_DAY;
+    }
+    
+    void remove(int slot) {
+        kinds[slot] = NONE;
+        presentWords[slot >>> 6] &= ~(1L << slot);
+        availableWords[slot >>> 6] &= ~(1L << slot);
+    }
+    
+    // Column access
+    public int rowCount() { return rows; }
+    public byte kindAt(int slot) { return kinds[slot]; }
+    public boolean isAvailableAt(int slot) { return (availableWords[slot >>> 6] & (1L << slot)) != 0; }
+    public int pagesAt(int slot) { return pages[slot]; }
+    public int genreAt(int slot) { return genres[slot]; }
+    public long borrowDayAt(int slot) { return borrowDays[slot]; }
+    
+    public int genreCode(String genre) {
+        Integer code = genreCodes.get(genre);
+        return code != null ? code : NO_GENRE;
+    }
+    
+    public String genreName(int code) { return genreNames.get(code); }
+    public int genreCount() { return genreNames.size(); }
+    public static String kindName(byte kind) { return KIND_NAMES[kind]; }
+    
+    // Aggregates
+    public long count(Filter filter) {
+        return aggregate(filter, Measure.COUNT, GroupBy.NONE, false)[0];
+    }
+    
+    public long sumPages(Filter filter) {
+        return aggregate(filter, Measure.PAGES, GroupBy.NONE, false)[0];
+    }
+    
+    // Matching rows per genre, in the order genres were first seen
+    public Map<String, Long> countByGenre(Filter filter) {
+        long[] totals = aggregate(filter, Measure.COUNT, GroupBy.GENRE, false);
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int code = 0; code < totals.length; code++) {
+            if (totals[code] > 0) {
+                result.put(genreNames.get(code), totals[code]);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Adds up the measure over rows matching the filter
+     * @param parallel split the scan into fork-join tasks on the common pool
+     * @return totals indexed by kind code or genre code, or a single total at index 0
+     */
+    public long[] aggregate(Filter filter, Measure measure, GroupBy groupBy, boolean parallel) {
+        int groups = groupBy == GroupBy.KIND ? KIND_NAMES.length
+                   : groupBy == GroupBy.GENRE ? Math.max(1, genreNames.size()) : 1;
+        Scan scan = new Scan(filter.resolve(this), measure, groupBy, groups, 0, rows);
+        return parallel ? ForkJoinPool.commonPool().invoke(scan) : scan.compute();
+    }
+    
+    /**
+     * Row predicate on kind, availability and genre; unset parts match everything
+     */
+    public static class Filter {
+        private final byte kind;
+        private final Boolean available;
+        private final String genre;
+        private final int genreCode; // resolved against a catalog just before a scan
+        
+        private Filter(byte kind, Boolean available, String genre, int genreCode) {
+            this.kind = kind;
+            this.available = available;
+            this.genre = genre;
+            this.genreCode = genreCode;
+        }
+        
+        public static Filter all() {
+            return new Filter(NONE, null, null, NO_GENRE);
+        }
+        
+        public Filter kind(byte kind) {
+            return new Filter(kind, available, genre, NO_GENRE);
+        }
+        
+        public Filter available(boolean available) {
+            return new Filter(kind, available, genre, NO_GENRE);
+        }
+        
+        public Filter genre(String genre) {
+            return new Filter(kind, available, genre, NO_GENRE);
+        }
+        
+        private Filter resolve(ColumnarCatalog catalog) {
+            // An unknown genre resolves to a code no row has, so nothing matches
+            int code = genre == null ? NO_GENRE : catalog.genreCodes.getOrDefault(genre, Integer.MIN_VALUE);
+            return new Filter(kind, available, genre, code);
+        }
+    }
+    
+    // Scans a slot range, splitting in halves down to LEAF_ROWS when run on a pool
+    private final class Scan extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+        
+        private final Filter filter;
+        private final Measure measure;
+        private final GroupBy groupBy;
+        private final int groups;
+        private final int from;
+        private final int to;
+        
+        Scan(Filter filter, Measure measure, GroupBy groupBy, int groups, int from, int to) {
+            this.filter = filter;
+            this.measure = measure;
+            this.groupBy = groupBy;
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected long[] compute() {
+            if (getPool() != null && to - from > LEAF_ROWS) {
+                int middle = (from + (to - from) / 2) & ~63;
+                Scan left = new Scan(filter, measure, groupBy, groups, from, middle);
+                Scan right = new Scan(filter, measure, groupBy, groups, middle, to);
+                left.fork();
+                long[] totals = right.compute();
+                long[] leftTotals = left.join();
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += leftTotals[i];
+                }
+                return totals;
+            }
+            long[] totals = new long[groups];
+            byte kind = filter.kind;
+            int genre = filter.genre != null ? filter.genreCode : NO_GENRE;
+            boolean anyGenre = filter.genre == null;
+            boolean sumPages = measure == Measure.PAGES;
+            for (int word = from >>> 6; word < (to + 63) >>> 6; word++) {
+                long bits = presentWords[word];
+                if (filter.available != null) {
+                    bits &= filter.available ? availableWords[word] : ~availableWords[word];
+                }
+                while (bits != 0) {
+                    int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (slot < from || slot >= to
+                            || (kind != NONE && kinds[slot] != kind)
+                            || (!anyGenre && genres[slot] != genre)) {
+                        continue;
+                    }
+                    int group = groupBy == GroupBy.KIND ? kinds[slot]
+                              : groupBy == GroupBy.GENRE ? genres[slot] : 0;
+                    if (group >= 0) { // rows without a genre have no GENRE group
+                        totals[group] += sumPages ? pages[slot] : 1;
+                    }
+                }
+            }
+            return totals;
+        }
+    }
+    
+    private int internGenre(String genre) {
+        Integer code = genreCodes.get(genre);
+        if (code == null) {
+            code = genreNames.size();
+            genreCodes.put(genre, code);
+            genreNames.add(genre);
+        }
+        return code;
+    }
+    
+    private void ensureCapacity(int needed) {
+        if (needed <= kinds.length) {
+            return;
+        }
+        int capacity = Math.max(needed, kinds.length * 2);
+        kinds = Arrays.copyOf(kinds, capacity);
+        pages = Arrays.copyOf(pages, capacity);
+        genres = Arrays.copyOf(genres, capacity);
+        borrowDays = Arrays.copyOf(borrowDays, capacity);
+        presentWords = Arrays.copyOf(presentWords, (capacity + 63) >>> 6);
+        availableWords = Arrays.copyOf(availableWords, (capacity + 63) >>> 6);
+    }
+    
+    private static byte kindOf(Item item) {
+        if (item instanceof Fiction) {
+            return FICTION;
+        } else if (item instanceof NonFiction) {
+            return NON_FICTION;
+        } else if (item instanceof Reference) {
+            return REFERENCE;
+        }
+        return OTHER;
+    }
+}
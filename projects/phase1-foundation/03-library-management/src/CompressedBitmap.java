@@ -0,0 +1,477 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed bitset of non-negative ints, in the style of Roaring bitmaps
+ * Values are split by their high 16 bits into containers: a sorted char array while a
+ * container holds at most 4096 values, a 65536-bit bitmap beyond that. Sparse sets stay
+ * small, dense ones cost one bit per value, and AND/OR/AND NOT work container by container.
+ */
+public class CompressedBitmap {
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+    
+    private char[] keys;
+    private Object[] containers; // char[] (sorted, first cardinality entries used) or long[BITMAP_WORDS]
+    private int[] cardinalities;
+    private int size;
+    
+    public CompressedBitmap() {
+        this(4);
+    }
+    
+    private CompressedBitmap(int capacity) {
+        this.keys = new char[capacity];
+        this.containers = new Object[capacity];
+        this.cardinalities = new int[capacity];
+    }
+    
+    // Basic operations
+    public boolean add(int value) {
+        char high = (char) (value >>> 16);
+        char low = (char) value;
+        int index = Arrays.binarySearch(keys, 0, size, high);
+        if (index < 0) {
+            insertContainer(-index - 1, high, new char[] {low, 0, 0, 0}, 1);
+            return true;
+        }
+        Object container = containers[index];
+        int cardinality = cardinalities[index];
+        if (container instanceof long[]) {
+            long[] bits = (long[]) container;
+            long before = bits[low >>> 6];
+            bits[low >>> 6] = before | (1L << low);
+            if (bits[low >>> 6] == before) {
+                return false;
+            }
+        } else {
+            char[] values = (char[]) container;
+            int position = Arrays.binarySearch(values, 0, cardinality, low);
+            if (position >= 0) {
+                return false;
+            }
+            position = -position - 1;
+            if (cardinality == ARRAY_MAX) {
+                long[] bits = toBits(values, cardinality);
+                bits[low >>> 6] |= 1L << low;
+                containers[index] = bits;
+            } else {
+                if (cardinality == values.length) {
+                    values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+                    containers[index] = values;
+                }
+                System.arraycopy(values, position, values, position + 1, cardinality - position);
+                values[position] = low;
+            }
+        }
+        cardinalities[index] = cardinality + 1;
+        return true;
+    }
+    
+    public boolean remove(int value) {
+        char high = (char) (value >>> 16);
+        char low = (char) value;
+        int index = Arrays.binarySearch(keys, 0, size, high);
+        if (index < 0) {
+            return false;
+        }
+        Object container = containers[index];
+        int cardinality = cardinalities[index];
+        if (container instanceof long[]) {
+            long[] bits = (long[]) container;
+            long before = bits[low >>> 6];
+            bits[low >>> 6] = before & ~(1L << low);
+            if (bits[low >>> 6] == before) {
+                return false;
+            }
+            if (cardinality - 1 <= ARRAY_MAX) {
+                containers[index] = toValues(bits, cardinality - 1);
+            }
+        } else {
+            char[] values = (char[]) container;
+            int position = Arrays.binarySearch(values, 0, cardinality, low);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(values, position + 1, values, position, cardinality - position - 1);
+        }
+        if (cardinality == 1) {
+            removeContainer(index);
+        } else {
+            cardinalities[index] = cardinality - 1;
+        }
+        return true;
+    }
+    
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, 0, cardinalities[index], low) >= 0;
+    }
+    
+    public long cardinality() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += cardinalities[i];
+        }
+        return total;
+    }
+    
+    public boolean isEmpty() { return size == 0; }
+    
+    // Set operations; each returns a new bitmap and leaves both inputs unchanged
+    public CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap(Math.max(1, Math.min(size, other.size)));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendContainer(keys[i], intersect(containers[i], cardinalities[i],
+                                                          other.containers[j], other.cardinalities[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+    
+    public CompressedBitmap or(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap(Math.max(1, size + other.size));
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.appendContainer(keys[i], copy(containers[i], cardinalities[i]));
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.appendContainer(other.keys[j], copy(other.containers[j], other.cardinalities[j]));
+                j++;
+            } else {
+                result.appendContainer(keys[i], union(containers[i], cardinalities[i],
+                                                      other.containers[j], other.cardinalities[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+    
+    public CompressedBitmap andNot(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap(Math.max(1, size));
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.appendContainer(keys[i], subtract(containers[i], cardinalities[i],
+                                                         other.containers[j], other.cardinalities[j]));
+            } else {
+                result.appendContainer(keys[i], copy(containers[i], cardinalities[i]));
+            }
+        }
+        return result;
+    }
+    
+    // Size of the intersection, without building it; used for facet counts
+    public long andCardinality(CompressedBitmap other) {
+        long total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                total += intersectCount(containers[i], cardinalities[i], other.containers[j], other.cardinalities[j]);
+                i++;
+                j++;
+            }
+        }
+        return total;
+    }
+    
+    // Iteration in increasing order
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            int base = keys[i] << 16;
+            Object container = containers[i];
+            if (container instanceof long[]) {
+                long[] bits = (long[]) container;
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    for (long w = bits[word]; w != 0; w &= w - 1) {
+                        action.accept(base | (word << 6) | Long.numberOfTrailingZeros(w));
+                    }
+                }
+            } else {
+                char[] values = (char[]) container;
+                for (int k = 0; k < cardinalities[i]; k++) {
+                    action.accept(base | values[k]);
+                }
+            }
+        }
+    }
+    
+    public int[] toArray() {
+        int[] values = new int[(int) cardinality()];
+        int[] next = new int[1];
+        forEach(value -> values[next[0]++] = value);
+        return values;
+    }
+    
+    // Heap used by the containers, for reporting
+    public long sizeInBytes() {
+        long bytes = (long) keys.length * 2 + (long) containers.length * 8 + (long) cardinalities.length * 4;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i] instanceof long[] ? BITMAP_WORDS * 8L : ((char[]) containers[i]).length * 2L;
+        }
+        return bytes;
+    }
+    
+    // Container operations
+    private static Object intersect(Object a, int cardA, Object b, int cardB) {
+        if (a instanceof long[] && b instanceof long[]) {
+            long[] bits = new long[BITMAP_WORDS];
+            long[] x = (long[]) a;
+            long[] y = (long[]) b;
+            int cardinality = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                bits[w] = x[w] & y[w];
+                cardinality += Long.bitCount(bits[w]);
+            }
+            return normalize(bits, cardinality);
+        }
+        if (a instanceof long[]) {
+            return filterArray((char[]) b, cardB, (long[]) a, true);
+        }
+        if (b instanceof long[]) {
+            return filterArray((char[]) a, cardA, (long[]) b, true);
+        }
+        char[] x = (char[]) a;
+        char[] y = (char[]) b;
+        char[] out = new char[Math.min(cardA, cardB)];
+        int n = 0;
+        for (int i = 0, j = 0; i < cardA && j < cardB; ) {
+            if (x[i] < y[j]) {
+                i++;
+            } else if (x[i] > y[j]) {
+                j++;
+            } else {
+                out[n++] = x[i];
+                i++;
+                j++;
+            }
+        }
+        return trimmed(out, n);
+    }
+    
+    private static long intersectCount(Object a, int cardA, Object b, int cardB) {
+        if (a instanceof long[] && b instanceof long[]) {
+            long[] x = (long[]) a;
+            long[] y = (long[]) b;
+            long count = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                count += Long.bitCount(x[w] & y[w]);
+            }
+            return count;
+        }
+        if (a instanceof long[] || b instanceof long[]) {
+            long[] bits = (long[]) (a instanceof long[] ? a : b);
+            char[] values = (char[]) (a instanceof long[] ? b : a);
+            int cardinality = a instanceof long[] ? cardB : cardA;
+            long count = 0;
+            for (int k = 0; k < cardinality; k++) {
+                count += (bits[values[k] >>> 6] >>> values[k]) & 1L;
+            }
+            return count;
+        }
+        char[] x = (char[]) a;
+        char[] y = (char[]) b;
+        long count = 0;
+        for (int i = 0, j = 0; i < cardA && j < cardB; ) {
+            if (x[i] < y[j]) {
+                i++;
+            } else if (x[i] > y[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+    
+    private static Object union(Object a, int cardA, Object b, int cardB) {
+        if (a instanceof long[] || b instanceof long[] || cardA + cardB > ARRAY_MAX) {
+            long[] bits = a instanceof long[] ? ((long[]) a).clone() : toBits((char[]) a, cardA);
+            if (b instanceof long[]) {
+                long[] y = (long[]) b;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    bits[w] |= y[w];
+                }
+            } else {
+                char[] values = (char[]) b;
+                for (int k = 0; k < cardB; k++) {
+                    bits[values[k] >>> 6] |= 1L << values[k];
+                }
+            }
+            int cardinality = 0;
+            for (long word : bits) {
+                cardinality += Long.bitCount(word);
+            }
+            return normalize(bits, cardinality);
+        }
+        char[] x = (char[]) a;
+        char[] y = (char[]) b;
+        char[] out = new char[cardA + cardB];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < cardA || j < cardB) {
+            if (j == cardB || (i < cardA && x[i] < y[j])) {
+                out[n++] = x[i++];
+            } else if (i == cardA || x[i] > y[j]) {
+                out[n++] = y[j++];
+            } else {
+                out[n++] = x[i++];
+                j++;
+            }
+        }
+        return trimmed(out, n);
+    }
+    
+    private static Object subtract(Object a, int cardA, Object b, int cardB) {
+        if (a instanceof long[]) {
+            long[] bits = ((long[]) a).clone();
+            if (b instanceof long[]) {
+                long[] y = (long[]) b;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    bits[w] &= ~y[w];
+                }
+            } else {
+                char[] values = (char[]) b;
+                for (int k = 0; k < cardB; k++) {
+                    bits[values[k] >>> 6] &= ~(1L << values[k]);
+                }
+            }
+            int cardinality = 0;
+            for (long word : bits) {
+                cardinality += Long.bitCount(word);
+            }
+            return normalize(bits, cardinality);
+        }
+        if (b instanceof long[]) {
+            return filterArray((char[]) a, cardA, (long[]) b, false);
+        }
+        char[] x = (char[]) a;
+        char[] y = (char[]) b;
+        char[] out = new char[cardA];
+        int n = 0;
+        for (int i = 0, j = 0; i < cardA; i++) {
+            while (j < cardB && y[j] < x[i]) {
+                j++;
+            }
+            if (j == cardB || y[j] != x[i]) {
+                out[n++] = x[i];
+            }
+        }
+        return trimmed(out, n);
+    }
+    
+    // Array values whose bit is set (keep == true) or clear (keep == false)
+    private static char[] filterArray(char[] values, int cardinality, long[] bits, boolean keep) {
+        char[] out = new char[cardinality];
+        int n = 0;
+        for (int k = 0; k < cardinality; k++) {
+            boolean set = (bits[values[k] >>> 6] & (1L << values[k])) != 0;
+            if (set == keep) {
+                out[n++] = values[k];
+            }
+        }
+        return trimmed(out, n);
+    }
+    
+    private static Object copy(Object container, int cardinality) {
+        return container instanceof long[] ? ((long[]) container).clone()
+                                           : Arrays.copyOf((char[]) container, cardinality);
+    }
+    
+    private static Object normalize(long[] bits, int cardinality) {
+        return cardinality > ARRAY_MAX ? bits : toValues(bits, cardinality);
+    }
+    
+    private static char[] trimmed(char[] values, int n) {
+        return n == values.length ? values : Arrays.copyOf(values, n);
+    }
+    
+    private static long[] toBits(char[] values, int cardinality) {
+        long[] bits = new long[BITMAP_WORDS];
+        for (int k = 0; k < cardinality; k++) {
+            bits[values[k] >>> 6] |= 1L << values[k];
+        }
+        return bits;
+    }
+    
+    private static char[] toValues(long[] bits, int cardinality) {
+        char[] values = new char[cardinality];
+        int n = 0;
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+            for (long w = bits[word]; w != 0; w &= w - 1) {
+                values[n++] = (char) ((word << 6) | Long.numberOfTrailingZeros(w));
+            }
+        }
+        return values;
+    }
+    
+    // Containers produced by set operations arrive in key order; empty ones are dropped
+    private void appendContainer(char key, Object container) {
+        int cardinality = 0;
+        if (container instanceof long[]) {
+            for (long word : (long[]) container) {
+                cardinality += Long.bitCount(word);
+            }
+        } else {
+            cardinality = ((char[]) container).length;
+        }
+        if (cardinality == 0) {
+            return;
+        }
+        insertContainer(size, key, container, cardinality);
+    }
+    
+    private void insertContainer(int index, char key, Object container, int cardinality) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+            cardinalities = Arrays.copyOf(cardinalities, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        cardinalities[index] = cardinality;
+        size++;
+    }
+    
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        System.arraycopy(cardinalities, index + 1, cardinalities, index, size - index - 1);
+        containers[--size] = null;
+    }
+}
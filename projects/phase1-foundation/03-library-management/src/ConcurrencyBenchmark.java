@@ -0,0 +1,186 @@
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress check and throughput benchmark for ConcurrentLibrary
+ * The stress phase hammers shared items from many threads and then verifies
+ * that no item was borrowed twice and no return was lost
+ */
+public class ConcurrencyBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32};
+    private static final long RUN_MILLIS = 1_000;
+    
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("=== Concurrent Library Benchmark ===\n");
+        
+        System.out.println("1. Stress check:");
+        raceForSingleItem(32, 200);
+        randomCirculation(16, 200, 64, 200_000);
+        
+        System.out.println("\n2. Throughput (borrow + return pairs, each thread on its own item):");
+        System.out.printf("%-8s %18s %18s%n", "Threads", "ConcurrentLibrary", "Global lock");
+        for (int threads : THREAD_COUNTS) {
+            ConcurrentLibrary library = newLibrary(threads, threads);
+            double striped = measure(library, threads, null);
+            double global = measure(newLibrary(threads, threads), threads, new Object());
+            System.out.printf("%-8d %18s %18s%n", threads,
+                              BenchmarkSupport.formatRate(striped), BenchmarkSupport.formatRate(global));
+        }
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    // Many threads try to borrow the same item at once; exactly one may win each round
+    private static void raceForSingleItem(int threads, int rounds) throws InterruptedException {
+        ConcurrentLibrary library = newLibrary(1, threads);
+        for (int round = 0; round < rounds; round++) {
+            AtomicInteger winners = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                String memberId = "M" + t;
+                workers[t] = new Thread(() -> {
+                    await(start);
+                    if (library.borrowItem("F0", memberId)) {
+                        winners.incrementAndGet();
+                    }
+                });
+                workers[t].start();
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            Book book = (Book) library.findItemById("F0");
+            check(winners.get() == 1, "round " + round + " had " + winners.get() + " winners");
+            check(library.returnItem("F0", book.getBorrowedBy()), "winner could not return the item");
+        }
+        System.out.println("Single-item race: " + rounds + " rounds x " + threads + " threads, one winner each - OK");
+    }
+    
+    // Random borrows and returns over a small shared pool, then a full consistency check
+    private static void randomCirculation(int threads, int itemCount, int memberCount, int operationsPerThread)
+            throws InterruptedException {
+        ConcurrentLibrary library = newLibrary(itemCount, memberCount);
+        AtomicLong borrows = new AtomicLong();
+        AtomicLong returns = new AtomicLong();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            workers[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < operationsPerThread; i++) {
+                    String itemId = "F" + random.nextInt(itemCount);
+                    String memberId = "M" + random.nextInt(memberCount);
+                    if (random.nextBoolean()) {
+                        if (library.borrowItem(itemId, memberId)) {
+                            borrows.incrementAndGet();
+                        }
+                    } else if (library.returnItem(itemId, memberId)) {
+                        returns.incrementAndGet();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        
+        int borrowedItems = 0;
+        for (int i = 0; i < itemCount; i++) {
+            Book book = (Book) library.findItemById("F" + i);
+            if (book.isBorrowed()) {
+                borrowedItems++;
+                check(!book.isAvailable(), book.getId() + " is borrowed but marked available");
+                Member holder = library.findMemberById(book.getBorrowedBy());
+                check(holder.hasBorrowed(book.getId()),
+                      book.getId() + " missing from its borrower's list");
+            } else {
+                check(book.isAvailable(), book.getId() + " is not borrowed but marked unavailable");
+            }
+        }
+        int heldByMembers = 0;
+        for (int m = 0; m < memberCount; m++) {
+            Member member = library.findMemberById("M" + m);
+            heldByMembers += member.getBorrowedCount();
+            check(member.getBorrowedCount() <= 5, member.getMemberId() + " holds more than 5 items");
+            for (int i = 0; i < member.getBorrowedCount(); i++) {
+                String itemId = member.getBorrowed().get(i);
+                Book book = (Book) library.findItemById(itemId);
+                check(member.getMemberId().equals(book.getBorrowedBy()),
+                      itemId + " listed by " + member.getMemberId() + " but held by " + book.getBorrowedBy());
+            }
+        }
+        check(borrowedItems == heldByMembers, "items and member lists disagree");
+        check(borrows.get() - returns.get() == borrowedItems, "successful borrows minus returns != items out");
+        LibraryStatistics.Snapshot statistics = library.getStatistics();
+        check(statistics.getBorrowedItems() == borrowedItems
+              && statistics.getAvailableItems() == itemCount - borrowedItems,
+              "statistics counters drifted from the items");
+        System.out.printf("Random circulation: %,d borrows, %,d returns, %d out on loan - OK%n",
+                          borrows.get(), returns.get(), borrowedItems);
+    }
+    
+    private static double measure(ConcurrentLibrary library, int threads, Object globalLock)
+            throws InterruptedException {
+        AtomicLong operations = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + RUN_MILLIS * 1_000_000L + 200_000_000L;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            String itemId = "F" + t;
+            String memberId = "M" + t;
+            workers[t] = new Thread(() -> {
+                await(start);
+                long count = 0;
+                while (System.nanoTime() < deadline) {
+                    if (globalLock != null) {
+                        synchronized (globalLock) {
+                            library.borrowItem(itemId, memberId);
+                            library.returnItem(itemId, memberId);
+                        }
+                    } else {
+                        library.borrowItem(itemId, memberId);
+                        library.returnItem(itemId, memberId);
+                    }
+                    count++;
+                }
+                operations.addAndGet(count);
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return BenchmarkSupport.perSecond(operations.get(), System.nanoTime() - begin);
+    }
+    
+    private static ConcurrentLibrary newLibrary(int itemCount, int memberCount) {
+        ConcurrentLibrary library = new ConcurrentLibrary("Benchmark Library");
+        for (int i = 0; i < itemCount; i++) {
+            library.addItem(new Fiction("F" + i, "Title " + i, "Author " + i, "ISBN-" + i));
+        }
+        for (int m = 0; m < memberCount; m++) {
+            library.registerMember(new Member("M" + m, "Member " + m, "m" + m + "@email.com"));
+        }
+        return library;
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Consistency check failed: " + message);
+        }
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
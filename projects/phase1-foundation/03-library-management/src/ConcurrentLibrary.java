@@ -0,0 +1,322 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Thread-safe Library variant for many desk terminals working at once
+ * Borrow and return lock only the member and the item involved (always member first,
+ * then item), so checkouts of different books by different members never contend.
+ * Multi-copy titles are kept as Holdings, locked the same way (member, then holding).
+ */
+public class ConcurrentLibrary {
+    private final ConcurrentMap<String, Item> items;
+    private final ConcurrentMap<String, Member> members;
+    private final ConcurrentMap<String, Holding> holdings;
+    private final Set<String> recordIds; // item and holding IDs, claimed before either map is touched
+    private final IntPredicate registered; // whether a member handle still belongs to a member
+    private final String libraryName;
+    private final LibraryStatistics statistics;
+    private final ItemListener itemListener;
+    private volatile EventSink events;
+    
+    public ConcurrentLibrary(String libraryName) {
+        this.libraryName = libraryName;
+        this.items = new ConcurrentHashMap<>();
+        this.members = new ConcurrentHashMap<>();
+        this.holdings = new ConcurrentHashMap<>();
+        this.recordIds = ConcurrentHashMap.newKeySet();
+        this.registered = handle -> members.containsKey(IdRegistry.MEMBERS.idOf(handle));
+        this.statistics = new LibraryStatistics();
+        this.itemListener = (item, available) -> statistics.availabilityChanged(available);
+        this.events = NoOpEventSink.INSTANCE;
+    }
+    
+    public ConcurrentLibrary() {
+        this("City Library");
+    }
+    
+    public String getLibraryName() { return libraryName; }
+    
+    // Terminals get outcomes from the return values; a sink is for logging (use an AsyncEventSink)
+    public void setEventSink(EventSink events) {
+        this.events = events;
+    }
+    
+    // Item management
+    public boolean addItem(Item item) {
+        synchronized (item) {
+            // Holding the item lock means no checkout can flip it before the counters see it
+            if (!recordIds.add(item.getId())) {
+                return false;
+            }
+            items.put(item.getId(), item);
+            item.setListener(itemListener);
+            statistics.itemAdded(item);
+            events.publish(LibraryEvent.item(LibraryEvent.Type.ITEM_ADDED, item));
+            return true;
+        }
+    }
+    
+    public boolean removeItem(String itemId) {
+        Item item = items.get(itemId);
+        if (item == null) {
+            return false;
+        }
+        synchronized (item) {
+            // A borrowed item stays; the item lock keeps a checkout from slipping in between
+            if (!item.isAvailable() || !items.remove(itemId, item)) {
+                return false;
+            }
+            recordIds.remove(itemId);
+            item.setListener(null);
+            statistics.itemRemoved(item);
+            events.publish(LibraryEvent.item(LibraryEvent.Type.ITEM_REMOVED, item));
+            return true;
+        }
+    }
+    
+    // Holdings: one record, many copies
+    public boolean addHolding(Holding holding) {
+        if (!recordIds.add(holding.getId())) {
+            return false;
+        }
+        holdings.put(holding.getId(), holding);
+        statistics.itemAdded(holding.getRecord());
+        events.publish(LibraryEvent.item(LibraryEvent.Type.ITEM_ADDED, holding.getRecord()));
+        return true;
+    }
+    
+    public Holding findHolding(String recordId) {
+        return holdings.get(recordId);
+    }
+    
+    /**
+     * Lends the member a copy of a multi-copy title: the one kept for them after a hold,
+     * otherwise any free copy
+     * @return the copy number lent, or -1
+     */
+    public int borrowCopy(String recordId, String memberId) {
+        Holding holding = holdings.get(recordId);
+        Member member = members.get(memberId);
+        if (holding == null || member == null) {
+            return -1;
+        }
+        int copy;
+        synchronized (member) {
+            if (members.get(memberId) != member || !member.canBorrow()) {
+                return -1;
+            }
+            copy = holding.checkout(member.getHandle());
+            if (copy < 0) {
+                return -1;
+            }
+            member.borrowItem(holding.getCopyId(copy));
+        }
+        events.publish(new LibraryEvent(LibraryEvent.Type.ITEM_BORROWED, holding.getCopyId(copy), memberId,
+                                        holding.getRecord().getTitle(), 0.0));
+        return copy;
+    }
+    
+    // Takes a copy back; if members are waiting it is kept for the oldest hold
+    public boolean returnCopy(String recordId, int copy, String memberId) {
+        Holding holding = holdings.get(recordId);
+        Member member = members.get(memberId);
+        if (holding == null || member == null) {
+            return false;
+        }
+        int next;
+        synchronized (member) {
+            next = holding.checkin(copy, member.getHandle(), registered);
+            if (next == Holding.NOT_BORROWED) {
+                return false;
+            }
+            member.returnItem(holding.getCopyId(copy));
+        }
+        String title = holding.getRecord().getTitle();
+        events.publish(new LibraryEvent(LibraryEvent.Type.ITEM_RETURNED, holding.getCopyId(copy), memberId, title, 0.0));
+        publishHoldReady(holding, next);
+        return true;
+    }
+    
+    private void publishHoldReady(Holding holding, int next) {
+        if (next >= 0) {
+            int copy = holding.copyKeptFor(next);
+            events.publish(new LibraryEvent(LibraryEvent.Type.HOLD_READY, holding.getCopyId(copy),
+                                            IdRegistry.MEMBERS.idOf(next), holding.getRecord().getTitle(), 0.0));
+        }
+    }
+    
+    // Queues the member for the next returned copy; only while every copy is out
+    public boolean placeHold(String recordId, String memberId) {
+        Holding holding = holdings.get(recordId);
+        Member member = members.get(memberId);
+        if (holding == null || member == null || !holding.placeHold(member.getHandle())) {
+            return false;
+        }
+        events.publish(new LibraryEvent(LibraryEvent.Type.HOLD_PLACED, recordId, memberId,
+                                        holding.getRecord().getTitle(), 0.0));
+        return true;
+    }
+    
+    /**
+     * Withdraws the member's hold; a copy already kept for them goes to the next hold
+     * or back on the shelf
+     */
+    public boolean cancelHold(String recordId, String memberId) {
+        Holding holding = holdings.get(recordId);
+        Member member = members.get(memberId);
+        if (holding == null || member == null) {
+            return false;
+        }
+        int next = holding.cancel(member.getHandle(), registered);
+        if (next == Holding.NOT_HELD) {
+            return false;
+        }
+        events.publish(new LibraryEvent(LibraryEvent.Type.HOLD_CANCELLED, recordId, memberId,
+                                        holding.getRecord().getTitle(), 0.0));
+        publishHoldReady(holding, next);
+        return true;
+    }
+    
+    // Member management
+    public boolean registerMember(Member member) {
+        if (members.putIfAbsent(member.getMemberId(), member) != null) {
+            return false;
+        }
+        statistics.memberRegistered();
+        events.publish(LibraryEvent.member(LibraryEvent.Type.MEMBER_REGISTERED, member));
+        return true;
+    }
+    
+    public boolean removeMember(String memberId) {
+        Member member = members.get(memberId);
+        if (member == null) {
+            return false;
+        }
+        synchronized (member) {
+            if (member.getBorrowedCount() > 0 || !members.remove(memberId, member)) {
+                return false;
+            }
+            statistics.memberRemoved();
+        }
+        // After the removal, so a concurrent checkin already skips this member; a copy kept before it is freed here
+        for (Holding holding : holdings.values()) {
+            publishHoldReady(holding, holding.cancel(member.getHandle(), registered));
+        }
+        events.publish(LibraryEvent.member(LibraryEvent.Type.MEMBER_REMOVED, member));
+        return true;
+    }
+    
+    public boolean addFine(String memberId, double amount) {
+        Member member = members.get(memberId);
+        if (member == null) {
+            return false;
+        }
+        synchronized (member) {
+            member.addFine(amount);
+        }
+        events.publish(new LibraryEvent(LibraryEvent.Type.FINE_ADDED, null, memberId, member.getName(), amount));
+        return true;
+    }
+    
+    public boolean payFine(String memberId, double amount) {
+        Member member = members.get(memberId);
+        if (member == null) {
+            return false;
+        }
+        synchronized (member) {
+            member.payFine(amount);
+        }
+        events.publish(new LibraryEvent(LibraryEvent.Type.FINE_PAID, null, memberId, member.getName(), amount));
+        return true;
+    }
+    
+    // Borrowing operations - atomic per member and per item
+    public boolean borrowItem(String itemId, String memberId) {
+        Item item = items.get(itemId);
+        Member member = members.get(memberId);
+        if (item == null || member == null || !(item instanceof Borrowable)) {
+            return false;
+        }
+        Borrowable borrowable = (Borrowable) item;
+        synchronized (member) {
+            synchronized (item) {
+                // Re-check under the locks: either side may have been removed or changed meanwhile
+                if (items.get(itemId) != item || members.get(memberId) != member) {
+                    return false;
+                }
+                if (!member.canBorrow() || !borrowable.canBorrow()) {
+                    return false;
+                }
+                borrowable.borrowItem(memberId);
+                member.borrowItem(itemId);
+            }
+        }
+        // Published outside the locks so a slow sink never holds up other checkouts
+        events.publish(new LibraryEvent(LibraryEvent.Type.ITEM_BORROWED, itemId, memberId, item.getTitle(), 0.0));
+        return true;
+    }
+    
+    public boolean returnItem(String itemId, String memberId) {
+        Item item = items.get(itemId);
+        Member member = members.get(memberId);
+        if (item == null || member == null || !(item instanceof Book)) {
+            return false;
+        }
+        Book book = (Book) item;
+        synchronized (member) {
+            synchronized (item) {
+                // Only the member holding the item can return it, so a return is never applied twice
+                if (book.getBorrowerHandle() != member.getHandle()) {
+                    return false;
+                }
+                book.returnItem();
+                member.returnItem(itemId);
+            }
+        }
+        events.publish(new LibraryEvent(LibraryEvent.Type.ITEM_RETURNED, itemId, memberId, item.getTitle(), 0.0));
+        return true;
+    }
+    
+    // Lookups and search
+    public Item findItemById(String itemId) {
+        return items.get(itemId);
+    }
+    
+    public Member findMemberById(String memberId) {
+        return members.get(memberId);
+    }
+    
+    public List<Item> searchByTitle(String title) {
+        String needle = title.toLowerCase();
+        List<Item> results = new ArrayList<>();
+        for (Item item : items.values()) {
+            if (item.getTitle().toLowerCase().contains(needle)) {
+                results.add(item);
+            }
+        }
+        return results;
+    }
+    
+    public List<Item> searchByAuthor(String author) {
+        String needle = author.toLowerCase();
+        List<Item> results = new ArrayList<>();
+        for (Item item : items.values()) {
+            if (item.getAuthor().toLowerCase().contains(needle)) {
+                results.add(item);
+            }
+        }
+        return results;
+    }
+    
+    // Statistics - O(1), safe to poll while checkouts are running
+    public LibraryStatistics.Snapshot getStatistics() {
+        return statistics.snapshot();
+    }
+    
+    public int getItemCount() { return items.size(); }
+    public int getMemberCount() { return members.size(); }
+}
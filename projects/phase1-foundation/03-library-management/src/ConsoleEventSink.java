@@ -0,0 +1,80 @@
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Event sink that prints the Library's classic one-line console messages
+ */
+public class ConsoleEventSink implements EventSink {
+    private final PrintStream out;
+    
+    public ConsoleEventSink(PrintStream out) {
+        this.out = out;
+    }
+    
+    // Resolves System.out on every write, so System.setOut redirection still applies
+    public ConsoleEventSink() {
+        this.out = null;
+    }
+    
+    @Override
+    public void publish(LibraryEvent event) {
+        String message = format(event);
+        if (message != null) {
+            stream().println(message);
+        }
+    }
+    
+    // One write for the whole batch instead of one locked println per event
+    @Override
+    public void publishBatch(List<LibraryEvent> events) {
+        StringBuilder text = new StringBuilder(events.size() * 40);
+        for (LibraryEvent event : events) {
+            String message = format(event);
+            if (message != null) {
+                text.append(message).append(System.lineSeparator());
+            }
+        }
+        if (text.length() > 0) {
+            PrintStream stream = stream();
+            stream.print(text);
+            stream.flush();
+        }
+    }
+    
+    /**
+     * The console text for an event, or null for events that were never printed
+     */
+    public static String format(LibraryEvent event) {
+        switch (event.getType()) {
+            case ITEM_ADDED: return "Added item: " + event.getName();
+            case DUPLICATE_ITEM: return "Item with ID " + event.getItemId() + " already exists.";
+            case ITEM_REMOVED: return "Removed item: " + event.getName();
+            case ITEM_IN_USE: return "Cannot remove item - currently borrowed.";
+            case ITEM_NOT_FOUND: return "Item not found: " + event.getItemId();
+            case MEMBER_REGISTERED: return "Registered member: " + event.getName();
+            case DUPLICATE_MEMBER: return "Member with ID " + event.getMemberId() + " already exists.";
+            case MEMBER_REMOVED: return "Removed member: " + event.getName();
+            case MEMBER_HAS_LOANS: return "Cannot remove member - has borrowed items.";
+            case MEMBER_NOT_FOUND: return "Member not found: " + event.getMemberId();
+            case MEMBER_CANNOT_BORROW: return "Member cannot borrow: " + event.getName();
+            case ITEM_BORROWED: return "Item borrowed successfully: " + event.getName();
+            case ITEM_UNAVAILABLE: return "Item cannot be borrowed: " + event.getName();
+            case ITEM_NOT_BORROWABLE: return "Item is not borrowable: " + event.getName();
+            case ITEM_RETURNED: return "Item returned successfully: " + event.getName();
+            case RETURN_NOT_FOUND: return "Item or member not found.";
+            case NOT_BORROWER: return "Item is not on loan to this member: " + event.getName();
+            case FINES_SWEPT: return event.getName();
+            case HOLD_PLACED: return "Hold placed: " + event.getName();
+            case HOLD_READY: return "Hold ready for pickup by " + event.getMemberId() + ": " + event.getName();
+            case HOLD_CANCELLED: return "Hold cancelled: " + event.getName();
+            case BATCH_BORROWED:
+            case BATCH_RETURNED:
+            case BATCH_REJECTED: return event.getName();
+            default: return null;
+        }
+    }
+    
+    private PrintStream stream() {
+        return out != null ? out : System.out;
+    }
+}
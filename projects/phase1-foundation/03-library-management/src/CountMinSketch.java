@@ -0,0 +1,108 @@
+import java.util.Arrays;
+
+/**
+ * Approximate event counts per key in a fixed table of depth rows by width counters
+ * Each key adds to one counter per row and its estimate is the smallest of them, so an estimate
+ * never undercounts; with width e/epsilon and depth ln(1/delta) it overcounts by more than
+ * epsilon times the total only with probability delta. Updates are conservative: only the
+ * counters that are at the current minimum grow, which keeps the error well under the bound.
+ */
+public class CountMinSketch {
+    private final int width;
+    private final int depth;
+    private final long[] counters; // row after row
+    private long total;
+    
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("Sketch needs at least one row and column: " + width + "x" + depth);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new long[width * depth];
+    }
+    
+    /**
+     * @param epsilon overcount allowed, as a fraction of all counted events
+     * @param delta probability that an estimate exceeds that allowance
+     */
+    public static CountMinSketch withError(double epsilon, double delta) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("Error bounds must be between 0 and 1: " + epsilon + ", " + delta);
+        }
+        return new CountMinSketch((int) Math.ceil(Math.E / epsilon), (int) Math.ceil(Math.log(1 / delta)));
+    }
+    
+    public int getWidth() { return width; }
+    public int getDepth() { return depth; }
+    public long getTotal() { return total; }
+    public long getMemoryBytes() { return 8L * counters.length; }
+    
+    // Overcount that an estimate stays within, except with probability delta
+    public double getErrorBound() {
+        return Math.E / width * total;
+    }
+    
+    public void add(String key) {
+        add(key, 1);
+    }
+    
+    public void add(String key, long count) {
+        long hash = hash(key);
+        int first = (int) hash;
+        int step = (int) (hash >>> 32) | 1;
+        long minimum = Long.MAX_VALUE;
+        for (int row = 0, h = first; row < depth; row++, h += step) {
+            minimum = Math.min(minimum, counters[row * width + column(h)]);
+        }
+        long target = minimum + count;
+        for (int row = 0, h = first; row < depth; row++, h += step) {
+            int index = row * width + column(h);
+            if (counters[index] < target) {
+                counters[index] = target;
+            }
+        }
+        total += count;
+    }
+    
+    public long estimate(String key) {
+        long hash = hash(key);
+        int first = (int) hash;
+        int step = (int) (hash >>> 32) | 1;
+        long minimum = Long.MAX_VALUE;
+        for (int row = 0, h = first; row < depth; row++, h += step) {
+            minimum = Math.min(minimum, counters[row * width + column(h)]);
+        }
+        return minimum;
+    }
+    
+    public void clear() {
+        Arrays.fill(counters, 0);
+        total = 0;
+    }
+    
+    // Maps a 32-bit hash onto 0..width-1 with a multiply instead of a division
+    private int column(int hash) {
+        return (int) (((hash & 0xFFFF_FFFFL) * width) >>> 32);
+    }
+    
+    /**
+     * 64-bit hash of the key's characters; its two halves give the row hashes h1 + row * h2.
+     * String.hashCode would tie every pair of keys with equal 32-bit hashes (such as "Aa" and
+     * "BB") in all rows at once, which the error bound does not allow for
+     */
+    private static long hash(String key) {
+        long hash = 0xCBF29CE484222325L; // FNV-1a over UTF-16 units, then a full avalanche
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash ^ key.length());
+    }
+    
+    // Stafford's 64-bit finalizer
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
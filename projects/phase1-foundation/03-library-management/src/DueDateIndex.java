@@ -0,0 +1,75 @@
+import java.util.Arrays;
+
+/**
+ * Min-heap of loans ordered by due day, stored as packed primitive longs
+ * Each entry is (due epoch day << 32 | item slot), so a sweep pops only the loans that
+ * have fallen due and never looks at the rest. Returned loans are not removed eagerly;
+ * their stale entries are skipped when they surface.
+ */
+public class DueDateIndex {
+    private long[] heap;
+    private int size;
+    
+    public DueDateIndex() {
+        this.heap = new long[64];
+        this.size = 0;
+    }
+    
+    public void add(long dueEpochDay, int slot) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        long entry = (dueEpochDay << 32) | (slot & 0xFFFFFFFFL);
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= entry) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = entry;
+    }
+    
+    /**
+     * Removes and returns the slots of all entries due before the given day
+     */
+    public int[] pollDueBefore(long epochDay) {
+        int[] slots = new int[16];
+        int count = 0;
+        while (size > 0 && (heap[0] >> 32) < epochDay) {
+            if (count == slots.length) {
+                slots = Arrays.copyOf(slots, count * 2);
+            }
+            slots[count++] = (int) heap[0];
+            removeTop();
+        }
+        return Arrays.copyOf(slots, count);
+    }
+    
+    // Due day of the earliest entry, or Book.NO_DAY when empty
+    public long peekDueDay() {
+        return size > 0 ? heap[0] >> 32 : Book.NO_DAY;
+    }
+    
+    public int size() { return size; }
+    
+    private void removeTop() {
+        long last = heap[--size];
+        int index = 0;
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = last;
+    }
+}
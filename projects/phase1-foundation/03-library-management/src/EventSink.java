@@ -0,0 +1,23 @@
+import java.util.List;
+
+/**
+ * Destination for LibraryEvents
+ * Library operations publish one event each instead of printing to the console
+ */
+public interface EventSink {
+    void publish(LibraryEvent event);
+    
+    // Sinks that can write several events at once override this
+    default void publishBatch(List<LibraryEvent> events) {
+        for (LibraryEvent event : events) {
+            publish(event);
+        }
+    }
+    
+    // Waits until everything published so far has been written
+    default void flush() {}
+    
+    default void close() {
+        flush();
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark for Library event sinks
+ * Measures borrow/return throughput with synchronous console output, the asynchronous
+ * batched sink, and the no-op sink. Console output goes to an auto-flushing file stream,
+ * which, like a terminal, costs one write call per line. First checks that the asynchronous sink
+ * survives a failing target and that close never strands an accepted event
+ */
+public class EventSinkBenchmark {
+    private static final int OPERATIONS = 2_000_000;
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.out.println("=== Event Sink Benchmark ===\n");
+        checkAsyncSink();
+        Path file = Files.createTempFile("library-console", ".log");
+        PrintStream console = new PrintStream(new FileOutputStream(file.toFile()), true);
+        try {
+            run(console);
+        } finally {
+            console.close();
+            Files.deleteIfExists(file);
+        }
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+
+    private static void run(PrintStream console) {
+        for (int round = 0; round < 2; round++) {
+            if (round == 1) {
+                System.out.println("Borrow + return, " + String.format("%,d", OPERATIONS) + " operations:");
+            }
+            report("Console (synchronous)", new ConsoleEventSink(console), round == 1);
+            report("AsyncEventSink -> console", new AsyncEventSink(new ConsoleEventSink(console)), round == 1);
+            report("NoOpEventSink", NoOpEventSink.INSTANCE, round == 1);
+        }
+    }
+    
+    private static void checkAsyncSink() throws InterruptedException {
+        // A target that fails on its first batch must not stop the writer
+        AtomicLong delivered = new AtomicLong();
+        EventSink flaky = new EventSink() {
+            private boolean failed;
+            
+            @Override
+            public void publish(LibraryEvent event) {
+                delivered.incrementAndGet();
+            }
+            
+            @Override
+            public void publishBatch(List<LibraryEvent> events) {
+                if (!failed) {
+                    failed = true;
+                    throw new AssertionError("disk full"); // an Error, which must not kill the writer
+                }
+                delivered.addAndGet(events.size());
+            }
+        };
+        AsyncEventSink sink = new AsyncEventSink(flaky, 16);
+        sink.publish(event(0));
+        boolean reported = false;
+        try {
+            sink.flush();
+        } catch (IllegalStateException e) {
+            reported = e.getCause() != null && sink.getLostEvents() == 1;
+        }
+        for (int i = 1; i <= 1_000; i++) { // more than the buffer holds, so publishers rely on the writer
+            sink.publish(event(i));
+        }
+        Thread.currentThread().interrupt();
+        sink.publish(event(1_001));
+        boolean interruptKept = Thread.interrupted();
+        sink.flush();
+        check(reported && interruptKept && delivered.get() == 1_001, "writer survives a failing batch");
+        sink.close();
+        
+        // Publishers racing close either get an exception or have their event written
+        for (int round = 0; round < 20; round++) {
+            AtomicLong written = new AtomicLong();
+            AtomicLong accepted = new AtomicLong();
+            AsyncEventSink racing = new AsyncEventSink(event -> written.incrementAndGet(), 64);
+            Thread[] publishers = new Thread[4];
+            for (int t = 0; t < publishers.length; t++) {
+                publishers[t] = new Thread(() -> {
+                    try {
+                        for (int i = 0; ; i++) {
+                            racing.publish(event(i));
+                            accepted.incrementAndGet();
+                        }
+                    } catch (IllegalStateException closed) {
+                        // expected once close has run
+                    }
+                });
+                publishers[t].start();
+            }
+            Thread.sleep(2);
+            racing.close();
+            for (Thread publisher : publishers) {
+                publisher.join();
+            }
+            check(written.get() == accepted.get(), "close drained " + written + " of " + accepted + " events");
+        }
+        System.out.println("Async sink survives a failing target and drains every accepted event on close - OK\n");
+    }
+    
+    private static LibraryEvent event(int i) {
+        return new LibraryEvent(LibraryEvent.Type.ITEM_BORROWED, "F" + i, "M1", "Title " + i, 0);
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + message);
+        }
+    }
+    
+    private static void report(String label, EventSink sink, boolean print) {
+        Library library = new Library("Bench");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        for (int i = 0; i < 1_000; i++) {
+            library.addItem(new Fiction("F" + i, "Title " + i, "Author " + i, "ISBN-" + i));
+        }
+        for (int m = 0; m < 200; m++) {
+            library.registerMember(new Member("M" + m, "Member " + m, "m" + m + "@email.com"));
+        }
+        library.setEventSink(sink);
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS / 2; i++) {
+            String itemId = "F" + (i % 1_000);
+            String memberId = "M" + (i % 200);
+            library.borrowItem(itemId, memberId);
+            library.returnItem(itemId, memberId);
+        }
+        long caller = System.nanoTime() - start;
+        sink.flush();
+        long total = System.nanoTime() - start;
+        if (print) {
+            System.out.printf("%-28s caller %s, including drain %s%n", label + ":",
+                              BenchmarkSupport.formatRate(BenchmarkSupport.perSecond(OPERATIONS, caller)),
+                              BenchmarkSupport.formatRate(BenchmarkSupport.perSecond(OPERATIONS, total)));
+        }
+        sink.close(); // stops an async writer; ConsoleEventSink leaves its stream open
+    }
+}
@@ -0,0 +1,205 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark for faceted bitmap search
+ * Checks CompressedBitmap against java.util.BitSet and the facet index against a manual
+ * filter, then compares chained search-and-filter with bitmap queries on 1M items and
+ * times three-facet queries over a 5M-item index
+ */
+public class FacetBenchmark {
+    private static final int LIBRARY_ITEMS = 1_000_000;
+    private static final int DEFAULT_INDEX_ITEMS = 5_000_000;
+    private static final int CHUNK = 500_000;
+    private static final String[] GENRES = {
+        "History", "Science", "Poetry", "Travel", "Mystery", "Biography",
+        "Philosophy", "Art", "Cooking", "Law", "Medicine", "Music"
+    };
+    
+    public static void main(String[] args) {
+        int indexItems = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_INDEX_ITEMS;
+        System.out.println("=== Facet Search Benchmark ===\n");
+        
+        System.out.println("1. Correctness checks:");
+        checkBitmap();
+        checkLibrary();
+        
+        System.out.printf("%n2. \"Available Fiction by author X\" over %,d library items:%n", LIBRARY_ITEMS);
+        Library library = new Library("Bench");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        Item[] items = prepare(BenchmarkSupport.syntheticItems(LIBRARY_ITEMS, 43), new Random(47));
+        library.addItems(Arrays.asList(items));
+        String author = mostCommonAuthor(items);
+        library.setFacetIndexEnabled(true);
+        FacetQuery query = FacetQuery.type("Fiction").and(FacetQuery.available(), FacetQuery.author(author));
+        long chained = time("searchByAuthor + filters", 5, () -> {
+            long count = 0;
+            for (Item item : library.searchByAuthor(author)) {
+                if (item.getAuthor().equals(author) && item.isAvailable() && item instanceof Fiction) {
+                    count++;
+                }
+            }
+            return count;
+        });
+        long bitmap = time("Facet query", 200, () -> library.getFacetIndex().count(query));
+        if (chained != bitmap) {
+            throw new IllegalStateException("Facet query found " + bitmap + " items, the scan " + chained);
+        }
+        time("Facet query + items", 200, () -> library.searchFacets(query).size());
+        System.out.println("Matches for \"" + author + "\": " + bitmap);
+        
+        System.out.printf("%n3. Facet index alone over %,d items:%n", indexItems);
+        FacetIndex index = new FacetIndex();
+        Random random = new Random(53);
+        for (int start = 0; start < indexItems; start += CHUNK) {
+            Item[] chunk = prepare(BenchmarkSupport.syntheticItems(Math.min(CHUNK, indexItems - start), start), random);
+            for (int i = 0; i < chunk.length; i++) {
+                index.add(start + i, chunk[i]);
+            }
+        }
+        System.out.printf("Index size: %s for %,d distinct authors%n",
+                          BenchmarkSupport.formatBytes(index.sizeInBytes()),
+                          index.valuesOf(FacetIndex.Facet.AUTHOR).size());
+        FacetQuery threeFacets = FacetQuery.type("Fiction").and(FacetQuery.available(), FacetQuery.author(author));
+        FacetQuery genreMix = FacetQuery.genre("History").or(FacetQuery.genre("Science"))
+                .and(FacetQuery.available(), FacetQuery.type("Reference").not());
+        long matches = time("type AND available AND author", 2_000, () -> index.count(threeFacets));
+        time("(genre OR genre) AND available AND NOT type", 20, () -> index.count(genreMix));
+        time("Genre counts for the three-facet query", 2_000,
+             () -> index.facetCounts(threeFacets, FacetIndex.Facet.GENRE).size());
+        System.out.printf("%,d items match the three-facet query%n", matches);
+        
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    private interface Query {
+        long run();
+    }
+    
+    private static long time(String label, int rounds, Query query) {
+        long result = 0;
+        for (int i = 0; i < Math.max(3, rounds / 10); i++) {
+            result = query.run(); // warm up
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            result = query.run();
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / rounds;
+        System.out.printf("%-42s %,12.1f us per query%n", label, micros);
+        return result;
+    }
+    
+    // Gives the synthetic books varied genres and puts about 30% of them on loan
+    private static Item[] prepare(Item[] items, Random random) {
+        for (Item item : items) {
+            if (!(item instanceof Reference)) {
+                ((Book) item).setGenre(GENRES[random.nextInt(GENRES.length)]);
+                item.setAvailable(random.nextInt(10) >= 3);
+            }
+        }
+        return items;
+    }
+    
+    private static String mostCommonAuthor(Item[] items) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Item item : items) {
+            counts.merge(item.getAuthor(), 1, Integer::sum);
+        }
+        return counts.entrySet().stream().max(Map.Entry.comparingByValue()).get().getKey();
+    }
+    
+    // Random mixes of sparse and dense containers against BitSet
+    private static void checkBitmap() {
+        Random random = new Random(59);
+        for (int round = 0; round < 20; round++) {
+            BitSet[] sets = new BitSet[2];
+            CompressedBitmap[] bitmaps = new CompressedBitmap[2];
+            for (int k = 0; k < 2; k++) {
+                sets[k] = new BitSet();
+                bitmaps[k] = new CompressedBitmap();
+                int operations = 1 + random.nextInt(20_000);
+                double density = random.nextDouble();
+                for (int i = 0; i < operations; i++) {
+                    int value = random.nextInt(density < 0.5 ? 300_000 : 9_000);
+                    if (random.nextInt(5) == 0) {
+                        check(sets[k].get(value) == bitmaps[k].remove(value), "remove");
+                        sets[k].clear(value);
+                    } else {
+                        check(!sets[k].get(value) == bitmaps[k].add(value), "add");
+                        sets[k].set(value);
+                    }
+                }
+                check(same(sets[k], bitmaps[k]), "contents after adds and removes");
+            }
+            BitSet and = (BitSet) sets[0].clone();
+            and.and(sets[1]);
+            BitSet or = (BitSet) sets[0].clone();
+            or.or(sets[1]);
+            BitSet andNot = (BitSet) sets[0].clone();
+            andNot.andNot(sets[1]);
+            check(same(and, bitmaps[0].and(bitmaps[1])), "and");
+            check(same(or, bitmaps[0].or(bitmaps[1])), "or");
+            check(same(andNot, bitmaps[0].andNot(bitmaps[1])), "andNot");
+            check(bitmaps[0].andCardinality(bitmaps[1]) == and.cardinality(), "andCardinality");
+        }
+        System.out.println("CompressedBitmap matches BitSet on 20 random pairs - OK");
+    }
+    
+    private static boolean same(BitSet expected, CompressedBitmap actual) {
+        int[] values = actual.toArray();
+        if (values.length != expected.cardinality()) {
+            return false;
+        }
+        int i = 0;
+        for (int bit = expected.nextSetBit(0); bit >= 0; bit = expected.nextSetBit(bit + 1)) {
+            if (values[i++] != bit || !actual.contains(bit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static void checkLibrary() {
+        Library library = new Library("Check");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        Item[] items = prepare(BenchmarkSupport.syntheticItems(20_000, 61), new Random(67));
+        library.addItems(Arrays.asList(items).subList(0, 10_000));
+        library.setFacetIndexEnabled(true);
+        library.addItems(Arrays.asList(items).subList(10_000, 20_000));
+        for (int m = 0; m < 2_000 / Member.MAX_BORROWED_ITEMS; m++) {
+            library.registerMember(new Member("M" + m, "Reader " + m, "r" + m + "@example.com"));
+        }
+        for (int i = 0; i < 2_000; i++) {
+            library.removeItem(items[i * 7].getId());
+            library.borrowItem(items[i * 7 + 3].getId(), "M" + i / Member.MAX_BORROWED_ITEMS);
+        }
+        String author = mostCommonAuthor(items);
+        FacetQuery query = FacetQuery.author(author).or(FacetQuery.genre("Poetry"))
+                .and(FacetQuery.available(), FacetQuery.type("NonFiction").not());
+        long expected = 0;
+        Map<String, Long> expectedGenres = new HashMap<>();
+        for (Item item : library.allItems()) {
+            Book book = (Book) item;
+            if ((author.equals(book.getAuthor()) || "Poetry".equals(book.getGenre()))
+                    && book.isAvailable() && !(book instanceof NonFiction)) {
+                expected++;
+                expectedGenres.merge(book.getGenre(), 1L, Long::sum);
+            }
+        }
+        List<Item> found = library.searchFacets(query);
+        check(found.size() == expected, "facet query found " + found.size() + ", expected " + expected);
+        check(library.facetCounts(query, FacetIndex.Facet.GENRE).equals(expectedGenres), "genre counts");
+        System.out.printf("Facet query and genre counts match a manual filter (%,d items) - OK%n", expected);
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + message);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bitmap indexes over catalog slots for faceted search
+ * Keeps one compressed bitmap per item type, genre and author value plus one for
+ * availability, so facet queries combine bitmaps instead of scanning items.
+ * Type, genre and author bits are set on add; only availability follows later changes
+ */
+public class FacetIndex {
+    /**
+     * Item attribute with one bitmap per distinct value
+     */
+    public enum Facet { TYPE, GENRE, AUTHOR }
+    
+    private static final CompressedBitmap EMPTY = new CompressedBitmap();
+    
+    private final Map<Facet, Map<String, CompressedBitmap>> values;
+    private final CompressedBitmap all;
+    private final CompressedBitmap available;
+    
+    public FacetIndex() {
+        this.values = new HashMap<>();
+        for (Facet facet : Facet.values()) {
+            values.put(facet, new LinkedHashMap<>());
+        }
+        this.all = new CompressedBitmap();
+        this.available = new CompressedBitmap();
+    }
+    
+    // Index maintenance, driven by Library
+    void add(int slot, Item item) {
+        all.add(slot);
+        if (item.isAvailable()) {
+            available.add(slot);
+        }
+        for (Facet facet : Facet.values()) {
+            String value = valueOf(facet, item);
+            if (value != null) {
+                values.get(facet).computeIfAbsent(value, key -> new CompressedBitmap()).add(slot);
+            }
+        }
+    }
+    
+    void remove(int slot, Item item) {
+        all.remove(slot);
+        available.remove(slot);
+        for (Facet facet : Facet.values()) {
+            String value = valueOf(facet, item);
+            CompressedBitmap bitmap = value != null ? values.get(facet).get(value) : null;
+            if (bitmap != null) {
+                bitmap.remove(slot);
+                if (bitmap.isEmpty()) {
+                    values.get(facet).remove(value);
+                }
+            }
+        }
+    }
+    
+    void availabilityChanged(int slot, boolean isAvailable) {
+        if (isAvailable) {
+            available.add(slot);
+        } else {
+            available.remove(slot);
+        }
+    }
+    
+    // Live bitmaps; callers must not modify them
+    CompressedBitmap all() { return all; }
+    CompressedBitmap available() { return available; }
+    
+    CompressedBitmap bitmapOf(Facet facet, String value) {
+        CompressedBitmap bitmap = values.get(facet).get(value);
+        return bitmap != null ? bitmap : EMPTY;
+    }
+    
+    // Slots matching the query, as a bitmap the caller owns
+    public CompressedBitmap search(FacetQuery query) {
+        CompressedBitmap result = query.evaluate(this);
+        return query.isLeaf() ? result.or(EMPTY) : result;
+    }
+    
+    public long count(FacetQuery query) {
+        return query.isLeaf() ? query.evaluate(this).cardinality() : search(query).cardinality();
+    }
+    
+    /**
+     * Number of matching slots for each value of a facet, leaving out values with none
+     */
+    public Map<String, Long> facetCounts(FacetQuery query, Facet facet) {
+        CompressedBitmap matches = query.evaluate(this);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, CompressedBitmap> entry : values.get(facet).entrySet()) {
+            long count = entry.getValue().andCardinality(matches);
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+            }
+        }
+        return counts;
+    }
+    
+    public Map<String, CompressedBitmap> valuesOf(Facet facet) {
+        return Collections.unmodifiableMap(values.get(facet));
+    }
+    
+    public long sizeInBytes() {
+        long bytes = all.sizeInBytes() + available.sizeInBytes();
+        for (Map<String, CompressedBitmap> bitmaps : values.values()) {
+            for (CompressedBitmap bitmap : bitmaps.values()) {
+                bytes += bitmap.sizeInBytes();
+            }
+        }
+        return bytes;
+    }
+    
+    private static String valueOf(Facet facet, Item item) {
+        switch (facet) {
+            case TYPE: return item.getClass().getSimpleName();
+            case GENRE: return item instanceof Book ? ((Book) item).getGenre() : null;
+            case AUTHOR: return item.getAuthor();
+            default: throw new IllegalArgumentException("Unknown facet: " + facet);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Boolean query over facet values: exact type, genre or author matches and availability,
+ * combined with and, or and not
+ */
+public abstract class FacetQuery {
+    // Leaf queries
+    public static FacetQuery type(String type) {
+        return new Value(FacetIndex.Facet.TYPE, type);
+    }
+    
+    public static FacetQuery genre(String genre) {
+        return new Value(FacetIndex.Facet.GENRE, genre);
+    }
+    
+    public static FacetQuery author(String author) {
+        return new Value(FacetIndex.Facet.AUTHOR, author);
+    }
+    
+    public static FacetQuery available() {
+        return new Available();
+    }
+    
+    public static FacetQuery all() {
+        return new All();
+    }
+    
+    // Combinators
+    public FacetQuery and(FacetQuery... others) {
+        List<FacetQuery> operands = new ArrayList<>();
+        operands.add(this);
+        operands.addAll(Arrays.asList(others));
+        return new And(operands);
+    }
+    
+    public FacetQuery or(FacetQuery... others) {
+        List<FacetQuery> operands = new ArrayList<>();
+        operands.add(this);
+        operands.addAll(Arrays.asList(others));
+        return new Or(operands);
+    }
+    
+    public FacetQuery not() {
+        return new Not(this);
+    }
+    
+    abstract CompressedBitmap evaluate(FacetIndex index);
+    
+    // Leaves evaluate to a live index bitmap rather than a fresh one
+    boolean isLeaf() {
+        return false;
+    }
+    
+    private static final class Value extends FacetQuery {
+        private final FacetIndex.Facet facet;
+        private final String value;
+        
+        Value(FacetIndex.Facet facet, String value) {
+            this.facet = facet;
+            this.value = value;
+        }
+        
+        @Override
+        CompressedBitmap evaluate(FacetIndex index) {
+            return index.bitmapOf(facet, value);
+        }
+        
+        @Override
+        boolean isLeaf() {
+            return true;
+        }
+        
+        @Override
+        public String toString() {
+            return facet.name().toLowerCase() + "=" + value;
+        }
+    }
+    
+    private static final class Available extends FacetQuery {
+        @Override
+        CompressedBitmap evaluate(FacetIndex index) {
+            return index.available();
+        }
+        
+        @Override
+        boolean isLeaf() {
+            return true;
+        }
+        
+        @Override
+        public String toString() {
+            return "available";
+        }
+    }
+    
+    private static final class All extends FacetQuery {
+        @Override
+        CompressedBitmap evaluate(FacetIndex index) {
+            return index.all();
+        }
+        
+        @Override
+        boolean isLeaf() {
+            return true;
+        }
+        
+        @Override
+        public String toString() {
+            return "all";
+        }
+    }
+    
+    private static final class And extends FacetQuery {
+        private final List<FacetQuery> operands;
+        
+        And(List<FacetQuery> operands) {
+            this.operands = operands;
+        }
+        
+        // Intersects the smallest bitmaps first and applies negations as AND NOT at the end
+        @Override
+        CompressedBitmap evaluate(FacetIndex index) {
+            List<CompressedBitmap> included = new ArrayList<>();
+            List<CompressedBitmap> excluded = new ArrayList<>();
+            for (FacetQuery operand : operands) {
+                if (operand instanceof Not) {
+                    excluded.add(((Not) operand).operand.evaluate(index));
+                } else {
+                    included.add(operand.evaluate(index));
+                }
+            }
+            if (included.isEmpty()) {
+                included.add(index.all());
+            }
+            included.sort(Comparator.comparingLong(CompressedBitmap::cardinality));
+            CompressedBitmap result = included.get(0);
+            boolean fresh = false; // until an operation runs, result is a live index bitmap
+            for (int i = 1; i < included.size() && !result.isEmpty(); i++) {
+                result = result.and(included.get(i));
+                fresh = true;
+            }
+            for (int i = 0; i < excluded.size() && !result.isEmpty(); i++) {
+                result = result.andNot(excluded.get(i));
+                fresh = true;
+            }
+            return fresh ? result : result.or(new CompressedBitmap());
+        }
+        
+        @Override
+        public String toString() {
+            return joined(operands, " AND ");
+        }
+    }
+    
+    private static final class Or extends FacetQuery {
+        private final List<FacetQuery> operands;
+        
+        Or(List<FacetQuery> operands) {
+            this.operands = operands;
+        }
+        
+        @Override
+        CompressedBitmap evaluate(FacetIndex index) {
+            CompressedBitmap result = new CompressedBitmap();
+            for (FacetQuery operand : operands) {
+                result = result.or(operand.evaluate(index));
+            }
+            return result;
+        }
+        
+        @Override
+        public String toString() {
+            return joined(operands, " OR ");
+        }
+    }
+    
+    private static final class Not extends FacetQuery {
+        private final FacetQuery operand;
+        
+        Not(FacetQuery operand) {
+            this.operand = operand;
+        }
+        
+        @Override
+        CompressedBitmap evaluate(FacetIndex index) {
+            return index.all().andNot(operand.evaluate(index));
+        }
+        
+        @Override
+        public String toString() {
+            return "NOT " + operand;
+        }
+    }
+    
+    private static String joined(List<FacetQuery> operands, String separator) {
+        StringBuilder text = new StringBuilder("(");
+        for (int i = 0; i < operands.size(); i++) {
+            text.append(i > 0 ? separator : "").append(operands.get(i));
+        }
+        return text.append(")").toString();
+    }
+}
@@ -22,10 +22,10 @@ public class Fiction extends Book {
     }
     
     @Override
-    public void displayInfo() {
-        super.displayInfo();
-        System.out.println("Book Type: Fiction");
-        System.out.println("Borrowing Period: " + BORROWING_PERIOD_DAYS + " days");
-        System.out.println("Fine per day: $" + FINE_PER_DAY);
+    protected void appendInfo(StringBuilder out) {
+        super.appendInfo(out);
+        line(out, "Book Type: Fiction");
+        line(out, "Borrowing Period: " + BORROWING_PERIOD_DAYS + " days");
+        line(out, "Fine per day: $" + FINE_PER_DAY);
     }
 }
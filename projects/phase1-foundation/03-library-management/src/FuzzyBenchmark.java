@@ -0,0 +1,238 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Benchmark for typo-tolerant title and author search
+ * Checks the BK-tree against a linear Levenshtein scan and the ranking on misspelled authors,
+ * then times fuzzy queries at 10k, 100k and 1M items next to a scan of every item
+ */
+public class FuzzyBenchmark {
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int QUERIES = 500;
+    private static final int SCAN_QUERIES = 5;
+    private static final int LIMIT = 10;
+    
+    public static void main(String[] args) {
+        System.out.println("=== Fuzzy Search Benchmark ===\n");
+        
+        System.out.println("1. Correctness checks:");
+        checkTree();
+        checkRanking();
+        
+        System.out.println("\n2. Typo queries, top " + LIMIT + ":");
+        System.out.printf("%-10s %12s %12s %12s %14s%n", "Items", "Vocabulary", "Mean", "p99", "Linear scan");
+        for (int size : SIZES) {
+            run(size);
+        }
+        
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    private static void run(int size) {
+        Library library = new Library("Bench");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        Item[] items = BenchmarkSupport.syntheticItems(size, 71);
+        library.addItems(Arrays.asList(items));
+        Random random = new Random(73);
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            Item item = items[random.nextInt(size)];
+            List<String> words = TokenIndex.tokenize(i % 2 == 0 ? item.getAuthor() : item.getTitle());
+            queries[i] = misspell(words.get(random.nextInt(words.size())), random);
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            BenchmarkSupport.consume(fuzzy(library, queries[i], i)); // warm up and build the trees
+        }
+        long[] samples = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            BenchmarkSupport.consume(fuzzy(library, queries[i], i));
+            samples[i] = System.nanoTime() - start;
+        }
+        double mean = Arrays.stream(samples).average().orElse(0) / 1e3;
+        long p99 = BenchmarkSupport.percentile(samples, 99) / 1_000;
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < SCAN_QUERIES; i++) {
+            BenchmarkSupport.consume(scan(items, queries[i], i % 2 == 0));
+        }
+        double scan = (System.nanoTime() - start) / 1e3 / SCAN_QUERIES;
+        int vocabulary = vocabularySize(items);
+        System.out.printf("%,-10d %,12d %9.1f us %9d us %11.0f us%n", size, vocabulary, mean, p99, scan);
+    }
+    
+    private static List<Item> fuzzy(Library library, String query, int i) {
+        return i % 2 == 0 ? library.searchByAuthorFuzzy(query, LIMIT) : library.searchByTitleFuzzy(query, LIMIT);
+    }
+    
+    // The approach without an index: edit distance from the query to every word of every item
+    private static int scan(Item[] items, String query, boolean author) {
+        int maxDistance = TokenIndex.maxDistance(query);
+        int matches = 0;
+        for (Item item : items) {
+            for (String word : TokenIndex.tokenize(author ? item.getAuthor() : item.getTitle())) {
+                if (BKTree.distance(query, word, maxDistance) <= maxDistance) {
+                    matches++;
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+    
+    private static int vocabularySize(Item[] items) {
+        Set<String> words = new HashSet<>();
+        for (Item item : items) {
+            words.addAll(TokenIndex.tokenize(item.getTitle()));
+            words.addAll(TokenIndex.tokenize(item.getAuthor()));
+        }
+        return words.size();
+    }
+    
+    // One random substitution, deletion, insertion or transposition
+    private static String misspell(String word, Random random) {
+        if (word.length() < 4) {
+            return word;
+        }
+        StringBuilder typo = new StringBuilder(word);
+        int at = 1 + random.nextInt(word.length() - 2);
+        char letter = (char) ('a' + random.nextInt(26));
+        switch (random.nextInt(4)) {
+            case 0: typo.setCharAt(at, letter); break;
+            case 1: typo.deleteCharAt(at); break;
+            case 2: typo.insert(at, letter); break;
+            default:
+                typo.setCharAt(at, word.charAt(at + 1));
+                typo.setCharAt(at + 1, word.charAt(at));
+        }
+        return typo.toString();
+    }
+    
+    // BK-tree searches must return exactly the words a linear scan finds
+    private static void checkTree() {
+        Item[] items = BenchmarkSupport.syntheticItems(20_000, 79);
+        List<String> vocabulary = new ArrayList<>(new HashSet<>(wordsOf(items)));
+        BKTree tree = new BKTree();
+        for (String word : vocabulary) {
+            tree.add(word);
+        }
+        check(tree.size() == vocabulary.size(), "tree size");
+        Random random = new Random(83);
+        for (int i = 0; i < 300; i++) {
+            String query = misspell(vocabulary.get(random.nextInt(vocabulary.size())), random);
+            int maxDistance = 1 + i % 2;
+            Set<String> expected = new HashSet<>();
+            for (String word : vocabulary) {
+                if (BKTree.distance(query, word, Integer.MAX_VALUE) <= maxDistance) {
+                    expected.add(word);
+                }
+            }
+            Set<String> found = new HashSet<>();
+            tree.search(query, maxDistance, (word, distance) -> {
+                check(distance == BKTree.distance(query, word, Integer.MAX_VALUE), "reported distance");
+                found.add(word);
+            });
+            check(found.equals(expected), "tree search for " + query);
+        }
+        System.out.printf("BK-tree matches a linear scan on 300 queries over %,d words - OK%n", vocabulary.size());
+    }
+    
+    private static List<String> wordsOf(Item[] items) {
+        List<String> words = new ArrayList<>();
+        for (Item item : items) {
+            words.addAll(TokenIndex.tokenize(item.getTitle()));
+            words.addAll(TokenIndex.tokenize(item.getAuthor()));
+        }
+        return words;
+    }
+    
+    private static void checkRanking() {
+        Library library = new Library("Check");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        library.addItems(Arrays.asList(BenchmarkSupport.syntheticItems(5_000, 89)));
+        Item orwell = new Fiction("C1", "Nineteen Eighty-Four", "George Orwell", "978-0451524935");
+        Item harari = new NonFiction("C2", "Sapiens", "Yuval Noah Harari", "978-0062316097");
+        Item gatsby = new Fiction("C3", "The Great Gatsby", "F. Scott Fitzgerald", "978-0743273565");
+        library.addItems(Arrays.asList(orwell, harari, gatsby));
+        // The synthetic items include other George Orwells and Yuval Hararis, which tie with these
+        check(library.searchByAuthorFuzzy("George Orwel", 5).get(0).getAuthor().startsWith("George Orwell"),
+              "George Orwel ranks an Orwell first");
+        check(library.searchByAuthorFuzzy("Yuval Harrai", 5).get(0).getAuthor().startsWith("Yuval Harari"),
+              "Yuval Harrai ranks a Harari first");
+        check(library.searchByAuthorFuzzy("Yuval Noah Harrai", 5).get(0) == harari, "Yuval Noah Harrai ranks Sapiens first");
+        check(library.searchByTitleFuzzy("Great Gatsbi", 5).get(0) == gatsby, "Great Gatsbi ranks Gatsby first");
+        check(library.searchByAuthorFuzzy("Orwel", 5).size() == 5, "limit");
+        check(library.searchByAuthorFuzzy("Orwel", 500).contains(orwell), "Orwel finds Orwell");
+        for (Item item : library.searchByAuthorFuzzy("Harrai", 20)) {
+            check(item.getAuthor().toLowerCase().contains("harari"), "Harrai matched " + item.getAuthor());
+        }
+        library.removeItem("C1");
+        check(!library.searchByAuthorFuzzy("George Orwel", 50).contains(orwell), "removed item");
+        System.out.println("Misspelled authors and titles rank the intended item first - OK");
+        
+        // A full match far down the posting lists still outranks early partial matches
+        Library deep = new Library("Deep");
+        deep.setEventSink(NoOpEventSink.INSTANCE);
+        for (int i = 0; i < 10_000; i++) {
+            deep.addItem(new Fiction("D" + i, "Common Story " + i, "Anon", "978-" + i));
+        }
+        Item late = new Fiction("D-late", "Common Rarity", "Anon", "978-x");
+        deep.addItem(late);
+        check(deep.searchByTitleFuzzy("Comon Rarety", 5).get(0) == late, "late full match ranks first");
+        
+        Item[] items = BenchmarkSupport.syntheticItems(5_000, 91);
+        TokenIndex index = new TokenIndex(Item::getAuthor);
+        for (int i = 0; i < items.length; i++) {
+            index.add(items[i], i);
+        }
+        Random random = new Random(93);
+        for (int q = 0; q < 200; q++) {
+            List<String> words = TokenIndex.tokenize(items[random.nextInt(items.length)].getAuthor());
+            String query = misspell(words.get(0), random) + (q % 2 == 0 ? " " + misspell("lee", random) : "");
+            int limit = 1 + random.nextInt(30);
+            check(Arrays.equals(index.fuzzySearch(query, limit), referenceRanking(index, items, query, limit)),
+                  "ranking for '" + query + "'");
+        }
+        System.out.println("Ranking matches a full scan of every item, also for full matches in late slots - OK");
+    }
+    
+    // Scores every item against the same candidate words, as fuzzySearch defines its order
+    private static int[] referenceRanking(TokenIndex index, Item[] items, String query, int limit) {
+        List<String> words = TokenIndex.tokenize(query);
+        List<List<String>> candidates = new ArrayList<>();
+        for (String word : words) {
+            candidates.add(index.similarWords(word));
+        }
+        List<int[]> scored = new ArrayList<>();
+        for (int slot = 0; slot < items.length; slot++) {
+            List<String> tokens = TokenIndex.tokenize(items[slot].getAuthor());
+            int score = 0;
+            for (int w = 0; w < words.size(); w++) {
+                int best = Integer.MAX_VALUE;
+                for (String candidate : candidates.get(w)) {
+                    if (tokens.contains(candidate)) {
+                        best = Math.min(best, BKTree.distance(words.get(w), candidate, Integer.MAX_VALUE));
+                    }
+                }
+                if (best != Integer.MAX_VALUE) {
+                    score += TokenIndex.MATCH_SCORE - best;
+                }
+            }
+            if (score > 0) {
+                scored.add(new int[] {slot, score});
+            }
+        }
+        scored.sort((a, b) -> a[1] != b[1] ? Integer.compare(b[1], a[1]) : Integer.compare(a[0], b[0]));
+        return scored.stream().limit(limit).mapToInt(entry -> entry[0]).toArray();
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + message);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark for member borrowing history
+ * Measures heap per million history events for the original list of display strings
+ * against the packed BorrowingHistory, then checks paging and the retention limit
+ */
+public class HistoryBenchmark {
+    private static final int DEFAULT_EVENTS = 1_000_000;
+    private static final int DISTINCT_ITEMS = 50_000;
+    
+    public static void main(String[] args) {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_EVENTS;
+        System.out.printf("=== Borrowing History Benchmark (%,d events) ===%n%n", events);
+        
+        String[] itemIds = new String[DISTINCT_ITEMS];
+        for (int i = 0; i < itemIds.length; i++) {
+            itemIds[i] = "F" + i;
+            IdRegistry.ITEMS.handleOf(itemIds[i]); // the catalog would have registered these already
+        }
+        LocalDate firstDay = LocalDate.of(2020, 1, 1);
+        
+        System.out.println("1. Heap used by history:");
+        long before = BenchmarkSupport.usedHeapBytes();
+        List<String> strings = new ArrayList<>();
+        Random random = new Random(11);
+        for (int i = 0; i < events; i++) {
+            String verb = (i & 1) == 0 ? " - Borrowed on " : " - Returned on ";
+            strings.add(itemIds[random.nextInt(DISTINCT_ITEMS)] + verb + firstDay.plusDays(i / 1000));
+        }
+        long stringBytes = BenchmarkSupport.usedHeapBytes() - before;
+        BenchmarkSupport.consume(strings.size());
+        strings = null;
+        
+        before = BenchmarkSupport.usedHeapBytes();
+        BorrowingHistory history = new BorrowingHistory();
+        random = new Random(11);
+        for (int i = 0; i < events; i++) {
+            BorrowingHistory.EventType type = (i & 1) == 0
+                    ? BorrowingHistory.EventType.BORROWED : BorrowingHistory.EventType.RETURNED;
+            history.record(itemIds[random.nextInt(DISTINCT_ITEMS)], type, firstDay.plusDays(i / 1000));
+        }
+        long packedBytes = BenchmarkSupport.usedHeapBytes() - before;
+        BenchmarkSupport.consume(history.size());
+        double millions = events / 1e6;
+        System.out.printf("List of strings:   %10s per million events%n",
+                          BenchmarkSupport.formatBytes((long) (stringBytes / millions)));
+        System.out.printf("BorrowingHistory:  %10s per million events%n",
+                          BenchmarkSupport.formatBytes((long) (packedBytes / millions)));
+        
+        System.out.println("\n2. Reading history:");
+        long start = System.nanoTime();
+        for (int i = 0; i < history.size(); i++) {
+            BenchmarkSupport.consume(history.epochDayAt(i) + history.typeAt(i).ordinal());
+        }
+        System.out.printf("Index scan of all events:  %,8.1f ms%n", BenchmarkSupport.millisSince(start));
+        int[] seen = new int[1];
+        start = System.nanoTime();
+        int next = history.page(history.size() - 20, 20, (itemId, type, date) -> seen[0]++);
+        System.out.printf("Last page of 20 events:    %,8.3f ms (%d visited)%n",
+                          BenchmarkSupport.millisSince(start), seen[0]);
+        
+        System.out.println("\n3. Retention check:");
+        checkRetention(history, next);
+    }
+    
+    private static void checkRetention(BorrowingHistory history, int next) {
+        Member member = new Member("M2", "Check", "check@example.com");
+        member.setHistoryLimit(3);
+        LocalDate day = LocalDate.of(2026, 1, 1);
+        for (int i = 1; i <= 4; i++) {
+            member.borrowItem("F" + i, day.plusDays(i));
+            member.returnItem("F" + i, day.plusDays(i + 1));
+        }
+        List<String> kept = member.getBorrowingHistory();
+        boolean ok = next == history.size()
+                  && kept.equals(List.of("F3 - Returned on 2026-01-05",
+                                         "F4 - Borrowed on 2026-01-05",
+                                         "F4 - Returned on 2026-01-06"));
+        member.setHistoryLimit(2);
+        ok &= member.getHistory().size() == 2 && "F4".equals(member.getHistory().itemIdAt(0));
+        if (!ok) {
+            throw new IllegalStateException("History retention kept the wrong events: " + kept);
+        }
+        System.out.println("A limit of 3 keeps the 3 most recent events - OK");
+    }
+}
@@ -0,0 +1,176 @@
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * One bibliographic record with several physical copies and a reservation queue
+ * Free copies sit on a stack, so checkout is O(1); a returned copy goes straight to
+ * the member at the head of the FIFO hold queue and waits for them instead of the shelf.
+ * All state changes are synchronized on the holding.
+ */
+public class Holding {
+    // checkin result when the member does not have that copy
+    public static final int NOT_BORROWED = -2;
+    // cancel result when the member neither waits nor has a copy kept
+    public static final int NOT_HELD = -3;
+    
+    private final Item record;
+    private final String[] copyIds;
+    private final int[] borrowers;    // member handle per copy, Book.NO_MEMBER when not lent
+    private final int[] reservedFor;  // member handle a returned copy is kept for
+    private final int[] freeCopies;   // stack of copies on the shelf
+    private int freeCount;
+    private final IntIntMap readyCopies; // member handle -> copy waiting for them
+    private final IntIntMap queued;      // member handles in the hold queue
+    private int[] holdQueue;             // ring of member handles, oldest at head
+    private int head;
+    private int queueLength;
+    
+    public Holding(Item record, int copies) {
+        if (copies < 1) {
+            throw new IllegalArgumentException("A holding needs at least one copy: " + copies);
+        }
+        this.record = record;
+        this.copyIds = new String[copies];
+        this.borrowers = new int[copies];
+        this.reservedFor = new int[copies];
+        this.freeCopies = new int[copies];
+        for (int copy = 0; copy < copies; copy++) {
+            copyIds[copy] = record.getId() + "#" + (copy + 1);
+            freeCopies[copy] = copies - 1 - copy; // copy 0 on top
+        }
+        Arrays.fill(borrowers, Book.NO_MEMBER);
+        Arrays.fill(reservedFor, Book.NO_MEMBER);
+        this.freeCount = copies;
+        this.readyCopies = new IntIntMap(-1);
+        this.queued = new IntIntMap(-1);
+        this.holdQueue = new int[16];
+    }
+    
+    // Getters
+    public Item getRecord() { return record; }
+    public String getId() { return record.getId(); }
+    public int getCopyCount() { return copyIds.length; }
+    public String getCopyId(int copy) { return copyIds[copy]; }
+    public synchronized int getFreeCopyCount() { return freeCount; }
+    public synchronized int getHoldCount() { return queueLength; }
+    public synchronized int getBorrowerHandle(int copy) { return borrowers[copy]; }
+    public synchronized int getReservedFor(int copy) { return reservedFor[copy]; }
+    
+    // Copy number in a copy ID such as "F001#3", or -1
+    public int copyNumberOf(String copyId) {
+        int prefix = record.getId().length();
+        if (copyId.length() <= prefix + 1 || copyId.charAt(prefix) != '#' || !copyId.startsWith(record.getId())) {
+            return -1;
+        }
+        try {
+            int copy = Integer.parseInt(copyId.substring(prefix + 1)) - 1;
+            return copy >= 0 && copy < copyIds.length ? copy : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Lends a copy: the one kept for this member if a hold came in, otherwise any free copy
+     * @return the copy number, or -1 when every copy is out or kept for someone else
+     */
+    synchronized int checkout(int member) {
+        int copy = readyCopies.remove(member);
+        if (copy >= 0) {
+            reservedFor[copy] = Book.NO_MEMBER;
+        } else if (freeCount > 0) {
+            copy = freeCopies[--freeCount];
+        } else {
+            return -1;
+        }
+        borrowers[copy] = member;
+        return copy;
+    }
+    
+    /**
+     * Takes a copy back and passes it to the oldest hold whose member is still registered
+     * @return the member the copy is now kept for, Book.NO_MEMBER if it went back on the
+     *         shelf, or NOT_BORROWED if this member does not have the copy
+     */
+    synchronized int checkin(int copy, int member, IntPredicate registered) {
+        if (copy < 0 || copy >= borrowers.length || borrowers[copy] != member) {
+            return NOT_BORROWED;
+        }
+        borrowers[copy] = Book.NO_MEMBER;
+        return release(copy, registered);
+    }
+    
+    /**
+     * Drops the member's hold, or gives up the copy kept for them, which then goes to the
+     * next registered member in the queue or back on the shelf
+     * @return as for checkin, or NOT_HELD if the member had no hold here
+     */
+    synchronized int cancel(int member, IntPredicate registered) {
+        int copy = readyCopies.remove(member);
+        if (copy >= 0) {
+            reservedFor[copy] = Book.NO_MEMBER;
+            return release(copy, registered);
+        }
+        if (queued.remove(member) < 0) {
+            return NOT_HELD;
+        }
+        // Close the gap in the ring, keeping everyone else's place
+        int kept = 0;
+        for (int i = 0; i < queueLength; i++) {
+            int waiting = holdQueue[(head + i) % holdQueue.length];
+            if (waiting != member) {
+                holdQueue[(head + kept++) % holdQueue.length] = waiting;
+            }
+        }
+        queueLength = kept;
+        return Book.NO_MEMBER;
+    }
+    
+    // Hands a copy nobody has to the oldest waiting member, skipping ones that left
+    private int release(int copy, IntPredicate registered) {
+        while (queueLength > 0) {
+            int next = holdQueue[head];
+            head = (head + 1) % holdQueue.length;
+            queueLength--;
+            queued.remove(next);
+            if (registered.test(next)) {
+                reservedFor[copy] = next;
+                readyCopies.put(next, copy);
+                return next;
+            }
+        }
+        freeCopies[freeCount++] = copy;
+        return Book.NO_MEMBER;
+    }
+    
+    /**
+     * Joins the hold queue; only possible while no copy is free
+     * @return false if a copy is free or the member already waits for or has one kept
+     */
+    synchronized boolean placeHold(int member) {
+        if (freeCount > 0 || queued.containsKey(member) || readyCopies.containsKey(member)) {
+            return false;
+        }
+        if (queueLength == holdQueue.length) {
+            int[] grown = new int[holdQueue.length * 2];
+            for (int i = 0; i < queueLength; i++) {
+                grown[i] = holdQueue[(head + i) % holdQueue.length];
+            }
+            holdQueue = grown;
+            head = 0;
+        }
+        holdQueue[(head + queueLength) % holdQueue.length] = member;
+        queueLength++;
+        queued.put(member, 1);
+        return true;
+    }
+    
+    // The copy kept for this member, or -1
+    public synchronized int copyKeptFor(int member) {
+        return readyCopies.get(member);
+    }
+    
+    public synchronized boolean hasCopyReadyFor(int member) {
+        return readyCopies.containsKey(member);
+    }
+}
@@ -0,0 +1,203 @@
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark for multi-copy holdings and the hold queue
+ * Checks FIFO hand-off, then runs mixed borrow/return/hold traffic on one hot title with
+ * 100 copies and 10k waiting members, against the same title kept as 100 separate items
+ * found by title search. Ends with a consistency check of every copy and member.
+ */
+public class HoldingsBenchmark {
+    private static final int COPIES = 100;
+    private static final int WAITING = 10_000;
+    private static final int DEFAULT_OPS_PER_THREAD = 200_000;
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+    
+    public static void main(String[] args) throws InterruptedException {
+        int opsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_OPS_PER_THREAD;
+        System.out.printf("=== Holdings Benchmark (%d copies, %,d holds, %d cores) ===%n%n",
+                          COPIES, WAITING, Runtime.getRuntime().availableProcessors());
+        
+        System.out.println("1. Hold queue check:");
+        checkHandOff();
+        
+        System.out.printf("%n2. Hot title traffic, %,d operations per thread:%n", opsPerThread);
+        run(2, opsPerThread, false); // warm up both paths
+        run(2, opsPerThread, true);
+        System.out.println("Threads   Separate items + search   Holding + hold queue");
+        for (int threads : THREAD_COUNTS) {
+            double separate = run(threads, opsPerThread, false);
+            double holding = run(threads, opsPerThread, true);
+            System.out.printf("%-9d %23s   %20s%n", threads,
+                              BenchmarkSupport.formatRate(separate), BenchmarkSupport.formatRate(holding));
+        }
+        
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    private static double run(int threadCount, int opsPerThread, boolean useHolding) throws InterruptedException {
+        ConcurrentLibrary library = new ConcurrentLibrary("Bench");
+        int memberCount = COPIES + WAITING;
+        for (int m = 0; m < memberCount; m++) {
+            library.registerMember(new Member("M" + m, "Member " + m, "m" + m + "@example.com"));
+        }
+        int[] heldCopy = new int[memberCount]; // each worker owns a slice, so no sharing
+        java.util.Arrays.fill(heldCopy, -1);
+        if (useHolding) {
+            library.addHolding(new Holding(new Fiction("HOT", "Hot Title", "Popular Author", "978-0"), COPIES));
+        } else {
+            for (int copy = 0; copy < COPIES; copy++) {
+                library.addItem(new Fiction("HOT" + copy, "Hot Title", "Popular Author", "978-" + copy));
+            }
+        }
+        // Every copy out and everyone else waiting
+        for (int m = 0; m < memberCount; m++) {
+            heldCopy[m] = borrow(library, m, useHolding);
+            if (heldCopy[m] < 0 && useHolding) {
+                library.placeHold("HOT", "M" + m);
+            }
+        }
+        
+        AtomicLong operations = new AtomicLong();
+        Thread[] workers = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            int first = t * memberCount / threadCount;
+            int last = (t + 1) * memberCount / threadCount;
+            long seed = t;
+            workers[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < opsPerThread; i++) {
+                    int m = first + random.nextInt(last - first);
+                    if (heldCopy[m] >= 0) {
+                        if (useHolding) {
+                            library.returnCopy("HOT", heldCopy[m], "M" + m);
+                        } else {
+                            library.returnItem("HOT" + heldCopy[m], "M" + m);
+                        }
+                        heldCopy[m] = -1;
+                    } else {
+                        heldCopy[m] = borrow(library, m, useHolding);
+                        if (heldCopy[m] < 0 && useHolding) {
+                            library.placeHold("HOT", "M" + m);
+                        }
+                    }
+                }
+                operations.addAndGet(opsPerThread);
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double rate = BenchmarkSupport.perSecond(operations.get(), System.nanoTime() - start);
+        if (useHolding) {
+            checkConsistency(library, heldCopy);
+        }
+        return rate;
+    }
+    
+    private static int borrow(ConcurrentLibrary library, int m, boolean useHolding) {
+        if (useHolding) {
+            return library.borrowCopy("HOT", "M" + m);
+        }
+        // Without holdings: find the duplicates by title and try each in turn
+        List<Item> copies = library.searchByTitle("Hot Title");
+        for (Item item : copies) {
+            if (item.isAvailable() && library.borrowItem(item.getId(), "M" + m)) {
+                return Integer.parseInt(item.getId().substring(3));
+            }
+        }
+        return -1;
+    }
+    
+    private static void checkConsistency(ConcurrentLibrary library, int[] heldCopy) {
+        Holding holding = library.findHolding("HOT");
+        int lent = 0;
+        int kept = 0;
+        for (int copy = 0; copy < COPIES; copy++) {
+            int borrower = holding.getBorrowerHandle(copy);
+            int reserved = holding.getReservedFor(copy);
+            if (borrower != Book.NO_MEMBER) {
+                lent++;
+                Member member = library.findMemberById(IdRegistry.MEMBERS.idOf(borrower));
+                int m = Integer.parseInt(member.getMemberId().substring(1));
+                check(member.hasBorrowed(holding.getCopyId(copy)) && heldCopy[m] == copy,
+                      holding.getCopyId(copy) + " lent but missing from its borrower");
+            } else if (reserved != Book.NO_MEMBER) {
+                kept++;
+                check(holding.hasCopyReadyFor(reserved), holding.getCopyId(copy) + " kept for nobody");
+            }
+        }
+        long holders = java.util.Arrays.stream(heldCopy).filter(copy -> copy >= 0).count();
+        check(lent == holders, "copies lent " + lent + " but " + holders + " members hold one");
+        check(lent + kept + holding.getFreeCopyCount() == COPIES, "copies lost or duplicated");
+        check(holding.getFreeCopyCount() == 0 || holding.getHoldCount() == 0, "free copies while members wait");
+    }
+    
+    private static void checkHandOff() throws InterruptedException {
+        ConcurrentLibrary library = new ConcurrentLibrary("Check");
+        library.addHolding(new Holding(new Fiction("B1", "Single Copy", "Author", "978-1"), 1));
+        for (String id : new String[] {"A", "B", "C"}) {
+            library.registerMember(new Member(id, id, id + "@example.com"));
+        }
+        check(library.borrowCopy("B1", "A") == 0, "A could not borrow the free copy");
+        check(library.placeHold("B1", "B") && library.placeHold("B1", "C") && !library.placeHold("B1", "B"),
+              "hold queue rejected a first hold or accepted a duplicate");
+        check(library.returnCopy("B1", 0, "A"), "A could not return");
+        check(library.borrowCopy("B1", "C") < 0, "C jumped the queue");
+        check(library.borrowCopy("B1", "B") == 0, "B did not get the copy kept for them");
+        check(library.returnCopy("B1", 0, "B") && library.borrowCopy("B1", "C") == 0, "C was skipped");
+        check(library.returnCopy("B1", 0, "C") && library.findHolding("B1").getFreeCopyCount() == 1,
+              "copy did not go back on the shelf");
+        System.out.println("Returned copies go to holds in FIFO order, then back to the shelf - OK");
+        
+        // Members who leave or cancel never strand a copy
+        for (String id : new String[] {"D", "E"}) {
+            library.registerMember(new Member(id, id, id + "@example.com"));
+        }
+        check(library.borrowCopy("B1", "A") == 0, "A could not borrow again");
+        check(library.placeHold("B1", "B") && library.placeHold("B1", "C") && library.placeHold("B1", "D")
+              && library.placeHold("B1", "E"), "holds rejected");
+        check(library.cancelHold("B1", "C") && !library.cancelHold("B1", "C"), "cancel of a queued hold");
+        check(library.removeMember("B"), "B could not leave");
+        check(library.returnCopy("B1", 0, "A") && library.findHolding("B1").hasCopyReadyFor(handle("D")),
+              "copy went to a member who left or cancelled");
+        check(library.removeMember("D") && library.findHolding("B1").hasCopyReadyFor(handle("E")),
+              "copy kept for a member who left was not passed on");
+        check(library.cancelHold("B1", "E") && library.findHolding("B1").getFreeCopyCount() == 1
+              && library.findHolding("B1").getHoldCount() == 0, "cancelled pickup did not go back on the shelf");
+        check(library.borrowCopy("B1", "C") == 0, "shelved copy could not be lent");
+        System.out.println("Cancelled holds and members who leave pass their copy on - OK");
+        
+        // One ID is either an item or a holding, and both count in the statistics
+        check(library.getStatistics().getTotalItems() == 1, "holding missing from the statistics");
+        for (int round = 0; round < 200; round++) {
+            String id = "RACE" + round;
+            boolean[] added = new boolean[2];
+            Thread item = new Thread(() -> added[0] = library.addItem(new Fiction(id, "Race", "Author", "978-2")));
+            Holding holding = new Holding(new Fiction(id, "Race", "Author", "978-3"), 2);
+            Thread copies = new Thread(() -> added[1] = library.addHolding(holding));
+            item.start();
+            copies.start();
+            item.join();
+            copies.join();
+            check(added[0] != added[1], id + " added as both or neither");
+        }
+        check(library.getStatistics().getTotalItems() == 201, "statistics after concurrent adds");
+        System.out.println("An ID is taken by an item or a holding, never both, and holdings are counted - OK");
+    }
+    
+    private static int handle(String memberId) {
+        return IdRegistry.MEMBERS.find(memberId);
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
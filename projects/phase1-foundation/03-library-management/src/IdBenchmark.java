@@ -0,0 +1,180 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Benchmark for interned ID handles
+ * Compares heap and lookup cost of a boxed String-keyed map against the primitive
+ * handle-keyed map the catalog uses, runs checkout/return cycles on a Library, then checks
+ * that removed items give their handles back
+ */
+public class IdBenchmark {
+    private static final int DEFAULT_IDS = 1_000_000;
+    private static final int LOOKUPS = 5_000_000;
+    
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_IDS;
+        System.out.printf("=== Interned ID Benchmark (%,d IDs) ===%n%n", count);
+        
+        String[] ids = new String[count];
+        int[] handles = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = "F" + i;
+            handles[i] = IdRegistry.ITEMS.handleOf(ids[i]);
+        }
+        
+        System.out.println("1. ID -> slot index:");
+        long before = BenchmarkSupport.usedHeapBytes();
+        Map<String, Integer> boxed = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            boxed.put(ids[i], i);
+        }
+        long boxedBytes = BenchmarkSupport.usedHeapBytes() - before;
+        before = BenchmarkSupport.usedHeapBytes();
+        IntIntMap primitive = new IntIntMap(-1);
+        for (int i = 0; i < count; i++) {
+            primitive.put(handles[i], i);
+        }
+        long primitiveBytes = BenchmarkSupport.usedHeapBytes() - before;
+        System.out.printf("HashMap<String, Integer>: %10s  (%,.1f bytes per entry)%n",
+                          BenchmarkSupport.formatBytes(boxedBytes), (double) boxedBytes / count);
+        System.out.printf("IntIntMap on handles:     %10s  (%,.1f bytes per entry)%n",
+                          BenchmarkSupport.formatBytes(primitiveBytes), (double) primitiveBytes / count);
+        
+        int[] probes = new Random(13).ints(LOOKUPS, 0, count).toArray();
+        for (int round = 0; round < 2; round++) { // first round warms up
+            long start = System.nanoTime();
+            long sum = 0;
+            for (int probe : probes) {
+                sum += boxed.get(ids[probe]);
+            }
+            long boxedNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int probe : probes) {
+                sum += primitive.get(handles[probe]);
+            }
+            long primitiveNanos = System.nanoTime() - start;
+            BenchmarkSupport.consume(sum);
+            if (round == 1) {
+                System.out.printf("Lookups by String:  %s%n",
+                                  BenchmarkSupport.formatRate(BenchmarkSupport.perSecond(LOOKUPS, boxedNanos)));
+                System.out.printf("Lookups by handle:  %s%n",
+                                  BenchmarkSupport.formatRate(BenchmarkSupport.perSecond(LOOKUPS, primitiveNanos)));
+            }
+        }
+        boxed = null;
+        BenchmarkSupport.consume(primitive.size());
+        
+        System.out.println("\n2. Checkout and return cycles:");
+        Library library = new Library("Bench");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        Item[] items = BenchmarkSupport.syntheticItems(100_000, 3);
+        library.addItems(java.util.Arrays.asList(items));
+        int memberCount = 10_000;
+        for (int m = 0; m < memberCount; m++) {
+            library.registerMember(new Member("M" + m, "Member " + m, "m" + m + "@example.com"));
+        }
+        Random random = new Random(17);
+        int cycles = 2_000_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < cycles; i++) {
+            String itemId = items[random.nextInt(items.length)].getId();
+            String memberId = "M" + (i % memberCount);
+            library.borrowItem(itemId, memberId);
+            library.returnItem(itemId, memberId);
+        }
+        System.out.printf("Borrow + return: %s%n",
+                          BenchmarkSupport.formatRate(BenchmarkSupport.perSecond(cycles, System.nanoTime() - start)));
+        
+        System.out.println("\n3. Handle release:");
+        checkRelease();
+        checkConcurrentRelease();
+        
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    // Items added, borrowed and removed again leave the registry as it was, and their handles are reused
+    private static void checkRelease() {
+        int baseline = IdRegistry.ITEMS.size();
+        Library library = new Library("Churn");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        Member member = new Member("R-member", "Churn Member", "churn@example.com");
+        member.setHistoryLimit(4);
+        library.registerMember(member);
+        int firstHandle = -1;
+        int lastHandle = -1;
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 1_000; i++) {
+                library.addItem(new Fiction("R" + round + "-" + i, "Title " + i, "Author", "ISBN-" + i));
+            }
+            if (round == 0) {
+                firstHandle = IdRegistry.ITEMS.find("R0-0");
+            }
+            library.borrowItem("R" + round + "-0", "R-member");
+            library.returnItem("R" + round + "-0", "R-member");
+            lastHandle = IdRegistry.ITEMS.find("R" + round + "-1");
+            for (int i = 0; i < 1_000; i++) {
+                library.removeItem("R" + round + "-" + i);
+            }
+        }
+        // The history keeps its last 4 events, which name the last 2 borrowed items
+        check(IdRegistry.ITEMS.size() == baseline + 2,
+              "registry holds " + (IdRegistry.ITEMS.size() - baseline) + " IDs after churn, expected 2");
+        check(IdRegistry.ITEMS.find("R0-0") == -1 && IdRegistry.ITEMS.find("R99-0") >= 0,
+              "released IDs still found or held IDs lost");
+        check(member.getBorrowingHistory().get(3).startsWith("R99-0"), "history lost its item IDs");
+        // Without reuse the last round would sit about 99k handles above the first
+        check(Math.abs(lastHandle - firstHandle) < 2_000, "freed handles are not reused");
+        int reused = IdRegistry.ITEMS.acquire("R-reused");
+        IdRegistry.ITEMS.release(reused);
+        boolean refused = false;
+        try {
+            IdRegistry.ITEMS.release(reused);
+        } catch (IllegalStateException e) {
+            refused = true;
+        }
+        check(refused, "a handle was released more often than it was acquired");
+        System.out.printf("100k items added and removed: %,d IDs stay registered - OK%n",
+                          IdRegistry.ITEMS.size() - baseline);
+    }
+    
+    // Readers racing with acquire and release never see a handle that names another ID
+    private static void checkConcurrentRelease() {
+        IdRegistry registry = new IdRegistry();
+        AtomicBoolean mismatch = new AtomicBoolean();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 200_000; i++) {
+                    String id = "C" + random.nextInt(64);
+                    int handle = registry.acquire(id);
+                    if (!registry.idOf(handle).equals(id) || registry.find(id) != handle) {
+                        mismatch.set(true);
+                    }
+                    registry.release(handle);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        check(!mismatch.get(), "a held handle named another ID");
+        check(registry.size() == 0, registry.size() + " IDs still registered after every release");
+        System.out.println("4 threads x 200k acquire/release on 64 IDs: handles stay consistent - OK");
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + message);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Maps external String IDs (such as "F001") to dense int handles
+ * Compact structures store an int instead of a String and turn it back into the ID when displaying.
+ * The ID table is open addressing over a String array and an int array, so no Integer is boxed.
+ *
+ * A handle is either pinned (handleOf) and kept for the life of the process, or counted
+ * (acquire/release) and freed for reuse when its last holder releases it. Item handles are
+ * counted by the catalog, loan sets and borrowing histories, so removed items do not pin
+ * their IDs. Member handles are pinned, because a Member carries its handle from construction,
+ * so every member ID ever constructed stays registered; so do the item IDs in the history of a
+ * member that is dropped without clearing it.
+ * Lookups take no lock; registering and freeing a handle synchronize on the registry.
+ */
+public class IdRegistry {
+    // Shared registries for item and member IDs
+    public static final IdRegistry ITEMS = new IdRegistry();
+    public static final IdRegistry MEMBERS = new IdRegistry();
+
+    private static final int CHUNK_BITS = 12; // handles live in fixed chunks, so growing never copies them
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int PINNED = -1;
+    private static final String TOMBSTONE = new String("<removed>"); // compared by identity
+
+    // Handle -> ID and reference count, in chunks that are never copied once created
+    private static final class Chunk {
+        final AtomicReferenceArray<String> ids = new AtomicReferenceArray<>(CHUNK_SIZE);
+        final AtomicIntegerArray refs = new AtomicIntegerArray(CHUNK_SIZE);
+    }
+
+    // ID -> handle; a key is published after its handle, and a used bucket is never rewritten
+    private static final class Table {
+        final AtomicReferenceArray<String> keys;
+        final int[] handles;
+        final int mask;
+        int used; // live keys plus tombstones; guarded by the registry
+
+        Table(int capacity) {
+            this.keys = new AtomicReferenceArray<>(capacity);
+            this.handles = new int[capacity];
+            this.mask = capacity - 1;
+        }
+
+        int bucketOf(String id) {
+            for (int bucket = spread(id.hashCode()) & mask; ; bucket = (bucket + 1) & mask) {
+                String key = keys.get(bucket);
+                if (key == null || (key != TOMBSTONE && key.equals(id))) {
+                    return bucket;
+                }
+            }
+        }
+    }
+
+    private volatile Table table;
+    private volatile Chunk[] chunks;
+    private int nextHandle; // guarded by this
+    private int[] freeHandles; // guarded by this
+    private int freeCount; // guarded by this
+    private int live; // guarded by this
+
+    public IdRegistry() {
+        this.table = new Table(1024);
+        this.chunks = new Chunk[] {new Chunk()};
+        this.freeHandles = new int[16];
+    }
+
+    // Returns the handle for an ID, registering it on first use; the handle is never freed
+    public int handleOf(String id) {
+        int handle = find(id);
+        if (handle >= 0 && refs(handle) == PINNED) {
+            return handle;
+        }
+        synchronized (this) {
+            handle = lookup(id);
+            if (handle < 0) {
+                handle = register(id);
+            }
+            chunk(handle).refs.set(handle & (CHUNK_SIZE - 1), PINNED);
+            return handle;
+        }
+    }
+
+    /**
+     * Returns the handle for an ID and counts one more holder of it; pair with release
+     */
+    public int acquire(String id) {
+        int handle = find(id);
+        if (handle >= 0 && retain(handle, id)) {
+            return handle;
+        }
+        synchronized (this) {
+            handle = lookup(id);
+            if (handle < 0) {
+                handle = register(id);
+                chunk(handle).refs.set(handle & (CHUNK_SIZE - 1), 1);
+                return handle;
+            }
+            // Counts only drop to zero under this lock, and the ID is still mapped, so it is above zero
+            if (!retain(handle, id)) {
+                throw new IllegalStateException("Handle " + handle + " for " + id + " was freed while mapped");
+            }
+            return handle;
+        }
+    }
+
+    // Drops one holder of a counted handle; the last one frees it for reuse
+    public void release(int handle) {
+        AtomicIntegerArray refs = chunk(handle).refs;
+        int index = handle & (CHUNK_SIZE - 1);
+        while (true) {
+            int count = refs.get(index);
+            if (count == PINNED) {
+                return;
+            }
+            if (count <= 0) {
+                throw new IllegalStateException("Handle " + handle + " is not held");
+            }
+            if (count > 1) {
+                if (refs.compareAndSet(index, count, count - 1)) {
+                    return;
+                }
+                continue;
+            }
+            synchronized (this) {
+                if (refs.compareAndSet(index, 1, 0)) {
+                    free(handle);
+                    return;
+                }
+            }
+        }
+    }
+
+    // Handle of an already registered ID, or -1
+    public int find(String id) {
+        Table current = table;
+        int bucket = current.bucketOf(id);
+        if (current.keys.get(bucket) == null) {
+            return -1;
+        }
+        int handle = current.handles[bucket];
+        // A bucket can outlive its handle until the next rebuild, so confirm the handle still names this ID
+        return id.equals(chunk(handle).ids.get(handle & (CHUNK_SIZE - 1))) ? handle : -1;
+    }
+
+    public String idOf(int handle) {
+        Chunk[] current = chunks;
+        String id = handle >= 0 && handle >>> CHUNK_BITS < current.length
+                    ? current[handle >>> CHUNK_BITS].ids.get(handle & (CHUNK_SIZE - 1)) : null;
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown ID handle: " + handle);
+        }
+        return id;
+    }
+
+    // IDs currently registered
+    public synchronized int size() {
+        return live;
+    }
+
+    private int refs(int handle) {
+        return chunk(handle).refs.get(handle & (CHUNK_SIZE - 1));
+    }
+
+    // Counts one more holder unless the handle is free or was reused for another ID meanwhile
+    private boolean retain(int handle, String id) {
+        AtomicIntegerArray refs = chunk(handle).refs;
+        int index = handle & (CHUNK_SIZE - 1);
+        while (true) {
+            int count = refs.get(index);
+            if (count == PINNED) {
+                return true;
+            }
+            if (count <= 0) {
+                return false;
+            }
+            if (refs.compareAndSet(index, count, count + 1)) {
+                if (id.equals(chunk(handle).ids.get(index))) {
+                    return true;
+                }
+                release(handle); // reused for another ID between find and the increment
+                return false;
+            }
+        }
+    }
+
+    private Chunk chunk(int handle) {
+        return chunks[handle >>> CHUNK_BITS];
+    }
+
+    // Caller holds the lock
+    private int lookup(String id) {
+        int bucket = table.bucketOf(id);
+        return table.keys.get(bucket) != null ? table.handles[bucket] : -1;
+    }
+
+    // Caller holds the lock
+    private int register(String id) {
+        int handle = freeCount > 0 ? freeHandles[--freeCount] : nextHandle++;
+        if (handle >>> CHUNK_BITS == chunks.length) {
+            Chunk[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[chunks.length] = new Chunk();
+            chunks = grown;
+        }
+        chunk(handle).ids.set(handle & (CHUNK_SIZE - 1), id);
+        if ((table.used + 1) * 4L > table.handles.length * 3L) {
+            rebuild();
+        }
+        int bucket = table.bucketOf(id);
+        table.handles[bucket] = handle;
+        table.keys.set(bucket, id); // publishes the handle written above
+        table.used++;
+        live++;
+        return handle;
+    }
+
+    // Caller holds the lock and has just taken the count to zero
+    private void free(int handle) {
+        int index = handle & (CHUNK_SIZE - 1);
+        String id = chunk(handle).ids.get(index);
+        table.keys.set(table.bucketOf(id), TOMBSTONE);
+        chunk(handle).ids.set(index, null);
+        if (freeCount == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+        }
+        freeHandles[freeCount++] = handle;
+        live--;
+    }
+
+    // Replaces the table with one sized for the live IDs, dropping the tombstones
+    private void rebuild() {
+        int capacity = 1024;
+        while (capacity * 3L < (live + 1) * 8L) { // at most 3/8 full afterwards
+            capacity *= 2;
+        }
+        Table rebuilt = new Table(capacity);
+        Table old = table;
+        for (int bucket = 0; bucket < old.handles.length; bucket++) {
+            String key = old.keys.get(bucket);
+            if (key != null && key != TOMBSTONE) {
+                int target = rebuilt.bucketOf(key);
+                rebuilt.handles[target] = old.handles[bucket];
+                rebuilt.keys.set(target, key);
+                rebuilt.used++;
+            }
+        }
+        table = rebuilt;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,135 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Benchmark for BulkLoader
+ * Generates a CSV catalog with some duplicate and broken rows, then compares the
+ * bulk loader against parsing the same file and calling addItem row by row. Also checks
+ * quoted fields that span lines and duplicate member rows.
+ */
+public class ImportBenchmark {
+    private static final int DEFAULT_ROWS = 1_000_000;
+    
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROWS;
+        System.out.printf("=== Bulk Import Benchmark (%,d rows) ===%n%n", rows);
+        Path items = Files.createTempFile("items", ".csv");
+        Path members = Files.createTempFile("members", ".tsv");
+        try {
+            writeItems(items, rows);
+            writeMembers(members, rows / 10);
+            System.out.println("Input: " + BenchmarkSupport.formatBytes(Files.size(items)) + " items CSV, "
+                               + BenchmarkSupport.formatBytes(Files.size(members)) + " members TSV\n");
+            
+            checkQuotedRecords();
+            
+            Library bulk = new Library("Bulk");
+            BulkLoader loader = new BulkLoader(bulk);
+            System.out.println("BulkLoader:");
+            System.out.println("  " + loader.importItems(items));
+            System.out.println("  " + loader.importMembers(members));
+            
+            // Same parsing, but one addItem call (and one console line) per row
+            Library rowByRow = new Library("Row by row");
+            long start = System.nanoTime();
+            long[] count = new long[1];
+            BenchmarkSupport.silenced(() -> {
+                try (BufferedReader reader = Files.newBufferedReader(items, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        Item item = BulkLoader.parseItem(BulkLoader.split(line, ','));
+                        if (item != null) {
+                            rowByRow.addItem(item);
+                        }
+                        count[0]++;
+                    }
+                } catch (IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            });
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%naddItem per row (console output discarded): %,.0f ms - %,.0f rows/s%n",
+                              elapsed / 1e6, BenchmarkSupport.perSecond(count[0], elapsed));
+        } finally {
+            Files.deleteIfExists(items);
+            Files.deleteIfExists(members);
+        }
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    // Quoted line breaks stay inside their field, and an unclosed quote fails loudly
+    private static void checkQuotedRecords() throws IOException {
+        Path items = Files.createTempFile("quoted", ".csv");
+        Path members = Files.createTempFile("quoted", ".csv");
+        try {
+            Files.writeString(items, "type,id,title,author,isbn\n"
+                                     + "Fiction,Q1,\"First line\nsecond \"\"line\"\"\",Author,978-1\n"
+                                     + "Reference,Q2,\"Plain, with comma\",Author,978-2\n");
+            Library library = new Library("Quoted");
+            library.setEventSink(NoOpEventSink.INSTANCE);
+            BulkLoader.ImportReport report = new BulkLoader(library).importItems(items);
+            check(report.getImported() == 2 && report.getMalformed() == 0,
+                  "multi-line import: " + report);
+            check(library.findItemById("Q1").getTitle().equals("First line\nsecond \"line\""),
+                  "quoted line break not kept: " + library.findItemById("Q1").getTitle());
+            
+            Files.writeString(members, "id,name,email\nQM1,One,one@email.com\nQM1,Again,again@email.com\n"
+                                       + "QM2,\"Two\n,two@email.com\n");
+            boolean refused = false;
+            try {
+                new BulkLoader(library).importMembers(members);
+            } catch (IOException e) {
+                refused = e.getMessage().contains("line 4");
+            }
+            check(refused, "an unclosed quote did not fail the import with its line");
+            
+            // QM0 is already registered and QM1 repeats within the file
+            library.registerMember(new Member("QM0", "Zero", "zero@email.com"));
+            Files.writeString(members, "id,name,email\nQM0,Zero,zero@email.com\nQM1,One,one@email.com\n"
+                                       + "QM1,Again,again@email.com\n");
+            report = new BulkLoader(library, 1).importMembers(members);
+            check(report.getImported() == 1 && report.getDuplicates() == 2,
+                  "duplicate members: " + report);
+            System.out.println("Quoted line breaks kept, unclosed quotes refused, duplicates counted - OK\n");
+        } finally {
+            Files.deleteIfExists(items);
+            Files.deleteIfExists(members);
+        }
+    }
+    
+    // One row in a thousand repeats an earlier ID and one in a thousand is malformed
+    private static void writeItems(Path file, int rows) throws IOException {
+        String[] types = {"Fiction", "NonFiction", "Reference"};
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("type,id,title,author,isbn,pages\n");
+            for (int i = 0; i < rows; i++) {
+                if (i % 1000 == 999) {
+                    out.write("Magazine,X" + i + ",broken row\n");
+                    continue;
+                }
+                int id = i % 1000 == 500 ? i - 1 : i;
+                out.write(types[i % 3] + ",B" + id + ",\"Title " + i + ", volume " + (i % 7)
+                          + "\",Author " + (i % 5000) + ",978-" + (1_000_000_000L + i) + "," + (100 + i % 800) + "\n");
+            }
+        }
+    }
+    
+    private static void writeMembers(Path file, int rows) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("id\tname\temail\tphone\n");
+            for (int i = 0; i < rows; i++) {
+                out.write("M" + i + "\tMember " + i + "\tm" + i + "@email.com\t555-" + (1000 + i % 9000) + "\n");
+            }
+        }
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + message);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import java.util.Arrays;
+
+/**
+ * Hash map from int keys to int values without boxing
+ * Open addressing with linear probing over one array of interleaved key/value pairs,
+ * so a lookup usually touches a single cache line; keys must not be negative
+ */
+public class IntIntMap {
+    private static final int FREE = -1;
+    
+    private int[] entries; // key at 2 * bucket, value at 2 * bucket + 1
+    private int capacity;
+    private int size;
+    private final int missing;
+    
+    /**
+     * Receives each key/value pair during forEach
+     */
+    public interface Visitor {
+        void visit(int key, int value);
+    }
+    
+    /**
+     * @param missing value returned by get for absent keys
+     */
+    public IntIntMap(int missing) {
+        this.capacity = 16;
+        this.entries = newEntries(capacity);
+        this.missing = missing;
+    }
+    
+    public int get(int key) {
+        if (key < 0) {
+            return missing;
+        }
+        int bucket = find(key);
+        return entries[2 * bucket] == key ? entries[2 * bucket + 1] : missing;
+    }
+    
+    public boolean containsKey(int key) {
+        return key >= 0 && entries[2 * find(key)] == key;
+    }
+    
+    // Returns the previous value, or the missing value
+    public int put(int key, int value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative key: " + key);
+        }
+        int bucket = find(key);
+        if (entries[2 * bucket] == key) {
+            int previous = entries[2 * bucket + 1];
+            entries[2 * bucket + 1] = value;
+            return previous;
+        }
+        if ((size + 1) * 2 > capacity) {
+            resize(capacity * 2);
+            bucket = find(key);
+        }
+        entries[2 * bucket] = key;
+        entries[2 * bucket + 1] = value;
+        size++;
+        return missing;
+    }
+    
+    // Returns the removed value, or the missing value
+    public int remove(int key) {
+        if (key < 0) {
+            return missing;
+        }
+        int bucket = find(key);
+        if (entries[2 * bucket] != key) {
+            return missing;
+        }
+        int removed = entries[2 * bucket + 1];
+        deleteBucket(bucket);
+        size--;
+        return removed;
+    }
+    
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    
+    // Visits every entry in bucket order
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i] != FREE) {
+                visitor.visit(entries[i], entries[i + 1]);
+            }
+        }
+    }
+    
+    private int find(int key) {
+        int mask = capacity - 1;
+        int bucket = mix(key) & mask;
+        while (entries[2 * bucket] != FREE && entries[2 * bucket] != key) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+    
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void deleteBucket(int bucket) {
+        int mask = capacity - 1;
+        int gap = bucket;
+        int next = (gap + 1) & mask;
+        while (entries[2 * next] != FREE) {
+            int home = mix(entries[2 * next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                entries[2 * gap] = entries[2 * next];
+                entries[2 * gap + 1] = entries[2 * next + 1];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        entries[2 * gap] = FREE;
+    }
+    
+    private void resize(int newCapacity) {
+        int[] old = entries;
+        capacity = newCapacity;
+        entries = newEntries(newCapacity);
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != FREE) {
+                int bucket = find(old[i]);
+                entries[2 * bucket] = old[i];
+                entries[2 * bucket + 1] = old[i + 1];
+            }
+        }
+    }
+    
+    private static int[] newEntries(int capacity) {
+        int[] entries = new int[2 * capacity];
+        Arrays.fill(entries, FREE);
+        return entries;
+    }
+    
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
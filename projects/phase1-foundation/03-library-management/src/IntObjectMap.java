@@ -0,0 +1,151 @@
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Hash map from int keys to objects without boxing the keys
+ * Open addressing with linear probing; keys must not be negative
+ */
+public class IntObjectMap<V> {
+    private static final int FREE = -1;
+    
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    
+    public IntObjectMap() {
+        this.keys = new int[16];
+        this.values = new Object[16];
+        Arrays.fill(keys, FREE);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key < 0) {
+            return null;
+        }
+        int bucket = find(key);
+        return keys[bucket] == key ? (V) values[bucket] : null;
+    }
+    
+    // Stores the value unless the key is present; returns the existing value, or null
+    public V putIfAbsent(int key, V value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative key: " + key);
+        }
+        V existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int bucket = find(key);
+        keys[bucket] = key;
+        values[bucket] = value;
+        size++;
+        return null;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key < 0) {
+            return null;
+        }
+        int bucket = find(key);
+        if (keys[bucket] != key) {
+            return null;
+        }
+        V removed = (V) values[bucket];
+        deleteBucket(bucket);
+        size--;
+        return removed;
+    }
+    
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    
+    // Live view of the values, in table order
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public int size() {
+                return size;
+            }
+            
+            @Override
+            public Iterator<V> iterator() {
+                return new Iterator<V>() {
+                    private int cursor = advance(0);
+                    
+                    private int advance(int from) {
+                        while (from < keys.length && keys[from] == FREE) {
+                            from++;
+                        }
+                        return from;
+                    }
+                    
+                    @Override
+                    public boolean hasNext() {
+                        return cursor < keys.length;
+                    }
+                    
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public V next() {
+                        if (cursor >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        V value = (V) values[cursor];
+                        cursor = advance(cursor + 1);
+                        return value;
+                    }
+                };
+            }
+        };
+    }
+    
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int bucket = IntIntMap.mix(key) & mask;
+        while (keys[bucket] != FREE && keys[bucket] != key) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+    
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void deleteBucket(int bucket) {
+        int mask = keys.length - 1;
+        int gap = bucket;
+        int next = (gap + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = IntIntMap.mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE;
+        values[gap] = null;
+    }
+    
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        Arrays.fill(keys, FREE);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int bucket = find(oldKeys[i]);
+                keys[bucket] = oldKeys[i];
+                values[bucket] = oldValues[i];
+            }
+        }
+    }
+}
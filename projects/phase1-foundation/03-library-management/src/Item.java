@@ -7,6 +7,7 @@ public abstract class Item {
     protected String title;
     protected String author;
     protected boolean isAvailable;
+    private ItemListener listener;
     
     public Item(String id, String title, String author) {
         this.id = id;
@@ -22,10 +23,35 @@ public abstract class Item {
     public boolean isAvailable() { return isAvailable; }
     
     // Setters
-    public void setAvailable(boolean available) { this.isAvailable = available; }
+    public void setAvailable(boolean available) {
+        boolean changed = this.isAvailable != available;
+        this.isAvailable = available;
+        if (changed && listener != null) {
+            listener.availabilityChanged(this, available);
+        }
+    }
+    
+    // Set by the library that holds this item, cleared when it is removed
+    public void setListener(ItemListener listener) { this.listener = listener; }
+    
+    // Display
+    public void displayInfo() {
+        System.out.print(renderInfo());
+    }
+    
+    // The text displayInfo prints, built once into a single string
+    public String renderInfo() {
+        StringBuilder out = new StringBuilder(256);
+        appendInfo(out);
+        return out.toString();
+    }
+    
+    protected static void line(StringBuilder out, String text) {
+        out.append(text).append(System.lineSeparator());
+    }
     
     // Abstract methods to be implemented by subclasses
-    public abstract void displayInfo();
+    protected abstract void appendInfo(StringBuilder out);
     public abstract double calculateFine(int daysOverdue);
     public abstract String getItemType();
 }
@@ -0,0 +1,127 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Item store used by the Library
+ * Keeps a primitive hash index from interned item handle to slot next to an insertion-ordered slot array,
+ * so lookup, insert and remove are O(1) and iteration keeps the order items were added.
+ * Removal leaves a hole, so the slot array grows by one per add until compact() closes the holes
+ */
+public class ItemCatalog implements Iterable<Item> {
+    private static final int INITIAL_CAPACITY = 16;
+    
+    private IntIntMap slotsByHandle;
+    private Item[] slots;
+    private int nextSlot;
+    private int size;
+    
+    public ItemCatalog() {
+        this.slotsByHandle = new IntIntMap(-1);
+        this.slots = new Item[INITIAL_CAPACITY];
+        this.nextSlot = 0;
+        this.size = 0;
+    }
+    
+    // Basic operations
+    public boolean add(Item item) {
+        if (contains(item.getId())) {
+            return false;
+        }
+        int handle = IdRegistry.ITEMS.acquire(item.getId()); // released again by remove
+        if (nextSlot == slots.length) {
+            Item[] grown = new Item[slots.length * 2];
+            System.arraycopy(slots, 0, grown, 0, slots.length);
+            slots = grown;
+        }
+        slots[nextSlot] = item;
+        slotsByHandle.put(handle, nextSlot);
+        nextSlot++;
+        size++;
+        return true;
+    }
+    
+    public Item get(String itemId) {
+        int slot = slotOf(itemId);
+        return slot >= 0 ? slots[slot] : null;
+    }
+    
+    public boolean contains(String itemId) {
+        return slotOf(itemId) >= 0;
+    }
+    
+    public Item remove(String itemId) {
+        int handle = IdRegistry.ITEMS.find(itemId);
+        int slot = slotsByHandle.remove(handle);
+        if (slot < 0) {
+            return null;
+        }
+        IdRegistry.ITEMS.release(handle);
+        Item removed = slots[slot];
+        // Slots are not reused, so slot order always matches insertion order
+        slots[slot] = null;
+        size--;
+        return removed;
+    }
+    
+    /**
+     * Moves the items down over the holes, keeping their order, and shrinks the slot array.
+     * Every slot may change, so indexes keyed by slot must be rebuilt afterwards
+     */
+    public void compact() {
+        Item[] packed = new Item[Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(size, 1)) * 2)];
+        int next = 0;
+        for (int slot = 0; slot < nextSlot; slot++) {
+            if (slots[slot] != null) {
+                packed[next] = slots[slot];
+                slotsByHandle.put(IdRegistry.ITEMS.find(slots[slot].getId()), next);
+                next++;
+            }
+        }
+        slots = packed;
+        nextSlot = next;
+    }
+    
+    // Slot access for indexes that store slots instead of item references
+    public int slotOf(String itemId) {
+        return slotsByHandle.get(IdRegistry.ITEMS.find(itemId));
+    }
+    
+    public Item itemAt(int slot) {
+        return slot >= 0 && slot < nextSlot ? slots[slot] : null;
+    }
+    
+    // One past the highest slot handed out; slots below it are either items or holes
+    public int slotLimit() { return nextSlot; }
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    
+    // Iterates items in the order they were added
+    @Override
+    public Iterator<Item> iterator() {
+        return new Iterator<Item>() {
+            private int cursor = advance(0);
+            
+            private int advance(int from) {
+                while (from < nextSlot && slots[from] == null) {
+                    from++;
+                }
+                return from;
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return cursor < nextSlot;
+            }
+            
+            @Override
+            public Item next() {
+                if (cursor >= nextSlot) {
+                    throw new NoSuchElementException();
+                }
+                Item item = slots[cursor];
+                cursor = advance(cursor + 1);
+                return item;
+            }
+        };
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Callback for changes to an item's state
+ * The library that owns an item registers itself so it can keep derived data in sync
+ */
+public interface ItemListener {
+    void availabilityChanged(Item item, boolean available);
+}
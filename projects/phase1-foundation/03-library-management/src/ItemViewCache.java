@@ -0,0 +1,84 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of rendered item views, keyed by item ID
+ * The library invalidates an entry whenever the item's availability or loan changes,
+ * so a cached view matches what renderInfo would build now, as long as genre and
+ * pages are not edited on the Book after it was added
+ */
+public class ItemViewCache {
+    private final int capacity;
+    private final LinkedHashMap<String, String> views;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    
+    public ItemViewCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        // Access order makes iteration order least- to most-recently used
+        this.views = new LinkedHashMap<String, String>(Math.min(capacity, 1 << 16) * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                if (size() > ItemViewCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    // Cached view of the item, rendering and storing it on a miss
+    public synchronized String get(Item item) {
+        String view = views.get(item.getId());
+        if (view != null) {
+            hits++;
+            return view;
+        }
+        misses++;
+        view = item.renderInfo();
+        views.put(item.getId(), view);
+        return view;
+    }
+    
+    public synchronized void invalidate(String itemId) {
+        if (views.remove(itemId) != null) {
+            invalidations++;
+        }
+    }
+    
+    public synchronized void clear() {
+        views.clear();
+    }
+    
+    // Statistics
+    public int getCapacity() { return capacity; }
+    public synchronized int size() { return views.size(); }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getInvalidations() { return invalidations; }
+    
+    public synchronized double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+    
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        invalidations = 0;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("%,d/%,d views, hit rate %.1f%% (%,d hits, %,d misses), %,d evictions, %,d invalidations",
+                             views.size(), capacity, getHitRate() * 100, hits, misses, evictions, invalidations);
+    }
+}
@@ -1,136 +1,621 @@
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Main Library class that manages all library operations
  * Demonstrates collections, polymorphism, and object management
  */
 public class Library {
-    private List<Item> items;
-    private Map<String, Member> members;
+    /**
+     * How searchByTitle and searchByAuthor find substring matches
+     */
+    public enum SearchMode { LINEAR, TRIGRAM }
+    
+    private static final int DISPLAY_PAGE_SIZE = 256;
+    private static final int STREAM_PAGE_SIZE = 256;
+    private static final int MAX_PAGE_PRESIZE = 1024; // callers may ask for huge pages of sparse results
+    private static final int CURSOR_POSITION_BITS = 32; // the rest of a cursor is the compaction generation
+    
+    private ItemCatalog items;
+    private TokenIndex titleIndex;
+    private TokenIndex authorIndex;
+    private SearchMode searchMode;
+    private TrigramIndex titleTrigrams;
+    private TrigramIndex authorTrigrams;
+    private ColumnarCatalog columns; // optional analytics mirror
+    private ItemViewCache views; // optional rendered-view cache
+    private FacetIndex facets; // optional bitmap indexes
+    private ChangeFeed changes; // optional mutation stream
+    private IntFunction<Member> borrowerDirectory; // finds borrowers registered on other shards
+    private LibraryStatistics statistics;
+    private ItemListener itemListener;
+    private LibraryJournal journal;
+    private EventSink events;
+    private DueDateIndex dueDates;
+    private MappedCatalog baseCatalog;
+    private BitSet promoted; // base catalog entries now held on the heap (or removed)
+    private IntObjectMap<Member> members;
+    private Member[] memberOrder; // registration order, with holes where members left
+    private int memberOrderLimit;
+    private IntIntMap memberPositions; // member handle -> index in memberOrder
+    private int generation; // bumped by compact(), which renumbers slots and positions
     private String libraryName;
     
     public Library(String libraryName) {
         this.libraryName = libraryName;
-        this.items = new ArrayList<>();
-        this.members = new HashMap<>();
+        this.items = new ItemCatalog();
+        this.titleIndex = new TokenIndex(Item::getTitle);
+        this.authorIndex = new TokenIndex(Item::getAuthor);
+        this.searchMode = SearchMode.LINEAR;
+        this.statistics = new LibraryStatistics();
+        this.itemListener = (item, available) -> {
+            statistics.availabilityChanged(available);
+            if (views != null) {
+                views.invalidate(item.getId());
+            }
+            if (columns != null || facets != null) {
+                int slot = items.slotOf(item.getId());
+                if (columns != null) {
+                    columns.refresh(slot, item);
+                }
+                if (facets != null) {
+                    facets.availabilityChanged(slot, available);
+                }
+            }
+        };
+        this.members = new IntObjectMap<>();
+        this.memberOrder = new Member[16];
+        this.memberOrderLimit = 0;
+        this.memberPositions = new IntIntMap(-1);
+        this.events = new ConsoleEventSink();
+        this.dueDates = new DueDateIndex();
     }
     
     public Library() {
         this("City Library");
     }
     
+    public String getLibraryName() { return libraryName; }
+    
+    /**
+     * Sets where operation outcomes go. The default prints the classic console messages;
+     * use an AsyncEventSink to keep console output off the calling thread, or
+     * NoOpEventSink.INSTANCE to drop them.
+     */
+    public void setEventSink(EventSink events) {
+        this.events = events;
+    }
+    
+    public EventSink getEventSink() { return events; }
+    
+    /**
+     * Attaches a write-ahead journal; every mutation is appended to it before it is applied,
+     * so a journal failure leaves the library unchanged. Pass null to stop journaling.
+     * Journals and snapshots hold heap state only, so they cannot be combined with an
+     * attached mapped catalog.
+     */
+    public void setJournal(LibraryJournal journal) {
+        if (journal != null && baseCatalog != null) {
+            throw new IllegalStateException("A journal cannot cover the catalog attached to " + libraryName);
+        }
+        this.journal = journal;
+    }
+    
+    /**
+     * Attaches a read-only memory-mapped catalog as the base layer of this library.
+     * Reads decode mapped items into transient copies; an item moves onto the heap only
+     * when it is borrowed or removed. The word, fuzzy and trigram indexes cover heap items
+     * only, so while a catalog is attached substring search must stay LINEAR and word and
+     * fuzzy search are refused. Heap items may not share an ID with a mapped item.
+     * A journaled library cannot take a catalog, and one with a catalog cannot be snapshotted.
+     */
+    public void attachCatalog(MappedCatalog catalog) {
+        if (baseCatalog != null) {
+            throw new IllegalStateException("A catalog is already attached to " + libraryName);
+        }
+        if (journal != null) {
+            throw new IllegalStateException("Stop journaling before attaching a catalog to " + libraryName);
+        }
+        if (columns != null || facets != null) {
+            throw new IllegalStateException("Disable the columnar mirror and facet index before attaching a catalog");
+        }
+        if (searchMode != SearchMode.LINEAR) {
+            throw new IllegalStateException("Switch to LINEAR search before attaching a catalog");
+        }
+        for (Item item : items) {
+            if (catalog.indexOf(item.getId()) >= 0) {
+                throw new IllegalArgumentException("Item " + item.getId() + " is already in the library");
+            }
+        }
+        baseCatalog = catalog;
+        promoted = new BitSet(catalog.size());
+        for (String kind : MappedCatalog.kindNames()) {
+            if (catalog.countOf(kind) > 0) {
+                statistics.itemsAdded(kind, catalog.countOf(kind));
+            }
+        }
+    }
+    
+    /**
+     * Publishes every state change made from now on to the feed; null stops publishing.
+     * A library restored by LibrarySnapshot.read or LibraryPersistence.open is fully loaded
+     * before a feed can be set, so the restored state is never published: subscribers read
+     * the current contents (streamItems, streamMembers) first and follow the feed from there
+     */
+    public void setChangeFeed(ChangeFeed changes) {
+        this.changes = changes;
+    }
+    
+    public ChangeFeed getChangeFeed() { return changes; }
+    
     // Item management
     public void addItem(Item item) {
-        if (findItemById(item.getId()) == null) {
-            items.add(item);
-            System.out.println("Added item: " + item.getTitle());
+        if (!holdsItem(item.getId())) {
+            if (journal != null) {
+                journal.logAddItem(item);
+            }
+            insertItem(item);
+            events.publish(LibraryEvent.item(LibraryEvent.Type.ITEM_ADDED, item));
         } else {
-            System.out.println("Item with ID " + item.getId() + " already exists.");
+            events.publish(LibraryEvent.item(LibraryEvent.Type.DUPLICATE_ITEM, item));
+        }
+    }
+    
+    /**
+     * Adds a batch of items without per-item console output
+     * @return the number added; items whose ID is already in the library are skipped
+     */
+    public int addItems(Collection<? extends Item> batch) {
+        int added = 0;
+        for (Item item : batch) {
+            if (!holdsItem(item.getId())) {
+                if (journal != null) {
+                    journal.logAddItem(item);
+                }
+                insertItem(item);
+                added++;
+            }
         }
+        return added;
     }
     
     public void removeItem(String itemId) {
         Item item = findItemById(itemId);
         if (item != null) {
             if (item.isAvailable()) {
-                items.remove(item);
-                System.out.println("Removed item: " + item.getTitle());
+                if (journal != null) {
+                    journal.logRemoveItem(itemId);
+                }
+                deleteItem(findItemForUpdate(itemId));
+                events.publish(LibraryEvent.item(LibraryEvent.Type.ITEM_REMOVED, item));
             } else {
-                System.out.println("Cannot remove item - currently borrowed.");
+                events.publish(LibraryEvent.item(LibraryEvent.Type.ITEM_IN_USE, item));
             }
         } else {
-            System.out.println("Item not found: " + itemId);
+            events.publish(new LibraryEvent(LibraryEvent.Type.ITEM_NOT_FOUND, itemId, null, null, 0.0));
         }
     }
     
     // Member management
     public void registerMember(Member member) {
-        if (!members.containsKey(member.getMemberId())) {
-            members.put(member.getMemberId(), member);
-            System.out.println("Registered member: " + member.getName());
+        if (members.get(member.getHandle()) == null) {
+            if (journal != null) {
+                journal.logRegisterMember(member);
+            }
+            insertMember(member);
+            events.publish(LibraryEvent.member(LibraryEvent.Type.MEMBER_REGISTERED, member));
         } else {
-            System.out.println("Member with ID " + member.getMemberId() + " already exists.");
+            events.publish(LibraryEvent.member(LibraryEvent.Type.DUPLICATE_MEMBER, member));
+        }
+    }
+    
+    // Batch counterpart of registerMember, without per-member console output
+    public int registerMembers(Collection<? extends Member> batch) {
+        int added = 0;
+        for (Member member : batch) {
+            if (members.get(member.getHandle()) == null) {
+                if (journal != null) {
+                    journal.logRegisterMember(member);
+                }
+                insertMember(member);
+                added++;
+            }
         }
+        return added;
     }
     
     public void removeMember(String memberId) {
-        Member member = members.get(memberId);
+        Member member = members.get(IdRegistry.MEMBERS.find(memberId));
         if (member != null) {
-            if (member.getBorrowedItems().isEmpty()) {
-                members.remove(memberId);
-                System.out.println("Removed member: " + member.getName());
+            if (member.getBorrowedCount() == 0) {
+                if (journal != null) {
+                    journal.logRemoveMember(memberId);
+                }
+                deleteMember(member);
+                events.publish(LibraryEvent.member(LibraryEvent.Type.MEMBER_REMOVED, member));
             } else {
-                System.out.println("Cannot remove member - has borrowed items.");
+                events.publish(LibraryEvent.member(LibraryEvent.Type.MEMBER_HAS_LOANS, member));
             }
         } else {
-            System.out.println("Member not found: " + memberId);
+            events.publish(new LibraryEvent(LibraryEvent.Type.MEMBER_NOT_FOUND, null, memberId, null, 0.0));
         }
     }
     
     // Borrowing operations
     public boolean borrowItem(String itemId, String memberId) {
+        return borrowItem(itemId, memberId, members.get(IdRegistry.MEMBERS.find(memberId)));
+    }
+    
+    // Lends to a member that may be registered on another Library, as LibraryCluster does across shards
+    boolean borrowItem(String itemId, String memberId, Member member) {
         Item item = findItemById(itemId);
-        Member member = members.get(memberId);
         
         if (item == null) {
-            System.out.println("Item not found: " + itemId);
+            events.publish(new LibraryEvent(LibraryEvent.Type.ITEM_NOT_FOUND, itemId, null, null, 0.0));
             return false;
         }
         
         if (member == null) {
-            System.out.println("Member not found: " + memberId);
+            events.publish(new LibraryEvent(LibraryEvent.Type.MEMBER_NOT_FOUND, null, memberId, null, 0.0));
             return false;
         }
         
         if (!member.canBorrow()) {
-            System.out.println("Member cannot borrow: " + member.getName());
+            events.publish(LibraryEvent.member(LibraryEvent.Type.MEMBER_CANNOT_BORROW, member));
             return false;
         }
         
         if (item instanceof Borrowable) {
             Borrowable borrowable = (Borrowable) item;
             if (borrowable.canBorrow()) {
-                borrowable.borrowItem(memberId);
-                member.borrowItem(itemId);
-                System.out.println("Item borrowed successfully: " + item.getTitle());
+                LocalDate today = LocalDate.now();
+                if (journal != null) {
+                    journal.logBorrow(itemId, memberId, today);
+                }
+                applyBorrow(findItemForUpdate(itemId), member, today);
+                events.publish(new LibraryEvent(LibraryEvent.Type.ITEM_BORROWED, itemId, memberId, item.getTitle(), 0.0));
                 return true;
             } else {
-                System.out.println("Item cannot be borrowed: " + item.getTitle());
+                events.publish(new LibraryEvent(LibraryEvent.Type.ITEM_UNAVAILABLE, itemId, memberId, item.getTitle(), 0.0));
                 return false;
             }
         } else {
-            System.out.println("Item is not borrowable: " + item.getTitle());
+            events.publish(new LibraryEvent(LibraryEvent.Type.ITEM_NOT_BORROWABLE, itemId, memberId, item.getTitle(), 0.0));
             return false;
         }
     }
     
     public boolean returnItem(String itemId, String memberId) {
+        return returnItem(itemId, memberId, members.get(IdRegistry.MEMBERS.find(memberId)));
+    }
+    
+    boolean returnItem(String itemId, String memberId, Member member) {
         Item item = findItemById(itemId);
-        Member member = members.get(memberId);
         
         if (item == null || member == null) {
-            System.out.println("Item or member not found.");
+            events.publish(new LibraryEvent(LibraryEvent.Type.RETURN_NOT_FOUND, itemId, memberId, null, 0.0));
             return false;
         }
         
         if (item instanceof Borrowable) {
-            Borrowable borrowable = (Borrowable) item;
-            borrowable.returnItem();
-            member.returnItem(itemId);
-            System.out.println("Item returned successfully: " + item.getTitle());
+            // Only the borrower can return an item, so the fine and the freed loan land on the right member
+            if (!isBorrowedBy(item, member)) {
+                events.publish(new LibraryEvent(LibraryEvent.Type.NOT_BORROWER, itemId, memberId, item.getTitle(), 0.0));
+                return false;
+            }
+            LocalDate today = LocalDate.now();
+            if (journal != null) {
+                journal.logReturn(itemId, memberId, today);
+            }
+            double lateFine = applyReturn(item, member, today);
+            events.publish(new LibraryEvent(LibraryEvent.Type.ITEM_RETURNED, itemId, memberId, item.getTitle(), 0.0));
+            if (lateFine > 0) {
+                events.publish(new LibraryEvent(LibraryEvent.Type.FINE_ADDED, itemId, memberId, member.getName(), lateFine));
+            }
             return true;
         }
         
         return false;
     }
     
+    /**
+     * Borrows a bag of items for one member, all or nothing.
+     * The member is resolved and the loan and fine limits are checked once for the whole
+     * batch; every item is validated before any is lent. Publishes one summary event.
+     */
+    public BatchResult borrowItems(String memberId, Collection<String> itemIds) {
+        Member member = members.get(IdRegistry.MEMBERS.find(memberId));
+        BatchResult result = member == null ? BatchResult.rejected(memberId, LibraryEvent.Type.MEMBER_NOT_FOUND, null)
+                           : !member.canBorrow(itemIds.size())
+                           ? BatchResult.rejected(memberId, LibraryEvent.Type.MEMBER_CANNOT_BORROW, null)
+                           : null;
+        List<Item> batch = new ArrayList<>(itemIds.size());
+        Set<String> seen = new HashSet<>(); // by ID, since mapped items are read as fresh copies
+        for (Iterator<String> ids = itemIds.iterator(); result == null && ids.hasNext(); ) {
+            String itemId = ids.next();
+            Item item = findItemById(itemId);
+            if (item == null) {
+                result = BatchResult.rejected(memberId, LibraryEvent.Type.ITEM_NOT_FOUND, itemId);
+            } else if (!(item instanceof Borrowable)) {
+                result = BatchResult.rejected(memberId, LibraryEvent.Type.ITEM_NOT_BORROWABLE, itemId);
+            } else if (!((Borrowable) item).canBorrow() || !seen.add(itemId)) {
+                result = BatchResult.rejected(memberId, LibraryEvent.Type.ITEM_UNAVAILABLE, itemId);
+            } else {
+                batch.add(item);
+            }
+        }
+        if (result == null) {
+            LocalDate today = LocalDate.now();
+            List<String> lent = new ArrayList<>(batch.size());
+            if (journal != null) {
+                for (Item item : batch) {
+                    journal.logBorrow(item.getId(), memberId, today);
+                }
+            }
+            for (Item item : batch) {
+                applyBorrow(findItemForUpdate(item.getId()), member, today);
+                lent.add(item.getId());
+            }
+            result = BatchResult.completed(memberId, lent, 0.0);
+        }
+        publishBatch(result, LibraryEvent.Type.BATCH_BORROWED);
+        return result;
+    }
+    
+    /**
+     * Returns a bag of items for one member, all or nothing.
+     * Every item must be on loan to this member; late fines are charged as for single returns.
+     */
+    public BatchResult returnItems(String memberId, Collection<String> itemIds) {
+        Member member = members.get(IdRegistry.MEMBERS.find(memberId));
+        BatchResult result = member == null
+                           ? BatchResult.rejected(memberId, LibraryEvent.Type.MEMBER_NOT_FOUND, null) : null;
+        List<Item> batch = new ArrayList<>(itemIds.size());
+        Set<Item> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Iterator<String> ids = itemIds.iterator(); result == null && ids.hasNext(); ) {
+            String itemId = ids.next();
+            Item item = findItemById(itemId);
+            if (item == null || !(item instanceof Borrowable) || !member.hasBorrowed(itemId) || !seen.add(item)) {
+                result = BatchResult.rejected(memberId, LibraryEvent.Type.RETURN_NOT_FOUND, itemId);
+            } else {
+                batch.add(item);
+            }
+        }
+        if (result == null) {
+            LocalDate today = LocalDate.now();
+            List<String> returned = new ArrayList<>(batch.size());
+            double fines = 0.0;
+            if (journal != null) {
+                for (Item item : batch) {
+                    journal.logReturn(item.getId(), memberId, today);
+                }
+            }
+            for (Item item : batch) {
+                fines += applyReturn(item, member, today);
+                returned.add(item.getId());
+            }
+            result = BatchResult.completed(memberId, returned, fines);
+            if (fines > 0) {
+                events.publish(new LibraryEvent(LibraryEvent.Type.FINE_ADDED, null, memberId, member.getName(), fines));
+            }
+        }
+        publishBatch(result, LibraryEvent.Type.BATCH_RETURNED);
+        return result;
+    }
+    
+    private static boolean isBorrowedBy(Item item, Member member) {
+        if (item instanceof Book) {
+            return ((Book) item).getBorrowerHandle() == member.getHandle();
+        }
+        return member.hasBorrowed(item.getId());
+    }
+    
+    private void publishBatch(BatchResult result, LibraryEvent.Type success) {
+        LibraryEvent.Type type = result.isSuccess() ? success : LibraryEvent.Type.BATCH_REJECTED;
+        events.publish(new LibraryEvent(type, result.getFailedItemId(), result.getMemberId(), result.toString(),
+                                        result.getFinesCharged()));
+    }
+    
+    // Fines
+    public boolean addFine(String memberId, double amount) {
+        Member member = members.get(IdRegistry.MEMBERS.find(memberId));
+        if (member == null) {
+            events.publish(new LibraryEvent(LibraryEvent.Type.MEMBER_NOT_FOUND, null, memberId, null, 0.0));
+            return false;
+        }
+        if (journal != null) {
+            journal.logAddFine(memberId, amount);
+        }
+        applyFine(member, amount);
+        events.publish(new LibraryEvent(LibraryEvent.Type.FINE_ADDED, null, memberId, member.getName(), amount));
+        return true;
+    }
+    
+    public boolean payFine(String memberId, double amount) {
+        Member member = members.get(IdRegistry.MEMBERS.find(memberId));
+        if (member == null) {
+            events.publish(new LibraryEvent(LibraryEvent.Type.MEMBER_NOT_FOUND, null, memberId, null, 0.0));
+            return false;
+        }
+        if (journal != null) {
+            journal.logPayFine(memberId, amount);
+        }
+        applyPayment(member, amount);
+        events.publish(new LibraryEvent(LibraryEvent.Type.FINE_PAID, null, memberId, member.getName(), amount));
+        return true;
+    }
+    
+    /**
+     * Charges fines for loans that became overdue since the last sweep.
+     * Only loans falling due are touched, through the due-date index; each is charged
+     * for the days overdue so far, and the rest is settled when the item comes back.
+     * Fines are summed per member and applied once per member.
+     */
+    public OverdueSweepResult sweepOverdue(LocalDate today) {
+        if (journal != null) {
+            journal.logSweep(today);
+        }
+        OverdueSweepResult result = applySweep(today.toEpochDay());
+        if (result.getLoansMarkedOverdue() > 0) {
+            events.publish(new LibraryEvent(LibraryEvent.Type.FINES_SWEPT, null, null,
+                                            result.toString(), result.getTotalFines()));
+        }
+        return result;
+    }
+    
     // Search operations
+    public SearchMode getSearchMode() { return searchMode; }
+    
+    /**
+     * Switches substring search between a linear scan and the trigram index.
+     * The trigram index is built from the current catalog when enabled and dropped when disabled.
+     */
+    public void setSearchMode(SearchMode mode) {
+        if (mode == searchMode) {
+            return;
+        }
+        if (mode == SearchMode.TRIGRAM) {
+            if (baseCatalog != null) {
+                throw new IllegalStateException("The trigram index does not cover an attached catalog");
+            }
+            titleTrigrams = new TrigramIndex(Item::getTitle);
+            authorTrigrams = new TrigramIndex(Item::getAuthor);
+            for (Item item : items) {
+                int slot = items.slotOf(item.getId());
+                titleTrigrams.add(item, slot);
+                authorTrigrams.add(item, slot);
+            }
+        } else {
+            titleTrigrams = null;
+            authorTrigrams = null;
+        }
+        searchMode = mode;
+    }
+    
+    /**
+     * Turns the columnar analytics mirror on or off.
+     * It is built from the current catalog when enabled and kept in sync with every change
+     * afterwards. Items in an attached mapped catalog have no heap slot, so the mirror
+     * cannot be combined with one.
+     */
+    public void setColumnarMirror(boolean enabled) {
+        if (!enabled) {
+            columns = null;
+            return;
+        }
+        if (columns != null) {
+            return;
+        }
+        if (baseCatalog != null) {
+            throw new IllegalStateException("The columnar mirror does not cover an attached catalog");
+        }
+        columns = new ColumnarCatalog();
+        for (Item item : items) {
+            columns.put(items.slotOf(item.getId()), item);
+        }
+    }
+    
+    // The columnar mirror, or null when it is off
+    public ColumnarCatalog getColumnarMirror() { return columns; }
+    
+    /**
+     * Turns the facet bitmap indexes (type, genre, author, availability) on or off.
+     * Like the columnar mirror they cover heap items only, so they cannot be combined
+     * with an attached mapped catalog.
+     */
+    public void setFacetIndexEnabled(boolean enabled) {
+        if (!enabled) {
+            facets = null;
+            return;
+        }
+        if (facets != null) {
+            return;
+        }
+        if (baseCatalog != null) {
+            throw new IllegalStateException("The facet index does not cover an attached catalog");
+        }
+        facets = new FacetIndex();
+        for (Item item : items) {
+            facets.add(items.slotOf(item.getId()), item);
+        }
+    }
+    
+    // The facet index, or null when it is off
+    public FacetIndex getFacetIndex() { return facets; }
+    
+    // Items matching a facet query, in the order they were added
+    public List<Item> searchFacets(FacetQuery query) {
+        requireFacets();
+        return resolveSlots(facets.search(query).toArray());
+    }
+    
+    public Map<String, Long> facetCounts(FacetQuery query, FacetIndex.Facet facet) {
+        requireFacets();
+        return facets.facetCounts(query, facet);
+    }
+    
+    private void requireWordIndex() {
+        if (baseCatalog != null) {
+            throw new IllegalStateException("Word search does not cover an attached catalog; use searchByTitle");
+        }
+    }
+    
+    private void requireFacets() {
+        if (facets == null) {
+            throw new IllegalStateException("Facet index is off; call setFacetIndexEnabled(true) first");
+        }
+    }
+    
+    /**
+     * Turns on a bounded cache of rendered item views used by renderItem.
+     * Pass 0 to turn it off.
+     */
+    public void setViewCacheCapacity(int capacity) {
+        views = capacity > 0 ? new ItemViewCache(capacity) : null;
+    }
+    
+    // The view cache, or null when it is off
+    public ItemViewCache getViewCache() { return views; }
+    
+    /**
+     * The text displayInfo prints for an item, served from the view cache when enabled
+     * @return null if there is no such item
+     */
+    public String renderItem(String itemId) {
+        Item item = findItemById(itemId);
+        if (item == null) {
+            return null;
+        }
+        return views != null ? views.get(item) : item.renderInfo();
+    }
+    
     public List<Item> searchByTitle(String title) {
+        if (searchMode == SearchMode.TRIGRAM) {
+            return resolveSlots(titleTrigrams.search(title));
+        }
         List<Item> results = new ArrayList<>();
-        for (Item item : items) {
+        for (Item item : allItems()) {
             if (item.getTitle().toLowerCase().contains(title.toLowerCase())) {
                 results.add(item);
             }
@@ -139,8 +624,11 @@ public class Library {
     }
     
     public List<Item> searchByAuthor(String author) {
+        if (searchMode == SearchMode.TRIGRAM) {
+            return resolveSlots(authorTrigrams.search(author));
+        }
         List<Item> results = new ArrayList<>();
-        for (Item item : items) {
+        for (Item item : allItems()) {
             if (item.getAuthor().toLowerCase().contains(author.toLowerCase())) {
                 results.add(item);
             }
@@ -148,24 +636,625 @@ public class Library {
         return results;
     }
     
+    /**
+     * Word search backed by the title index: every query word must be a word of the title,
+     * the last one as a prefix of a word, and a multi-word query must also appear as a phrase.
+     * Unlike searchByTitle it never matches inside a word: "war" finds "War and Peace" and
+     * "Warlock" but not "Stewart".
+     */
+    public List<Item> searchByTitleWords(String query) {
+        requireWordIndex();
+        return resolveWordMatches(titleIndex.search(query), query, Item::getTitle);
+    }
+    
+    public List<Item> searchByAuthorWords(String query) {
+        requireWordIndex();
+        return resolveWordMatches(authorIndex.search(query), query, Item::getAuthor);
+    }
+    
+    /**
+     * Typo-tolerant title search, best matches first: "Gatsbi" still finds "The Great Gatsby".
+     * Returns at most limit items.
+     */
+    public List<Item> searchByTitleFuzzy(String query, int limit) {
+        requireWordIndex();
+        return resolveSlots(titleIndex.fuzzySearch(query, limit));
+    }
+    
+    public List<Item> searchByAuthorFuzzy(String query, int limit) {
+        requireWordIndex();
+        return resolveSlots(authorIndex.fuzzySearch(query, limit));
+    }
+    
+    /**
+     * One page of searchByTitleWords, in catalog order; pass Page.FIRST, then each page's next cursor.
+     * The posting lists are walked from the cursor and only as far as the page needs.
+     */
+    public Page<Item> searchByTitleWords(String query, long cursor, int pageSize) {
+        requireWordIndex();
+        return pageOfMatches(titleIndex, query, Item::getTitle, cursor, pageSize);
+    }
+    
+    public Page<Item> searchByAuthorWords(String query, long cursor, int pageSize) {
+        requireWordIndex();
+        return pageOfMatches(authorIndex, query, Item::getAuthor, cursor, pageSize);
+    }
+    
+    // Lazy forms of searchByTitleWords and searchByAuthorWords; do not change the library while consuming them
+    public Stream<Item> streamTitleMatches(String query) {
+        requireWordIndex();
+        return streamMatches(titleIndex, query, Item::getTitle);
+    }
+    
+    public Stream<Item> streamAuthorMatches(String query) {
+        requireWordIndex();
+        return streamMatches(authorIndex, query, Item::getAuthor);
+    }
+    
+    // Listings - cursors stay valid while items and members come and go, until compact() runs
+    public Page<Item> listItems(long cursor, int pageSize) {
+        return pageOfItems(cursor, pageSize, item -> true);
+    }
+    
+    public Page<Item> listAvailableItems(long cursor, int pageSize) {
+        return pageOfItems(cursor, pageSize, Item::isAvailable);
+    }
+    
+    // Members in registration order
+    public Page<Member> listMembers(long cursor, int pageSize) {
+        checkPage(cursor, pageSize);
+        List<Member> contents = new ArrayList<>(Math.min(pageSize, MAX_PAGE_PRESIZE));
+        long position = positionOf(cursor);
+        for (; position < memberOrderLimit; position++) {
+            Member member = memberOrder[(int) position];
+            if (member != null) {
+                if (contents.size() == pageSize) {
+                    break;
+                }
+                contents.add(member);
+            }
+        }
+        return new Page<>(contents, position < memberOrderLimit ? cursorAt(position) : Page.END);
+    }
+    
+    // Lazy forms of the listings, in the same order as the pages
+    public Stream<Item> streamItems() {
+        return stream(() -> itemsFrom(Page.FIRST, item -> true));
+    }
+    
+    public Stream<Item> streamAvailableItems() {
+        return stream(() -> itemsFrom(Page.FIRST, Item::isAvailable));
+    }
+    
+    public Stream<Member> streamMembers() {
+        return stream(() -> new Iterator<Member>() {
+            private final int expectedGeneration = generation;
+            private Page<Member> page = listMembers(Page.FIRST, STREAM_PAGE_SIZE);
+            private int index = 0;
+            
+            @Override
+            public boolean hasNext() {
+                if (index == page.size() && page.hasNext()) {
+                    if (generation != expectedGeneration) {
+                        throw new ConcurrentModificationException("Library was compacted during iteration");
+                    }
+                    page = listMembers(page.getNextCursor(), STREAM_PAGE_SIZE);
+                    index = 0;
+                }
+                return index < page.size();
+            }
+            
+            @Override
+            public Member next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.getContents().get(index++);
+            }
+        });
+    }
+    
+    /**
+     * The item with this ID. A mapped item that was never borrowed comes back as a transient
+     * copy decoded from the catalog, so changes made to it directly are not kept.
+     */
     public Item findItemById(String itemId) {
+        Item item = items.get(itemId);
+        if (item == null && baseCatalog != null) {
+            int index = baseCatalog.indexOf(itemId);
+            if (index >= 0 && !promoted.get(index)) {
+                item = baseCatalog.itemAt(index);
+            }
+        }
+        return item;
+    }
+    
+    // The heap form of an item about to change, promoting a mapped item first; used by journal replay too
+    Item findItemForUpdate(String itemId) {
+        Item item = items.get(itemId);
+        return item == null && baseCatalog != null ? promoteFromCatalog(itemId) : item;
+    }
+    
+    public Member findMemberById(String memberId) {
+        return members.get(IdRegistry.MEMBERS.find(memberId));
+    }
+    
+    private List<Item> resolveSlots(int[] slots) {
+        List<Item> results = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            results.add(items.itemAt(slot));
+        }
+        return results;
+    }
+    
+    private List<Item> resolveWordMatches(int[] slots, String query, Function<Item, String> field) {
+        List<Item> results = new ArrayList<>(slots.length);
+        String phrase = phraseOf(query);
+        for (int slot : slots) {
+            Item item = items.itemAt(slot);
+            if (wordMatch(item, phrase, field)) {
+                results.add(item);
+            }
+        }
+        return results;
+    }
+    
+    // Search cursors are item slots; the next cursor is the slot of the next match
+    private Page<Item> pageOfMatches(TokenIndex index, String query, Function<Item, String> field,
+                                     long cursor, int pageSize) {
+        checkPage(cursor, pageSize);
+        String phrase = phraseOf(query);
+        TokenIndex.Matches matches = index.matches(query, (int) Math.min(positionOf(cursor), Integer.MAX_VALUE));
+        List<Item> contents = new ArrayList<>(Math.min(pageSize, MAX_PAGE_PRESIZE));
+        for (int slot = matches.next(); slot >= 0; slot = matches.next()) {
+            Item item = items.itemAt(slot);
+            if (wordMatch(item, phrase, field)) {
+                if (contents.size() == pageSize) {
+                    return new Page<>(contents, cursorAt(slot));
+                }
+                contents.add(item);
+            }
+        }
+        return new Page<>(contents, Page.END);
+    }
+    
+    private Stream<Item> streamMatches(TokenIndex index, String query, Function<Item, String> field) {
+        String phrase = phraseOf(query);
+        return stream(() -> new Iterator<Item>() {
+            private final TokenIndex.Matches matches = index.matches(query, 0);
+            private Item next = advance();
+            
+            private Item advance() {
+                for (int slot = matches.next(); slot >= 0; slot = matches.next()) {
+                    Item item = items.itemAt(slot);
+                    if (wordMatch(item, phrase, field)) {
+                        return item;
+                    }
+                }
+                return null;
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+            
+            @Override
+            public Item next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Item current = next;
+                next = advance();
+                return current;
+            }
+        });
+    }
+    
+    // A multi-word query must also appear as a phrase, just like String.contains
+    private static String phraseOf(String query) {
+        return TokenIndex.tokenize(query).size() > 1 ? query.toLowerCase().trim() : null;
+    }
+    
+    private static boolean wordMatch(Item item, String phrase, Function<Item, String> field) {
+        return item != null && (phrase == null || field.apply(item).toLowerCase().contains(phrase));
+    }
+    
+    /**
+     * Item listing positions: base catalog entries by index (promoted ones in their heap form),
+     * then heap slots. Neither is reused, so a position keeps its meaning across changes
+     * until compact() renumbers the heap slots.
+     */
+    private Page<Item> pageOfItems(long cursor, int pageSize, Predicate<Item> filter) {
+        checkPage(cursor, pageSize);
+        List<Item> contents = new ArrayList<>(Math.min(pageSize, MAX_PAGE_PRESIZE));
+        long position = positionOf(cursor);
+        long limit = positionLimit();
+        for (; position < limit; position++) {
+            Item item = itemAtPosition(position);
+            if (item != null && filter.test(item)) {
+                if (contents.size() == pageSize) {
+                    break; // the next page starts here, so hasNext is exact
+                }
+                contents.add(item);
+            }
+        }
+        return new Page<>(contents, position < limit ? cursorAt(position) : Page.END);
+    }
+    
+    private Iterator<Item> itemsFrom(long start, Predicate<Item> filter) {
+        return new Iterator<Item>() {
+            private final int expectedGeneration = generation;
+            private long position = start;
+            private Item next = advance();
+            
+            private Item advance() {
+                if (generation != expectedGeneration) {
+                    throw new ConcurrentModificationException("Library was compacted during iteration");
+                }
+                while (position < positionLimit()) {
+                    Item item = itemAtPosition(position++);
+                    if (item != null && filter.test(item)) {
+                        return item;
+                    }
+                }
+                return null;
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+            
+            @Override
+            public Item next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Item current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+    
+    private long positionLimit() {
+        return baseSize() + items.slotLimit();
+    }
+    
+    private int baseSize() {
+        return baseCatalog != null ? baseCatalog.size() : 0;
+    }
+    
+    // The item listed at a position, or null for a hole
+    private Item itemAtPosition(long position) {
+        int base = baseSize();
+        if (position < base) {
+            int index = (int) position;
+            // Promoted entries were decoded onto the heap, or removed since
+            return promoted.get(index) ? items.get(baseCatalog.idAt(index)) : baseCatalog.itemAt(index);
+        }
+        Item item = items.itemAt((int) (position - base));
+        if (item != null && base > 0 && baseCatalog.indexOf(item.getId()) >= 0) {
+            return null; // promoted items are listed at their catalog position
+        }
+        return item;
+    }
+    
+    // The iterator is only created once the stream's terminal operation starts
+    private static <T> Stream<T> stream(Supplier<Iterator<T>> iterator) {
+        return StreamSupport.stream(() -> Spliterators.spliteratorUnknownSize(iterator.get(),
+                Spliterator.ORDERED | Spliterator.NONNULL), Spliterator.ORDERED | Spliterator.NONNULL, false);
+    }
+    
+    private static void checkPage(long cursor, int pageSize) {
+        if (cursor < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1: " + pageSize);
+        }
+    }
+    
+    // Cursors carry the generation they were issued in; Page.FIRST is valid in every generation
+    private long cursorAt(long position) {
+        return (long) generation << CURSOR_POSITION_BITS | position;
+    }
+    
+    private long positionOf(long cursor) {
+        if (cursor != Page.FIRST && cursor >>> CURSOR_POSITION_BITS != generation) {
+            throw new IllegalStateException("Cursor " + cursor + " was issued before the library was compacted");
+        }
+        return cursor & ((1L << CURSOR_POSITION_BITS) - 1);
+    }
+    
+    /**
+     * Closes the holes removed items and members leave behind, which otherwise keep every
+     * listing scan, slot-indexed array and columnar mirror at the size of all items ever added.
+     * Order is kept, but slots are renumbered and the indexes rebuilt, so cursors issued before
+     * are refused afterwards. LibraryPersistence runs it on every checkpoint.
+     * @return false if there was nothing to close
+     */
+    public boolean compact() {
+        if (items.slotLimit() == items.size() && memberOrderLimit == members.size()) {
+            return false;
+        }
+        items.compact();
+        titleIndex = new TokenIndex(Item::getTitle);
+        authorIndex = new TokenIndex(Item::getAuthor);
+        if (searchMode == SearchMode.TRIGRAM) {
+            titleTrigrams = new TrigramIndex(Item::getTitle);
+            authorTrigrams = new TrigramIndex(Item::getAuthor);
+        }
+        if (columns != null) {
+            columns = new ColumnarCatalog();
+        }
+        if (facets != null) {
+            facets = new FacetIndex();
+        }
+        dueDates = new DueDateIndex();
         for (Item item : items) {
-            if (item.getId().equals(itemId)) {
-                return item;
+            indexItem(item, items.slotOf(item.getId()));
+        }
+        
+        Member[] packed = new Member[Math.max(16, Integer.highestOneBit(Math.max(members.size(), 1)) * 2)];
+        int next = 0;
+        for (int position = 0; position < memberOrderLimit; position++) {
+            Member member = memberOrder[position];
+            if (member != null) {
+                memberPositions.put(member.getHandle(), next);
+                packed[next++] = member;
+            }
+        }
+        memberOrder = packed;
+        memberOrderLimit = next;
+        generation = (generation + 1) & Integer.MAX_VALUE;
+        return true;
+    }
+    
+    // Quiet state changes shared by the public operations and journal replay
+    boolean insertItem(Item item) {
+        if (inBaseCatalog(item.getId()) || !holdItem(item)) {
+            return false;
+        }
+        statistics.itemAdded(item);
+        if (changes != null) {
+            changes.itemAdded(item);
+        }
+        return true;
+    }
+    
+    // Puts an item in the heap catalog and indexes, without touching the counters
+    private boolean holdItem(Item item) {
+        if (!items.add(item)) {
+            return false;
+        }
+        item.setListener(itemListener);
+        indexItem(item, items.slotOf(item.getId()));
+        return true;
+    }
+    
+    private void indexItem(Item item, int slot) {
+        if (item instanceof Book && ((Book) item).isBorrowed()) {
+            dueDates.add(((Book) item).getDueEpochDay(), slot); // restored with an open loan
+        }
+        titleIndex.add(item, slot);
+        authorIndex.add(item, slot);
+        if (columns != null) {
+            columns.put(slot, item);
+        }
+        if (facets != null) {
+            facets.add(slot, item);
+        }
+        if (searchMode == SearchMode.TRIGRAM) {
+            titleTrigrams.add(item, slot);
+            authorTrigrams.add(item, slot);
+        }
+    }
+    
+    void deleteItem(Item item) {
+        int slot = items.slotOf(item.getId());
+        titleIndex.remove(item, slot);
+        authorIndex.remove(item, slot);
+        if (searchMode == SearchMode.TRIGRAM) {
+            titleTrigrams.remove(item, slot);
+            authorTrigrams.remove(item, slot);
+        }
+        if (columns != null) {
+            columns.remove(slot);
+        }
+        if (facets != null) {
+            facets.remove(slot, item);
+        }
+        if (views != null) {
+            views.invalidate(item.getId());
+        }
+        items.remove(item.getId());
+        item.setListener(null);
+        statistics.itemRemoved(item);
+        if (changes != null) {
+            changes.itemRemoved(item);
+        }
+    }
+    
+    boolean insertMember(Member member) {
+        if (members.putIfAbsent(member.getHandle(), member) != null) {
+            return false;
+        }
+        if (memberOrderLimit == memberOrder.length) {
+            memberOrder = Arrays.copyOf(memberOrder, memberOrder.length * 2);
+        }
+        memberPositions.put(member.getHandle(), memberOrderLimit);
+        memberOrder[memberOrderLimit++] = member;
+        statistics.memberRegistered();
+        if (changes != null) {
+            changes.memberRegistered(member);
+        }
+        return true;
+    }
+    
+    void deleteMember(Member member) {
+        members.remove(member.getHandle());
+        memberOrder[memberPositions.remove(member.getHandle())] = null;
+        statistics.memberRemoved();
+        if (changes != null) {
+            changes.memberRemoved(member);
+        }
+    }
+    
+    void applyBorrow(Item item, Member member, LocalDate date) {
+        if (item instanceof Book) {
+            Book book = (Book) item;
+            book.borrowItem(member.getMemberId(), date);
+            if (book.isBorrowed()) {
+                dueDates.add(book.getDueEpochDay(), items.slotOf(item.getId()));
+            }
+        } else {
+            ((Borrowable) item).borrowItem(member.getMemberId());
+        }
+        member.borrowItem(item.getId(), date);
+        if (views != null) {
+            views.invalidate(item.getId()); // also covers loans that do not change availability
+        }
+        if (changes != null) {
+            changes.borrowed(item, member, date);
+        }
+    }
+    
+    // Returns the late fine charged for days not already covered by a sweep
+    double applyReturn(Item item, Member member, LocalDate date) {
+        double fine = 0.0;
+        if (item instanceof Book && ((Book) item).isBorrowed()) {
+            Book book = (Book) item;
+            long chargedFrom = Math.max(book.getDueEpochDay(), book.getFinedThroughDay());
+            long daysLate = date.toEpochDay() - chargedFrom;
+            if (daysLate > 0) {
+                fine = book.calculateFine((int) daysLate);
             }
         }
-        return null;
+        ((Borrowable) item).returnItem();
+        member.returnItem(item.getId(), date);
+        if (views != null) {
+            views.invalidate(item.getId());
+        }
+        if (changes != null) {
+            changes.returned(item, member, date);
+        }
+        if (fine > 0) {
+            applyFine(member, fine); // after the return, so the feed shows the loan closing first
+        }
+        return fine;
+    }
+    
+    void applyFine(Member member, double amount) {
+        member.addFine(amount);
+        if (changes != null) {
+            changes.fineChanged(member, amount);
+        }
+    }
+    
+    void applyPayment(Member member, double amount) {
+        double before = member.getTotalFines();
+        member.payFine(amount);
+        if (changes != null) {
+            changes.fineChanged(member, member.getTotalFines() - before);
+        }
     }
     
-    // Display operations
+    // Set by LibraryCluster so sweeps can fine members whose home is another shard
+    void setBorrowerDirectory(IntFunction<Member> directory) {
+        this.borrowerDirectory = directory;
+    }
+    
+    private Member borrower(int memberHandle) {
+        Member member = members.get(memberHandle);
+        return member == null && borrowerDirectory != null ? borrowerDirectory.apply(memberHandle) : member;
+    }
+    
+    OverdueSweepResult applySweep(long today) {
+        Map<Member, Double> charges = new HashMap<>();
+        int loans = 0;
+        double total = 0.0;
+        for (int slot : dueDates.pollDueBefore(today)) {
+            Item item = items.itemAt(slot);
+            if (!(item instanceof Book)) {
+                continue; // removed since
+            }
+            Book book = (Book) item;
+            // Skip stale entries: returned, re-borrowed with a later due day, or already charged
+            if (!book.isBorrowed() || book.getDueEpochDay() >= today
+                    || book.getFinedThroughDay() != Book.NO_DAY) {
+                continue;
+            }
+            double fine = book.calculateFine((int) (today - book.getDueEpochDay()));
+            book.setFinedThroughDay(today);
+            loans++;
+            Member member = borrower(book.getBorrowerHandle());
+            if (member != null && fine > 0) {
+                charges.merge(member, fine, Double::sum);
+                total += fine;
+            }
+        }
+        for (Map.Entry<Member, Double> charge : charges.entrySet()) {
+            applyFine(charge.getKey(), charge.getValue());
+        }
+        return new OverdueSweepResult(today, loans, charges.size(), total);
+    }
+    
+    boolean hasAttachedCatalog() {
+        return baseCatalog != null;
+    }
+    
+    // Every item in listing order; the catalog's own iterator when no base catalog is attached
+    Iterable<Item> allItems() {
+        if (baseCatalog == null) {
+            return items;
+        }
+        return () -> itemsFrom(Page.FIRST, item -> true);
+    }
+    
+    // Whether an item with this ID is already in the library, on the heap or in the base catalog
+    private boolean holdsItem(String itemId) {
+        return items.contains(itemId) || inBaseCatalog(itemId);
+    }
+    
+    private boolean inBaseCatalog(String itemId) {
+        if (baseCatalog == null) {
+            return false;
+        }
+        int index = baseCatalog.indexOf(itemId);
+        return index >= 0 && !promoted.get(index);
+    }
+    
+    // Decodes a mapped item and moves it onto the heap so it can carry borrow state
+    private Item promoteFromCatalog(String itemId) {
+        int index = baseCatalog.indexOf(itemId);
+        if (index < 0 || promoted.get(index)) {
+            return null; // unknown, or promoted earlier and since removed
+        }
+        Item item = baseCatalog.itemAt(index);
+        promoted.set(index);
+        holdItem(item);
+        return item;
+    }
+    
+    Collection<Member> allMembers() {
+        return members.values();
+    }
+    
+    // Display operations - printed a page at a time, so output starts at once and memory stays flat
     public void displayAllItems() {
         System.out.println("=== " + libraryName + " - All Items ===");
-        if (items.isEmpty()) {
+        if (statistics.snapshot().getTotalItems() == 0) {
             System.out.println("No items in the library.");
         } else {
-            for (Item item : items) {
-                System.out.println(item.getId() + " - " + item.getTitle() + " by " + item.getAuthor() + 
-                                 " (" + (item.isAvailable() ? "Available" : "Borrowed") + ")");
+            for (long cursor = Page.FIRST; cursor != Page.END; ) {
+                Page<Item> page = listItems(cursor, DISPLAY_PAGE_SIZE);
+                for (Item item : page.getContents()) {
+                    System.out.println(item.getId() + " - " + item.getTitle() + " by " + item.getAuthor() + 
+                                     " (" + (item.isAvailable() ? "Available" : "Borrowed") + ")");
+                }
+                cursor = page.getNextCursor();
             }
         }
         System.out.println("=====================================");
@@ -174,11 +1263,13 @@ public class Library {
     public void displayAvailableItems() {
         System.out.println("=== Available Items ===");
         boolean hasAvailable = false;
-        for (Item item : items) {
-            if (item.isAvailable()) {
+        for (long cursor = Page.FIRST; cursor != Page.END; ) {
+            Page<Item> page = listAvailableItems(cursor, DISPLAY_PAGE_SIZE);
+            for (Item item : page.getContents()) {
                 System.out.println(item.getId() + " - " + item.getTitle() + " by " + item.getAuthor());
                 hasAvailable = true;
             }
+            cursor = page.getNextCursor();
         }
         if (!hasAvailable) {
             System.out.println("No items available.");
@@ -191,34 +1282,31 @@ public class Library {
         if (members.isEmpty()) {
             System.out.println("No registered members.");
         } else {
-            for (Member member : members.values()) {
-                System.out.println(member.getMemberId() + " - " + member.getName() + 
-                                 " (Borrowed: " + member.getBorrowedItems().size() + ")");
+            for (long cursor = Page.FIRST; cursor != Page.END; ) {
+                Page<Member> page = listMembers(cursor, DISPLAY_PAGE_SIZE);
+                for (Member member : page.getContents()) {
+                    System.out.println(member.getMemberId() + " - " + member.getName() + 
+                                     " (Borrowed: " + member.getBorrowedCount() + ")");
+                }
+                cursor = page.getNextCursor();
             }
         }
         System.out.println("===================");
     }
     
     // Statistics
+    public LibraryStatistics.Snapshot getStatistics() {
+        return statistics.snapshot();
+    }
+    
     public void displayStatistics() {
-        int totalItems = items.size();
-        int availableItems = 0;
-        int borrowedItems = 0;
-        
-        for (Item item : items) {
-            if (item.isAvailable()) {
-                availableItems++;
-            } else {
-                borrowedItems++;
-            }
-        }
-        
+        LibraryStatistics.Snapshot snapshot = statistics.snapshot();
         System.out.println("=== Library Statistics ===");
         System.out.println("Library: " + libraryName);
-        System.out.println("Total Items: " + totalItems);
-        System.out.println("Available Items: " + availableItems);
-        System.out.println("Borrowed Items: " + borrowedItems);
-        System.out.println("Registered Members: " + members.size());
+        System.out.println("Total Items: " + snapshot.getTotalItems());
+        System.out.println("Available Items: " + snapshot.getAvailableItems());
+        System.out.println("Borrowed Items: " + snapshot.getBorrowedItems());
+        System.out.println("Registered Members: " + snapshot.getRegisteredMembers());
         System.out.println("===========================");
     }
 }
@@ -0,0 +1,81 @@
+import java.time.LocalDate;
+
+/**
+ * One committed state change of a Library, numbered in the order it was applied
+ * Published through a ChangeFeed so consumers can keep their own views current without polling
+ */
+public final class LibraryChange {
+    /**
+     * What changed
+     */
+    public enum Kind {
+        ITEM_ADDED, ITEM_REMOVED, BORROWED, RETURNED, MEMBER_REGISTERED, MEMBER_REMOVED, FINE_CHANGED
+    }
+    
+    private final long sequence;
+    private final Kind kind;
+    private final String itemId;
+    private final String memberId;
+    private final String name; // item title, or member name for member and fine changes
+    private final String author;
+    private final String genre; // of the item, for item and loan changes
+    private final LocalDate date;
+    private final double fineChange;
+    private final double fineBalance;
+    
+    LibraryChange(long sequence, Kind kind, String itemId, String memberId, String name, String author,
+                  String genre, LocalDate date, double fineChange, double fineBalance) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.itemId = itemId;
+        this.memberId = memberId;
+        this.name = name;
+        this.author = author;
+        this.genre = genre;
+        this.date = date;
+        this.fineChange = fineChange;
+        this.fineBalance = fineBalance;
+    }
+    
+    static LibraryChange item(long sequence, Kind kind, Item item) {
+        return new LibraryChange(sequence, kind, item.getId(), null, item.getTitle(), item.getAuthor(), genreOf(item),
+                                 null, 0.0, 0.0);
+    }
+    
+    static LibraryChange loan(long sequence, Kind kind, Item item, Member member, LocalDate date) {
+        return new LibraryChange(sequence, kind, item.getId(), member.getMemberId(), item.getTitle(), null,
+                                 genreOf(item), date, 0.0, 0.0);
+    }
+    
+    static LibraryChange member(long sequence, Kind kind, Member member) {
+        return new LibraryChange(sequence, kind, null, member.getMemberId(), member.getName(), null, null, null,
+                                 0.0, member.getTotalFines());
+    }
+    
+    static LibraryChange fine(long sequence, Member member, double change) {
+        return new LibraryChange(sequence, Kind.FINE_CHANGED, null, member.getMemberId(), member.getName(), null,
+                                 null, null, change, member.getTotalFines());
+    }
+    
+    public long getSequence() { return sequence; }
+    public Kind getKind() { return kind; }
+    public String getItemId() { return itemId; }
+    public String getMemberId() { return memberId; }
+    public String getName() { return name; }
+    public String getAuthor() { return author; }
+    public String getGenre() { return genre; }
+    public LocalDate getDate() { return date; }
+    public double getFineChange() { return fineChange; }
+    public double getFineBalance() { return fineBalance; }
+    
+    private static String genreOf(Item item) {
+        return item instanceof Book ? ((Book) item).getGenre() : null;
+    }
+    
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + kind + "[item=" + itemId + ", member=" + memberId + ", name=" + name
+               + (date != null ? ", date=" + date : "")
+               + (kind == Kind.FINE_CHANGED ? ", change=" + fineChange + ", balance=" + fineBalance : "") + "]";
+    }
+}
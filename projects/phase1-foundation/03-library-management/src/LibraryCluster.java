@@ -0,0 +1,252 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * One logical library partitioned across N in-process Library shards by consistent hashing of IDs
+ * Point operations go straight to the shard that owns the ID; title and author searches run on
+ * every shard in parallel and are merged in shard order. A loan whose item and member hash to
+ * different shards is applied on the item's shard to the member object from the member's shard.
+ * Like Library, a cluster is not safe for concurrent writers.
+ */
+public class LibraryCluster implements AutoCloseable {
+    private static final int POINTS_PER_SHARD = 160; // ring positions per shard, evens out the key spread
+    
+    private final String clusterName;
+    private final Library[] shards;
+    private final long[] ringPoints; // sorted positions on the hash ring
+    private final int[] ringShards; // owning shard of each position
+    private final ExecutorService searchPool;
+    
+    public LibraryCluster(String clusterName, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("A cluster needs at least one shard: " + shardCount);
+        }
+        this.clusterName = clusterName;
+        this.shards = new Library[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Library(clusterName + " #" + i);
+            shards[i].setBorrowerDirectory(this::memberByHandle);
+        }
+        long[][] points = new long[shardCount * POINTS_PER_SHARD][];
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int point = 0; point < POINTS_PER_SHARD; point++) {
+                points[shard * POINTS_PER_SHARD + point] =
+                        new long[] {mix(((long) shard << 32) | point), shard};
+            }
+        }
+        Arrays.sort(points, (a, b) -> Long.compare(a[0], b[0]));
+        this.ringPoints = new long[points.length];
+        this.ringShards = new int[points.length];
+        for (int i = 0; i < points.length; i++) {
+            ringPoints[i] = points[i][0];
+            ringShards[i] = (int) points[i][1];
+        }
+        int threads = Math.min(shardCount, Runtime.getRuntime().availableProcessors());
+        this.searchPool = shardCount > 1 ? Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "cluster-search");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+    
+    public String getClusterName() { return clusterName; }
+    public int getShardCount() { return shards.length; }
+    public Library getShard(int index) { return shards[index]; }
+    
+    // Routing
+    // The shard owning an ID: the first ring position at or after the ID's hash, wrapping around
+    public int shardOf(String id) {
+        long hash = mix(id.hashCode());
+        int index = Arrays.binarySearch(ringPoints, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return ringShards[index == ringPoints.length ? 0 : index];
+    }
+    
+    private Library shardFor(String id) {
+        return shards[shardOf(id)];
+    }
+    
+    private Member memberByHandle(int handle) {
+        return handle >= 0 ? findMemberById(IdRegistry.MEMBERS.idOf(handle)) : null;
+    }
+    
+    // Stafford's 64-bit finalizer; spreads similar IDs like "F1" and "F2" across the ring
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+    
+    // Configuration applied to every shard
+    public void setEventSink(EventSink events) {
+        for (Library shard : shards) {
+            shard.setEventSink(events);
+        }
+    }
+    
+    public void setSearchMode(Library.SearchMode mode) {
+        for (Library shard : shards) {
+            shard.setSearchMode(mode);
+        }
+    }
+    
+    // Item and member management
+    public void addItem(Item item) {
+        shardFor(item.getId()).addItem(item);
+    }
+    
+    public int addItems(Collection<? extends Item> batch) {
+        List<List<Item>> perShard = partition(batch, Item::getId);
+        int added = 0;
+        for (int i = 0; i < shards.length; i++) {
+            added += shards[i].addItems(perShard.get(i));
+        }
+        return added;
+    }
+    
+    public void removeItem(String itemId) {
+        shardFor(itemId).removeItem(itemId);
+    }
+    
+    public void registerMember(Member member) {
+        shardFor(member.getMemberId()).registerMember(member);
+    }
+    
+    public int registerMembers(Collection<? extends Member> batch) {
+        List<List<Member>> perShard = partition(batch, Member::getMemberId);
+        int added = 0;
+        for (int i = 0; i < shards.length; i++) {
+            added += shards[i].registerMembers(perShard.get(i));
+        }
+        return added;
+    }
+    
+    public void removeMember(String memberId) {
+        shardFor(memberId).removeMember(memberId);
+    }
+    
+    public Item findItemById(String itemId) {
+        return shardFor(itemId).findItemById(itemId);
+    }
+    
+    public Member findMemberById(String memberId) {
+        return shardFor(memberId).findMemberById(memberId);
+    }
+    
+    // Loans and fines - loans are recorded on the item's shard, fines on the member's
+    public boolean borrowItem(String itemId, String memberId) {
+        return shardFor(itemId).borrowItem(itemId, memberId, findMemberById(memberId));
+    }
+    
+    public boolean returnItem(String itemId, String memberId) {
+        return shardFor(itemId).returnItem(itemId, memberId, findMemberById(memberId));
+    }
+    
+    public boolean addFine(String memberId, double amount) {
+        return shardFor(memberId).addFine(memberId, amount);
+    }
+    
+    public boolean payFine(String memberId, double amount) {
+        return shardFor(memberId).payFine(memberId, amount);
+    }
+    
+    public OverdueSweepResult sweepOverdue(LocalDate today) {
+        int loans = 0;
+        int members = 0;
+        double total = 0.0;
+        for (Library shard : shards) {
+            OverdueSweepResult result = shard.sweepOverdue(today);
+            loans += result.getLoansMarkedOverdue();
+            members += result.getMembersFined(); // a member fined on two shards counts twice
+            total += result.getTotalFines();
+        }
+        return new OverdueSweepResult(today.toEpochDay(), loans, members, total);
+    }
+    
+    // Scatter-gather search
+    public List<Item> searchByTitle(String title) {
+        return scatter(shard -> shard.searchByTitle(title));
+    }
+    
+    public List<Item> searchByAuthor(String author) {
+        return scatter(shard -> shard.searchByAuthor(author));
+    }
+    
+    public List<Item> searchByTitleWords(String query) {
+        return scatter(shard -> shard.searchByTitleWords(query));
+    }
+    
+    public List<Item> searchByAuthorWords(String query) {
+        return scatter(shard -> shard.searchByAuthorWords(query));
+    }
+    
+    // Runs the search on every shard at once, then concatenates the results in shard order
+    private List<Item> scatter(Function<Library, List<Item>> search) {
+        if (searchPool == null) {
+            return search.apply(shards[0]);
+        }
+        List<CompletableFuture<List<Item>>> parts = new ArrayList<>(shards.length);
+        for (Library shard : shards) {
+            parts.add(CompletableFuture.supplyAsync(() -> search.apply(shard), searchPool));
+        }
+        int total = 0;
+        List<List<Item>> results = new ArrayList<>(shards.length);
+        for (CompletableFuture<List<Item>> part : parts) {
+            List<Item> result = part.join();
+            results.add(result);
+            total += result.size();
+        }
+        List<Item> merged = new ArrayList<>(total);
+        for (List<Item> result : results) {
+            merged.addAll(result);
+        }
+        return merged;
+    }
+    
+    private <T> List<List<T>> partition(Collection<? extends T> batch, Function<T, String> id) {
+        List<List<T>> perShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            perShard.add(new ArrayList<>(batch.size() / shards.length + 1));
+        }
+        for (T element : batch) {
+            perShard.get(shardOf(id.apply(element))).add(element);
+        }
+        return perShard;
+    }
+    
+    // Statistics - the shards' counters summed
+    public LibraryStatistics.Snapshot getStatistics() {
+        long total = 0;
+        long available = 0;
+        long borrowed = 0;
+        long members = 0;
+        Map<String, Long> byType = new TreeMap<>();
+        for (Library shard : shards) {
+            LibraryStatistics.Snapshot snapshot = shard.getStatistics();
+            total += snapshot.getTotalItems();
+            available += snapshot.getAvailableItems();
+            borrowed += snapshot.getBorrowedItems();
+            members += snapshot.getRegisteredMembers();
+            snapshot.getItemsByType().forEach((type, count) -> byType.merge(type, count, Long::sum));
+        }
+        return new LibraryStatistics.Snapshot(total, available, borrowed, members, byType);
+    }
+    
+    @Override
+    public void close() {
+        if (searchPool != null) {
+            searchPool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,437 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, schema-versioned binary encoding of Items and Members for files and other processes
+ * A stream is a header (magic, schema version) followed by records: a kind byte, the body length
+ * and varint-encoded fields. Authors, genres and member and loaned item IDs go through a string
+ * dictionary shared by the whole stream, so a repeated string costs one small index. Readers skip
+ * fields they do not know using the body length, so later versions can append fields.
+ * A Reader must see the records in the order the Writer wrote them.
+ */
+public final class LibraryCodec {
+    public static final int SCHEMA_VERSION = 1;
+    static final int MAGIC = 0x4C49_4252; // "LIBR", distinct from MappedCatalog's "LIBC"
+    static final byte MEMBER = 16; // item kinds are LibrarySnapshot's
+    static final int LENGTH_BYTES = 4; // body length as a padded varint, patched after the body
+    static final int MAX_BODY = (1 << 28) - 1;
+    
+    // Item flags
+    private static final int AVAILABLE = 1;
+    private static final int HAS_GENRE = 2;
+    private static final int ON_LOAN = 4;
+    private static final int FINED = 8;
+    // Member flags
+    private static final int HAS_PHONE = 1;
+    private static final int FINES_IN_CENTS = 2;
+    
+    private static final BorrowingHistory.EventType[] EVENT_TYPES = BorrowingHistory.EventType.values();
+    
+    private LibraryCodec() {}
+    
+    /**
+     * Encodes records into caller-supplied buffers, keeping the dictionary between calls
+     * If a record does not fit, the buffer position and dictionary are left as they were and
+     * BufferOverflowException is thrown, so the caller can drain the buffer and retry.
+     */
+    public static final class Writer {
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> entries = new ArrayList<>();
+        private int recordStart;
+        private int dictionaryMark;
+        
+        public void writeHeader(ByteBuffer out) {
+            if (out.remaining() < 5) {
+                throw new BufferOverflowException();
+            }
+            out.putInt(MAGIC);
+            out.put((byte) SCHEMA_VERSION);
+        }
+        
+        // Returns the number of bytes written
+        public int writeItem(ByteBuffer out, Item item) {
+            if (!(item instanceof Book)) {
+                throw new IllegalArgumentException("Unsupported item type: " + item.getClass().getSimpleName());
+            }
+            Book book = (Book) item;
+            begin(out, LibrarySnapshot.kindOf(book));
+            try {
+                boolean onLoan = book.isBorrowed();
+                boolean fined = onLoan && book.getFinedThroughDay() != Book.NO_DAY;
+                putVarint(out, (book.isAvailable() ? AVAILABLE : 0) | (book.getGenre() != null ? HAS_GENRE : 0)
+                               | (onLoan ? ON_LOAN : 0) | (fined ? FINED : 0));
+                putString(out, book.getId());
+                putString(out, book.getTitle());
+                putShared(out, book.getAuthor());
+                putString(out, book.getIsbn());
+                if (book.getGenre() != null) {
+                    putShared(out, book.getGenre());
+                }
+                putVarint(out, zigzag(book.getPages()));
+                if (onLoan) {
+                    putShared(out, book.getBorrowedBy());
+                    putVarLong(out, zigzag(book.getBorrowEpochDay()));
+                    if (fined) {
+                        putVarLong(out, zigzag(book.getFinedThroughDay() - book.getBorrowEpochDay()));
+                    }
+                }
+                return end(out);
+            } catch (BufferOverflowException e) {
+                abort(out);
+                throw e;
+            }
+        }
+        
+        public int writeMember(ByteBuffer out, Member member) {
+            begin(out, MEMBER);
+            try {
+                double fines = member.getTotalFines();
+                long cents = Math.round(fines * 100);
+                boolean exactCents = cents / 100.0 == fines;
+                putVarint(out, (member.getPhone() != null ? HAS_PHONE : 0) | (exactCents ? FINES_IN_CENTS : 0));
+                putShared(out, member.getMemberId());
+                putString(out, member.getName());
+                putString(out, member.getEmail());
+                if (member.getPhone() != null) {
+                    putString(out, member.getPhone());
+                }
+                if (exactCents) {
+                    putVarLong(out, zigzag(cents));
+                } else {
+                    out.putDouble(fines);
+                }
+                BorrowedItemSet borrowed = member.getBorrowed();
+                putVarint(out, borrowed.size());
+                for (int i = 0; i < borrowed.size(); i++) {
+                    putShared(out, borrowed.get(i));
+                }
+                BorrowingHistory history = member.getHistory();
+                putVarint(out, history.getLimit() == Integer.MAX_VALUE ? 0 : history.getLimit());
+                putVarint(out, history.size());
+                long previousDay = 0;
+                for (int i = 0; i < history.size(); i++) {
+                    // Events are mostly days apart, so the day is stored as a delta next to the type
+                    long day = history.epochDayAt(i);
+                    putShared(out, history.itemIdAt(i));
+                    putVarLong(out, zigzag(day - previousDay) * EVENT_TYPES.length + history.typeAt(i).ordinal());
+                    previousDay = day;
+                }
+                return end(out);
+            } catch (BufferOverflowException e) {
+                abort(out);
+                throw e;
+            }
+        }
+        
+        public int getDictionarySize() { return entries.size(); }
+        
+        // Forgets the dictionary, for starting a new stream
+        public void reset() {
+            dictionary.clear();
+            entries.clear();
+        }
+        
+        private void begin(ByteBuffer out, byte kind) {
+            if (out.remaining() < 1 + LENGTH_BYTES) {
+                throw new BufferOverflowException();
+            }
+            recordStart = out.position();
+            dictionaryMark = entries.size();
+            out.put(kind);
+            out.position(out.position() + LENGTH_BYTES);
+        }
+        
+        private int end(ByteBuffer out) {
+            int bodyStart = recordStart + 1 + LENGTH_BYTES;
+            int length = out.position() - bodyStart;
+            if (length > MAX_BODY) {
+                abort(out);
+                throw new IllegalArgumentException("Record too large: " + length + " bytes");
+            }
+            putPaddedLength(out, recordStart + 1, length);
+            return out.position() - recordStart;
+        }
+        
+        private void abort(ByteBuffer out) {
+            out.position(recordStart);
+            while (entries.size() > dictionaryMark) {
+                dictionary.remove(entries.remove(entries.size() - 1));
+            }
+        }
+        
+        // A known string is its index times two; a new one is its length times two plus one, then its bytes
+        private void putShared(ByteBuffer out, String value) {
+            Integer index = dictionary.get(value);
+            if (index != null) {
+                putVarint(out, index << 1);
+                return;
+            }
+            putUtf8(out, value, 1);
+            dictionary.put(value, entries.size());
+            entries.add(value);
+        }
+    }
+    
+    /**
+     * Decodes the records of one stream in order, rebuilding the Writer's dictionary as it goes
+     */
+    public static final class Reader {
+        private final List<String> entries = new ArrayList<>();
+        private byte[] scratch = new byte[64];
+        private int version;
+        
+        // Returns the stream's schema version
+        public int readHeader(ByteBuffer in) throws IOException {
+            try {
+                if (in.getInt() != MAGIC) {
+                    throw new IOException("Not a library codec stream");
+                }
+                version = in.get();
+            } catch (BufferUnderflowException e) {
+                throw new EOFException("Truncated header");
+            }
+            if (version < 1) {
+                throw new IOException("Unsupported schema version: " + version);
+            }
+            return version;
+        }
+        
+        public int getVersion() { return version; }
+        
+        public Item readItem(ByteBuffer in) throws IOException {
+            try {
+                byte kind = in.get();
+                if (kind == MEMBER) {
+                    throw new IOException("Expected an item record, found a member");
+                }
+                int end = bodyEnd(in);
+                int flags = getVarint(in);
+                Book book = LibrarySnapshot.newBook(kind, getString(in), getString(in), getShared(in), getString(in));
+                if ((flags & HAS_GENRE) != 0) {
+                    book.setGenre(getShared(in));
+                }
+                book.setPages(unzigzag(getVarint(in)));
+                if ((flags & ON_LOAN) != 0) {
+                    String borrower = getShared(in);
+                    long borrowDay = unzigzag(getVarLong(in));
+                    book.borrowItem(borrower, LocalDate.ofEpochDay(borrowDay));
+                    if ((flags & FINED) != 0) {
+                        book.setFinedThroughDay(borrowDay + unzigzag(getVarLong(in)));
+                    }
+                } else {
+                    book.setAvailable((flags & AVAILABLE) != 0);
+                }
+                in.position(end); // skips fields added by later schema versions
+                return book;
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new EOFException("Truncated or corrupt item record");
+            }
+        }
+        
+        public Member readMember(ByteBuffer in) throws IOException {
+            try {
+                if (in.get() != MEMBER) {
+                    throw new IOException("Expected a member record, found an item");
+                }
+                int end = bodyEnd(in);
+                int flags = getVarint(in);
+                Member member = new Member(getShared(in), getString(in), getString(in));
+                if ((flags & HAS_PHONE) != 0) {
+                    member.setPhone(getString(in));
+                }
+                double fines = (flags & FINES_IN_CENTS) != 0 ? unzigzag(getVarLong(in)) / 100.0 : in.getDouble();
+                List<String> borrowed = new ArrayList<>();
+                for (int i = getVarint(in); i > 0; i--) {
+                    borrowed.add(getShared(in));
+                }
+                int limit = getVarint(in);
+                BorrowingHistory history = limit == 0 ? new BorrowingHistory() : new BorrowingHistory(limit);
+                long day = 0;
+                for (int i = getVarint(in); i > 0; i--) {
+                    String itemId = getShared(in);
+                    long packed = getVarLong(in);
+                    day += unzigzag(packed / EVENT_TYPES.length);
+                    history.record(itemId, EVENT_TYPES[(int) (packed % EVENT_TYPES.length)], LocalDate.ofEpochDay(day));
+                }
+                member.restoreState(borrowed, history, fines);
+                in.position(end);
+                return member;
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new EOFException("Truncated or corrupt member record");
+            }
+        }
+        
+        // Whether the next record is a member rather than an item
+        public static boolean nextIsMember(ByteBuffer in) {
+            return in.get(in.position()) == MEMBER;
+        }
+        
+        private int bodyEnd(ByteBuffer in) throws IOException {
+            int length = getVarint(in);
+            if (length > in.remaining()) {
+                throw new EOFException("Record body of " + length + " bytes runs past the buffer");
+            }
+            return in.position() + length;
+        }
+        
+        private String getString(ByteBuffer in) {
+            return getUtf8(in, getVarint(in));
+        }
+        
+        private String getShared(ByteBuffer in) {
+            int header = getVarint(in);
+            if ((header & 1) == 0) {
+                return entries.get(header >>> 1);
+            }
+            String value = getUtf8(in, header >>> 1);
+            entries.add(value);
+            return value;
+        }
+        
+        private String getUtf8(ByteBuffer in, int length) {
+            if (in.hasArray()) {
+                String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+                in.position(in.position() + length);
+                return value;
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            in.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+    
+    // Primitive encodings
+    static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+    
+    static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+    
+    static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+    
+    static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+    
+    // A varint stretched to LENGTH_BYTES with continuation bits, so it can be written after the body
+    static void putPaddedLength(ByteBuffer out, int at, int length) {
+        for (int i = 0; i < LENGTH_BYTES - 1; i++) {
+            out.put(at + i, (byte) ((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        out.put(at + LENGTH_BYTES - 1, (byte) length);
+    }
+    
+    // Maps small negative numbers to small varints
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+    
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    static void putString(ByteBuffer out, String value) {
+        putUtf8(out, value, 0);
+    }
+    
+    /**
+     * Writes varint(utf8Length * 2 + tag), then the UTF-8 bytes, without an intermediate byte array.
+     * An unpaired surrogate is written as '?', as String.getBytes(UTF_8) does.
+     */
+    private static void putUtf8(ByteBuffer out, String value, int tag) {
+        int length = value.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                utf8Length += 1;
+            } else if (isPairAt(value, i)) {
+                utf8Length += 2; // 4 bytes for the two chars
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                utf8Length += 2;
+            }
+        }
+        putVarint(out, tag == 0 ? utf8Length : (utf8Length << 1) | tag);
+        if (out.remaining() < utf8Length) {
+            throw new BufferOverflowException();
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (isPairAt(value, i)) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+    
+    private static boolean isPairAt(String value, int index) {
+        return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length()
+               && Character.isLowSurrogate(value.charAt(index + 1));
+    }
+}
@@ -46,7 +46,7 @@ public class LibraryDemo {
         System.out.println("\n8. Displaying Member Information:");
         // Get member and display their info
         System.out.println("Alice's borrowed items:");
-        var alice = library.members.get("M001");
+        var alice = library.findMemberById("M001");
         if (alice != null) {
             alice.displayBorrowedItems();
         }
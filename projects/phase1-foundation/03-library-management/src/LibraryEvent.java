@@ -0,0 +1,52 @@
+/**
+ * Outcome of one library operation, handed to an EventSink
+ * Carries the raw fields only; sinks decide whether and how to format them
+ */
+public final class LibraryEvent {
+    /**
+     * What happened
+     */
+    public enum Type {
+        ITEM_ADDED, DUPLICATE_ITEM, ITEM_REMOVED, ITEM_IN_USE, ITEM_NOT_FOUND,
+        MEMBER_REGISTERED, DUPLICATE_MEMBER, MEMBER_REMOVED, MEMBER_HAS_LOANS, MEMBER_NOT_FOUND,
+        MEMBER_CANNOT_BORROW, ITEM_BORROWED, ITEM_UNAVAILABLE, ITEM_NOT_BORROWABLE,
+        ITEM_RETURNED, RETURN_NOT_FOUND, NOT_BORROWER, FINE_ADDED, FINE_PAID, FINES_SWEPT,
+        HOLD_PLACED, HOLD_READY, HOLD_CANCELLED, BATCH_BORROWED, BATCH_RETURNED, BATCH_REJECTED
+    }
+    
+    private final Type type;
+    private final String itemId;
+    private final String memberId;
+    private final String name;
+    private final double amount;
+    
+    public LibraryEvent(Type type, String itemId, String memberId, String name, double amount) {
+        this.type = type;
+        this.itemId = itemId;
+        this.memberId = memberId;
+        this.name = name;
+        this.amount = amount;
+    }
+    
+    // Events about an item, named by its title
+    public static LibraryEvent item(Type type, Item item) {
+        return new LibraryEvent(type, item.getId(), null, item.getTitle(), 0.0);
+    }
+    
+    // Events about a member, named by the member's name
+    public static LibraryEvent member(Type type, Member member) {
+        return new LibraryEvent(type, null, member.getMemberId(), member.getName(), 0.0);
+    }
+    
+    public Type getType() { return type; }
+    public String getItemId() { return itemId; }
+    public String getMemberId() { return memberId; }
+    public String getName() { return name; }
+    public double getAmount() { return amount; }
+    
+    @Override
+    public String toString() {
+        return type + "[item=" + itemId + ", member=" + memberId + ", name=" + name
+               + (amount != 0.0 ? ", amount=" + amount : "") + "]";
+    }
+}
@@ -0,0 +1,422 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of Library mutations
+ * Records are buffered and written with one fsync per batch (group commit), or once the oldest
+ * buffered record has waited maxSyncDelayMillis; a crash can lose at most that unsynced tail,
+ * never corrupt earlier records. After a failed write the journal refuses further records.
+ */
+public class LibraryJournal implements Closeable {
+    // Record types
+    static final byte ADD_ITEM = 1;
+    static final byte REMOVE_ITEM = 2;
+    static final byte REGISTER_MEMBER = 3;
+    static final byte REMOVE_MEMBER = 4;
+    static final byte BORROW = 5;
+    static final byte RETURN = 6;
+    static final byte ADD_FINE = 7;
+    static final byte PAY_FINE = 8;
+    static final byte SWEEP = 9;
+    
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8; // body length + CRC32 of the body
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    static final long DEFAULT_MAX_SYNC_DELAY_MILLIS = 50;
+    
+    private final Path directory;
+    private final int batchSize;
+    private final long maxSyncDelayNanos;
+    private final Thread flusher;
+    private final ByteArrayOutputStream recordBytes;
+    private final DataOutputStream record;
+    private final CRC32 crc;
+    private Path segment;
+    private FileChannel channel;
+    private ByteBuffer pending;
+    private int pendingRecords;
+    private long nextSequence;
+    private long oldestPendingNanos; // when the first record of the unsynced batch was appended
+    private IOException failure; // set by the first failed write; the journal is unusable afterwards
+    private boolean closed;
+    
+    /**
+     * Opens a new journal segment whose first record gets the given sequence number
+     * @param batchSize number of records per fsync; 1 syncs every mutation
+     * @param maxSyncDelayMillis longest a record may wait for its batch to fill before a background sync
+     */
+    public LibraryJournal(Path directory, long nextSequence, int batchSize, long maxSyncDelayMillis)
+            throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        }
+        if (maxSyncDelayMillis < 1) {
+            throw new IllegalArgumentException("Sync delay must be at least 1 ms: " + maxSyncDelayMillis);
+        }
+        this.directory = directory;
+        this.batchSize = batchSize;
+        this.maxSyncDelayNanos = maxSyncDelayMillis * 1_000_000L;
+        this.nextSequence = nextSequence;
+        this.recordBytes = new ByteArrayOutputStream(256);
+        this.record = new DataOutputStream(recordBytes);
+        this.crc = new CRC32();
+        this.pending = ByteBuffer.allocate(64 * 1024);
+        Files.createDirectories(directory);
+        openSegment();
+        this.flusher = new Thread(this::flushLate, "library-journal-flusher");
+        this.flusher.setDaemon(true);
+        if (batchSize > 1) {
+            this.flusher.start(); // with batches of one every record is synced as it is appended
+        }
+    }
+    
+    public LibraryJournal(Path directory, long nextSequence, int batchSize) throws IOException {
+        this(directory, nextSequence, batchSize, DEFAULT_MAX_SYNC_DELAY_MILLIS);
+    }
+    
+    // Mutation records
+    public void logAddItem(Item item) {
+        append(ADD_ITEM, out -> LibrarySnapshot.writeItem(out, item));
+    }
+    
+    public void logRemoveItem(String itemId) {
+        append(REMOVE_ITEM, out -> out.writeUTF(itemId));
+    }
+    
+    public void logRegisterMember(Member member) {
+        append(REGISTER_MEMBER, out -> LibrarySnapshot.writeMember(out, member));
+    }
+    
+    public void logRemoveMember(String memberId) {
+        append(REMOVE_MEMBER, out -> out.writeUTF(memberId));
+    }
+    
+    public void logBorrow(String itemId, String memberId, LocalDate date) {
+        append(BORROW, out -> {
+            out.writeUTF(itemId);
+            out.writeUTF(memberId);
+            out.writeLong(date.toEpochDay());
+        });
+    }
+    
+    public void logReturn(String itemId, String memberId, LocalDate date) {
+        append(RETURN, out -> {
+            out.writeUTF(itemId);
+            out.writeUTF(memberId);
+            out.writeLong(date.toEpochDay());
+        });
+    }
+    
+    public void logAddFine(String memberId, double amount) {
+        append(ADD_FINE, out -> {
+            out.writeUTF(memberId);
+            out.writeDouble(amount);
+        });
+    }
+    
+    public void logPayFine(String memberId, double amount) {
+        append(PAY_FINE, out -> {
+            out.writeUTF(memberId);
+            out.writeDouble(amount);
+        });
+    }
+    
+    public void logSweep(LocalDate date) {
+        append(SWEEP, out -> out.writeLong(date.toEpochDay()));
+    }
+    
+    // Sequence of the last record handed to the journal
+    public synchronized long getLastSequence() {
+        return nextSequence - 1;
+    }
+    
+    public int getBatchSize() { return batchSize; }
+    public long getMaxSyncDelayMillis() { return maxSyncDelayNanos / 1_000_000L; }
+    
+    /**
+     * Writes and fsyncs any records still waiting for their batch to fill
+     */
+    public synchronized void sync() throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal failed earlier", failure);
+        }
+        if (pendingRecords == 0) {
+            return;
+        }
+        try {
+            pending.flip();
+            while (pending.hasRemaining()) {
+                channel.write(pending);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e; // part of the batch may be on disk; replay keeps whatever is intact
+            throw e;
+        }
+        pending.clear();
+        pendingRecords = 0;
+    }
+    
+    /**
+     * Syncs and starts a new segment, then deletes the segments that only hold
+     * records up to the given sequence (already covered by a snapshot)
+     */
+    public synchronized void rotate(long coveredSequence) throws IOException {
+        sync();
+        channel.close();
+        openSegment();
+        for (Path old : segments(directory)) {
+            if (firstSequenceOf(old) <= coveredSequence + 1 && !old.equals(segment)) {
+                Files.delete(old);
+            }
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                if (failure == null) {
+                    sync();
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+    
+    /**
+     * Replays every intact record after the given sequence into the library.
+     * Stops at the first torn or corrupt record, which can only be the unsynced tail.
+     * Records are logged only for changes that were applied, so a record naming an item or
+     * member the library does not have means the journal does not belong to this state
+     * (for example, loans on items of a mapped catalog); replay fails instead of dropping it.
+     * @return the sequence of the last record applied
+     * @throws IOException also for a record naming an unknown item or member
+     */
+    public static long replay(Path directory, long afterSequence, Library library) throws IOException {
+        long lastApplied = afterSequence;
+        for (Path segment : segments(directory)) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(segment), 1 << 16))) {
+                while (true) {
+                    byte[] body = readRecord(in);
+                    if (body == null) {
+                        break;
+                    }
+                    DataInputStream fields = new DataInputStream(new ByteArrayInputStream(body));
+                    long sequence = fields.readLong();
+                    byte type = fields.readByte();
+                    if (sequence > lastApplied) {
+                        apply(library, type, fields);
+                        lastApplied = sequence;
+                    }
+                }
+            }
+        }
+        return lastApplied;
+    }
+    
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+    
+    private synchronized void append(byte type, RecordWriter writer) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Journal failed earlier", failure);
+        }
+        try {
+            recordBytes.reset();
+            record.writeLong(nextSequence);
+            record.writeByte(type);
+            writer.write(record);
+            byte[] body = recordBytes.toByteArray();
+            crc.reset();
+            crc.update(body);
+            ensurePending(HEADER_BYTES + body.length);
+            pending.putInt(body.length);
+            pending.putInt((int) crc.getValue());
+            pending.put(body);
+            nextSequence++;
+            if (pendingRecords++ == 0) {
+                oldestPendingNanos = System.nanoTime();
+                notifyAll(); // starts the flusher's clock
+            }
+            if (pendingRecords >= batchSize) {
+                sync();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write journal record", e);
+        }
+    }
+    
+    // Background sync for batches that do not fill within the delay; a failure is kept for the next append
+    private synchronized void flushLate() {
+        while (!closed && failure == null) {
+            try {
+                if (pendingRecords == 0) {
+                    wait();
+                } else {
+                    long wait = oldestPendingNanos + maxSyncDelayNanos - System.nanoTime();
+                    if (wait > 0) {
+                        wait(wait / 1_000_000L, (int) (wait % 1_000_000L));
+                    } else {
+                        sync();
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                return; // sync recorded the failure
+            }
+        }
+    }
+    
+    private void ensurePending(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+    }
+    
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES) {
+                return null;
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            return (int) crc.getValue() == checksum ? body : null;
+        } catch (EOFException e) {
+            return null; // clean end of segment or a torn final record
+        }
+    }
+    
+    private static void apply(Library library, byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case ADD_ITEM:
+                library.insertItem(LibrarySnapshot.readItem(in));
+                break;
+            case REMOVE_ITEM:
+                library.deleteItem(itemFor(library, in.readUTF()));
+                break;
+            case REGISTER_MEMBER:
+                library.insertMember(LibrarySnapshot.readMember(in));
+                break;
+            case REMOVE_MEMBER:
+                library.deleteMember(memberFor(library, in.readUTF()));
+                break;
+            case BORROW:
+            case RETURN: {
+                Item item = itemFor(library, in.readUTF());
+                Member member = memberFor(library, in.readUTF());
+                LocalDate date = LocalDate.ofEpochDay(in.readLong());
+                if (type == BORROW) {
+                    library.applyBorrow(item, member, date);
+                } else {
+                    library.applyReturn(item, member, date);
+                }
+                break;
+            }
+            case ADD_FINE:
+            case PAY_FINE: {
+                Member member = memberFor(library, in.readUTF());
+                double amount = in.readDouble();
+                if (type == ADD_FINE) {
+                    library.applyFine(member, amount);
+                } else {
+                    library.applyPayment(member, amount);
+                }
+                break;
+            }
+            case SWEEP:
+                library.applySweep(in.readLong()); // deterministic, so replay charges the same fines
+                break;
+            default:
+                throw new IOException("Unknown journal record type: " + type);
+        }
+    }
+    
+    private static Item itemFor(Library library, String itemId) throws IOException {
+        Item item = library.findItemForUpdate(itemId);
+        if (item == null) {
+            throw new IOException("Journal names item " + itemId + ", which " + library.getLibraryName() + " does not hold");
+        }
+        return item;
+    }
+    
+    private static Member memberFor(Library library, String memberId) throws IOException {
+        Member member = library.findMemberById(memberId);
+        if (member == null) {
+            throw new IOException("Journal names member " + memberId + ", who is not registered in "
+                                  + library.getLibraryName());
+        }
+        return member;
+    }
+    
+    // A segment with the same name can only hold records that were never synced, so it is truncated
+    private void openSegment() throws IOException {
+        segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSequence, SEGMENT_SUFFIX));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.TRUNCATE_EXISTING);
+    }
+    
+    // Segments in sequence order
+    static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                              && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                 .sorted()
+                 .forEach(segments::add);
+        }
+        return segments;
+    }
+    
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,116 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Durable Library state: latest snapshot plus the journal written since
+ * On open, restores the newest snapshot and replays the journal tail;
+ * checkpoint() writes a new snapshot and drops the journal segments it covers
+ */
+public class LibraryPersistence implements Closeable {
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    
+    private final Path directory;
+    private final Library library;
+    private final LibraryJournal journal;
+    private final long recoveredSequence;
+    private final long replayedRecords;
+    
+    private LibraryPersistence(Path directory, Library library, LibraryJournal journal,
+                               long recoveredSequence, long replayedRecords) {
+        this.directory = directory;
+        this.library = library;
+        this.journal = journal;
+        this.recoveredSequence = recoveredSequence;
+        this.replayedRecords = replayedRecords;
+    }
+    
+    public static LibraryPersistence open(Path directory, String libraryName, int fsyncBatchSize)
+            throws IOException {
+        return open(directory, libraryName, fsyncBatchSize, LibraryJournal.DEFAULT_MAX_SYNC_DELAY_MILLIS);
+    }
+    
+    /**
+     * Recovers the library stored in the directory (or starts an empty one)
+     * and attaches a journal so every later mutation is logged
+     * @param fsyncBatchSize journal records per fsync
+     * @param maxSyncDelayMillis longest a logged mutation may stay unsynced
+     */
+    public static LibraryPersistence open(Path directory, String libraryName, int fsyncBatchSize,
+                                          long maxSyncDelayMillis) throws IOException {
+        Files.createDirectories(directory);
+        Library library;
+        long snapshotSequence = 0;
+        Path latest = latestSnapshot(directory);
+        if (latest != null) {
+            LibrarySnapshot snapshot = LibrarySnapshot.read(latest);
+            library = snapshot.getLibrary();
+            snapshotSequence = snapshot.getSequence();
+        } else {
+            library = new Library(libraryName);
+        }
+        long lastSequence = LibraryJournal.replay(directory, snapshotSequence, library);
+        LibraryJournal journal = new LibraryJournal(directory, lastSequence + 1, fsyncBatchSize, maxSyncDelayMillis);
+        library.setJournal(journal);
+        return new LibraryPersistence(directory, library, journal, lastSequence, lastSequence - snapshotSequence);
+    }
+    
+    public Library getLibrary() { return library; }
+    public LibraryJournal getJournal() { return journal; }
+    public long getRecoveredSequence() { return recoveredSequence; }
+    public long getReplayedRecords() { return replayedRecords; }
+    
+    /**
+     * Snapshots the current state, then removes older snapshots and the journal
+     * segments the new snapshot makes redundant. Also compacts the library, which
+     * invalidates page cursors handed out before
+     */
+    public void checkpoint() throws IOException {
+        journal.sync();
+        long sequence = journal.getLastSequence();
+        LibrarySnapshot.write(library, sequence, snapshotPath(sequence));
+        journal.rotate(sequence);
+        for (Path snapshot : snapshots(directory)) {
+            if (!snapshot.equals(snapshotPath(sequence))) {
+                Files.delete(snapshot);
+            }
+        }
+        library.compact();
+    }
+    
+    public void sync() throws IOException {
+        journal.sync();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        library.setJournal(null);
+        journal.close();
+    }
+    
+    private Path snapshotPath(long sequence) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+    }
+    
+    private static Path latestSnapshot(Path directory) throws IOException {
+        List<Path> snapshots = snapshots(directory);
+        return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+    }
+    
+    // Snapshots in sequence order; names are zero-padded so string order is numeric order
+    private static List<Path> snapshots(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(p -> p.getFileName().toString().startsWith(SNAPSHOT_PREFIX)
+                              && p.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                 .sorted()
+                 .forEach(snapshots::add);
+        }
+        return snapshots;
+    }
+}
@@ -0,0 +1,252 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Line-protocol front end for a ConcurrentLibrary, one task per connection
+ * Each request line gets exactly one response line:
+ *   BORROW itemId memberId  ->  OK | DENIED
+ *   RETURN itemId memberId  ->  OK | DENIED
+ *   SEARCH text             ->  RESULTS count id...  (title matches, first MAX_SEARCH_RESULTS ids)
+ *   STATS                   ->  STATS items=n available=n borrowed=n members=n
+ *   QUIT                    closes the connection; anything else gets ERROR and a reason
+ * Lines longer than MAX_LINE_LENGTH characters get ERROR; the rest of such a line is skipped unread
+ */
+public class LibraryServer implements AutoCloseable {
+    public static final int MAX_SEARCH_RESULTS = 20;
+    public static final int MAX_LINE_LENGTH = 4_096;
+    private static final int END_OF_STREAM = -1;
+    private static final int LINE_OK = 0;
+    private static final int LINE_TOO_LONG = 1;
+    private static final int ACCEPT_BACKLOG = 65_536;
+    
+    private final ConcurrentLibrary library;
+    private final ExecutorService connections;
+    private final Set<Socket> openSockets;
+    private final AtomicLong requestsServed;
+    private ServerSocket listener;
+    private Thread acceptor;
+    
+    // The server shuts the executor down when it is closed
+    public LibraryServer(ConcurrentLibrary library, ExecutorService connections) {
+        this.library = library;
+        this.connections = connections;
+        this.openSockets = ConcurrentHashMap.newKeySet();
+        this.requestsServed = new AtomicLong();
+    }
+    
+    /**
+     * A server that runs every connection on its own virtual thread. Without virtual threads
+     * (before Java 21) each connection gets a new platform thread instead.
+     */
+    public static LibraryServer withVirtualThreads(ConcurrentLibrary library) {
+        ExecutorService virtual = newVirtualThreadExecutor();
+        return new LibraryServer(library, virtual != null ? virtual : Executors.newCachedThreadPool());
+    }
+    
+    // A server limited to a fixed pool of platform threads; further connections wait for a free thread
+    public static LibraryServer withThreadPool(ConcurrentLibrary library, int threads) {
+        return new LibraryServer(library, Executors.newFixedThreadPool(threads));
+    }
+    
+    public static boolean virtualThreadsAvailable() {
+        ExecutorService probe = newVirtualThreadExecutor();
+        if (probe == null) {
+            return false;
+        }
+        probe.shutdown();
+        return true;
+    }
+    
+    // Looked up reflectively so the server still compiles and runs on Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+    
+    // Lifecycle
+    /**
+     * Starts accepting connections on the loopback interface
+     * @param port the port to listen on, or 0 for any free port
+     * @return the port actually bound
+     */
+    public synchronized int start(int port) throws IOException {
+        if (listener != null) {
+            throw new IllegalStateException("Server is already started");
+        }
+        if (connections.isShutdown()) {
+            throw new IllegalStateException("Server is closed");
+        }
+        listener = new ServerSocket(port, ACCEPT_BACKLOG, InetAddress.getLoopbackAddress());
+        acceptor = new Thread(this::acceptLoop, "library-server-acceptor");
+        acceptor.start();
+        return listener.getLocalPort();
+    }
+    
+    public synchronized int getPort() {
+        return listener != null ? listener.getLocalPort() : -1;
+    }
+    
+    public long getRequestsServed() { return requestsServed.get(); }
+    public int getOpenConnections() { return openSockets.size(); }
+    
+    // Also shuts the executor down when the server was never started
+    @Override
+    public void close() throws IOException {
+        boolean started;
+        synchronized (this) {
+            if (connections.isShutdown()) {
+                return;
+            }
+            started = listener != null;
+            if (started) {
+                listener.close();
+            }
+            connections.shutdownNow();
+        }
+        if (started) {
+            for (Socket socket : openSockets) {
+                socket.close();
+            }
+        }
+        try {
+            if (started) {
+                acceptor.join();
+            }
+            connections.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void acceptLoop() {
+        while (!listener.isClosed()) {
+            Socket socket;
+            try {
+                socket = listener.accept();
+            } catch (IOException e) {
+                return; // listener closed
+            }
+            openSockets.add(socket);
+            try {
+                connections.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                closeQuietly(socket); // shutting down
+            }
+        }
+    }
+    
+    private void serve(Socket socket) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            StringBuilder line = new StringBuilder();
+            for (int status = readLine(in, line); status != END_OF_STREAM; status = readLine(in, line)) {
+                if (status == LINE_OK && line.toString().trim().equalsIgnoreCase("QUIT")) {
+                    break;
+                }
+                out.write(status == LINE_OK ? handle(line.toString())
+                                            : "ERROR line longer than " + MAX_LINE_LENGTH + " characters");
+                out.write('\n');
+                out.flush();
+                requestsServed.incrementAndGet();
+            }
+        } catch (IOException e) {
+            // The client went away mid-request; nothing to answer
+        } finally {
+            openSockets.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+    
+    /**
+     * Reads one line, ended by \n, \r or \r\n as in BufferedReader.readLine, keeping at most
+     * MAX_LINE_LENGTH characters so a client cannot make the server buffer an endless line
+     */
+    private static int readLine(BufferedReader in, StringBuilder line) throws IOException {
+        line.setLength(0);
+        boolean tooLong = false;
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    in.mark(1);
+                    if (in.read() != '\n') {
+                        in.reset();
+                    }
+                }
+                return tooLong ? LINE_TOO_LONG : LINE_OK;
+            }
+            if (line.length() < MAX_LINE_LENGTH) {
+                line.append((char) c);
+            } else {
+                tooLong = true;
+            }
+        }
+        // A last line without a terminator still counts, as with readLine
+        return tooLong ? LINE_TOO_LONG : line.length() > 0 ? LINE_OK : END_OF_STREAM;
+    }
+    
+    // Protocol - one request line in, one response line out
+    String handle(String line) {
+        String[] parts = line.trim().split("\\s+", 2);
+        String command = parts[0].toUpperCase();
+        String arguments = parts.length > 1 ? parts[1] : "";
+        switch (command) {
+            case "BORROW":
+            case "RETURN": {
+                String[] ids = arguments.split("\\s+");
+                if (ids.length != 2 || ids[0].isEmpty()) {
+                    return "ERROR usage: " + command + " itemId memberId";
+                }
+                boolean done = command.equals("BORROW") ? library.borrowItem(ids[0], ids[1])
+                                                        : library.returnItem(ids[0], ids[1]);
+                return done ? "OK" : "DENIED";
+            }
+            case "SEARCH": {
+                if (arguments.isEmpty()) {
+                    return "ERROR usage: SEARCH text";
+                }
+                List<Item> found = library.searchByTitle(arguments);
+                StringBuilder response = new StringBuilder("RESULTS ").append(found.size());
+                for (int i = 0; i < found.size() && i < MAX_SEARCH_RESULTS; i++) {
+                    response.append(' ').append(found.get(i).getId());
+                }
+                return response.toString();
+            }
+            case "STATS": {
+                LibraryStatistics.Snapshot stats = library.getStatistics();
+                return "STATS items=" + stats.getTotalItems() + " available=" + stats.getAvailableItems()
+                       + " borrowed=" + stats.getBorrowedItems() + " members=" + stats.getRegisteredMembers();
+            }
+            default:
+                return "ERROR unknown command: " + parts[0];
+        }
+    }
+    
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+}
@@ -0,0 +1,218 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary snapshot of a whole Library
+ * Stores every item with its borrow state and every member with loans, history and fines,
+ * together with the journal sequence number the snapshot is consistent with
+ */
+public class LibrarySnapshot {
+    private static final int MAGIC = 0x4C494253; // "LIBS"
+    private static final int VERSION = 1; // bumped only when a release changes the format
+    
+    // Item kinds on disk
+    static final byte FICTION = 1;
+    static final byte NON_FICTION = 2;
+    static final byte REFERENCE = 3;
+    
+    private final Library library;
+    private final long sequence;
+    
+    private LibrarySnapshot(Library library, long sequence) {
+        this.library = library;
+        this.sequence = sequence;
+    }
+    
+    public Library getLibrary() { return library; }
+    public long getSequence() { return sequence; }
+    
+    /**
+     * Writes the snapshot to a temporary file, forces it to disk and then
+     * renames it into place, so a crash never leaves a half-written snapshot.
+     * A library with an attached mapped catalog is refused: writing the catalog out as heap
+     * items would make the restored library collide with the catalog when it is attached again
+     */
+    public static void write(Library library, long sequence, Path file) throws IOException {
+        if (library.hasAttachedCatalog()) {
+            throw new IllegalStateException("Cannot snapshot " + library.getLibraryName() + " with a mapped catalog attached");
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sequence);
+            out.writeUTF(library.getLibraryName());
+            
+            List<Item> items = new ArrayList<>();
+            for (Item item : library.allItems()) {
+                items.add(item);
+            }
+            out.writeInt(items.size());
+            for (Item item : items) {
+                writeItem(out, item);
+                Book book = (Book) item;
+                out.writeBoolean(item.isAvailable());
+                writeNullable(out, book.getBorrowedBy());
+                out.writeLong(book.getBorrowEpochDay());
+                out.writeLong(book.getFinedThroughDay());
+            }
+            
+            out.writeInt(library.allMembers().size());
+            for (Member member : library.allMembers()) {
+                writeMember(out, member);
+            }
+            out.flush();
+            fileOut.getChannel().force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    public static LibrarySnapshot read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a library snapshot: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + file);
+            }
+            long sequence = in.readLong();
+            Library library = new Library(in.readUTF());
+            
+            int itemCount = in.readInt();
+            for (int i = 0; i < itemCount; i++) {
+                Item item = readItem(in);
+                boolean available = in.readBoolean();
+                String borrowedBy = readNullable(in);
+                long borrowDay = in.readLong();
+                long finedThroughDay = in.readLong();
+                if (borrowedBy != null && borrowDay != Book.NO_DAY) {
+                    Book book = (Book) item;
+                    book.borrowItem(borrowedBy, LocalDate.ofEpochDay(borrowDay));
+                    book.setFinedThroughDay(finedThroughDay);
+                } else {
+                    item.setAvailable(available);
+                }
+                library.insertItem(item);
+            }
+            
+            int memberCount = in.readInt();
+            for (int i = 0; i < memberCount; i++) {
+                library.insertMember(readMember(in));
+            }
+            return new LibrarySnapshot(library, sequence);
+        }
+    }
+    
+    // Record encoding shared with LibraryJournal
+    static void writeItem(DataOutput out, Item item) throws IOException {
+        if (!(item instanceof Book)) {
+            throw new IllegalArgumentException("Unsupported item type: " + item.getClass().getSimpleName());
+        }
+        Book book = (Book) item;
+        out.writeByte(kindOf(book));
+        out.writeUTF(book.getId());
+        out.writeUTF(book.getTitle());
+        out.writeUTF(book.getAuthor());
+        out.writeUTF(book.getIsbn());
+        writeNullable(out, book.getGenre());
+        out.writeInt(book.getPages());
+    }
+    
+    static Item readItem(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        String id = in.readUTF();
+        String title = in.readUTF();
+        String author = in.readUTF();
+        String isbn = in.readUTF();
+        Book book = newBook(kind, id, title, author, isbn);
+        book.setGenre(readNullable(in));
+        book.setPages(in.readInt());
+        return book;
+    }
+    
+    static void writeMember(DataOutput out, Member member) throws IOException {
+        out.writeUTF(member.getMemberId());
+        out.writeUTF(member.getName());
+        out.writeUTF(member.getEmail());
+        writeNullable(out, member.getPhone());
+        out.writeDouble(member.getTotalFines());
+        BorrowedItemSet borrowed = member.getBorrowed();
+        out.writeInt(borrowed.size());
+        for (int i = 0; i < borrowed.size(); i++) {
+            out.writeUTF(borrowed.get(i));
+        }
+        BorrowingHistory history = member.getHistory();
+        out.writeInt(history.getLimit());
+        out.writeInt(history.size());
+        for (int i = 0; i < history.size(); i++) {
+            out.writeUTF(history.itemIdAt(i));
+            out.writeByte(history.typeAt(i).ordinal());
+            out.writeInt((int) history.epochDayAt(i));
+        }
+    }
+    
+    static Member readMember(DataInput in) throws IOException {
+        Member member = new Member(in.readUTF(), in.readUTF(), in.readUTF());
+        member.setPhone(readNullable(in));
+        double fines = in.readDouble();
+        List<String> borrowed = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            borrowed.add(in.readUTF());
+        }
+        BorrowingHistory history = new BorrowingHistory(in.readInt());
+        BorrowingHistory.EventType[] types = BorrowingHistory.EventType.values();
+        for (int i = in.readInt(); i > 0; i--) {
+            String itemId = in.readUTF();
+            BorrowingHistory.EventType type = types[in.readByte()];
+            history.record(itemId, type, LocalDate.ofEpochDay(in.readInt()));
+        }
+        member.restoreState(borrowed, history, fines);
+        return member;
+    }
+    
+    static byte kindOf(Book book) {
+        if (book instanceof Fiction) {
+            return FICTION;
+        } else if (book instanceof NonFiction) {
+            return NON_FICTION;
+        } else if (book instanceof Reference) {
+            return REFERENCE;
+        }
+        throw new IllegalArgumentException("Unsupported book type: " + book.getClass().getSimpleName());
+    }
+    
+    static Book newBook(byte kind, String id, String title, String author, String isbn) throws IOException {
+        switch (kind) {
+            case FICTION: return new Fiction(id, title, author, isbn);
+            case NON_FICTION: return new NonFiction(id, title, author, isbn);
+            case REFERENCE: return new Reference(id, title, author, isbn);
+            default: throw new IOException("Unknown item kind: " + kind);
+        }
+    }
+    
+    private static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+    
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
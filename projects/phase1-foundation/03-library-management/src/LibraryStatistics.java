@@ -0,0 +1,105 @@
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running item and member counters, updated as the catalog changes
+ * Uses LongAdder so concurrent checkouts do not contend on a shared counter,
+ * and makes statistics reads O(1) regardless of catalog size
+ */
+public class LibraryStatistics {
+    private final LongAdder totalItems = new LongAdder();
+    private final LongAdder availableItems = new LongAdder();
+    private final LongAdder borrowedItems = new LongAdder();
+    private final LongAdder members = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> itemsByType = new ConcurrentHashMap<>();
+    
+    // Catalog changes
+    public void itemAdded(Item item) {
+        totalItems.increment();
+        (item.isAvailable() ? availableItems : borrowedItems).increment();
+        itemsByType.computeIfAbsent(typeOf(item), t -> new LongAdder()).increment();
+    }
+    
+    // Counts a whole batch of available items of one type at once
+    public void itemsAdded(String type, long count) {
+        totalItems.add(count);
+        availableItems.add(count);
+        itemsByType.computeIfAbsent(type, t -> new LongAdder()).add(count);
+    }
+    
+    public void itemRemoved(Item item) {
+        totalItems.decrement();
+        (item.isAvailable() ? availableItems : borrowedItems).decrement();
+        LongAdder byType = itemsByType.get(typeOf(item));
+        if (byType != null) {
+            byType.decrement();
+        }
+    }
+    
+    public void availabilityChanged(boolean available) {
+        if (available) {
+            availableItems.increment();
+            borrowedItems.decrement();
+        } else {
+            availableItems.decrement();
+            borrowedItems.increment();
+        }
+    }
+    
+    public void memberRegistered() { members.increment(); }
+    public void memberRemoved() { members.decrement(); }
+    
+    /**
+     * Point-in-time copy of the counters. Each counter is read once, so under
+     * concurrent checkouts the values may be a few operations apart from each other.
+     */
+    public Snapshot snapshot() {
+        Map<String, Long> byType = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : itemsByType.entrySet()) {
+            long count = entry.getValue().sum();
+            if (count > 0) {
+                byType.put(entry.getKey(), count);
+            }
+        }
+        return new Snapshot(totalItems.sum(), availableItems.sum(), borrowedItems.sum(), members.sum(), byType);
+    }
+    
+    // Fiction, NonFiction and Reference all report "Book" from getItemType(), so count by class
+    private static String typeOf(Item item) {
+        return item.getClass().getSimpleName();
+    }
+    
+    /**
+     * Immutable view of the library counters
+     */
+    public static class Snapshot {
+        private final long totalItems;
+        private final long availableItems;
+        private final long borrowedItems;
+        private final long registeredMembers;
+        private final Map<String, Long> itemsByType;
+        
+        public Snapshot(long totalItems, long availableItems, long borrowedItems,
+                        long registeredMembers, Map<String, Long> itemsByType) {
+            this.totalItems = totalItems;
+            this.availableItems = availableItems;
+            this.borrowedItems = borrowedItems;
+            this.registeredMembers = registeredMembers;
+            this.itemsByType = Collections.unmodifiableMap(itemsByType);
+        }
+        
+        public long getTotalItems() { return totalItems; }
+        public long getAvailableItems() { return availableItems; }
+        public long getBorrowedItems() { return borrowedItems; }
+        public long getRegisteredMembers() { return registeredMembers; }
+        public Map<String, Long> getItemsByType() { return itemsByType; }
+        
+        public long getItemCount(String type) {
+            return itemsByType.getOrDefault(type, 0L);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Flow;
+
+/**
+ * Popularity, circulation and member activity reports, updated incrementally from loan events
+ * Loans are counted per title and returns and loans per member, all time, per genre and for each
+ * of the last retained days. Every tally is a count-min sketch for point estimates plus a
+ * Space-Saving summary for the top entries, so memory stays fixed however many events arrive.
+ * Subscribe it to a Library's ChangeFeed, or feed it directly through recordLoan and recordReturn.
+ */
+public class LoanAnalytics implements Flow.Subscriber<LibraryChange> {
+    public static final String UNCLASSIFIED = "Unclassified";
+    public static final String OTHER_GENRES = "Other";
+    static final int MAX_GENRES = 64; // genres beyond this share the OTHER_GENRES tallies
+    
+    /**
+     * Approximate counts for one group of events: a sketch for any key, heavy hitters for the top
+     */
+    private static final class Tally {
+        final CountMinSketch sketch;
+        final SpaceSaving top;
+        
+        Tally(double epsilon, double delta) {
+            this.sketch = CountMinSketch.withError(epsilon, delta);
+            this.top = new SpaceSaving((int) Math.ceil(1 / epsilon));
+        }
+        
+        void add(String key) {
+            sketch.add(key);
+            top.add(key);
+        }
+        
+        // Heavy hitters with each count capped by the sketch, which also never undercounts
+        List<SpaceSaving.Entry> top(int n) {
+            List<SpaceSaving.Entry> ranked = new ArrayList<>();
+            for (SpaceSaving.Entry entry : top.top(2 * n)) {
+                long count = Math.min(entry.getCount(), sketch.estimate(entry.getKey()));
+                long guaranteed = entry.getGuaranteedCount();
+                ranked.add(new SpaceSaving.Entry(entry.getKey(), count, count - guaranteed));
+            }
+            ranked.sort((a, b) -> a.getCount() != b.getCount() ? Long.compare(b.getCount(), a.getCount())
+                                                               : a.getKey().compareTo(b.getKey()));
+            return ranked.size() > n ? new ArrayList<>(ranked.subList(0, n)) : ranked;
+        }
+        
+        void clear() {
+            sketch.clear();
+            top.clear();
+        }
+        
+        long memoryBytes() {
+            return sketch.getMemoryBytes() + top.getMemoryBytes();
+        }
+    }
+    
+    private static final class GenreStats {
+        final Tally titles;
+        long loans;
+        
+        GenreStats(double epsilon, double delta) {
+            this.titles = new Tally(epsilon, delta);
+        }
+    }
+    
+    private static final class DayStats {
+        final Tally titles;
+        final Tally members;
+        final Map<String, long[]> genreLoans = new HashMap<>();
+        long epochDay;
+        long loans;
+        long returns;
+        
+        DayStats(long epochDay, double epsilon, double delta) {
+            this.titles = new Tally(epsilon, delta);
+            this.members = new Tally(epsilon, delta);
+            this.epochDay = epochDay;
+        }
+        
+        void reset(long epochDay) {
+            titles.clear();
+            members.clear();
+            genreLoans.clear();
+            this.epochDay = epochDay;
+            loans = 0;
+            returns = 0;
+        }
+    }
+    
+    private final double epsilon;
+    private final double delta;
+    private final int retainedDays;
+    private final Tally titles;
+    private final Tally members;
+    private final Map<String, GenreStats> genres;
+    private final DayStats[] days; // a ring indexed by epoch day
+    private long loans;
+    private long returns;
+    
+    public LoanAnalytics() {
+        this(0.001, 0.01, 30);
+    }
+    
+    /**
+     * @param epsilon overcount allowed in any reported count, as a fraction of the events it covers
+     * @param delta probability that a point estimate exceeds that allowance
+     * @param retainedDays most recent days that keep daily reports
+     */
+    public LoanAnalytics(double epsilon, double delta, int retainedDays) {
+        if (retainedDays < 1) {
+            throw new IllegalArgumentException("Must retain at least one day: " + retainedDays);
+        }
+        this.epsilon = epsilon;
+        this.delta = delta;
+        this.retainedDays = retainedDays;
+        this.titles = new Tally(epsilon, delta);
+        this.members = new Tally(epsilon, delta);
+        this.genres = new HashMap<>();
+        this.days = new DayStats[retainedDays];
+    }
+    
+    public double getEpsilon() { return epsilon; }
+    public double getDelta() { return delta; }
+    public int getRetainedDays() { return retainedDays; }
+    public synchronized long getLoanCount() { return loans; }
+    public synchronized long getReturnCount() { return returns; }
+    
+    // Recording
+    public synchronized void recordLoan(String title, String genre, String memberId, long epochDay) {
+        loans++;
+        titles.add(title);
+        members.add(memberId);
+        GenreStats byGenre = genre(genre);
+        byGenre.loans++;
+        byGenre.titles.add(title);
+        DayStats day = day(epochDay);
+        if (day != null) {
+            day.loans++;
+            day.titles.add(title);
+            day.members.add(memberId);
+            day.genreLoans.computeIfAbsent(genreKey(genre), key -> new long[1])[0]++;
+        }
+    }
+    
+    public synchronized void recordReturn(String memberId, long epochDay) {
+        returns++;
+        members.add(memberId);
+        DayStats day = day(epochDay);
+        if (day != null) {
+            day.returns++;
+            day.members.add(memberId);
+        }
+    }
+    
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+    
+    @Override
+    public void onNext(LibraryChange change) {
+        if (change.getKind() == LibraryChange.Kind.BORROWED) {
+            recordLoan(change.getName(), change.getGenre(), change.getMemberId(), change.getDate().toEpochDay());
+        } else if (change.getKind() == LibraryChange.Kind.RETURNED) {
+            recordReturn(change.getMemberId(), change.getDate().toEpochDay());
+        }
+    }
+    
+    @Override
+    public void onError(Throwable error) {
+        // The counts so far stay available
+    }
+    
+    @Override
+    public void onComplete() {}
+    
+    // Reports - each costs the same however many events have been recorded
+    // Most borrowed titles of all time; counts may overstate by getCount() - getGuaranteedCount()
+    public synchronized List<SpaceSaving.Entry> topTitles(int n) {
+        return titles.top(n);
+    }
+    
+    // Most borrowed titles on one of the retained days, or none for older days
+    public synchronized List<SpaceSaving.Entry> topTitles(LocalDate date, int n) {
+        DayStats day = retained(date);
+        return day != null ? day.titles.top(n) : Collections.emptyList();
+    }
+    
+    public synchronized List<SpaceSaving.Entry> topTitlesInGenre(String genre, int n) {
+        GenreStats byGenre = genres.get(genreKey(genre));
+        return byGenre != null ? byGenre.titles.top(n) : Collections.emptyList();
+    }
+    
+    // Members with the most loans and returns
+    public synchronized List<SpaceSaving.Entry> mostActiveMembers(int n) {
+        return members.top(n);
+    }
+    
+    public synchronized List<SpaceSaving.Entry> mostActiveMembers(LocalDate date, int n) {
+        DayStats day = retained(date);
+        return day != null ? day.members.top(n) : Collections.emptyList();
+    }
+    
+    // Loans per genre, exact
+    public synchronized Map<String, Long> circulationByGenre() {
+        Map<String, Long> circulation = new TreeMap<>();
+        genres.forEach((genre, stats) -> circulation.put(genre, stats.loans));
+        return circulation;
+    }
+    
+    public synchronized Map<String, Long> circulationByGenre(LocalDate date) {
+        Map<String, Long> circulation = new TreeMap<>();
+        DayStats day = retained(date);
+        if (day != null) {
+            day.genreLoans.forEach((genre, count) -> circulation.put(genre, count[0]));
+        }
+        return circulation;
+    }
+    
+    public synchronized long getLoanCount(LocalDate date) {
+        DayStats day = retained(date);
+        return day != null ? day.loans : 0;
+    }
+    
+    // Point estimates; never below the true count
+    public synchronized long estimateLoans(String title) {
+        return titles.sketch.estimate(title);
+    }
+    
+    public synchronized long estimateLoans(String title, LocalDate date) {
+        DayStats day = retained(date);
+        return day != null ? day.titles.sketch.estimate(title) : 0;
+    }
+    
+    public synchronized long estimateActivity(String memberId) {
+        return members.sketch.estimate(memberId);
+    }
+    
+    // Fixed-size tables plus the small genre maps
+    public synchronized long getMemoryBytes() {
+        long bytes = titles.memoryBytes() + members.memoryBytes();
+        for (GenreStats stats : genres.values()) {
+            bytes += stats.titles.memoryBytes();
+        }
+        for (DayStats day : days) {
+            if (day != null) {
+                bytes += day.titles.memoryBytes() + day.members.memoryBytes() + 64L * day.genreLoans.size();
+            }
+        }
+        return bytes;
+    }
+    
+    private GenreStats genre(String genre) {
+        return genres.computeIfAbsent(genreKey(genre), key -> new GenreStats(epsilon, delta));
+    }
+    
+    private String genreKey(String genre) {
+        if (genre == null) {
+            return UNCLASSIFIED;
+        }
+        return genres.containsKey(genre) || genres.size() < MAX_GENRES ? genre : OTHER_GENRES;
+    }
+    
+    // The day's stats, recycling the ring slot of a day that has aged out; null if the day itself has
+    private DayStats day(long epochDay) {
+        int slot = (int) Math.floorMod(epochDay, (long) retainedDays);
+        DayStats day = days[slot];
+        if (day == null) {
+            day = new DayStats(epochDay, epsilon, delta);
+            days[slot] = day;
+        } else if (day.epochDay < epochDay) {
+            day.reset(epochDay);
+        } else if (day.epochDay > epochDay) {
+            return null;
+        }
+        return day;
+    }
+    
+    private DayStats retained(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        DayStats day = days[(int) Math.floorMod(epochDay, (long) retainedDays)];
+        return day != null && day.epochDay == epochDay ? day : null;
+    }
+}
@@ -0,0 +1,285 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Benchmark for LoanAnalytics
+ * Streams synthetic loans and returns with Zipf-distributed titles and members over 60 days,
+ * keeps exact counts alongside, and checks the sketch and heavy-hitter bounds for all-time, daily
+ * and per-genre reports, that memory stops growing once the day ring is full, and report latency.
+ * Pass the event count as the first argument (default 100M).
+ */
+public class LoanAnalyticsBenchmark {
+    private static final long DEFAULT_EVENTS = 100_000_000L;
+    private static final int TITLES = 1_000_000;
+    private static final int MEMBERS = 200_000;
+    private static final int GENRES = 20;
+    private static final int DAYS = 60;
+    private static final int RETAINED_DAYS = 30;
+    private static final double EPSILON = 0.001;
+    private static final double DELTA = 0.01;
+    private static final int TOP = 10;
+    private static final long FIRST_DAY = LocalDate.of(2026, 1, 1).toEpochDay();
+    
+    public static void main(String[] args) {
+        long events = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_EVENTS;
+        System.out.println("=== Loan Analytics Benchmark ===\n");
+        
+        System.out.println("1. Change feed integration:");
+        checkChangeFeed();
+        checkHashCollisions();
+        
+        System.out.printf("%n2. %,d events over %d days (%,d titles, %,d members, epsilon %.3f, delta %.2f):%n",
+                          events, DAYS, TITLES, MEMBERS, EPSILON, DELTA);
+        String[] titles = new String[TITLES];
+        String[] genres = new String[TITLES];
+        for (int i = 0; i < TITLES; i++) {
+            titles[i] = "Title " + i;
+            genres[i] = i % GENRES == 0 ? null : "Genre " + (i % GENRES);
+        }
+        String[] members = new String[MEMBERS];
+        for (int i = 0; i < MEMBERS; i++) {
+            members[i] = "M" + i;
+        }
+        double[] titleCdf = zipf(TITLES, 1.05);
+        double[] memberCdf = zipf(MEMBERS, 0.8);
+        int[] exactTitles = new int[TITLES];
+        int[] exactMembers = new int[MEMBERS];
+        int[] lastDayTitles = new int[TITLES];
+        int[] lastDayMembers = new int[MEMBERS];
+        long[] exactGenres = new long[GENRES];
+        long lastDay = FIRST_DAY + DAYS - 1;
+        
+        long baseline = BenchmarkSupport.usedHeapBytes();
+        LoanAnalytics analytics = new LoanAnalytics(EPSILON, DELTA, RETAINED_DAYS);
+        Random random = new Random(139);
+        long halfwayHeap = 0;
+        long recording = 0;
+        for (long i = 0; i < events; i++) {
+            if (i == events / 2) {
+                long pause = System.nanoTime();
+                halfwayHeap = BenchmarkSupport.usedHeapBytes() - baseline;
+                recording -= System.nanoTime() - pause;
+            }
+            long day = FIRST_DAY + i * DAYS / events;
+            int member = sample(memberCdf, random);
+            long start = System.nanoTime();
+            if (random.nextInt(10) < 7) {
+                int title = sample(titleCdf, random);
+                start = System.nanoTime();
+                analytics.recordLoan(titles[title], genres[title], members[member], day);
+                recording += System.nanoTime() - start;
+                exactTitles[title]++;
+                exactGenres[title % GENRES]++;
+                if (day == lastDay) {
+                    lastDayTitles[title]++;
+                }
+            } else {
+                analytics.recordReturn(members[member], day);
+                recording += System.nanoTime() - start;
+            }
+            exactMembers[member]++;
+            if (day == lastDay) {
+                lastDayMembers[member]++;
+            }
+        }
+        long finalHeap = BenchmarkSupport.usedHeapBytes() - baseline;
+        System.out.printf("Recorded %,d loans and %,d returns at %s%n", analytics.getLoanCount(),
+                          analytics.getReturnCount(),
+                          BenchmarkSupport.formatRate(BenchmarkSupport.perSecond(events, recording)));
+        
+        System.out.println("\n3. Accuracy:");
+        LocalDate last = LocalDate.ofEpochDay(lastDay);
+        checkTally("All-time titles", analytics.topTitles(TOP), analytics.topTitles(Integer.MAX_VALUE / 2),
+                   analytics::estimateLoans, titles, exactTitles);
+        checkTally("All-time members", analytics.mostActiveMembers(TOP),
+                   analytics.mostActiveMembers(Integer.MAX_VALUE / 2), analytics::estimateActivity,
+                   members, exactMembers);
+        checkTally("Titles on " + last, analytics.topTitles(last, TOP), analytics.topTitles(last, Integer.MAX_VALUE / 2),
+                   title -> analytics.estimateLoans(title, last), titles, lastDayTitles);
+        checkTally("Members on " + last, analytics.mostActiveMembers(last, TOP),
+                   analytics.mostActiveMembers(last, Integer.MAX_VALUE / 2), null, members, lastDayMembers);
+        checkGenres(analytics, titles, genres, exactTitles, exactGenres);
+        LocalDate expired = LocalDate.ofEpochDay(lastDay - RETAINED_DAYS);
+        check(analytics.topTitles(expired, TOP).isEmpty() && analytics.getLoanCount(expired) == 0,
+              "day " + expired + " should have aged out");
+        check(analytics.getLoanCount(LocalDate.ofEpochDay(lastDay - RETAINED_DAYS + 1)) > 0, "oldest retained day");
+        System.out.printf("Only the last %d days keep daily reports - OK%n", RETAINED_DAYS);
+        
+        System.out.println("\n4. Memory and report latency:");
+        System.out.printf("Heap used by the analytics: %s halfway, %s at the end (estimate %s)%n",
+                          BenchmarkSupport.formatBytes(halfwayHeap), BenchmarkSupport.formatBytes(finalHeap),
+                          BenchmarkSupport.formatBytes(analytics.getMemoryBytes()));
+        if (events >= 2L * DAYS) {
+            check(finalHeap - halfwayHeap < 4L << 20, "memory kept growing after the day ring filled");
+            System.out.println("No growth once every retained day is allocated - OK");
+        }
+        int queries = 2_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            BenchmarkSupport.consume(analytics.topTitles(TOP));
+            BenchmarkSupport.consume(analytics.topTitles(last, TOP));
+            BenchmarkSupport.consume(analytics.mostActiveMembers(TOP));
+            BenchmarkSupport.consume(analytics.circulationByGenre());
+        }
+        System.out.printf("Top titles, daily top titles, top members and genre circulation: %.1f us per report%n",
+                          (System.nanoTime() - start) / (4_000.0 * queries));
+        System.out.println("Top " + TOP + " titles of all time: " + analytics.topTitles(TOP));
+        
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    /**
+     * Checks one tally against exact counts: every reported count brackets the truth, every key
+     * above the Space-Saving threshold is reported, the reported top n matches the exact top n,
+     * and sketch estimates never undercount and overshoot epsilon * total for at most delta of keys
+     */
+    private static void checkTally(String label, List<SpaceSaving.Entry> top, List<SpaceSaving.Entry> tracked,
+                                   ToLongFunction<String> estimate, String[] keys, int[] exact) {
+        long total = 0;
+        for (int count : exact) {
+            total += count;
+        }
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            index.put(keys[i], i);
+        }
+        Set<String> reported = new HashSet<>();
+        for (SpaceSaving.Entry entry : tracked) {
+            int truth = exact[index.get(entry.getKey())];
+            check(entry.getGuaranteedCount() <= truth && truth <= entry.getCount(),
+                  label + ": " + entry + " but the true count is " + truth);
+            reported.add(entry.getKey());
+        }
+        long threshold = (long) Math.ceil(total * EPSILON);
+        int matched = 0;
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = i;
+            check(exact[i] <= threshold || reported.contains(keys[i]), label + ": heavy hitter " + keys[i] + " missed");
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(exact[b], exact[a]));
+        Set<String> reportedTop = new HashSet<>();
+        top.forEach(entry -> reportedTop.add(entry.getKey()));
+        for (int i = 0; i < TOP; i++) {
+            if (reportedTop.contains(keys[order[i]])) {
+                matched++;
+            }
+        }
+        check(matched == TOP, label + ": top " + TOP + " matched only " + matched);
+        String sketchNote = "";
+        if (estimate != null) {
+            long worst = 0;
+            int beyondBound = 0;
+            for (int i = 0; i < keys.length; i++) {
+                long error = estimate.applyAsLong(keys[i]) - exact[i];
+                check(error >= 0, label + ": sketch undercounts " + keys[i]);
+                worst = Math.max(worst, error);
+                if (error > EPSILON * total) {
+                    beyondBound++;
+                }
+            }
+            check(beyondBound <= DELTA * keys.length, label + ": " + beyondBound + " estimates beyond the bound");
+            sketchNote = String.format(", sketch overcount above %,.0f for %,d keys (max %,d)", EPSILON * total,
+                                       beyondBound, worst);
+        }
+        System.out.printf("%-24s %,12d events, top %d exact, %,d tracked%s - OK%n", label, total, TOP,
+                          tracked.size(), sketchNote);
+    }
+    
+    private static void checkGenres(LoanAnalytics analytics, String[] titles, String[] genres, int[] exactTitles,
+                                    long[] exactGenres) {
+        Map<String, Long> circulation = analytics.circulationByGenre();
+        check(circulation.size() == GENRES, "genre count " + circulation.size());
+        for (int genre = 0; genre < GENRES; genre++) {
+            String name = genre == 0 ? LoanAnalytics.UNCLASSIFIED : "Genre " + genre;
+            check(circulation.get(name) == exactGenres[genre], "circulation of " + name);
+        }
+        // Titles of genre 7 are the ones whose index ends in 7 modulo GENRES
+        int[] genreTitles = new int[TITLES];
+        for (int i = 7; i < TITLES; i += GENRES) {
+            genreTitles[i] = exactTitles[i];
+        }
+        checkTally("Titles in Genre 7", analytics.topTitlesInGenre("Genre 7", TOP),
+                   analytics.topTitlesInGenre("Genre 7", Integer.MAX_VALUE / 2), null, titles, genreTitles);
+        System.out.println("Circulation per genre is exact - OK");
+    }
+    
+    // The feed delivers BORROWED and RETURNED changes with the item's title and genre
+    // Keys with equal String.hashCode must not share counters; only delta of them may overcount that much
+    private static void checkHashCollisions() {
+        CountMinSketch sketch = CountMinSketch.withError(EPSILON, DELTA);
+        int collisions = 0;
+        for (int i = 0; i < 1_000; i++) {
+            String heavy = "Aa" + i;
+            String twin = "BB" + i; // same hashCode as heavy
+            sketch.add(heavy, 1_000);
+            if (sketch.estimate(twin) >= 1_000) {
+                collisions++;
+            }
+        }
+        check(collisions <= 1_000 * DELTA, collisions + " keys shared every counter with their hashCode twin");
+        System.out.println("Keys with equal String.hashCode keep separate estimates - OK");
+    }
+    
+    private static void checkChangeFeed() {
+        Library library = new Library("Analytics");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        Item[] items = BenchmarkSupport.syntheticItems(100, 149);
+        for (Item item : items) {
+            ((Book) item).setGenre(item instanceof Fiction ? "Fiction" : null);
+            library.addItem(item);
+        }
+        library.registerMember(new Member("AM1", "Reader", "reader@example.com"));
+        ChangeFeed feed = new ChangeFeed(Runnable::run, 256); // delivers on the caller's thread
+        LoanAnalytics analytics = new LoanAnalytics();
+        feed.subscribe(analytics);
+        library.setChangeFeed(feed);
+        int fiction = 0;
+        int loans = 0;
+        for (Item item : items) {
+            if (library.borrowItem(item.getId(), "AM1")) {
+                loans++;
+                fiction += item instanceof Fiction ? 1 : 0;
+                library.returnItem(item.getId(), "AM1");
+            }
+        }
+        feed.close();
+        check(analytics.getLoanCount() == loans && analytics.getReturnCount() == loans, "loans seen through the feed");
+        check(analytics.circulationByGenre().getOrDefault("Fiction", 0L) == fiction, "fiction circulation");
+        check(analytics.mostActiveMembers(1).get(0).getCount() == 2L * loans, "member activity");
+        check(analytics.getLoanCount(LocalDate.now()) == loans, "today's loans");
+        System.out.printf("%d loans and returns reached the analytics through the change feed - OK%n", loans);
+    }
+    
+    // Cumulative distribution of a Zipf law over n ranks
+    private static double[] zipf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+    
+    private static int sample(double[] cdf, Random random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, cdf.length - 1);
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + message);
+        }
+    }
+}
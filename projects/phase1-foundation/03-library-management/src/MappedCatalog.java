@@ -0,0 +1,246 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only item catalog stored in a compact file and opened through a memory-mapped FileChannel
+ * Opening costs one mmap call; fields are decoded from the mapping only when asked for
+ *
+ * File layout:
+ *   header   magic, version, item count, per-kind counts, table positions
+ *   records  kind, pages, then id, title, author, isbn, genre as (length, UTF-8 bytes)
+ *   offsets  record offset for each item, in catalog order
+ *   id index item numbers sorted by the UTF-8 bytes of their ID, for binary search
+ */
+public class MappedCatalog {
+    private static final int MAGIC = 0x4C494243; // "LIBC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * 8;
+    private static final String[] KIND_NAMES = {"Fiction", "NonFiction", "Reference"};
+    
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int[] kindCounts;
+    private final int offsetsPosition;
+    private final int idIndexPosition;
+    
+    private MappedCatalog(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a mapped catalog file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported catalog version " + buffer.getInt(4));
+        }
+        this.count = buffer.getInt(8);
+        this.kindCounts = new int[] {buffer.getInt(12), buffer.getInt(16), buffer.getInt(20)};
+        this.offsetsPosition = buffer.getInt(24);
+        this.idIndexPosition = buffer.getInt(28);
+    }
+    
+    /**
+     * Maps the catalog file read-only. Files are limited to 2 GB, the size of one mapping.
+     */
+    public static MappedCatalog open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Catalog file too large to map: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            return new MappedCatalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    /**
+     * Writes items in the given order. Only Fiction, NonFiction and Reference are supported.
+     */
+    public static void write(Path file, Iterable<? extends Item> items) throws IOException {
+        List<byte[]> ids = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        int[] kindCounts = new int[KIND_NAMES.length];
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        int offsetsPosition;
+        int idIndexPosition;
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.write(new byte[HEADER_BYTES]); // filled in once the table positions are known
+            int position = HEADER_BYTES;
+            for (Item item : items) {
+                Book book = (Book) item;
+                byte kind = LibrarySnapshot.kindOf(book);
+                kindCounts[kind - 1]++;
+                offsets.add(position);
+                byte[] id = utf8(book.getId());
+                ids.add(id);
+                out.writeByte(kind);
+                out.writeInt(book.getPages());
+                position += 5;
+                position += writeString(out, id);
+                position += writeString(out, utf8(book.getTitle()));
+                position += writeString(out, utf8(book.getAuthor()));
+                position += writeString(out, utf8(book.getIsbn()));
+                position += writeString(out, utf8(book.getGenre() != null ? book.getGenre() : ""));
+                if (position < 0) {
+                    throw new IOException("Catalog larger than 2 GB cannot be mapped");
+                }
+            }
+            offsetsPosition = position;
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            idIndexPosition = offsetsPosition + 4 * offsets.size();
+            Integer[] order = new Integer[ids.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(ids.get(a), ids.get(b)));
+            for (int i = 0; i < order.length; i++) {
+                if (i > 0 && Arrays.equals(ids.get(order[i]), ids.get(order[i - 1]))) {
+                    throw new IllegalArgumentException("Duplicate item ID in catalog: "
+                                                       + new String(ids.get(order[i]), StandardCharsets.UTF_8));
+                }
+                out.writeInt(order[i]);
+            }
+        }
+        writeHeader(temp, offsets.size(), kindCounts, offsetsPosition, idIndexPosition);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    // Catalog-level information
+    public int size() { return count; }
+    
+    // Number of items per class name (Fiction, NonFiction, Reference), read from the header
+    public int countOf(String kindName) {
+        for (int i = 0; i < KIND_NAMES.length; i++) {
+            if (KIND_NAMES[i].equals(kindName)) {
+                return kindCounts[i];
+            }
+        }
+        return 0;
+    }
+    
+    public static String[] kindNames() {
+        return KIND_NAMES.clone();
+    }
+    
+    /**
+     * Position of the item with this ID, or -1. Compares raw bytes in the mapping, no decoding.
+     */
+    public int indexOf(String itemId) {
+        byte[] target = utf8(itemId);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int index = buffer.getInt(idIndexPosition + 4 * mid);
+            int cmp = compareId(recordOffset(index) + 5, target);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return index;
+            }
+        }
+        return -1;
+    }
+    
+    // Lazy field access
+    public String idAt(int index) { return stringField(index, 0); }
+    public String titleAt(int index) { return stringField(index, 1); }
+    public String authorAt(int index) { return stringField(index, 2); }
+    public String isbnAt(int index) { return stringField(index, 3); }
+    public String genreAt(int index) { return stringField(index, 4); }
+    public int pagesAt(int index) { return buffer.getInt(recordOffset(index) + 1); }
+    
+    public String kindAt(int index) {
+        return KIND_NAMES[buffer.get(recordOffset(index)) - 1];
+    }
+    
+    /**
+     * Decodes the full record into a new Fiction, NonFiction or Reference object
+     */
+    public Item itemAt(int index) {
+        int offset = recordOffset(index);
+        byte kind = buffer.get(offset);
+        Book book;
+        try {
+            book = LibrarySnapshot.newBook(kind, idAt(index), titleAt(index), authorAt(index), isbnAt(index));
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt catalog record " + index, e);
+        }
+        book.setGenre(genreAt(index));
+        book.setPages(pagesAt(index));
+        return book;
+    }
+    
+    private int recordOffset(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Catalog index " + index + " out of range 0.." + (count - 1));
+        }
+        return buffer.getInt(offsetsPosition + 4 * index);
+    }
+    
+    // Skips to the field'th string of a record and decodes it
+    private String stringField(int index, int field) {
+        int position = recordOffset(index) + 5;
+        for (int i = 0; i < field; i++) {
+            position += 2 + Short.toUnsignedInt(buffer.getShort(position));
+        }
+        int length = Short.toUnsignedInt(buffer.getShort(position));
+        byte[] bytes = new byte[length];
+        buffer.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private int compareId(int position, byte[] target) {
+        int length = Short.toUnsignedInt(buffer.getShort(position));
+        int common = Math.min(length, target.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Byte.toUnsignedInt(buffer.get(position + 2 + i)) - Byte.toUnsignedInt(target[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - target.length;
+    }
+    
+    private static int writeString(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Catalog field longer than 65535 bytes");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+        return 2 + bytes.length;
+    }
+    
+    private static void writeHeader(Path file, int count, int[] kindCounts,
+                                    int offsetsPosition, int idIndexPosition) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(count);
+        for (int kindCount : kindCounts) {
+            header.putInt(kindCount);
+        }
+        header.putInt(offsetsPosition).putInt(idIndexPosition);
+        header.flip();
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.getChannel().write(header, 0);
+        }
+    }
+    
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,113 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Benchmark for opening a Library from a memory-mapped catalog file
+ * Compares startup time and retained heap against building the library item by item
+ */
+public class MappedCatalogBenchmark {
+    private static final int DEFAULT_ITEMS = 2_000_000;
+    private static final int LOOKUPS = 200_000;
+    
+    public static void main(String[] args) throws IOException {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITEMS;
+        System.out.printf("=== Mapped Catalog Benchmark (%,d items) ===%n%n", itemCount);
+        
+        Path file = Files.createTempFile("catalog", ".libc");
+        try {
+            long start = System.nanoTime();
+            MappedCatalog.write(file, Arrays.asList(BenchmarkSupport.syntheticItems(itemCount, 3)));
+            System.out.printf("Nightly catalog build: %,.0f ms, %s on disk%n%n",
+                              BenchmarkSupport.millisSince(start), BenchmarkSupport.formatBytes(Files.size(file)));
+            checkReadsStayMapped(file);
+            
+            long baseline = BenchmarkSupport.usedHeapBytes();
+            start = System.nanoTime();
+            Library heapLibrary = new Library("Heap Library");
+            for (Item item : BenchmarkSupport.syntheticItems(itemCount, 3)) {
+                heapLibrary.insertItem(item);
+            }
+            double heapMillis = BenchmarkSupport.millisSince(start);
+            long heapBytes = BenchmarkSupport.usedHeapBytes() - baseline;
+            System.out.printf("%-22s startup %,10.1f ms   retained heap %s%n", "Built item by item:",
+                              heapMillis, BenchmarkSupport.formatBytes(heapBytes));
+            BenchmarkSupport.consume(heapLibrary);
+            heapLibrary = null;
+            
+            baseline = BenchmarkSupport.usedHeapBytes();
+            start = System.nanoTime();
+            Library mappedLibrary = new Library("Mapped Library");
+            mappedLibrary.attachCatalog(MappedCatalog.open(file));
+            double mappedMillis = BenchmarkSupport.millisSince(start);
+            long mappedBytes = BenchmarkSupport.usedHeapBytes() - baseline;
+            System.out.printf("%-22s startup %,10.1f ms   retained heap %s%n", "Memory-mapped:",
+                              mappedMillis, BenchmarkSupport.formatBytes(mappedBytes));
+            
+            // Lookups go through the mapped ID index and decode transient copies; nothing is retained
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                BenchmarkSupport.consume(mappedLibrary.findItemById("F" + ((i * 7919L) % itemCount)));
+            }
+            System.out.printf("%nLookups on the mapped library: %s%n",
+                              BenchmarkSupport.formatRate(BenchmarkSupport.perSecond(LOOKUPS, System.nanoTime() - start)));
+            System.out.printf("Retained heap after touching %,d items: %s%n", LOOKUPS,
+                              BenchmarkSupport.formatBytes(BenchmarkSupport.usedHeapBytes() - baseline));
+            BenchmarkSupport.consume(mappedLibrary);
+            System.out.println("Statistics read from the catalog header: "
+                               + mappedLibrary.getStatistics().getItemsByType());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    // Reads hand out fresh copies, a loan moves the item onto the heap, unindexed searches are refused
+    private static void checkReadsStayMapped(Path file) throws IOException {
+        Library library = new Library("Check");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        library.attachCatalog(MappedCatalog.open(file));
+        library.registerMember(new Member("M1", "Reader", "r@example.com"));
+        String itemId = library.streamItems().filter(item -> item instanceof Fiction).findFirst().get().getId();
+        boolean transientReads = library.findItemById(itemId) != library.findItemById(itemId);
+        library.borrowItem(itemId, "M1");
+        boolean promotedOnLoan = library.findItemById(itemId) == library.findItemById(itemId)
+                              && !library.findItemById(itemId).isAvailable();
+        boolean searchesRefused = refused(() -> library.searchByTitleWords("river"))
+                               && refused(() -> library.searchByTitleFuzzy("rivr", 5))
+                               && refused(() -> library.setSearchMode(Library.SearchMode.TRIGRAM));
+        Path snapshot = file.resolveSibling(file.getFileName() + ".snapshot");
+        boolean persistenceRefused = refused(() -> {
+            try {
+                LibrarySnapshot.write(library, 0, snapshot);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }) && !Files.exists(snapshot);
+        
+        Library overlapping = new Library("Overlap");
+        overlapping.setEventSink(NoOpEventSink.INSTANCE);
+        overlapping.addItem(new Fiction(itemId, "Heap Copy", "Somebody", "978-0"));
+        boolean overlapRejected = false;
+        try {
+            overlapping.attachCatalog(MappedCatalog.open(file));
+        } catch (IllegalArgumentException e) {
+            overlapRejected = true;
+        }
+        if (!transientReads || !promotedOnLoan || !searchesRefused || !persistenceRefused || !overlapRejected) {
+            throw new IllegalStateException("Mapped catalog check failed");
+        }
+        System.out.println("Reads stay mapped, loans promote; overlaps, snapshots and unindexed searches are refused - OK\n");
+    }
+    
+    private static boolean refused(Runnable action) {
+        try {
+            action.run();
+            return false;
+        } catch (IllegalStateException e) {
+            return true;
+        }
+    }
+}
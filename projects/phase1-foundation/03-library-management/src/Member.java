@@ -6,46 +6,95 @@ import java.util.List;
  * Manages member information and borrowing history
  */
 public class Member {
+    // Borrowing limits
+    public static final int MAX_BORROWED_ITEMS = 5;
+    public static final double FINE_LIMIT = 10.0;
+    
     private String memberId;
+    private int handle;
     private String name;
     private String email;
     private String phone;
-    private List<String> borrowedItems;
-    private List<String> borrowingHistory;
+    private BorrowedItemSet borrowedItems;
+    private BorrowingHistory borrowingHistory;
     private double totalFines;
     
     public Member(String memberId, String name, String email) {
         this.memberId = memberId;
+        this.handle = IdRegistry.MEMBERS.handleOf(memberId);
         this.name = name;
         this.email = email;
-        this.borrowedItems = new ArrayList<>();
-        this.borrowingHistory = new ArrayList<>();
+        this.borrowedItems = new BorrowedItemSet();
+        this.borrowingHistory = new BorrowingHistory();
         this.totalFines = 0.0;
     }
     
     // Getters
     public String getMemberId() { return memberId; }
+    public int getHandle() { return handle; }
     public String getName() { return name; }
     public String getEmail() { return email; }
     public String getPhone() { return phone; }
-    public List<String> getBorrowedItems() { return new ArrayList<>(borrowedItems); }
-    public List<String> getBorrowingHistory() { return new ArrayList<>(borrowingHistory); }
+    public int getBorrowedCount() { return borrowedItems.size(); }
+    public boolean hasBorrowed(String itemId) { return borrowedItems.contains(itemId); }
+    public BorrowedItemSet getBorrowed() { return borrowedItems; }
+    public BorrowingHistory getHistory() { return borrowingHistory; }
     public double getTotalFines() { return totalFines; }
     
+    // Copies the borrowed item IDs; prefer the views above for reads
+    public List<String> getBorrowedItems() {
+        List<String> copy = new ArrayList<>(borrowedItems.size());
+        borrowedItems.forEach(copy::add);
+        return copy;
+    }
+    
+    // Builds the history as display strings; prefer getHistory() for large histories
+    public List<String> getBorrowingHistory() {
+        List<String> records = new ArrayList<>(borrowingHistory.size());
+        for (int i = 0; i < borrowingHistory.size(); i++) {
+            records.add(borrowingHistory.describe(i));
+        }
+        return records;
+    }
+    
     // Setters
     public void setPhone(String phone) { this.phone = phone; }
     
+    // Keeps only the most recent events in the history
+    public void setHistoryLimit(int limit) { borrowingHistory.setLimit(limit); }
+    
     // Member operations
     public void borrowItem(String itemId) {
-        if (!borrowedItems.contains(itemId)) {
-            borrowedItems.add(itemId);
-            borrowingHistory.add(itemId + " - Borrowed on " + java.time.LocalDate.now());
-        }
+        borrowItem(itemId, java.time.LocalDate.now());
     }
     
     public void returnItem(String itemId) {
+        returnItem(itemId, java.time.LocalDate.now());
+    }
+    
+    // Dated variants, used when replaying saved library state
+    public void borrowItem(String itemId, java.time.LocalDate date) {
+        if (borrowedItems.add(itemId)) {
+            borrowingHistory.record(itemId, BorrowingHistory.EventType.BORROWED, date);
+        }
+    }
+    
+    public void returnItem(String itemId, java.time.LocalDate date) {
         borrowedItems.remove(itemId);
-        borrowingHistory.add(itemId + " - Returned on " + java.time.LocalDate.now());
+        borrowingHistory.record(itemId, BorrowingHistory.EventType.RETURNED, date);
+    }
+    
+    // Restores the running totals saved in a snapshot
+    public void restoreState(List<String> borrowedItems, BorrowingHistory borrowingHistory, double totalFines) {
+        this.borrowedItems.clear();
+        for (String itemId : borrowedItems) {
+            this.borrowedItems.add(itemId);
+        }
+        if (borrowingHistory != this.borrowingHistory) {
+            this.borrowingHistory.clear(); // releases the item handles the replaced history held
+        }
+        this.borrowingHistory = borrowingHistory;
+        this.totalFines = totalFines;
     }
     
     public void addFine(double amount) {
@@ -57,7 +106,12 @@ public class Member {
     }
     
     public boolean canBorrow() {
-        return borrowedItems.size() < 5 && totalFines < 10.0; // Max 5 items, fines under $10
+        return canBorrow(1);
+    }
+    
+    // Whether count more items fit under the borrowing limit, with fines under the fine limit
+    public boolean canBorrow(int count) {
+        return borrowedItems.size() + count <= MAX_BORROWED_ITEMS && totalFines < FINE_LIMIT;
     }
     
     public void displayInfo() {
@@ -77,8 +131,8 @@ public class Member {
         if (borrowedItems.isEmpty()) {
             System.out.println("No items currently borrowed.");
         } else {
-            for (String itemId : borrowedItems) {
-                System.out.println("- " + itemId);
+            for (int i = 0; i < borrowedItems.size(); i++) {
+                System.out.println("- " + borrowedItems.get(i));
             }
         }
         System.out.println("================================");
@@ -89,8 +143,8 @@ public class Member {
         if (borrowingHistory.isEmpty()) {
             System.out.println("No borrowing history.");
         } else {
-            for (String record : borrowingHistory) {
-                System.out.println("- " + record);
+            for (int i = 0; i < borrowingHistory.size(); i++) {
+                System.out.println("- " + borrowingHistory.describe(i));
             }
         }
         System.out.println("=========================");
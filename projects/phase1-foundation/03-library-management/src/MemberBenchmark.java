@@ -0,0 +1,93 @@
+/**
+ * Benchmark for reading member loans
+ * Compares bytes allocated by a pass over every member using the copying
+ * getBorrowedItems() against the count, membership and index views
+ */
+public class MemberBenchmark {
+    private static final int DEFAULT_MEMBERS = 1_000_000;
+    private static final int ROUNDS = 5;
+    
+    public static void main(String[] args) {
+        int memberCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MEMBERS;
+        System.out.printf("=== Member Loan Views Benchmark (%,d members) ===%n%n", memberCount);
+        
+        Member[] members = new Member[memberCount];
+        for (int i = 0; i < memberCount; i++) {
+            members[i] = new Member("M" + i, "Member " + i, "m" + i + "@example.com");
+            for (int k = 0; k < i % 6; k++) {
+                members[i].borrowItem("F" + (i + k) % 50_000, java.time.LocalDate.of(2026, 1, 1));
+            }
+        }
+        
+        System.out.println("1. Listing loan counts (what displayAllMembers and removeMember need):");
+        report("getBorrowedItems().size()", members, MemberBenchmark::copyingCount);
+        report("getBorrowedCount()", members, MemberBenchmark::viewCount);
+        
+        System.out.println("\n2. Membership and iteration over every loan:");
+        report("getBorrowedItems() + contains", members, MemberBenchmark::copyingScan);
+        report("hasBorrowed + get(i)", members, MemberBenchmark::viewScan);
+    }
+    
+    private interface Pass {
+        long run(Member[] members);
+    }
+    
+    private static void report(String label, Member[] members, Pass pass) {
+        for (int i = 0; i < ROUNDS; i++) {
+            BenchmarkSupport.consume(pass.run(members)); // warm up
+        }
+        long allocated = BenchmarkSupport.allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            BenchmarkSupport.consume(pass.run(members));
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = BenchmarkSupport.allocatedBytes() - allocated;
+        System.out.printf("%-32s %,8.1f ms per pass, %,12d bytes allocated per pass (%,.0f MB/s)%n",
+                          label, elapsed / 1e6 / ROUNDS, allocated / ROUNDS,
+                          allocated / (1024.0 * 1024.0) / (elapsed / 1e9));
+    }
+    
+    private static long copyingCount(Member[] members) {
+        long total = 0;
+        for (Member member : members) {
+            total += member.getBorrowedItems().size();
+        }
+        return total;
+    }
+    
+    private static long viewCount(Member[] members) {
+        long total = 0;
+        for (Member member : members) {
+            total += member.getBorrowedCount();
+        }
+        return total;
+    }
+    
+    private static long copyingScan(Member[] members) {
+        long found = 0;
+        for (Member member : members) {
+            java.util.List<String> borrowed = member.getBorrowedItems();
+            for (String itemId : borrowed) {
+                if (borrowed.contains(itemId)) {
+                    found += itemId.length();
+                }
+            }
+        }
+        return found;
+    }
+    
+    private static long viewScan(Member[] members) {
+        long found = 0;
+        for (Member member : members) {
+            BorrowedItemSet borrowed = member.getBorrowed();
+            for (int i = 0; i < borrowed.size(); i++) {
+                String itemId = borrowed.get(i);
+                if (member.hasBorrowed(itemId)) {
+                    found += itemId.length();
+                }
+            }
+        }
+        return found;
+    }
+}
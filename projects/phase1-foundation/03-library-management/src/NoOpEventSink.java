@@ -0,0 +1,11 @@
+/**
+ * Event sink that discards everything, for benchmarks and silent batch jobs
+ */
+public final class NoOpEventSink implements EventSink {
+    public static final NoOpEventSink INSTANCE = new NoOpEventSink();
+    
+    private NoOpEventSink() {}
+    
+    @Override
+    public void publish(LibraryEvent event) {}
+}
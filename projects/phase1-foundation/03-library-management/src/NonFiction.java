@@ -22,10 +22,10 @@ public class NonFiction extends Book {
     }
     
     @Override
-    public void displayInfo() {
-        super.displayInfo();
-        System.out.println("Book Type: Non-Fiction");
-        System.out.println("Borrowing Period: " + BORROWING_PERIOD_DAYS + " days");
-        System.out.println("Fine per day: $" + FINE_PER_DAY);
+    protected void appendInfo(StringBuilder out) {
+        super.appendInfo(out);
+        line(out, "Book Type: Non-Fiction");
+        line(out, "Borrowing Period: " + BORROWING_PERIOD_DAYS + " days");
+        line(out, "Fine per day: $" + FINE_PER_DAY);
     }
 }
@@ -0,0 +1,89 @@
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Benchmark for the due-date index and overdue sweep
+ * Checks the fine arithmetic on a small library, then compares a nightly scan that
+ * parses every borrow-date string against incremental sweeps of the due-date index
+ */
+public class OverdueBenchmark {
+    private static final int DEFAULT_LOANS = 10_000_000;
+    private static final int SPREAD_DAYS = 30;
+    
+    public static void main(String[] args) {
+        int loans = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_LOANS;
+        System.out.println("=== Overdue Sweep Benchmark ===\n");
+        
+        System.out.println("1. Fine check:");
+        checkFines();
+        
+        System.out.printf("%n2. %,d active loans, borrowed over the last %d days:%n", loans, SPREAD_DAYS);
+        Random random = new Random(5);
+        long today = LocalDate.of(2026, 1, 1).toEpochDay();
+        String[] borrowDates = new String[loans];
+        int[] periods = new int[loans];
+        DueDateIndex index = new DueDateIndex();
+        for (int i = 0; i < loans; i++) {
+            long borrowDay = today - random.nextInt(SPREAD_DAYS);
+            periods[i] = random.nextBoolean() ? 14 : 21;
+            borrowDates[i] = LocalDate.ofEpochDay(borrowDay).toString();
+            index.add(borrowDay + periods[i], i);
+        }
+        
+        // The scan a nightly job would need without an index: parse every date, every night
+        long start = System.nanoTime();
+        int overdue = 0;
+        for (int i = 0; i < loans; i++) {
+            if (LocalDate.parse(borrowDates[i]).toEpochDay() + periods[i] < today + 1) {
+                overdue++;
+            }
+        }
+        System.out.printf("Full scan, parsing date strings: %,10.1f ms per night (%,d overdue)%n",
+                          BenchmarkSupport.millisSince(start), overdue);
+        
+        // Incremental: each night pops only the loans that fell due since the night before
+        long totalNanos = 0;
+        long worstNanos = 0;
+        long popped = 0;
+        int nights = SPREAD_DAYS;
+        for (int night = 1; night <= nights; night++) {
+            start = System.nanoTime();
+            int[] due = index.pollDueBefore(today + night);
+            long elapsed = System.nanoTime() - start;
+            popped += due.length;
+            totalNanos += elapsed;
+            worstNanos = Math.max(worstNanos, elapsed);
+        }
+        System.out.printf("Due-date index sweep:            %,10.1f ms per night on average, %,.1f ms worst%n",
+                          totalNanos / 1e6 / nights, worstNanos / 1e6);
+        System.out.printf("                                 %,10.0f ns per newly overdue loan (%,d loans over %d nights)%n",
+                          (double) totalNanos / Math.max(1, popped), popped, nights);
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    private static void checkFines() {
+        Library library = new Library("Fine Check");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        library.addItem(new Fiction("F1", "Fiction", "Author", "1"));
+        library.addItem(new NonFiction("N1", "NonFiction", "Author", "2"));
+        library.registerMember(new Member("M1", "Member", "m@email.com"));
+        Member member = library.findMemberById("M1");
+        LocalDate borrowed = LocalDate.of(2026, 3, 1);
+        library.applyBorrow(library.findItemById("F1"), member, borrowed);
+        library.applyBorrow(library.findItemById("N1"), member, borrowed);
+        
+        OverdueSweepResult first = library.sweepOverdue(borrowed.plusDays(16));   // fiction 2 days late
+        OverdueSweepResult second = library.sweepOverdue(borrowed.plusDays(25));  // non-fiction 4 days late
+        double lateFine = library.applyReturn(library.findItemById("F1"), member, borrowed.plusDays(20));
+        boolean ok = first.getLoansMarkedOverdue() == 1 && first.getTotalFines() == 1.00
+                  && second.getLoansMarkedOverdue() == 1 && second.getTotalFines() == 3.00
+                  && lateFine == 2.00 && member.getTotalFines() == 6.00;
+        if (!ok) {
+            throw new IllegalStateException("Unexpected fines: " + first + " / " + second
+                                            + " / late " + lateFine + " / total " + member.getTotalFines());
+        }
+        System.out.println(first);
+        System.out.println(second);
+        System.out.println("Late return settled $2.00 for the days after the first sweep - OK");
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Outcome of one overdue sweep: how many loans became overdue and what was charged
+ */
+public class OverdueSweepResult {
+    private final long sweepEpochDay;
+    private final int loansMarkedOverdue;
+    private final int membersFined;
+    private final double totalFines;
+    
+    public OverdueSweepResult(long sweepEpochDay, int loansMarkedOverdue, int membersFined, double totalFines) {
+        this.sweepEpochDay = sweepEpochDay;
+        this.loansMarkedOverdue = loansMarkedOverdue;
+        this.membersFined = membersFined;
+        this.totalFines = totalFines;
+    }
+    
+    public long getSweepEpochDay() { return sweepEpochDay; }
+    public int getLoansMarkedOverdue() { return loansMarkedOverdue; }
+    public int getMembersFined() { return membersFined; }
+    public double getTotalFines() { return totalFines; }
+    
+    @Override
+    public String toString() {
+        return String.format("Overdue sweep %s: %d loans newly overdue, %d members fined $%.2f",
+                             java.time.LocalDate.ofEpochDay(sweepEpochDay), loansMarkedOverdue,
+                             membersFined, totalFines);
+    }
+}
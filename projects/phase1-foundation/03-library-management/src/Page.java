@@ -0,0 +1,30 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a Library listing or search, plus the cursor that continues it
+ * Cursors are positions in a stable order, so pages stay consistent while items are added or removed.
+ * Library.compact() renumbers the positions; cursors issued before it are refused afterwards
+ */
+public class Page<T> {
+    public static final long FIRST = 0;
+    public static final long END = -1;
+    
+    private final List<T> contents;
+    private final long nextCursor;
+    
+    Page(List<T> contents, long nextCursor) {
+        this.contents = Collections.unmodifiableList(contents);
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<T> getContents() { return contents; }
+    public long getNextCursor() { return nextCursor; }
+    public boolean hasNext() { return nextCursor != END; }
+    public int size() { return contents.size(); }
+    
+    @Override
+    public String toString() {
+        return "Page of " + contents.size() + (hasNext() ? ", next cursor " + nextCursor : ", last");
+    }
+}
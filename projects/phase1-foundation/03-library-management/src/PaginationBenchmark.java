@@ -0,0 +1,275 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmark for cursor pagination and lazy listing streams
+ * Checks that pages and streams agree with the full listings, also across changes and with a
+ * mapped base catalog, then times first, middle and last pages against building the full result
+ */
+public class PaginationBenchmark {
+    private static final int DEFAULT_ITEMS = 1_000_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int ROUNDS = 2_000;
+    
+    public static void main(String[] args) throws IOException {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITEMS;
+        System.out.println("=== Pagination Benchmark ===\n");
+        
+        System.out.println("1. Correctness checks:");
+        checkListings();
+        checkChangesBetweenPages();
+        checkCompaction();
+        checkBaseCatalog();
+        
+        System.out.printf("%n2. Pages of %d over %,d items:%n", PAGE_SIZE, itemCount);
+        Library library = new Library("Bench");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        library.addItems(Arrays.asList(BenchmarkSupport.syntheticItems(itemCount, 97)));
+        List<Long> cursors = new ArrayList<>();
+        for (long cursor = Page.FIRST; cursor != Page.END; cursor = library.listItems(cursor, PAGE_SIZE).getNextCursor()) {
+            cursors.add(cursor);
+        }
+        long first = cursors.get(0);
+        long middle = cursors.get(cursors.size() / 2);
+        long last = cursors.get(cursors.size() - 1);
+        time("First page", ROUNDS, () -> library.listItems(first, PAGE_SIZE).size());
+        time("Middle page", ROUNDS, () -> library.listItems(middle, PAGE_SIZE).size());
+        time("Last page", ROUNDS, () -> library.listItems(last, PAGE_SIZE).size());
+        time("Middle page of available items", ROUNDS, () -> library.listAvailableItems(middle, PAGE_SIZE).size());
+        time("First 50 via streamItems", ROUNDS, () -> library.streamItems().limit(PAGE_SIZE).count());
+        time("Full listing copied to a list", 5, () -> library.streamItems().collect(Collectors.toList()).size());
+        
+        System.out.println("\n3. Search hits for a common word:");
+        time("searchByTitleWords, full list", 20, () -> library.searchByTitleWords("history").size());
+        time("searchByTitleWords, first page", 200,
+             () -> library.searchByTitleWords("history", Page.FIRST, PAGE_SIZE).size());
+        time("streamTitleMatches, first 50", 200, () -> library.streamTitleMatches("history").limit(PAGE_SIZE).count());
+        
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    private interface Run {
+        long run();
+    }
+    
+    private static void time(String label, int rounds, Run run) {
+        for (int i = 0; i < Math.max(3, rounds / 10); i++) {
+            BenchmarkSupport.consume(run.run()); // warm up
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            BenchmarkSupport.consume(run.run());
+        }
+        System.out.printf("%-36s %,12.1f us%n", label, (System.nanoTime() - start) / 1e3 / rounds);
+    }
+    
+    private static Library checkLibrary(int items) {
+        Library library = new Library("Check");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        library.addItems(Arrays.asList(BenchmarkSupport.syntheticItems(items, 101)));
+        for (int i = 0; i < 300; i++) {
+            library.registerMember(new Member("PM" + i, "Reader " + i, "r" + i + "@example.com"));
+        }
+        for (int i = 0; i < items; i += 3) {
+            String borrower = "PL" + i / (3 * Member.MAX_BORROWED_ITEMS);
+            if (library.findMemberById(borrower) == null) {
+                library.registerMember(new Member(borrower, "Borrower", "b@example.com"));
+            }
+            library.borrowItem("F" + i, borrower);
+        }
+        for (int i = 0; i < items; i += 17) {
+            library.removeItem("NF" + i);
+        }
+        for (int i = 0; i < 300; i += 7) {
+            library.removeMember("PM" + (i + 1));
+        }
+        return library;
+    }
+    
+    private static void checkListings() {
+        Library library = checkLibrary(5_000);
+        List<Item> all = new ArrayList<>();
+        library.allItems().forEach(all::add);
+        List<Item> available = all.stream().filter(Item::isAvailable).collect(Collectors.toList());
+        for (int pageSize : new int[] {1, 7, 100, 10_000}) {
+            check(pagedItems(library, pageSize, false).equals(all), "item pages of " + pageSize);
+            check(pagedItems(library, pageSize, true).equals(available), "available pages of " + pageSize);
+            check(pagedMembers(library, pageSize).equals(library.streamMembers().collect(Collectors.toList())),
+                  "member pages of " + pageSize);
+            check(pagedSearch(library, "river", pageSize).equals(library.searchByTitleWords("river")),
+                  "search pages of " + pageSize);
+            check(pagedSearch(library, "river stone", pageSize).equals(library.searchByTitleWords("river stone")),
+                  "phrase search pages of " + pageSize);
+            for (String query : new String[] {"s", "gl", "river s", "fire 1", "no such words"}) {
+                check(pagedSearch(library, query, pageSize).equals(library.searchByTitleWords(query)),
+                      "search pages for '" + query + "' of " + pageSize);
+            }
+        }
+        check(library.streamItems().collect(Collectors.toList()).equals(all), "streamItems");
+        check(library.streamAvailableItems().collect(Collectors.toList()).equals(available), "streamAvailableItems");
+        check(library.streamTitleMatches("river s").collect(Collectors.toList())
+                     .equals(library.searchByTitleWords("river s")), "streamTitleMatches");
+        check(library.streamAuthorMatches("orwell").collect(Collectors.toList())
+                     .equals(library.searchByAuthorWords("orwell")), "streamAuthorMatches");
+        check(library.streamMembers().count() == library.getStatistics().getRegisteredMembers(), "member count");
+        check(!library.listItems(Page.FIRST, all.size()).hasNext(), "exact last page");
+        Library reversed = new Library("Reversed");
+        reversed.setEventSink(NoOpEventSink.INSTANCE);
+        List<Member> registered = new ArrayList<>();
+        for (int i = 299; i >= 0; i -= 5) {
+            Member member = new Member("PM" + i, "Reader " + i, "r" + i + "@example.com");
+            reversed.registerMember(member);
+            registered.add(member);
+        }
+        check(pagedMembers(reversed, 7).equals(registered), "members in this library's registration order");
+        System.out.printf("Pages and streams match the full listings (%,d items, %,d available) - OK%n",
+                          all.size(), available.size());
+    }
+    
+    // Items removed before their page is read never show up, items added later show up at the end
+    private static void checkChangesBetweenPages() {
+        Library library = checkLibrary(3_000);
+        List<Item> before = library.streamItems().collect(Collectors.toList());
+        Set<Item> removed = new HashSet<>();
+        List<Item> seen = new ArrayList<>();
+        int added = 0;
+        for (long cursor = Page.FIRST; cursor != Page.END; ) {
+            Page<Item> page = library.listItems(cursor, 64);
+            seen.addAll(page.getContents());
+            cursor = page.getNextCursor();
+            Item victim = before.get((int) ((seen.size() * 31L) % before.size()));
+            if (!seen.contains(victim) && !removed.contains(victim)) {
+                library.removeItem(victim.getId());
+                if (library.findItemById(victim.getId()) == null) {
+                    removed.add(victim); // items on loan cannot be removed
+                }
+            }
+            if (added < 20) {
+                library.addItem(new Fiction("NEW" + added, "Late Arrival " + added, "Page Tester", "978-0" + added));
+                added++;
+            }
+        }
+        List<Item> expected = new ArrayList<>(before);
+        expected.removeAll(removed);
+        expected.addAll(library.searchByAuthorWords("page tester"));
+        check(seen.equals(expected), "pages across removals and additions");
+        System.out.printf("Paging through %d removals and %d additions sees each item once - OK%n", removed.size(), added);
+    }
+    
+    // Compaction keeps every listing, search and index answer, shrinks the mirror and refuses old cursors
+    private static void checkCompaction() {
+        Library library = checkLibrary(6_000);
+        library.setSearchMode(Library.SearchMode.TRIGRAM);
+        library.setColumnarMirror(true);
+        library.setFacetIndexEnabled(true);
+        for (int i = 1; i < 6_000; i += 2) {
+            library.removeItem("F" + i);
+            library.removeItem("R" + i);
+        }
+        List<Item> items = library.streamItems().collect(Collectors.toList());
+        List<Member> members = library.streamMembers().collect(Collectors.toList());
+        List<Item> words = library.searchByTitleWords("river");
+        List<Item> fuzzy = library.searchByAuthorFuzzy("Orwel", 20);
+        List<Item> trigrams = library.searchByTitle("ive");
+        List<Item> facets = library.searchFacets(FacetQuery.genre("Fiction").and(FacetQuery.available().not()));
+        long onLoan = library.getColumnarMirror().count(ColumnarCatalog.Filter.all().available(false));
+        int rowsBefore = library.getColumnarMirror().rowCount();
+        long stale = library.listItems(Page.FIRST, 10).getNextCursor();
+        
+        check(library.compact(), "compaction ran");
+        check(!library.compact(), "nothing left to compact");
+        check(library.getColumnarMirror().rowCount() == items.size() && rowsBefore > items.size(), "mirror shrank");
+        check(pagedItems(library, 64, false).equals(items), "item pages after compaction");
+        check(pagedMembers(library, 9).equals(members), "member pages after compaction");
+        check(pagedSearch(library, "river", 13).equals(words), "search pages after compaction");
+        check(library.searchByTitleWords("river").equals(words), "word search after compaction");
+        check(library.searchByAuthorFuzzy("Orwel", 20).equals(fuzzy), "fuzzy search after compaction");
+        check(library.searchByTitle("ive").equals(trigrams), "trigram search after compaction");
+        check(library.searchFacets(FacetQuery.genre("Fiction").and(FacetQuery.available().not())).equals(facets),
+              "facets after compaction");
+        check(library.getColumnarMirror().count(ColumnarCatalog.Filter.all().available(false)) == onLoan,
+              "mirror after compaction");
+        boolean refused = false;
+        try {
+            library.listItems(stale, 10);
+        } catch (IllegalStateException e) {
+            refused = true;
+        }
+        check(refused, "cursor from before compaction refused");
+        check(library.sweepOverdue(LocalDate.now().plusDays(60)).getLoansMarkedOverdue() == onLoan,
+              "due dates after compaction");
+        System.out.printf("Compacting %,d removed slots keeps listings, searches and indexes, refuses old cursors - OK%n",
+                          rowsBefore - items.size());
+    }
+    
+    private static void checkBaseCatalog() throws IOException {
+        Path file = Files.createTempFile("pages", ".libc");
+        try {
+            MappedCatalog.write(file, Arrays.asList(BenchmarkSupport.syntheticItems(2_000, 103)));
+            Library library = new Library("Mapped");
+            library.setEventSink(NoOpEventSink.INSTANCE);
+            library.attachCatalog(MappedCatalog.open(file));
+            library.addItem(new Fiction("HEAP1", "Heap Only", "Somebody", "978-1"));
+            library.registerMember(new Member("PB1", "Reader", "r@example.com"));
+            library.borrowItem("F10", "PB1"); // promotes F10 onto the heap
+            library.removeItem("NF20");
+            List<String> expected = new ArrayList<>();
+            library.allItems().forEach(item -> expected.add(item.getId()));
+            List<String> paged = new ArrayList<>();
+            pagedItems(library, 33, false).forEach(item -> paged.add(item.getId()));
+            check(paged.equals(expected), "pages over a mapped catalog");
+            check(paged.indexOf("F10") >= 0 && paged.lastIndexOf("F10") == paged.indexOf("F10"),
+                  "promoted item listed once");
+            check(paged.get(paged.size() - 1).equals("HEAP1") && !paged.contains("NF20"), "heap items last");
+            System.out.println("Pages over a mapped base catalog list promoted items once, in catalog order - OK");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    private static List<Item> pagedItems(Library library, int pageSize, boolean availableOnly) {
+        List<Item> items = new ArrayList<>();
+        for (long cursor = Page.FIRST; cursor != Page.END; ) {
+            Page<Item> page = availableOnly ? library.listAvailableItems(cursor, pageSize)
+                                            : library.listItems(cursor, pageSize);
+            check(page.size() == pageSize || !page.hasNext(), "full pages before the last");
+            items.addAll(page.getContents());
+            cursor = page.getNextCursor();
+        }
+        return items;
+    }
+    
+    private static List<Member> pagedMembers(Library library, int pageSize) {
+        List<Member> members = new ArrayList<>();
+        for (long cursor = Page.FIRST; cursor != Page.END; ) {
+            Page<Member> page = library.listMembers(cursor, pageSize);
+            members.addAll(page.getContents());
+            cursor = page.getNextCursor();
+        }
+        return members;
+    }
+    
+    private static List<Item> pagedSearch(Library library, String query, int pageSize) {
+        List<Item> items = new ArrayList<>();
+        for (long cursor = Page.FIRST; cursor != Page.END; ) {
+            Page<Item> page = library.searchByTitleWords(query, cursor, pageSize);
+            items.addAll(page.getContents());
+            cursor = page.getNextCursor();
+        }
+        return items;
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + message);
+        }
+    }
+}
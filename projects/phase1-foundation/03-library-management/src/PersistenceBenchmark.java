@@ -0,0 +1,201 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark for the journal and snapshot persistence layer
+ * Checks a crash-free round trip, then measures mutations per second for several
+ * fsync batch sizes and the recovery time of a 1M-item library
+ */
+public class PersistenceBenchmark {
+    private static final int[] BATCH_SIZES = {1, 8, 64, 512};
+    private static final long RUN_MILLIS = 1_000;
+    private static final int RECOVERY_ITEMS = 1_000_000;
+    
+    public static void main(String[] args) throws IOException {
+        int recoveryItems = args.length > 0 ? Integer.parseInt(args[0]) : RECOVERY_ITEMS;
+        System.out.println("=== Persistence Benchmark ===\n");
+        
+        System.out.println("1. Round trip:");
+        roundTrip();
+        lateSyncAndLogFirst();
+        
+        System.out.println("\n2. Mutations per second (borrow/return through Library):");
+        for (int batchSize : BATCH_SIZES) {
+            Path directory = Files.createTempDirectory("library-wal");
+            try (LibraryPersistence persistence = LibraryPersistence.open(directory, "Bench", batchSize)) {
+                Library library = persistence.getLibrary();
+                BenchmarkSupport.silenced(() -> populate(library, 1_000, 100));
+                long[] mutations = new long[1];
+                long start = System.nanoTime();
+                BenchmarkSupport.silenced(() -> {
+                    long deadline = System.nanoTime() + RUN_MILLIS * 1_000_000L;
+                    for (int i = 0; System.nanoTime() < deadline; i++) {
+                        String itemId = "F" + (i % 1_000);
+                        String memberId = "M" + (i % 100);
+                        library.borrowItem(itemId, memberId);
+                        library.returnItem(itemId, memberId);
+                        mutations[0] += 2;
+                    }
+                });
+                persistence.sync();
+                System.out.printf("fsync every %4d records: %s%n", batchSize,
+                                  BenchmarkSupport.formatRate(
+                                      BenchmarkSupport.perSecond(mutations[0], System.nanoTime() - start)));
+            } finally {
+                deleteRecursively(directory);
+            }
+        }
+        
+        System.out.printf("%n3. Recovery of %,d items:%n", recoveryItems);
+        Path directory = Files.createTempDirectory("library-wal");
+        try {
+            try (LibraryPersistence persistence = LibraryPersistence.open(directory, "Bench", 4096)) {
+                Library library = persistence.getLibrary();
+                Item[] items = BenchmarkSupport.syntheticItems(recoveryItems, 1);
+                BenchmarkSupport.silenced(() -> {
+                    for (Item item : items) {
+                        library.addItem(item);
+                    }
+                    populate(library, 0, 1_000);
+                });
+            }
+            timeRecovery(directory, "journal replay only");
+            
+            try (LibraryPersistence persistence = LibraryPersistence.open(directory, "Bench", 4096)) {
+                persistence.checkpoint();
+                Library library = persistence.getLibrary();
+                BenchmarkSupport.silenced(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        library.borrowItem("F" + (i * 7), "M" + (i % 1_000));
+                    }
+                });
+            }
+            timeRecovery(directory, "snapshot + 10k-record tail");
+        } finally {
+            deleteRecursively(directory);
+        }
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    // Writes state, checkpoints halfway, closes, recovers and compares
+    private static void roundTrip() throws IOException {
+        Path directory = Files.createTempDirectory("library-wal");
+        try {
+            try (LibraryPersistence persistence = LibraryPersistence.open(directory, "Round Trip", 1)) {
+                Library library = persistence.getLibrary();
+                BenchmarkSupport.silenced(() -> {
+                    populate(library, 50, 10);
+                    library.borrowItem("F1", "M1");
+                    library.borrowItem("F2", "M1");
+                    library.addFine("M2", 4.5);
+                });
+                persistence.checkpoint();
+                BenchmarkSupport.silenced(() -> {
+                    library.returnItem("F1", "M1");
+                    library.borrowItem("F3", "M3");
+                    library.payFine("M2", 1.0);
+                    library.removeItem("F40");
+                    library.removeMember("M9");
+                });
+            }
+            try (LibraryPersistence persistence = LibraryPersistence.open(directory, "Round Trip", 1)) {
+                Library library = persistence.getLibrary();
+                LibraryStatistics.Snapshot statistics = library.getStatistics();
+                Book f1 = (Book) library.findItemById("F1");
+                Book f2 = (Book) library.findItemById("F2");
+                Member m1 = library.findMemberById("M1");
+                boolean ok = statistics.getTotalItems() == 49 && statistics.getBorrowedItems() == 2
+                          && statistics.getRegisteredMembers() == 9
+                          && f1.isAvailable() && "M1".equals(f2.getBorrowedBy())
+                          && m1.getBorrowedItems().equals(java.util.List.of("F2"))
+                          && m1.getBorrowingHistory().size() == 3
+                          && library.findMemberById("M2").getTotalFines() == 3.5
+                          && library.findItemById("F40") == null;
+                if (!ok) {
+                    throw new IllegalStateException("Recovered library does not match what was written");
+                }
+                System.out.println("Snapshot + journal tail restored " + persistence.getReplayedRecords()
+                                   + " records - OK");
+            }
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+    
+    // A lone record reaches the disk within the sync delay, and a refused record leaves the library unchanged
+    private static void lateSyncAndLogFirst() throws IOException {
+        Path directory = Files.createTempDirectory("library-wal");
+        try {
+            LibraryJournal journal = new LibraryJournal(directory, 1, 4096, 20);
+            Library library = new Library("Log First");
+            library.setEventSink(NoOpEventSink.INSTANCE);
+            populate(library, 2, 1);
+            library.setJournal(journal);
+            library.borrowItem("F0", "M0");
+            Path segment = LibraryJournal.segments(directory).get(0);
+            long deadline = System.nanoTime() + 2_000_000_000L;
+            while (Files.size(segment) == 0 && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            if (Files.size(segment) == 0) {
+                throw new IllegalStateException("Unfilled batch was not synced within the delay");
+            }
+            journal.close();
+            boolean refused = false;
+            try {
+                library.borrowItem("F1", "M0");
+            } catch (IllegalStateException e) {
+                refused = true;
+            }
+            if (!refused || !library.findItemById("F1").isAvailable()
+                    || library.findMemberById("M0").getBorrowedCount() != 1) {
+                throw new IllegalStateException("A mutation the journal refused was applied");
+            }
+            // The loan on F0 cannot be replayed into a library that never held F0
+            Library stranger = new Library("Stranger");
+            stranger.setEventSink(NoOpEventSink.INSTANCE);
+            stranger.registerMember(new Member("M0", "Member 0", "m0@email.com"));
+            boolean unknownRefused = false;
+            try {
+                LibraryJournal.replay(directory, 0, stranger);
+            } catch (IOException e) {
+                unknownRefused = e.getMessage().contains("F0");
+            }
+            if (!unknownRefused) {
+                throw new IllegalStateException("Replay dropped a record naming an unknown item");
+            }
+            System.out.println("Unfilled batch synced within 20 ms; refused records change nothing;"
+                               + " unknown items fail replay - OK");
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+    
+    private static void timeRecovery(Path directory, String label) throws IOException {
+        long start = System.nanoTime();
+        try (LibraryPersistence persistence = LibraryPersistence.open(directory, "Bench", 4096)) {
+            double millis = BenchmarkSupport.millisSince(start);
+            System.out.printf("%-28s %,10.0f ms  (%,d items, %,d journal records replayed)%n", label + ":",
+                              millis, persistence.getLibrary().getStatistics().getTotalItems(),
+                              persistence.getReplayedRecords());
+        }
+    }
+    
+    private static void populate(Library library, int itemCount, int memberCount) {
+        for (int i = 0; i < itemCount; i++) {
+            library.addItem(new Fiction("F" + i, "Title " + i, "Author " + i, "ISBN-" + i));
+        }
+        for (int m = 0; m < memberCount; m++) {
+            library.registerMember(new Member("M" + m, "Member " + m, "m" + m + "@email.com"));
+        }
+    }
+    
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.Arrays;
+
+/**
+ * Sorted, growable list of item slots used by the search indexes
+ * Slots are handed out in increasing order, so adding a new item is an append
+ */
+public class PostingList {
+    private static final int INITIAL_CAPACITY = 4;
+    
+    private int[] slots;
+    private int size;
+    
+    public PostingList() {
+        this.slots = new int[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+    
+    public void add(int slot) {
+        if (size > 0 && slots[size - 1] >= slot) {
+            int index = Arrays.binarySearch(slots, 0, size, slot);
+            if (index >= 0) {
+                return; // already present
+            }
+            insertAt(-index - 1, slot);
+            return;
+        }
+        ensureCapacity(size + 1);
+        slots[size++] = slot;
+    }
+    
+    public boolean remove(int slot) {
+        int index = Arrays.binarySearch(slots, 0, size, slot);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+        size--;
+        return true;
+    }
+    
+    public boolean contains(int slot) {
+        return Arrays.binarySearch(slots, 0, size, slot) >= 0;
+    }
+    
+    public int get(int index) { return slots[index]; }
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    
+    // Index of the first slot at or after slot, searching from index from; size() if there is none
+    public int ceilingIndex(int slot, int from) {
+        int index = Arrays.binarySearch(slots, Math.min(from, size), size, slot);
+        return index >= 0 ? index : -index - 1;
+    }
+    
+    public int[] toArray() {
+        return Arrays.copyOf(slots, size);
+    }
+    
+    // Copies this list's slots into target starting at offset, returns the new offset
+    public int copyTo(int[] target, int offset) {
+        System.arraycopy(slots, 0, target, offset, size);
+        return offset + size;
+    }
+    
+    // Intersection of two sorted slot arrays, written into a new array
+    public static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int i = 0, j = 0, count = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+    
+    private void insertAt(int index, int slot) {
+        ensureCapacity(size + 1);
+        System.arraycopy(slots, index, slots, index + 1, size - index);
+        slots[index] = slot;
+        size++;
+    }
+    
+    private void ensureCapacity(int capacity) {
+        if (capacity > slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(capacity, slots.length * 2));
+        }
+    }
+}
@@ -31,9 +31,9 @@ public class Reference extends Book {
     }
     
     @Override
-    public void displayInfo() {
-        super.displayInfo();
-        System.out.println("Book Type: Reference");
-        System.out.println("Borrowing: Library use only");
+    protected void appendInfo(StringBuilder out) {
+        super.appendInfo(out);
+        line(out, "Book Type: Reference");
+        line(out, "Borrowing: Library use only");
     }
 }
@@ -0,0 +1,88 @@
+import java.util.Random;
+
+/**
+ * Benchmark for Library substring search
+ * Reports p50/p99 latency of searchByTitle and searchByAuthor in LINEAR and TRIGRAM mode
+ */
+public class SearchBenchmark {
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int QUERIES = 2_000;
+    
+    public static void main(String[] args) {
+        System.out.println("=== Substring Search Benchmark ===\n");
+        System.out.printf("%-10s %-8s %12s %12s %12s %12s %10s%n",
+                          "Items", "Mode", "title p50", "title p99", "author p50", "author p99", "avg hits");
+        for (int size : SIZES) {
+            Item[] items = BenchmarkSupport.syntheticItems(size, 42);
+            Library library = new Library("Benchmark Library");
+            BenchmarkSupport.silenced(() -> {
+                for (Item item : items) {
+                    library.addItem(item);
+                }
+            });
+            String[] titleQueries = queries(items, true, new Random(7));
+            String[] authorQueries = queries(items, false, new Random(11));
+            
+            // The linear scan is slow at 1M items, so it gets fewer samples there
+            int linearQueries = Math.max(50, QUERIES * 10_000 / size);
+            report(library, Library.SearchMode.LINEAR, size, titleQueries, authorQueries, linearQueries);
+            report(library, Library.SearchMode.TRIGRAM, size, titleQueries, authorQueries, QUERIES);
+            library.setSearchMode(Library.SearchMode.LINEAR);
+        }
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    private static void report(Library library, Library.SearchMode mode, int size,
+                               String[] titleQueries, String[] authorQueries, int count) {
+        long start = System.nanoTime();
+        library.setSearchMode(mode);
+        double buildMillis = BenchmarkSupport.millisSince(start);
+        // Warm up, then measure
+        run(library, titleQueries, true, Math.min(count, 200));
+        long[] title = run(library, titleQueries, true, count);
+        long[] author = run(library, authorQueries, false, count);
+        System.out.printf("%-10s %-8s %10.1fus %10.1fus %10.1fus %10.1fus %10.1f%s%n",
+                          String.format("%,d", size), mode,
+                          BenchmarkSupport.percentile(title, 50) / 1e3,
+                          BenchmarkSupport.percentile(title, 99) / 1e3,
+                          BenchmarkSupport.percentile(author, 50) / 1e3,
+                          BenchmarkSupport.percentile(author, 99) / 1e3,
+                          averageHits(library, titleQueries),
+                          mode == Library.SearchMode.TRIGRAM
+                              ? String.format("  (index build %.0f ms)", buildMillis) : "");
+    }
+    
+    private static long[] run(Library library, String[] queries, boolean byTitle, int count) {
+        long[] samples = new long[count];
+        for (int i = 0; i < count; i++) {
+            String query = queries[i % queries.length];
+            long start = System.nanoTime();
+            Object results = byTitle ? library.searchByTitle(query) : library.searchByAuthor(query);
+            samples[i] = System.nanoTime() - start;
+            BenchmarkSupport.consume(results);
+        }
+        return samples;
+    }
+    
+    private static double averageHits(Library library, String[] queries) {
+        long hits = 0;
+        int sampled = Math.min(queries.length, 100);
+        for (int i = 0; i < sampled; i++) {
+            hits += library.searchByTitle(queries[i]).size();
+        }
+        return (double) hits / sampled;
+    }
+    
+    // Random 4-8 character fragments of existing titles or authors, like "piens" for "Sapiens"
+    private static String[] queries(Item[] items, boolean byTitle, Random random) {
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < queries.length; i++) {
+            Item item = items[random.nextInt(items.length)];
+            String text = byTitle ? item.getTitle() : item.getAuthor();
+            int length = Math.min(text.length(), 4 + random.nextInt(5));
+            int start = random.nextInt(text.length() - length + 1);
+            queries[i] = text.substring(start, start + length);
+        }
+        return queries;
+    }
+}
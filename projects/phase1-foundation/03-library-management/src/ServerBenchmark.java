@@ -0,0 +1,284 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Load test for LibraryServer
+ * A single-threaded non-blocking load generator opens every client connection first, then all
+ * clients run their sessions at once; compares a thread per connection with a fixed platform pool.
+ * Pass the client count as the first argument (50000 needs an open-file limit above 100k).
+ */
+public class ServerBenchmark {
+    private static final int DEFAULT_CLIENTS = 5_000;
+    private static final int REQUESTS_PER_CLIENT = 10;
+    private static final int POOL_THREADS = 200;
+    private static final int ITEMS = 2_000;
+    private static final long TIMEOUT_MILLIS = 300_000;
+    
+    public static void main(String[] args) throws IOException {
+        int clients = Math.min(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLIENTS, maxClients());
+        System.out.println("=== Library Server Benchmark ===\n");
+        
+        System.out.println("1. Protocol check:");
+        checkProtocol();
+        
+        boolean virtual = LibraryServer.virtualThreadsAvailable();
+        System.out.printf("%n2. %,d simultaneous clients, %d requests each:%n", clients, REQUESTS_PER_CLIENT);
+        if (!virtual) {
+            System.out.println("(Virtual threads need Java 21+; the per-connection server uses platform threads here)");
+        }
+        System.out.printf("%-28s %14s %10s %10s %10s%n", "Server", "Throughput", "p50", "p99", "Max");
+        run(virtual ? "Virtual thread/connection" : "Platform thread/connection", clients,
+            LibraryServer.withVirtualThreads(newLibrary(clients)));
+        run("Fixed pool of " + POOL_THREADS, clients,
+            LibraryServer.withThreadPool(newLibrary(clients), POOL_THREADS));
+        
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    // Each client needs two descriptors on this machine, one per end of its connection
+    private static int maxClients() {
+        Object os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.UnixOperatingSystemMXBean) {
+            long limit = ((com.sun.management.UnixOperatingSystemMXBean) os).getMaxFileDescriptorCount();
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(1, (limit - 1_000) / 2));
+        }
+        return Integer.MAX_VALUE;
+    }
+    
+    private static ConcurrentLibrary newLibrary(int members) {
+        ConcurrentLibrary library = new ConcurrentLibrary("Server Bench");
+        Item[] items = BenchmarkSupport.syntheticItems(ITEMS, 107);
+        for (Item item : items) {
+            library.addItem(item);
+        }
+        for (int i = 0; i < members; i++) {
+            library.registerMember(new Member("SM" + i, "Client " + i, "c" + i + "@example.com"));
+        }
+        return library;
+    }
+    
+    private static void run(String label, int clients, LibraryServer server) throws IOException {
+        try (server) {
+            int port = server.start(0);
+            LoadGenerator load = new LoadGenerator(port, clients, BenchmarkSupport.syntheticItems(ITEMS, 107));
+            load.connectAll();
+            long elapsed = load.runSessions();
+            long requests = (long) clients * REQUESTS_PER_CLIENT;
+            check(server.getRequestsServed() == requests, label + " served " + server.getRequestsServed());
+            // Every client returns what it managed to borrow, so nothing may still be out
+            check(server.handle("STATS").contains(" borrowed=0 "), label + " left loans open");
+            long[] latencies = load.latencies;
+            System.out.printf("%-28s %14s %7.2f ms %7.2f ms %7.2f ms%n", label,
+                              BenchmarkSupport.formatRate(BenchmarkSupport.perSecond(requests, elapsed)),
+                              BenchmarkSupport.percentile(latencies, 50) / 1e6,
+                              BenchmarkSupport.percentile(latencies, 99) / 1e6,
+                              latencies[latencies.length - 1] / 1e6);
+        }
+    }
+    
+    /**
+     * Drives many client sessions from one thread with non-blocking sockets,
+     * so the generator itself needs no thread per client
+     */
+    private static final class LoadGenerator {
+        private final InetSocketAddress address;
+        private final Item[] items;
+        private final Client[] clients;
+        private final long[] latencies;
+        private int recorded;
+        private final Selector selector;
+        
+        LoadGenerator(int port, int clientCount, Item[] items) throws IOException {
+            this.address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+            this.items = items;
+            this.clients = new Client[clientCount];
+            this.latencies = new long[clientCount * REQUESTS_PER_CLIENT];
+            this.selector = Selector.open();
+        }
+        
+        // Opens every connection before any client sends a request
+        void connectAll() throws IOException {
+            int connected = 0;
+            for (int i = 0; i < clients.length; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                clients[i] = new Client(i, channel);
+                if (channel.connect(address)) {
+                    connected++;
+                } else {
+                    channel.register(selector, SelectionKey.OP_CONNECT, clients[i]);
+                }
+            }
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (connected < clients.length) {
+                checkDeadline(deadline, "connecting");
+                selector.select(1_000);
+                for (Iterator<SelectionKey> keys = selector.selectedKeys().iterator(); keys.hasNext(); ) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (((Client) key.attachment()).channel.finishConnect()) {
+                        key.interestOps(0);
+                        connected++;
+                    }
+                }
+            }
+        }
+        
+        // Starts every session at once; returns nanoseconds until the last response
+        long runSessions() throws IOException {
+            long start = System.nanoTime();
+            for (Client client : clients) {
+                client.channel.register(selector, SelectionKey.OP_READ, client);
+                client.sendNext();
+            }
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            int finished = 0;
+            while (finished < clients.length) {
+                checkDeadline(deadline, "running sessions");
+                selector.select(1_000);
+                for (Iterator<SelectionKey> keys = selector.selectedKeys().iterator(); keys.hasNext(); ) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (((Client) key.attachment()).readResponses()) {
+                        key.cancel();
+                        finished++;
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            selector.close();
+            return elapsed;
+        }
+        
+        private void checkDeadline(long deadline, String phase) {
+            check(System.currentTimeMillis() < deadline, "timed out " + phase);
+        }
+        
+        private final class Client {
+            private final int index;
+            private final SocketChannel channel;
+            private final ByteBuffer input = ByteBuffer.allocate(1_024);
+            private int sent;
+            private long sentAt;
+            
+            Client(int index, SocketChannel channel) {
+                this.index = index;
+                this.channel = channel;
+            }
+            
+            // Borrow/return pairs on a shared item, then a stats poll and a title search
+            private String request(int step) {
+                String itemId = items[index % items.length].getId();
+                if (step < REQUESTS_PER_CLIENT - 2) {
+                    return (step % 2 == 0 ? "BORROW " : "RETURN ") + itemId + " SM" + index;
+                }
+                return step == REQUESTS_PER_CLIENT - 2 ? "STATS" : "SEARCH river";
+            }
+            
+            void sendNext() throws IOException {
+                String line = sent < REQUESTS_PER_CLIENT ? request(sent) : "QUIT";
+                sent++;
+                ByteBuffer output = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+                sentAt = System.nanoTime();
+                while (output.hasRemaining()) {
+                    channel.write(output); // a few dozen bytes always fit an idle socket buffer
+                }
+            }
+            
+            // Returns true once the session is over and the channel closed
+            boolean readResponses() throws IOException {
+                if (channel.read(input) < 0) {
+                    throw new IOException("Server closed client " + index + " early");
+                }
+                for (int i = 0; i < input.position(); i++) {
+                    if (input.get(i) == '\n') {
+                        latencies[recorded++] = System.nanoTime() - sentAt;
+                        input.position(0); // one request in flight, so nothing follows the newline
+                        sendNext();
+                        if (sent > REQUESTS_PER_CLIENT) {
+                            channel.close();
+                            return true;
+                        }
+                        break;
+                    }
+                }
+                return false;
+            }
+        }
+    }
+    
+    // A scripted session over a plain blocking socket
+    private static void checkProtocol() throws IOException {
+        ConcurrentLibrary library = newLibrary(2);
+        Item book = Arrays.stream(BenchmarkSupport.syntheticItems(ITEMS, 107))
+                .filter(item -> !(item instanceof Reference)).findFirst().get();
+        try (LibraryServer server = LibraryServer.withVirtualThreads(library)) {
+            int port = server.start(0);
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+                String[][] script = {
+                    {"BORROW " + book.getId() + " SM0", "OK"},
+                    {"BORROW " + book.getId() + " SM1", "DENIED"},
+                    {"RETURN " + book.getId() + " SM1", "DENIED"},
+                    {"STATS", "STATS items=" + ITEMS + " available=" + (ITEMS - 1) + " borrowed=1 members=2"},
+                    {"return " + book.getId() + " SM0", "OK"},
+                    {"BORROW " + book.getId(), "ERROR usage: BORROW itemId memberId"},
+                    {"RENEW " + book.getId(), "ERROR unknown command: RENEW"},
+                    {"SEARCH " + "x".repeat(LibraryServer.MAX_LINE_LENGTH),
+                     "ERROR line longer than " + LibraryServer.MAX_LINE_LENGTH + " characters"},
+                    {"STATS", "STATS items=" + ITEMS + " available=" + ITEMS + " borrowed=0 members=2"},
+                };
+                for (String[] step : script) {
+                    out.println(step[0]);
+                    String response = in.readLine();
+                    check(step[1].equals(response), step[0] + " answered " + response);
+                }
+                String title = book.getTitle();
+                out.println("SEARCH " + title);
+                String[] results = in.readLine().split(" ");
+                check(results[0].equals("RESULTS") && Integer.parseInt(results[1]) == library.searchByTitle(title).size()
+                      && Arrays.asList(results).contains(book.getId()), "search for " + title);
+                out.println("QUIT");
+                check(in.readLine() == null, "QUIT closes the connection");
+            }
+        }
+        System.out.println("BORROW, RETURN, SEARCH, STATS, errors and overlong lines answer as documented - OK");
+        
+        // A server closed before it was started still releases its executor
+        ExecutorService pool = Executors.newCachedThreadPool();
+        LibraryServer unused = new LibraryServer(library, pool);
+        unused.close();
+        boolean restartRefused = false;
+        try {
+            unused.start(0);
+        } catch (IllegalStateException e) {
+            restartRefused = true;
+        }
+        check(pool.isShutdown() && restartRefused, "unstarted server kept its executor");
+        System.out.println("Closing a server that never started shuts its executor down - OK");
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + message);
+        }
+    }
+}
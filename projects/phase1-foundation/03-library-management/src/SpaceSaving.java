@@ -0,0 +1,216 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Space-Saving heavy hitters: the most frequent keys of a stream in a fixed number of counters
+ * A key without a counter takes over the smallest one and inherits its count as possible error,
+ * so a count overstates by at most total / capacity, and every key that occurs more often than
+ * that is guaranteed to hold a counter. Counters live in parallel arrays ordered as a min-heap,
+ * found through an open-addressing table, so an update allocates nothing and costs O(log capacity).
+ */
+public class SpaceSaving {
+    /**
+     * A tracked key; the true count lies between count - error and count
+     */
+    public static final class Entry {
+        private final String key;
+        private final long count;
+        private final long error;
+        
+        Entry(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+        
+        public String getKey() { return key; }
+        public long getCount() { return count; }
+        public long getError() { return error; }
+        public long getGuaranteedCount() { return count - error; }
+        
+        @Override
+        public String toString() {
+            return key + "=" + count + (error > 0 ? " (-" + error + ")" : "");
+        }
+    }
+    
+    private static final int FREE = -1;
+    
+    private final int capacity;
+    // Counter c holds keys[c] with counts[c]; heap lists counters smallest count first
+    private final String[] keys;
+    private final int[] hashes;
+    private final long[] counts;
+    private final long[] errors;
+    private final int[] heap;
+    private final int[] heapIndex;
+    private final int[] buckets; // counter of each table slot, at most half full
+    private final int mask;
+    private int size;
+    private long total;
+    
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.keys = new String[capacity];
+        this.hashes = new int[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.heap = new int[capacity];
+        this.heapIndex = new int[capacity];
+        this.buckets = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        this.mask = buckets.length - 1;
+        Arrays.fill(buckets, FREE);
+    }
+    
+    public int getCapacity() { return capacity; }
+    public int size() { return size; }
+    public long getTotal() { return total; }
+    public long getMemoryBytes() { return 36L * capacity + 4L * buckets.length; }
+    
+    // Largest possible overstatement of any count
+    public long getErrorBound() {
+        return size < capacity ? 0 : counts[heap[0]];
+    }
+    
+    public void add(String key) {
+        total++;
+        int hash = spread(key.hashCode());
+        int bucket = find(key, hash);
+        int counter = buckets[bucket];
+        if (counter == FREE) {
+            if (size < capacity) {
+                counter = size;
+                heap[size] = counter;
+                heapIndex[counter] = size++;
+            } else {
+                counter = heap[0]; // evict the smallest; the newcomer may have had that many already
+                deleteBucket(find(keys[counter], hashes[counter]));
+                errors[counter] = counts[counter];
+                bucket = find(key, hash);
+            }
+            keys[counter] = key;
+            hashes[counter] = hash;
+            buckets[bucket] = counter;
+        }
+        counts[counter]++;
+        siftDown(heapIndex[counter]);
+        siftUp(heapIndex[counter]); // a new counter starts at the bottom of the heap
+    }
+    
+    // Tracked count of a key, or 0 when it has none
+    public long count(String key) {
+        int counter = buckets[find(key, spread(key.hashCode()))];
+        return counter != FREE ? counts[counter] : 0;
+    }
+    
+    // The n largest counts, largest first; ties by key
+    public List<Entry> top(int n) {
+        int[] best = new int[Math.max(0, Math.min(n, size))];
+        int found = 0;
+        for (int counter = 0; counter < size; counter++) {
+            // Insertion into the short ranked list; most counters fall below its end at once
+            int at = found;
+            while (at > 0 && ranksBefore(counter, best[at - 1])) {
+                at--;
+            }
+            if (at == best.length) {
+                continue;
+            }
+            int moved = Math.min(found, best.length - 1) - at;
+            System.arraycopy(best, at, best, at + 1, moved);
+            best[at] = counter;
+            found = Math.min(found + 1, best.length);
+        }
+        List<Entry> top = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            top.add(new Entry(keys[best[i]], counts[best[i]], errors[best[i]]));
+        }
+        return top;
+    }
+    
+    private boolean ranksBefore(int a, int b) {
+        return counts[a] != counts[b] ? counts[a] > counts[b] : keys[a].compareTo(keys[b]) < 0;
+    }
+    
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(counts, 0, size, 0);
+        Arrays.fill(errors, 0, size, 0);
+        Arrays.fill(buckets, FREE);
+        size = 0;
+        total = 0;
+    }
+    
+    // Table - the slot holding the key, or the free slot where it belongs
+    private int find(String key, int hash) {
+        int bucket = hash & mask;
+        while (true) {
+            int counter = buckets[bucket];
+            if (counter == FREE || (hashes[counter] == hash && keys[counter].equals(key))) {
+                return bucket;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+    }
+    
+    // Backward-shift deletion keeps every probe sequence unbroken without tombstones
+    private void deleteBucket(int bucket) {
+        int gap = bucket;
+        int next = (gap + 1) & mask;
+        while (buckets[next] != FREE) {
+            int home = hashes[buckets[next]] & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                buckets[gap] = buckets[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        buckets[gap] = FREE;
+    }
+    
+    private static int spread(int hash) {
+        return hash * 0x9E3779B9 ^ (hash >>> 16);
+    }
+    
+    // Heap
+    private void siftUp(int index) {
+        int counter = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (counts[heap[parent]] <= counts[counter]) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(counter, index);
+    }
+    
+    private void siftDown(int index) {
+        int counter = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[heap[child]] >= counts[counter]) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(counter, index);
+    }
+    
+    private void place(int counter, int index) {
+        heap[index] = counter;
+        heapIndex[counter] = index;
+    }
+}
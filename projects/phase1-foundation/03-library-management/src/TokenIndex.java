@@ -0,0 +1,470 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Incremental inverted index from lowercased words to item slots
+ * Answers word and prefix queries without scanning the catalog
+ */
+public class TokenIndex {
+    // Bound on the words one fuzzy query may expand to, so typo search stays fast on huge vocabularies
+    static final int MAX_CANDIDATE_WORDS = 32;
+    static final int MATCH_SCORE = 256;
+    
+    private final Function<Item, String> field;
+    private final Map<String, PostingList> postings;
+    private final TreeSet<String> vocabulary; // sorted copy of the keys, for prefix ranges
+    private BKTree fuzzyVocabulary; // built on the first fuzzy query; may hold words no longer indexed
+    
+    public TokenIndex(Function<Item, String> field) {
+        this.field = field;
+        this.postings = new HashMap<>();
+        this.vocabulary = new TreeSet<>();
+    }
+    
+    // Index maintenance
+    public void add(Item item, int slot) {
+        for (String token : tokenize(field.apply(item))) {
+            PostingList list = postings.get(token);
+            if (list == null) {
+                list = new PostingList();
+                postings.put(token, list);
+                vocabulary.add(token);
+                if (fuzzyVocabulary != null) {
+                    fuzzyVocabulary.add(token);
+                }
+            }
+            list.add(slot);
+        }
+    }
+    
+    public void remove(Item item, int slot) {
+        for (String token : tokenize(field.apply(item))) {
+            PostingList list = postings.get(token);
+            if (list != null) {
+                list.remove(slot);
+                if (list.isEmpty()) {
+                    postings.remove(token);
+                    vocabulary.remove(token);
+                }
+            }
+        }
+    }
+    
+    // Queries - all return slots in ascending (insertion) order
+    public int[] findWord(String word) {
+        PostingList list = postings.get(word.toLowerCase());
+        return list != null ? list.toArray() : new int[0];
+    }
+    
+    public int[] findPrefix(String prefix) {
+        NavigableSet<String> range = prefixRange(prefix.toLowerCase());
+        if (range.size() == 1) {
+            return postings.get(range.first()).toArray();
+        }
+        int total = 0;
+        for (String token : range) {
+            total += postings.get(token).size();
+        }
+        int[] slots = new int[total];
+        int offset = 0;
+        for (String token : range) {
+            offset = postings.get(token).copyTo(slots, offset);
+        }
+        return sortedUnique(slots);
+    }
+    
+    /**
+     * Slots of items that contain every word of the query; the last word
+     * also matches as a prefix so partially typed queries still find results
+     */
+    public int[] search(String query) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return new int[0];
+        }
+        int[] result = findPrefix(words.get(words.size() - 1));
+        for (int i = 0; i < words.size() - 1 && result.length > 0; i++) {
+            result = PostingList.intersect(result, findWord(words.get(i)));
+        }
+        return result;
+    }
+    
+    /**
+     * The slots of search(query) from fromSlot on, produced one at a time.
+     * Each step only advances along the posting lists of the query words, so reading
+     * a page costs about the page, not the full result.
+     */
+    public Matches matches(String query, int fromSlot) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return new Matches(new PostingList[0], new PostingList[0], fromSlot);
+        }
+        PostingList[] exact = new PostingList[words.size() - 1];
+        for (int i = 0; i < exact.length; i++) {
+            exact[i] = postings.get(words.get(i));
+            if (exact[i] == null) {
+                return new Matches(new PostingList[0], new PostingList[0], fromSlot);
+            }
+        }
+        NavigableSet<String> range = prefixRange(words.get(words.size() - 1));
+        PostingList[] prefixed = new PostingList[range.size()];
+        int i = 0;
+        for (String token : range) {
+            prefixed[i++] = postings.get(token);
+        }
+        return new Matches(exact, prefixed, fromSlot);
+    }
+    
+    /**
+     * Ascending walk over the slots in every exact-word list and at least one prefix list.
+     * It reads the lists as it goes, so the index must not change while a walk is in use.
+     */
+    public static final class Matches {
+        private final PostingList[] exact;
+        private final int[] exactPositions;
+        private final PostingList[] prefixed;
+        private final int[] prefixPositions;
+        private final PriorityQueue<Integer> union; // prefix lists by their current slot
+        private int target;
+        
+        private Matches(PostingList[] exact, PostingList[] prefixed, int fromSlot) {
+            this.exact = exact;
+            this.exactPositions = new int[exact.length];
+            this.prefixed = prefixed;
+            this.prefixPositions = new int[prefixed.length];
+            this.union = new PriorityQueue<>(Math.max(1, prefixed.length),
+                    (a, b) -> Integer.compare(current(a), current(b)));
+            this.target = fromSlot;
+            for (int i = 0; i < prefixed.length; i++) {
+                prefixPositions[i] = prefixed[i].ceilingIndex(fromSlot, 0);
+                if (prefixPositions[i] < prefixed[i].size()) {
+                    union.add(i);
+                }
+            }
+        }
+        
+        // The next matching slot, or -1 once the walk is done
+        public int next() {
+            int candidate = seekPrefix(target);
+            while (candidate >= 0) {
+                int blocker = candidate;
+                for (int i = 0; i < exact.length && blocker == candidate; i++) {
+                    exactPositions[i] = exact[i].ceilingIndex(candidate, exactPositions[i]);
+                    if (exactPositions[i] == exact[i].size()) {
+                        return target = -1;
+                    }
+                    blocker = exact[i].get(exactPositions[i]);
+                }
+                if (blocker == candidate) {
+                    target = candidate + 1;
+                    return candidate;
+                }
+                candidate = seekPrefix(blocker);
+            }
+            return target = -1;
+        }
+        
+        // Smallest slot at or after slot in any prefix list, or -1
+        private int seekPrefix(int slot) {
+            if (slot < 0) {
+                return -1;
+            }
+            while (!union.isEmpty() && current(union.peek()) < slot) {
+                int list = union.poll();
+                prefixPositions[list] = prefixed[list].ceilingIndex(slot, prefixPositions[list]);
+                if (prefixPositions[list] < prefixed[list].size()) {
+                    union.add(list);
+                }
+            }
+            return union.isEmpty() ? -1 : current(union.peek());
+        }
+        
+        private int current(int list) {
+            return prefixed[list].get(prefixPositions[list]);
+        }
+    }
+    
+    /**
+     * Slots ranked by how well they match a query that may contain typos.
+     * Each query word matches indexed words within maxDistance(word) edits; slots matching
+     * more query words rank first, then those with fewer total edits, then insertion order.
+     * Slots matching every word are found by intersecting the full posting lists with skips,
+     * and a walk stops once no later slot can displace the limit best found so far.
+     */
+    public int[] fuzzySearch(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        int[] full = rankFullMatches(words, limit);
+        if (full.length == limit || words.size() == 1) {
+            return full;
+        }
+        int[] partial = rankPartialMatches(words, limit - full.length);
+        int[] ranked = Arrays.copyOf(full, full.length + partial.length);
+        System.arraycopy(partial, 0, ranked, full.length, partial.length);
+        return ranked;
+    }
+    
+    // Slots matching every query word, by leapfrogging the per-word unions of candidate lists
+    private int[] rankFullMatches(List<String> words, int limit) {
+        WordUnion[] unions = unionsFor(words);
+        int bestDistance = 0;
+        for (WordUnion union : unions) {
+            if (union.isEmpty()) {
+                return new int[0];
+            }
+            bestDistance += union.minDistance();
+        }
+        TopSlots top = new TopSlots(limit);
+        int bestScore = words.size() * MATCH_SCORE - bestDistance;
+        int candidate = 0;
+        search:
+        while (!top.isSettled(bestScore)) {
+            for (WordUnion union : unions) {
+                int slot = union.seek(candidate);
+                if (slot < 0) {
+                    break search;
+                }
+                if (slot > candidate) {
+                    candidate = slot;
+                    continue search;
+                }
+            }
+            int score = 0;
+            for (WordUnion union : unions) {
+                score += MATCH_SCORE - union.distanceAt(candidate);
+            }
+            top.offer(candidate++, score);
+        }
+        return top.toArray();
+    }
+    
+    // Slots matching some but not all query words, walking the union of every candidate list
+    private int[] rankPartialMatches(List<String> words, int limit) {
+        WordUnion[] unions = unionsFor(words);
+        int bestDistance = 0;
+        int spared = 0;
+        for (WordUnion union : unions) {
+            if (!union.isEmpty()) {
+                bestDistance += union.minDistance();
+                spared = Math.max(spared, union.minDistance());
+            }
+        }
+        TopSlots top = new TopSlots(limit);
+        int bestScore = (words.size() - 1) * MATCH_SCORE - (bestDistance - spared);
+        int candidate = 0;
+        while (!top.isSettled(bestScore)) {
+            int next = -1;
+            for (WordUnion union : unions) {
+                int slot = union.seek(candidate);
+                if (slot >= 0 && (next < 0 || slot < next)) {
+                    next = slot;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            int matched = 0;
+            int score = 0;
+            for (WordUnion union : unions) {
+                if (union.seek(next) == next) {
+                    matched++;
+                    score += MATCH_SCORE - union.distanceAt(next);
+                }
+            }
+            if (matched < words.size()) {
+                top.offer(next, score);
+            }
+            candidate = next + 1;
+        }
+        return top.toArray();
+    }
+    
+    private WordUnion[] unionsFor(List<String> words) {
+        WordUnion[] unions = new WordUnion[words.size()];
+        for (int i = 0; i < unions.length; i++) {
+            List<String> candidates = similarWords(words.get(i));
+            PostingList[] lists = new PostingList[candidates.size()];
+            int[] distances = new int[candidates.size()];
+            for (int c = 0; c < lists.length; c++) {
+                lists[c] = postings.get(candidates.get(c));
+                distances[c] = BKTree.distance(words.get(i), candidates.get(c), Integer.MAX_VALUE);
+            }
+            unions[i] = new WordUnion(lists, distances);
+        }
+        return unions;
+    }
+    
+    // The candidate lists of one query word, walked together in slot order
+    private static final class WordUnion {
+        private final PostingList[] lists;
+        private final int[] distances;
+        private final int[] positions;
+        
+        WordUnion(PostingList[] lists, int[] distances) {
+            this.lists = lists;
+            this.distances = distances;
+            this.positions = new int[lists.length];
+        }
+        
+        boolean isEmpty() { return lists.length == 0; }
+        
+        int minDistance() {
+            int min = Integer.MAX_VALUE;
+            for (int distance : distances) {
+                min = Math.min(min, distance);
+            }
+            return min;
+        }
+        
+        // Smallest slot at or after slot in any list, or -1; slots must be asked for in ascending order
+        int seek(int slot) {
+            int next = -1;
+            for (int i = 0; i < lists.length; i++) {
+                positions[i] = lists[i].ceilingIndex(slot, positions[i]);
+                if (positions[i] < lists[i].size() && (next < 0 || lists[i].get(positions[i]) < next)) {
+                    next = lists[i].get(positions[i]);
+                }
+            }
+            return next;
+        }
+        
+        // Fewest edits among the lists positioned on slot; call right after seek(slot) returned slot
+        int distanceAt(int slot) {
+            int best = Integer.MAX_VALUE;
+            for (int i = 0; i < lists.length; i++) {
+                if (positions[i] < lists[i].size() && lists[i].get(positions[i]) == slot) {
+                    best = Math.min(best, distances[i]);
+                }
+            }
+            return best;
+        }
+    }
+    
+    // The best limit slots offered in ascending slot order, in a min-heap keyed by score, then by earlier slot
+    private static final class TopSlots {
+        private final int limit;
+        private final PriorityQueue<Long> best = new PriorityQueue<>();
+        
+        TopSlots(int limit) {
+            this.limit = limit;
+        }
+        
+        void offer(int slot, int score) {
+            long rank = ((long) score << 32) | (Integer.MAX_VALUE - slot);
+            if (best.size() < limit) {
+                best.add(rank);
+            } else if (rank > best.peek()) {
+                best.poll();
+                best.add(rank);
+            }
+        }
+        
+        // Full of bestScore entries: later slots lose every tie, so nothing can displace them
+        boolean isSettled(int bestScore) {
+            return best.size() == limit && (int) (best.peek() >> 32) >= bestScore;
+        }
+        
+        int[] toArray() {
+            int[] slots = new int[best.size()];
+            for (int i = slots.length - 1; i >= 0; i--) {
+                slots[i] = Integer.MAX_VALUE - (int) (long) best.poll();
+            }
+            return slots;
+        }
+    }
+    
+    /**
+     * Indexed words within maxDistance(word) edits of word, closest first,
+     * at most MAX_CANDIDATE_WORDS of them
+     */
+    public List<String> similarWords(String word) {
+        String lower = word.toLowerCase();
+        if (fuzzyVocabulary == null) {
+            fuzzyVocabulary = new BKTree();
+            for (String token : vocabulary) {
+                fuzzyVocabulary.add(token);
+            }
+        }
+        List<List<String>> byDistance = new ArrayList<>();
+        int maxDistance = maxDistance(lower);
+        for (int d = 0; d <= maxDistance; d++) {
+            byDistance.add(new ArrayList<>());
+        }
+        fuzzyVocabulary.search(lower, maxDistance, (candidate, distance) -> {
+            if (postings.containsKey(candidate)) {
+                byDistance.get(distance).add(candidate);
+            }
+        });
+        List<String> similar = new ArrayList<>();
+        for (List<String> group : byDistance) {
+            group.sort(null);
+            for (String candidate : group) {
+                if (similar.size() == MAX_CANDIDATE_WORDS) {
+                    return similar;
+                }
+                similar.add(candidate);
+            }
+        }
+        return similar;
+    }
+    
+    // Edits tolerated for a query word: none for very short words, two for long ones
+    static int maxDistance(String word) {
+        if (word.length() <= 2) {
+            return 0;
+        }
+        return word.length() <= 5 ? 1 : 2;
+    }
+    
+    public int tokenCount() {
+        return postings.size();
+    }
+    
+    // Splits text into lowercased runs of letters and digits
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        text = text.toLowerCase();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+    
+    private NavigableSet<String> prefixRange(String prefix) {
+        if (prefix.isEmpty()) {
+            return vocabulary;
+        }
+        // Every token starting with prefix sorts between prefix and prefix + MAX_VALUE
+        return vocabulary.subSet(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+    
+    private static int[] sortedUnique(int[] slots) {
+        Arrays.sort(slots);
+        int count = 0;
+        for (int i = 0; i < slots.length; i++) {
+            if (count == 0 || slots[count - 1] != slots[i]) {
+                slots[count++] = slots[i];
+            }
+        }
+        return Arrays.copyOf(slots, count);
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * N-gram (trigram) index over a lowercased item field
+ * Narrows substring queries to candidates sharing all of the query's trigrams,
+ * then verifies each candidate with String.contains so results match a linear scan
+ */
+public class TrigramIndex {
+    private static final int GRAM = 3;
+    
+    private final Function<Item, String> field;
+    private final Map<Long, PostingList> postings;
+    private String[] texts; // lowercased field value by slot, null once removed
+    private int slotLimit;
+    
+    public TrigramIndex(Function<Item, String> field) {
+        this.field = field;
+        this.postings = new HashMap<>();
+        this.texts = new String[16];
+        this.slotLimit = 0;
+    }
+    
+    // Index maintenance
+    public void add(Item item, int slot) {
+        String text = field.apply(item).toLowerCase();
+        if (slot >= texts.length) {
+            texts = Arrays.copyOf(texts, Math.max(slot + 1, texts.length * 2));
+        }
+        texts[slot] = text;
+        slotLimit = Math.max(slotLimit, slot + 1);
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            postings.computeIfAbsent(gramAt(text, i), g -> new PostingList()).add(slot);
+        }
+    }
+    
+    public void remove(Item item, int slot) {
+        if (slot < 0 || slot >= slotLimit || texts[slot] == null) {
+            return;
+        }
+        String text = texts[slot];
+        texts[slot] = null;
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            Long gram = gramAt(text, i);
+            PostingList list = postings.get(gram);
+            if (list != null) {
+                list.remove(slot);
+                if (list.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Slots, in ascending order, whose field contains the query (case-insensitive)
+     */
+    public int[] search(String query) {
+        String needle = query.toLowerCase();
+        if (needle.length() < GRAM) {
+            return scan(needle); // too short to have a trigram
+        }
+        PostingList[] lists = new PostingList[needle.length() - GRAM + 1];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = postings.get(gramAt(needle, i));
+            if (lists[i] == null) {
+                return new int[0]; // some trigram never occurs
+            }
+        }
+        // Start from the rarest trigram and probe the others with binary search
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size(), b.size()));
+        PostingList rarest = lists[0];
+        int[] results = new int[rarest.size()];
+        int count = 0;
+        for (int i = 0; i < rarest.size(); i++) {
+            int slot = rarest.get(i);
+            if (inAll(lists, slot) && texts[slot].contains(needle)) {
+                results[count++] = slot;
+            }
+        }
+        return Arrays.copyOf(results, count);
+    }
+    
+    public int gramCount() {
+        return postings.size();
+    }
+    
+    private int[] scan(String needle) {
+        int[] results = new int[16];
+        int count = 0;
+        for (int slot = 0; slot < slotLimit; slot++) {
+            if (texts[slot] != null && texts[slot].contains(needle)) {
+                if (count == results.length) {
+                    results = Arrays.copyOf(results, count * 2);
+                }
+                results[count++] = slot;
+            }
+        }
+        return Arrays.copyOf(results, count);
+    }
+    
+    private static boolean inAll(PostingList[] lists, int slot) {
+        for (int i = 1; i < lists.length; i++) {
+            if (!lists[i].contains(slot)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Packs three UTF-16 chars into one key
+    private static Long gramAt(String text, int index) {
+        return ((long) text.charAt(index) << 32)
+             | ((long) text.charAt(index + 1) << 16)
+             | text.charAt(index + 2);
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Benchmark for the rendered item view cache
+ * Replays a Zipfian stream of item views with occasional checkouts and returns,
+ * and reports hit rate, evictions and render latency for several cache sizes
+ */
+public class ViewCacheBenchmark {
+    private static final int ITEMS = 100_000;
+    private static final int DEFAULT_REQUESTS = 2_000_000;
+    private static final double ZIPF_EXPONENT = 1.0;
+    private static final int CHANGE_EVERY = 50; // one borrow or return per 50 views
+    private static final int[] CAPACITIES = {0, 1_000, 10_000};
+    
+    public static void main(String[] args) {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_REQUESTS;
+        System.out.printf("=== Item View Cache Benchmark (%,d items, Zipf s=%.1f, %,d views) ===%n%n",
+                          ITEMS, ZIPF_EXPONENT, requests);
+        
+        System.out.println("1. Invalidation check:");
+        checkInvalidation();
+        
+        Item[] items = Arrays.stream(BenchmarkSupport.syntheticItems(ITEMS, 37))
+                .filter(item -> !(item instanceof Reference)).toArray(Item[]::new);
+        int[] stream = zipfStream(items.length, requests, new Random(41));
+        
+        System.out.println("\n2. Views with a checkout or return every " + CHANGE_EVERY + " views:");
+        for (int round = 0; round < 2; round++) { // the first round warms up
+            for (int capacity : CAPACITIES) {
+                Library library = new Library("Bench");
+                library.setEventSink(NoOpEventSink.INSTANCE);
+                library.addItems(Arrays.asList(items));
+                // Each member borrows from their own few items, so nobody hits the borrowing limit
+                for (int m = 0; m <= items.length / Member.MAX_BORROWED_ITEMS; m++) {
+                    library.registerMember(new Member("M" + m, "Reader " + m, "r" + m + "@example.com"));
+                }
+                library.setViewCacheCapacity(capacity);
+                long[] samples = new long[requests];
+                long total = replay(library, items, stream, samples);
+                if (round == 1) {
+                    ItemViewCache cache = library.getViewCache();
+                    System.out.printf("%-16s %6.0f ns mean, p50 %5d ns, p99 %6d ns   %s%n",
+                                      capacity == 0 ? "No cache" : String.format("LRU %,d", capacity),
+                                      (double) total / requests, BenchmarkSupport.percentile(samples, 50),
+                                      BenchmarkSupport.percentile(samples, 99),
+                                      cache != null ? cache.toString() : "");
+                }
+            }
+        }
+        
+        System.out.println("\n=== Benchmark Complete ===");
+    }
+    
+    // Times each view; borrows or returns an item every CHANGE_EVERY views, outside the timing
+    private static long replay(Library library, Item[] items, int[] stream, long[] samples) {
+        boolean[] out = new boolean[items.length];
+        long total = 0;
+        for (int i = 0; i < stream.length; i++) {
+            String itemId = items[stream[i]].getId();
+            if (i % CHANGE_EVERY == 0) {
+                String memberId = "M" + stream[i] / Member.MAX_BORROWED_ITEMS;
+                if (out[stream[i]]) {
+                    library.returnItem(itemId, memberId);
+                } else {
+                    library.borrowItem(itemId, memberId);
+                }
+                out[stream[i]] = !out[stream[i]];
+            }
+            long start = System.nanoTime();
+            BenchmarkSupport.consume(library.renderItem(itemId));
+            samples[i] = System.nanoTime() - start;
+            total += samples[i];
+        }
+        return total;
+    }
+    
+    // Item ranks drawn with probability proportional to 1 / rank^s, most popular first
+    private static int[] zipfStream(int n, int count, Random random) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulative[rank] = sum;
+        }
+        int[] stream = new int[count];
+        for (int i = 0; i < count; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            stream[i] = index >= 0 ? index : Math.min(n - 1, -index - 1);
+        }
+        return stream;
+    }
+    
+    private static void checkInvalidation() {
+        Library library = new Library("Check");
+        library.setEventSink(NoOpEventSink.INSTANCE);
+        library.setViewCacheCapacity(2);
+        for (int i = 1; i <= 3; i++) {
+            library.addItem(new Fiction("F" + i, "Title " + i, "Author", "978-" + i));
+        }
+        library.registerMember(new Member("M1", "Reader", "r@example.com"));
+        String before = library.renderItem("F1");
+        boolean cached = library.renderItem("F1") == before;
+        library.borrowItem("F1", "M1");
+        String borrowed = library.renderItem("F1");
+        library.findItemById("F1").setAvailable(true); // direct flag change, no loan change
+        String flagged = library.renderItem("F1");
+        library.renderItem("F2");
+        library.renderItem("F3"); // evicts F1, the least recently used
+        ItemViewCache cache = library.getViewCache();
+        boolean ok = cached && borrowed.contains("Borrowed by: M1") && !borrowed.equals(before)
+                  && flagged.contains("Available: true")
+                  && cache.getHits() == 1 && cache.getMisses() == 5 && cache.getEvictions() == 1
+                  && cache.getInvalidations() == 2;
+        if (!ok) {
+            throw new IllegalStateException("View cache served a stale view: " + cache);
+        }
+        System.out.println("Borrow and setAvailable drop the cached view; LRU evicts - OK");
+    }
+}